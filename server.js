@@ -54,11 +54,171 @@ const mockData = {
   months: ['January', 'February', 'March', 'April', 'May', 'June', 'July', 'August', 'September', 'October', 'November', 'December']
 };
 
+// Columnar binary format, matching ColumnarWriter on the Spring Boot side
+const COLUMNAR = 'application/x-jaffolding-columnar';
+const SALES_COLUMNS = [
+  ['id', 'float64'], ['product', 'string'], ['category', 'string'],
+  ['sales', 'int32'], ['revenue', 'float64'], ['month', 'string']
+];
+
+function encodeColumnar(rows, columns) {
+  const align = (n, a) => Math.ceil(n / a) * a;
+  const types = { float64: 1, int32: 2, string: 3 };
+  const blocks = columns.map(([name, type]) => {
+    const nameBytes = Buffer.from(name, 'utf8');
+    let dictionary = null;
+    let codes = null;
+    if (type === 'string') {
+      const lookup = new Map();
+      dictionary = [];
+      codes = rows.map(row => {
+        const value = row[name];
+        if (value == null) return -1;
+        if (!lookup.has(value)) {
+          lookup.set(value, dictionary.length);
+          dictionary.push(Buffer.from(String(value), 'utf8'));
+        }
+        return lookup.get(value);
+      });
+    }
+    let size = 12 + align(nameBytes.length, 4);
+    if (dictionary) size += 4 + dictionary.reduce((sum, entry) => sum + 4 + align(entry.length, 4), 0);
+    const valuesOffset = align(size, 8);
+    size = valuesOffset + align(rows.length * (type === 'float64' ? 8 : 4), 8);
+
+    const block = Buffer.alloc(size);
+    block.writeInt32LE(size - 4, 0);
+    block.writeInt32LE(types[type], 4);
+    block.writeInt32LE(nameBytes.length, 8);
+    nameBytes.copy(block, 12);
+    let p = 12 + align(nameBytes.length, 4);
+    if (dictionary) {
+      block.writeInt32LE(dictionary.length, p);
+      p += 4;
+      dictionary.forEach(entry => {
+        block.writeInt32LE(entry.length, p);
+        entry.copy(block, p + 4);
+        p = align(p + 4 + entry.length, 4);
+      });
+    }
+    rows.forEach((row, i) => {
+      if (type === 'float64') block.writeDoubleLE(row[name] == null ? NaN : row[name], valuesOffset + i * 8);
+      else if (type === 'int32') block.writeInt32LE(row[name] | 0, valuesOffset + i * 4);
+      else block.writeInt32LE(codes[i], valuesOffset + i * 4);
+    });
+    return block;
+  });
+
+  const header = Buffer.alloc(16);
+  header.write('JCOL', 0, 'ascii');
+  header.writeInt32LE(1, 4);
+  header.writeInt32LE(rows.length, 8);
+  header.writeInt32LE(columns.length, 12);
+  return Buffer.concat([header, ...blocks]);
+}
+
 // API Routes
 app.get('/api/sales', (req, res) => {
+  // Newline-delimited JSON for streaming loaders, columnar binary for ColumnarData
+  const accepted = req.accepts(['application/json', 'application/x-ndjson', COLUMNAR]);
+  if (accepted === 'application/x-ndjson') {
+    res.type('application/x-ndjson');
+    res.send(mockData.salesData.map(item => JSON.stringify(item)).join('\n') + '\n');
+    return;
+  }
+  if (accepted === COLUMNAR) {
+    res.type(COLUMNAR);
+    res.send(encodeColumnar(mockData.salesData, SALES_COLUMNS));
+    return;
+  }
   res.json(mockData.salesData);
 });
 
+// Server-side paging, sorting and filtering, shaped like a Spring Data page
+app.get('/api/sales/page', (req, res) => {
+  const page = Math.max(0, parseInt(req.query.page) || 0);
+  const size = Math.max(1, parseInt(req.query.size) || 100);
+  let rows = mockData.salesData;
+
+  Object.keys(req.query).forEach(key => {
+    const value = String(req.query[key]);
+    const dot = key.indexOf('.');
+    if (dot < 0 || value === '') return;
+    const op = key.substring(0, dot);
+    const field = key.substring(dot + 1);
+
+    if (op === 'filter') {
+      rows = rows.filter(row => String(row[field] ?? '').toLowerCase().includes(value.toLowerCase()));
+    } else if (op === 'eq') {
+      const values = value.toLowerCase().split(',').map(v => v.trim());
+      rows = rows.filter(row => values.includes(String(row[field] ?? '').toLowerCase()));
+    } else if (op === 'min') {
+      rows = rows.filter(row => row[field] >= parseFloat(value));
+    } else if (op === 'max') {
+      rows = rows.filter(row => row[field] <= parseFloat(value));
+    }
+  });
+
+  if (req.query.sort) {
+    const [field, dir] = String(req.query.sort).split(',');
+    const sign = dir === 'desc' ? -1 : 1;
+    rows = rows.slice().sort((a, b) => {
+      if (a[field] === b[field]) return a.id - b.id;
+      return (a[field] < b[field] ? -1 : 1) * sign;
+    });
+  }
+
+  res.json({
+    content: rows.slice(page * size, (page + 1) * size),
+    totalElements: rows.length,
+    totalPages: Math.ceil(rows.length / size),
+    number: page,
+    size: size
+  });
+});
+
+// Grouped aggregates, shaped like SalesDataController's /api/sales/aggregate
+app.get('/api/sales/aggregate', (req, res) => {
+  const textFields = ['product', 'category', 'month'];
+  const numericFields = ['id', 'sales', 'revenue'];
+  const groupBy = req.query.groupBy ? String(req.query.groupBy).split(',').map(f => f.trim()) : [];
+  const measures = String(req.query.measure || 'count()').split(',').map(m => m.trim());
+
+  const parsed = measures.map(measure => {
+    const match = /^(sum|avg|min|max|count)\((\w*|\*)\)$/.exec(measure);
+    if (!match || (match[1] !== 'count' && !numericFields.includes(match[2]))) return null;
+    return { key: measure, fn: match[1], field: match[2] };
+  });
+  if (parsed.includes(null) || groupBy.some(f => !textFields.includes(f))) {
+    res.status(400).end();
+    return;
+  }
+
+  const groups = new Map();
+  mockData.salesData.forEach(row => {
+    const key = JSON.stringify(groupBy.map(f => row[f]));
+    if (!groups.has(key)) groups.set(key, { values: groupBy.map(f => row[f]), rows: [] });
+    groups.get(key).rows.push(row);
+  });
+
+  // Rows are kept in id order, so groups come out in order of their first sale, like the Spring endpoint
+  const result = Array.from(groups.values())
+    .map(group => {
+      const out = {};
+      groupBy.forEach((f, i) => { out[f] = group.values[i]; });
+      parsed.forEach(m => {
+        const values = group.rows.map(r => r[m.field]);
+        if (m.fn === 'count') out[m.key] = group.rows.length;
+        else if (m.fn === 'sum') out[m.key] = values.reduce((a, b) => a + b, 0);
+        else if (m.fn === 'avg') out[m.key] = values.reduce((a, b) => a + b, 0) / values.length;
+        else if (m.fn === 'min') out[m.key] = Math.min(...values);
+        else out[m.key] = Math.max(...values);
+      });
+      return out;
+    });
+  res.json(result);
+});
+
 app.get('/api/categories', (req, res) => {
   res.json(mockData.categories);
 });
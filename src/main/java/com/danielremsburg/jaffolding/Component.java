@@ -1,6 +1,7 @@
 package com.danielremsburg.jaffolding;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,8 @@ import org.teavm.jso.dom.events.EventListener;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
 
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+
 /**
  * Base component class for the Jaffolding framework.
  * Represents a virtual DOM element that can be rendered to the actual DOM.
@@ -55,11 +58,28 @@ public class Component {
     public Component addChild(Component child) {
         children.add(child);
         if (element != null && child.element == null) {
-            child.render(element);
+            renderChild(child, element);
+        }
+        return this;
+    }
+    
+    /**
+     * Removes a child, letting it release its resources and taking its element out of the DOM.
+     */
+    public Component removeChild(Component child) {
+        if (children.remove(child)) {
+            child.removeFromParent();
         }
         return this;
     }
     
+    /**
+     * @return The children, in order; not modifiable
+     */
+    public List<Component> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+    
     public Component addEventListener(String eventType, Consumer<Event> listener) {
         eventListeners.computeIfAbsent(eventType, k -> new ArrayList<>()).add(listener);
         if (element != null) {
@@ -74,7 +94,7 @@ public class Component {
     }
     
     public HTMLElement render(HTMLElement parent) {
-        element = HTMLDocument.current().createElement(tagName);
+        element = createElement(tagName);
         
         // Set text content if provided
         if (text != null) {
@@ -108,7 +128,7 @@ public class Component {
         
         // Render children
         for (Component child : children) {
-            child.render(element);
+            renderChild(child, element);
         }
         
         // Append to parent
@@ -117,17 +137,35 @@ public class Component {
         return element;
     }
     
+    /**
+     * Creates the DOM element on render. Subclasses may supply a recycled element instead.
+     */
+    protected HTMLElement createElement(String tagName) {
+        return HTMLDocument.current().createElement(tagName);
+    }
+    
+    /**
+     * Called when this component is removed through {@link #removeFromParent} or {@link #clear},
+     * after its children. Subclasses release resources held outside the DOM here.
+     */
+    protected void onUnmount() {
+    }
+    
     public HTMLElement getElement() {
         return element;
     }
     
     public void removeFromParent() {
+        unmount();
         if (element != null && element.getParentNode() != null) {
             element.getParentNode().removeChild(element);
         }
     }
     
     public void clear() {
+        for (Component child : children) {
+            child.unmount();
+        }
         if (element != null) {
             while (element.getFirstChild() != null) {
                 element.removeChild(element.getFirstChild());
@@ -135,4 +173,27 @@ public class Component {
         }
         children.clear();
     }
+    
+    /**
+     * Renders a child, attributing the time to its class while the frame monitor runs.
+     */
+    private static void renderChild(Component child, HTMLElement parent) {
+        if (!FrameMonitor.isEnabled()) {
+            child.render(parent);
+            return;
+        }
+        FrameMonitor.enter(FrameMonitor.RENDER, child.getClass().getSimpleName());
+        try {
+            child.render(parent);
+        } finally {
+            FrameMonitor.exit();
+        }
+    }
+    
+    private void unmount() {
+        for (Component child : children) {
+            child.unmount();
+        }
+        onUnmount();
+    }
 }
\ No newline at end of file
@@ -5,7 +5,20 @@ import org.teavm.jso.dom.html.HTMLElement;
 
 import com.danielremsburg.jaffolding.bridge.ComponentFactory;
 import com.danielremsburg.jaffolding.bridge.ComponentRegistry;
+import com.danielremsburg.jaffolding.examples.AnimationDemo;
+import com.danielremsburg.jaffolding.examples.ChartDemo;
+import com.danielremsburg.jaffolding.examples.ComponentDemo;
+import com.danielremsburg.jaffolding.examples.DesktopDemo;
+import com.danielremsburg.jaffolding.examples.SalesDataDemo;
+import com.danielremsburg.jaffolding.examples.ThreeJsDemo;
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+import com.danielremsburg.jaffolding.ui.Calculator;
+import com.danielremsburg.jaffolding.ui.Label;
+import com.danielremsburg.jaffolding.ui.Panel;
+import com.danielremsburg.jaffolding.ui.Window;
+import com.danielremsburg.jaffolding.ui.kde.AppDescriptor;
 import com.danielremsburg.jaffolding.ui.kde.AppManager;
+import com.danielremsburg.jaffolding.ui.kde.DesktopSession;
 import com.danielremsburg.jaffolding.ui.kde.KDEDesktop;
 
 /**
@@ -19,6 +32,9 @@ public class JaffoldingApp {
      * @param root The root element
      */
     public static void initialize(HTMLElement root) {
+        // Frame timing instrumentation, when asked for in the URL or local storage
+        FrameMonitor.startIfRequested();
+        
         // Register Java components with the registry
         ComponentFactory.registerJavaComponents();
         
@@ -48,74 +64,58 @@ public class JaffoldingApp {
         // Create desktop icons
         desktop.createDesktopIcons(appManager.getApps());
         
-        // Create welcome window
-        createWelcomeWindow(desktop, appManager);
+        // Create dock with pinned apps
+        desktop.createDock(appManager.getApps("components", "chart", "three", "sales", "calculator"));
+        
+        // Reopen the windows of the last session, or welcome a new user
+        DesktopSession session = new DesktopSession(appManager, desktop);
+        session.restore(restored -> {
+            if (restored == 0) {
+                createWelcomeWindow(desktop, appManager);
+            }
+        });
     }
     
     /**
-     * Registers applications with the app manager.
+     * Registers applications with the app manager. Their content is created on first launch.
      * @param appManager The app manager
      */
     private static void registerApps(AppManager appManager) {
-        // Components app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"components\"," +
-            "  \"name\": \"UI Components\"," +
-            "  \"icon\": \"🧩\"," +
-            "  \"color\": \"#5294e2\"" +
-            "}"
-        );
-        
-        // Chart app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"chart\"," +
-            "  \"name\": \"Chart Demo\"," +
-            "  \"icon\": \"📊\"," +
-            "  \"color\": \"#ea4335\"" +
-            "}"
-        );
-        
-        // Three.js app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"three\"," +
-            "  \"name\": \"3D Graphics\"," +
-            "  \"icon\": \"🧊\"," +
-            "  \"color\": \"#fbbc05\"" +
-            "}"
-        );
-        
-        // Sales app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"sales\"," +
-            "  \"name\": \"Sales Dashboard\"," +
-            "  \"icon\": \"📈\"," +
-            "  \"color\": \"#34a853\"" +
-            "}"
-        );
-        
-        // Animation app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"animation\"," +
-            "  \"name\": \"Animation Studio\"," +
-            "  \"icon\": \"🎬\"," +
-            "  \"color\": \"#e91e63\"" +
-            "}"
-        );
-        
-        // Calculator app
-        appManager.registerApp(
-            "{" +
-            "  \"id\": \"calculator\"," +
-            "  \"name\": \"Calculator\"," +
-            "  \"icon\": \"🧮\"," +
-            "  \"color\": \"#673ab7\"" +
-            "}"
-        );
+        appManager.registerApp(new AppDescriptor("components", "UI Components")
+            .setIcon("🧩")
+            .setColor("#5294e2")
+            .setWindowBounds(100, 50, 800, 600)
+            .setFactory(() -> new ComponentDemo().createDemo()));
+        
+        appManager.registerApp(new AppDescriptor("chart", "Chart Demo")
+            .setIcon("📊")
+            .setColor("#ea4335")
+            .setWindowBounds(150, 100, 800, 600)
+            .setFactory(() -> new ChartDemo().createDemo()));
+        
+        appManager.registerApp(new AppDescriptor("three", "3D Graphics")
+            .setIcon("🧊")
+            .setColor("#fbbc05")
+            .setWindowBounds(200, 150, 800, 600)
+            .setFactory(() -> new ThreeJsDemo().createDemo()));
+        
+        appManager.registerApp(new AppDescriptor("sales", "Sales Dashboard")
+            .setIcon("📈")
+            .setColor("#34a853")
+            .setWindowBounds(250, 50, 900, 700)
+            .setFactory(() -> new SalesDataDemo().createDemo()));
+        
+        appManager.registerApp(new AppDescriptor("animation", "Animation Studio")
+            .setIcon("🎬")
+            .setColor("#e91e63")
+            .setWindowBounds(300, 100, 800, 600)
+            .setFactory(() -> new AnimationDemo().createDemo()));
+        
+        appManager.registerApp(new AppDescriptor("calculator", "Calculator")
+            .setIcon("🧮")
+            .setColor("#673ab7")
+            .setWindowBounds(400, 150, 320, 480)
+            .setFactory(Calculator::new));
     }
     
     /**
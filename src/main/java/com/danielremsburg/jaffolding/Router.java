@@ -8,6 +8,8 @@ import org.teavm.jso.browser.Location;
 import org.teavm.jso.browser.Window;
 import org.teavm.jso.dom.html.HTMLElement;
 
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+
 /**
  * Simple client-side router for the framework.
  */
@@ -16,6 +18,7 @@ public class Router {
     private HTMLElement container;
     private Map<String, Function<String, Component>> routes = new HashMap<>();
     private String currentPath;
+    private Component currentComponent;
     
     public Router(HTMLElement container) {
         this.container = container;
@@ -85,14 +88,23 @@ public class Router {
             }
         }
         
-        // Clear container
+        // Clear container, letting the previous page release its resources
+        if (currentComponent != null) {
+            currentComponent.removeFromParent();
+        }
         while (container.getFirstChild() != null) {
             container.removeChild(container.getFirstChild());
         }
         
         // Render new component
-        Component component = componentFactory.apply(path);
-        component.render(container);
+        FrameMonitor.enter(FrameMonitor.RENDER, "route " + matchedPath);
+        try {
+            Component component = componentFactory.apply(path);
+            component.render(container);
+            currentComponent = component;
+        } finally {
+            FrameMonitor.exit();
+        }
     }
     
     private String getPath() {
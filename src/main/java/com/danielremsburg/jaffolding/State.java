@@ -1,9 +1,14 @@
 package com.danielremsburg.jaffolding;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+import com.danielremsburg.jaffolding.ui.Visibility;
+
 /**
  * A reactive state container that triggers re-renders when the state changes.
  * @param <T> The type of the state value
@@ -11,11 +16,21 @@ import java.util.function.Consumer;
 public class State<T> {
     private T value;
     private List<Consumer<T>> listeners = new ArrayList<>();
+    private Map<Consumer<T>, Consumer<T>> deferredListeners;
+    private String name = "State";
     
     public State(T initialValue) {
         this.value = initialValue;
     }
     
+    /**
+     * Names this state in frame monitor measurements.
+     */
+    public State<T> setName(String name) {
+        this.name = name;
+        return this;
+    }
+    
     public T get() {
         return value;
     }
@@ -29,19 +44,49 @@ public class State<T> {
         notifyListeners();
     }
     
+    /**
+     * Notifies the listeners that the value was modified in place, which {@link #set} cannot detect.
+     */
+    public void notifyChanged() {
+        notifyListeners();
+    }
+    
     public void subscribe(Consumer<T> listener) {
         listeners.add(listener);
         // Immediately notify with current value
         listener.accept(value);
     }
     
+    /**
+     * Subscribes a listener that updates a component, holding back notifications while the component
+     * cannot be seen. Once it can, the listener is called once with the value at that time.
+     * @param owner The component the listener updates
+     * @param listener The listener
+     */
+    public void subscribe(Component owner, Consumer<T> listener) {
+        if (deferredListeners == null) {
+            deferredListeners = new IdentityHashMap<>();
+        }
+        Consumer<T> deferred = ignored -> Visibility.defer(owner, listener, () -> listener.accept(value));
+        deferredListeners.put(listener, deferred);
+        subscribe(deferred);
+    }
+    
     public void unsubscribe(Consumer<T> listener) {
+        if (deferredListeners != null && deferredListeners.containsKey(listener)) {
+            listener = deferredListeners.remove(listener);
+        }
         listeners.remove(listener);
     }
     
     private void notifyListeners() {
-        for (Consumer<T> listener : listeners) {
-            listener.accept(value);
+        FrameMonitor.enter(FrameMonitor.STATE, name);
+        try {
+            for (Consumer<T> listener : listeners) {
+                listener.accept(value);
+            }
+        } finally {
+            FrameMonitor.exit();
         }
     }
 }
\ No newline at end of file
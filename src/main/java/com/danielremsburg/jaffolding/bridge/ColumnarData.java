@@ -0,0 +1,352 @@
+package com.danielremsburg.jaffolding.bridge;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+
+/**
+ * Client side of the columnar binary transfer format.
+ * The payload is decoded in JavaScript into one typed array per column, viewing the response buffer
+ * directly, and each column crosses into Java as a whole array rather than cell by cell.
+ * Servers that answer with a JSON array of objects are converted into the same columnar shape.
+ * Components that work with rows get {@link Row} views that read from the columns, so no map
+ * is built per row.
+ */
+public class ColumnarData {
+    public static final String CONTENT_TYPE = "application/x-jaffolding-columnar";
+    public static final int TYPE_FLOAT64 = 1;
+    public static final int TYPE_INT32 = 2;
+    public static final int TYPE_STRING = 3;
+
+    private final JSObject table;
+    private final int rowCount;
+    private final String[] names;
+    private final int[] types;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Object[] columns;
+    private final String[][] dictionaries;
+
+    private ColumnarData(JSObject table) {
+        this.table = table;
+        this.rowCount = getRowCount(table);
+        this.names = getNames(table);
+        this.types = getTypes(table);
+        this.columns = new Object[names.length];
+        this.dictionaries = new String[names.length][];
+
+        for (int i = 0; i < names.length; i++) {
+            positions.put(names[i], i);
+        }
+    }
+
+    /**
+     * Fetches a table, asking for the columnar format and falling back to JSON.
+     * @param url The URL to fetch
+     * @param onLoad Receives the decoded table
+     * @param onError Called with a message if the request or decoding fails
+     */
+    public static void load(String url, Consumer<ColumnarData> onLoad, Consumer<String> onError) {
+        fetch(url, table -> onLoad.accept(new ColumnarData(table)), onError::accept);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public String[] getColumnNames() {
+        return names.clone();
+    }
+
+    /**
+     * @return One of the {@code TYPE_} constants, or -1 if there is no such column
+     */
+    public int getType(String column) {
+        Integer position = positions.get(column);
+        return position != null ? types[position] : -1;
+    }
+
+    /**
+     * Gets the values of a numeric column. Missing float64 values are NaN.
+     */
+    public double[] getDoubles(String column) {
+        return toDoubles(getValues(table, position(column)));
+    }
+
+    /**
+     * Gets the values of an int32 column, or the dictionary codes of a string column (-1 for null).
+     */
+    public int[] getInts(String column) {
+        return toInts(getValues(table, position(column)));
+    }
+
+    /**
+     * Gets the distinct values of a string column, indexed by code.
+     */
+    public String[] getDictionary(String column) {
+        return getDictionary(table, position(column));
+    }
+
+    /**
+     * Gets the typed array holding a column's values, for handing directly to JavaScript libraries.
+     */
+    public JSObject getTypedArray(String column) {
+        return getValues(table, position(column));
+    }
+
+    /**
+     * Gets the rows for components that work with rows. Each row reads its values from the columns
+     * when asked, so loading allocates one small view per row rather than a map with boxed cells.
+     * The rows are read-only; the list may be changed.
+     * @return The rows, in order
+     */
+    public List<Map<String, Object>> getRows() {
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new Row(row));
+        }
+        return rows;
+    }
+
+    private int position(String column) {
+        Integer position = positions.get(column);
+        if (position == null) {
+            throw new IllegalArgumentException("No such column: " + column);
+        }
+        return position;
+    }
+
+    private Object valueAt(int column, int row) {
+        switch (types[column]) {
+            case TYPE_FLOAT64: {
+                double value = doubleColumn(column)[row];
+                return Double.isNaN(value) ? null : toNumber(value);
+            }
+            case TYPE_INT32:
+                return intColumn(column)[row];
+            case TYPE_STRING: {
+                int code = intColumn(column)[row];
+                if (code < 0) {
+                    return null;
+                }
+                if (dictionaries[column] == null) {
+                    dictionaries[column] = getDictionary(table, column);
+                }
+                return dictionaries[column][code];
+            }
+            default:
+                return null;
+        }
+    }
+
+    private double[] doubleColumn(int column) {
+        if (columns[column] == null) {
+            columns[column] = toDoubles(getValues(table, column));
+        }
+        return (double[]) columns[column];
+    }
+
+    private int[] intColumn(int column) {
+        if (columns[column] == null) {
+            columns[column] = toInts(getValues(table, column));
+        }
+        return (int[]) columns[column];
+    }
+
+    private static Object toNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    /**
+     * A read-only row backed by the columns of its table. Integral float64 values are read as
+     * {@code Integer}, matching {@link JSRows}; null strings and NaN numbers are absent.
+     */
+    public final class Row extends AbstractMap<String, Object> {
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @return The position of this row in its table
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Reads a numeric column without boxing.
+         * @return The value, or NaN if it is missing or the column is not numeric
+         */
+        public double getDouble(String column) {
+            Integer position = positions.get(column);
+            if (position == null) {
+                return Double.NaN;
+            }
+            switch (types[position]) {
+                case TYPE_FLOAT64:
+                    return doubleColumn(position)[index];
+                case TYPE_INT32:
+                    return intColumn(position)[index];
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer position = positions.get(key);
+            return position != null ? valueAt(position, index) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            List<Entry<String, Object>> entries = new ArrayList<>(names.length);
+            for (int c = 0; c < names.length; c++) {
+                Object value = valueAt(c, index);
+                if (value != null) {
+                    entries.add(new SimpleImmutableEntry<>(names[c], value));
+                }
+            }
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+
+    @JSFunctor
+    interface TableHandler extends JSObject {
+        void onLoad(JSObject table);
+    }
+
+    @JSFunctor
+    interface ErrorHandler extends JSObject {
+        void onError(String message);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"url", "onLoad", "onError"}, script =
+        "function align(n, a) { return Math.ceil(n / a) * a; }" +
+        "function decode(buffer) {" +
+        "  var view = new DataView(buffer);" +
+        "  if (view.getUint32(0, true) !== 0x4C4F434A) throw new Error('Not a columnar payload');" +
+        "  var rows = view.getInt32(8, true);" +
+        "  var count = view.getInt32(12, true);" +
+        "  var decoder = new TextDecoder();" +
+        "  var offset = 16;" +
+        "  var columns = [];" +
+        "  for (var c = 0; c < count; c++) {" +
+        "    var length = view.getInt32(offset, true);" +
+        "    var type = view.getInt32(offset + 4, true);" +
+        "    var nameLength = view.getInt32(offset + 8, true);" +
+        "    var p = offset + 12;" +
+        "    var name = decoder.decode(new Uint8Array(buffer, p, nameLength));" +
+        "    p = align(p + nameLength, 4);" +
+        "    var dictionary = null;" +
+        "    if (type === 3) {" +
+        "      var size = view.getInt32(p, true);" +
+        "      p += 4;" +
+        "      dictionary = new Array(size);" +
+        "      for (var d = 0; d < size; d++) {" +
+        "        var entryLength = view.getInt32(p, true);" +
+        "        dictionary[d] = decoder.decode(new Uint8Array(buffer, p + 4, entryLength));" +
+        "        p = align(p + 4 + entryLength, 4);" +
+        "      }" +
+        "    }" +
+        "    p = align(p, 8);" +
+        "    var values = type === 1 ? new Float64Array(buffer, p, rows) : new Int32Array(buffer, p, rows);" +
+        "    columns.push({name: name, type: type, values: values, dictionary: dictionary});" +
+        "    offset += 4 + length;" +
+        "  }" +
+        "  return {rowCount: rows, columns: columns};" +
+        "}" +
+        "function fromObjects(array) {" +
+        "  var keys = [];" +
+        "  var seen = {};" +
+        "  for (var i = 0; i < array.length; i++) {" +
+        "    for (var k in array[i]) {" +
+        "      if (!seen.hasOwnProperty(k)) { seen[k] = true; keys.push(k); }" +
+        "    }" +
+        "  }" +
+        "  var columns = keys.map(function(key) {" +
+        "    var numeric = array.every(function(o) { var v = o[key]; return v == null || typeof v === 'number'; });" +
+        "    if (numeric) {" +
+        "      var numbers = new Float64Array(array.length);" +
+        "      for (var i = 0; i < array.length; i++) numbers[i] = array[i][key] == null ? NaN : array[i][key];" +
+        "      return {name: key, type: 1, values: numbers, dictionary: null};" +
+        "    }" +
+        "    var codes = new Int32Array(array.length);" +
+        "    var dictionary = [];" +
+        "    var lookup = new Map();" +
+        "    for (var i = 0; i < array.length; i++) {" +
+        "      var v = array[i][key];" +
+        "      if (v == null) { codes[i] = -1; continue; }" +
+        "      v = typeof v === 'object' ? JSON.stringify(v) : String(v);" +
+        "      var code = lookup.get(v);" +
+        "      if (code === undefined) { code = dictionary.length; lookup.set(v, code); dictionary.push(v); }" +
+        "      codes[i] = code;" +
+        "    }" +
+        "    return {name: key, type: 3, values: codes, dictionary: dictionary};" +
+        "  });" +
+        "  return {rowCount: array.length, columns: columns};" +
+        "}" +
+        "fetch(url, {headers: {'Accept': '" + CONTENT_TYPE + ", application/json;q=0.9'}})" +
+        "  .then(function(response) {" +
+        "    if (!response.ok) throw new Error('HTTP ' + response.status);" +
+        "    var type = response.headers.get('Content-Type') || '';" +
+        "    if (type.indexOf('" + CONTENT_TYPE + "') >= 0) return response.arrayBuffer().then(decode);" +
+        "    return response.json().then(fromObjects);" +
+        "  })" +
+        "  .then(function(table) { onLoad(table); }," +
+        "        function(e) { onError(String(e && e.message ? e.message : e)); });")
+    private static native void fetch(String url, TableHandler onLoad, ErrorHandler onError);
+
+    @JSBody(params = {"table"}, script = "return table.rowCount;")
+    private static native int getRowCount(JSObject table);
+
+    @JSBody(params = {"table"}, script = "return table.columns.map(function(c) { return c.name; });")
+    private static native String[] getNames(JSObject table);
+
+    @JSBody(params = {"table"}, script = "return new Int32Array(table.columns.map(function(c) { return c.type; }));")
+    private static native int[] getTypes(JSObject table);
+
+    @JSBody(params = {"table", "index"}, script = "return table.columns[index].values;")
+    private static native JSObject getValues(JSObject table, int index);
+
+    @JSBody(params = {"table", "index"}, script = "return table.columns[index].dictionary || [];")
+    private static native String[] getDictionary(JSObject table, int index);
+
+    @JSBody(params = {"values"}, script = "return values;")
+    private static native double[] toDoubles(JSObject values);
+
+    @JSBody(params = {"values"}, script = "return values;")
+    private static native int[] toInts(JSObject values);
+}
@@ -5,6 +5,8 @@ import org.teavm.jso.JSObject;
 import org.teavm.jso.JSProperty;
 import org.teavm.jso.dom.html.HTMLElement;
 
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+
 /**
  * Bridge to access JavaScript components from Java.
  * This allows the Java framework to use JavaScript components when needed.
@@ -52,7 +54,16 @@ public class JSBridge {
         "  console.error('Error creating JS component:', e);" +
         "  return null;" +
         "}")
-    public static native JSObject createComponent(String componentPath, HTMLElement container);
+    private static native JSObject createComponentNative(String componentPath, HTMLElement container);
+    
+    public static JSObject createComponent(String componentPath, HTMLElement container) {
+        FrameMonitor.enter(FrameMonitor.BRIDGE, componentPath);
+        try {
+            return createComponentNative(componentPath, container);
+        } finally {
+            FrameMonitor.exit();
+        }
+    }
     
     /**
      * Calls a method on a JavaScript object.
@@ -71,7 +82,16 @@ public class JSBridge {
         "  console.error('Error calling JS method:', e);" +
         "  return null;" +
         "}")
-    public static native JSObject callMethod(JSObject object, String methodName, JSObject[] args);
+    private static native JSObject callMethodNative(JSObject object, String methodName, JSObject[] args);
+    
+    public static JSObject callMethod(JSObject object, String methodName, JSObject[] args) {
+        FrameMonitor.enter(FrameMonitor.BRIDGE, methodName);
+        try {
+            return callMethodNative(object, methodName, args);
+        } finally {
+            FrameMonitor.exit();
+        }
+    }
     
     /**
      * Gets a property from a JavaScript object.
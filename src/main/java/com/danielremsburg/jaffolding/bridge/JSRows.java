@@ -0,0 +1,121 @@
+package com.danielremsburg.jaffolding.bridge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+
+/**
+ * Bulk conversion of JavaScript object arrays into Java row maps.
+ * Instead of reading every property of every object through separate interop calls, the
+ * objects are flattened in JavaScript into a few primitive arrays that cross the boundary
+ * once per batch, and the row maps are then assembled entirely in Java.
+ */
+public class JSRows {
+    private static final int KIND_NULL = 0;
+    private static final int KIND_STRING = 1;
+    private static final int KIND_NUMBER = 2;
+    private static final int KIND_BOOLEAN = 3;
+
+    /**
+     * Converts an array of flat JavaScript objects to row maps.
+     * Strings become {@code String}, numbers {@code Double} (or {@code Integer} when integral)
+     * and booleans {@code Boolean}; nested values are converted to their JSON text.
+     * @param array The JavaScript array
+     * @return The rows
+     */
+    public static List<Map<String, Object>> toRows(JSObject array) {
+        JSObject flattened = flatten(array);
+        String[] keys = getKeys(flattened);
+        int[] kinds = getKinds(flattened);
+        String[] strings = getStrings(flattened);
+        double[] numbers = getNumbers(flattened);
+
+        int rowCount = keys.length == 0 ? getLength(array) : kinds.length / keys.length;
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+
+        int cell = 0;
+        for (int row = 0; row < rowCount; row++) {
+            Map<String, Object> map = new HashMap<>();
+            for (String key : keys) {
+                switch (kinds[cell]) {
+                    case KIND_STRING:
+                        map.put(key, strings[cell]);
+                        break;
+                    case KIND_NUMBER:
+                        map.put(key, toNumber(numbers[cell]));
+                        break;
+                    case KIND_BOOLEAN:
+                        map.put(key, numbers[cell] != 0);
+                        break;
+                    case KIND_NULL:
+                    default:
+                        // Missing keys stay absent, matching the original objects
+                        break;
+                }
+                cell++;
+            }
+            rows.add(map);
+        }
+
+        return rows;
+    }
+
+    private static Object toNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    // JavaScript interop methods
+
+    /**
+     * Flattens an array of objects into row-major cell arrays over the union of their keys.
+     */
+    @JSBody(params = {"array"}, script =
+        "var keys = [];" +
+        "var seen = {};" +
+        "for (var i = 0; i < array.length; i++) {" +
+        "  for (var k in array[i]) {" +
+        "    if (!seen.hasOwnProperty(k)) { seen[k] = true; keys.push(k); }" +
+        "  }" +
+        "}" +
+        "var cells = array.length * keys.length;" +
+        "var kinds = new Int32Array(cells);" +
+        "var strings = new Array(cells);" +
+        "var numbers = new Float64Array(cells);" +
+        "var c = 0;" +
+        "for (var i = 0; i < array.length; i++) {" +
+        "  var obj = array[i];" +
+        "  for (var j = 0; j < keys.length; j++, c++) {" +
+        "    var v = obj[keys[j]];" +
+        "    strings[c] = null;" +
+        "    if (v === null || v === undefined) { kinds[c] = 0; }" +
+        "    else if (typeof v === 'string') { kinds[c] = 1; strings[c] = v; }" +
+        "    else if (typeof v === 'number') { kinds[c] = 2; numbers[c] = v; }" +
+        "    else if (typeof v === 'boolean') { kinds[c] = 3; numbers[c] = v ? 1 : 0; }" +
+        "    else { kinds[c] = 1; strings[c] = JSON.stringify(v); }" +
+        "  }" +
+        "}" +
+        "return {keys: keys, kinds: kinds, strings: strings, numbers: numbers};")
+    private static native JSObject flatten(JSObject array);
+
+    @JSBody(params = {"array"}, script = "return array.length;")
+    private static native int getLength(JSObject array);
+
+    @JSBody(params = {"flattened"}, script = "return flattened.keys;")
+    private static native String[] getKeys(JSObject flattened);
+
+    @JSBody(params = {"flattened"}, script = "return flattened.kinds;")
+    private static native int[] getKinds(JSObject flattened);
+
+    @JSBody(params = {"flattened"}, script = "return flattened.strings;")
+    private static native String[] getStrings(JSObject flattened);
+
+    @JSBody(params = {"flattened"}, script = "return flattened.numbers;")
+    private static native double[] getNumbers(JSObject flattened);
+}
@@ -0,0 +1,143 @@
+package com.danielremsburg.jaffolding.bridge;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+
+/**
+ * Streaming loader for newline-delimited JSON.
+ * The response is read with {@code fetch} and a {@code ReadableStream} reader, and complete lines are
+ * parsed as they arrive and handed over in batches, so callers can render the first rows
+ * long before the download has finished. The first batch is delivered as soon as the first
+ * chunk has been parsed; later batches are delivered once they reach the batch size.
+ * Servers that answer with a plain JSON array are also accepted.
+ */
+public class NdjsonStream {
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private final JSObject handle;
+
+    private NdjsonStream(JSObject handle) {
+        this.handle = handle;
+    }
+
+    /**
+     * Starts streaming rows from a URL.
+     * @param url The URL to fetch
+     * @param batchSize The number of rows per batch after the first
+     * @param onBatch Receives each batch of rows
+     * @param onComplete Called once all rows have been delivered
+     * @param onError Called with a message if the request or parsing fails
+     * @return A handle that can cancel the download
+     */
+    public static NdjsonStream open(String url, int batchSize, Consumer<List<Map<String, Object>>> onBatch,
+                                    Runnable onComplete, Consumer<String> onError) {
+        JSObject handle = start(url, batchSize,
+                rows -> onBatch.accept(JSRows.toRows(rows)),
+                onComplete::run,
+                onError::accept);
+        return new NdjsonStream(handle);
+    }
+
+    /**
+     * Aborts the download. No further callbacks are made.
+     */
+    public void cancel() {
+        cancel(handle);
+    }
+
+    @JSFunctor
+    interface BatchHandler extends JSObject {
+        void onBatch(JSObject rows);
+    }
+
+    @JSFunctor
+    interface CompleteHandler extends JSObject {
+        void onComplete();
+    }
+
+    @JSFunctor
+    interface ErrorHandler extends JSObject {
+        void onError(String message);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"url", "batchSize", "onBatch", "onComplete", "onError"}, script =
+        "var controller = typeof AbortController !== 'undefined' ? new AbortController() : null;" +
+        "var state = {cancelled: false, controller: controller};" +
+        "var batch = [];" +
+        "var first = true;" +
+        "function flush() {" +
+        "  if (batch.length > 0 && !state.cancelled) {" +
+        "    var rows = batch;" +
+        "    batch = [];" +
+        "    first = false;" +
+        "    onBatch(rows);" +
+        "  }" +
+        "}" +
+        "function push(row) {" +
+        "  batch.push(row);" +
+        "  if (batch.length >= batchSize) flush();" +
+        "}" +
+        "function handleLine(line) {" +
+        "  line = line.trim();" +
+        "  if (line.length > 0) push(JSON.parse(line));" +
+        "}" +
+        "fetch(url, {headers: {'Accept': '" + CONTENT_TYPE + ", application/json'}," +
+        "            signal: controller ? controller.signal : undefined})" +
+        "  .then(function(response) {" +
+        "    if (!response.ok) throw new Error('HTTP ' + response.status);" +
+        "    var type = response.headers.get('Content-Type') || '';" +
+        "    if (type.indexOf('" + CONTENT_TYPE + "') < 0) {" +
+        "      return response.json().then(function(array) {" +
+        "        for (var i = 0; i < array.length; i++) push(array[i]);" +
+        "        flush();" +
+        "      });" +
+        "    }" +
+        "    if (!response.body || !response.body.getReader) {" +
+        "      return response.text().then(function(text) {" +
+        "        text.split('\\n').forEach(handleLine);" +
+        "        flush();" +
+        "      });" +
+        "    }" +
+        "    var reader = response.body.getReader();" +
+        "    var decoder = new TextDecoder();" +
+        "    var buffer = '';" +
+        "    function pump() {" +
+        "      return reader.read().then(function(result) {" +
+        "        if (state.cancelled) return;" +
+        "        if (result.done) {" +
+        "          handleLine(buffer + decoder.decode());" +
+        "          flush();" +
+        "          return;" +
+        "        }" +
+        "        buffer += decoder.decode(result.value, {stream: true});" +
+        "        var lines = buffer.split('\\n');" +
+        "        buffer = lines.pop();" +
+        "        lines.forEach(handleLine);" +
+        "        if (first) flush();" +
+        "        return pump();" +
+        "      });" +
+        "    }" +
+        "    return pump();" +
+        "  })" +
+        "  .then(function() {" +
+        "    if (!state.cancelled) onComplete();" +
+        "  })" +
+        "  .catch(function(e) {" +
+        "    if (!state.cancelled) onError(String(e && e.message ? e.message : e));" +
+        "  });" +
+        "return state;")
+    private static native JSObject start(String url, int batchSize, BatchHandler onBatch,
+                                         CompleteHandler onComplete, ErrorHandler onError);
+
+    @JSBody(params = {"state"}, script =
+        "state.cancelled = true;" +
+        "if (state.controller) state.controller.abort();")
+    private static native void cancel(JSObject state);
+}
@@ -0,0 +1,171 @@
+package com.danielremsburg.jaffolding.controller;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoder for the compact column-oriented binary format served as {@value #MEDIA_TYPE}.
+ * <p>
+ * All integers are little-endian int32. The payload starts with a 16-byte header
+ * ({@code "JCOL"}, version, row count, column count) followed by one block per column:
+ * block length (excluding this field), type, name length and UTF-8 name padded to 4 bytes,
+ * then for string columns the dictionary size and each entry as length plus UTF-8 bytes padded to 4,
+ * and finally the values, starting and ending on an 8-byte boundary: float64 or int32 values,
+ * or int32 dictionary codes with -1 for null. The alignment lets clients view the values as
+ * typed arrays without copying.
+ */
+public class ColumnarWriter {
+    public static final String MEDIA_TYPE = "application/x-jaffolding-columnar";
+    public static final int MAGIC = 0x4C4F434A;
+    public static final int VERSION = 1;
+    public static final int TYPE_FLOAT64 = 1;
+    public static final int TYPE_INT32 = 2;
+    public static final int TYPE_STRING = 3;
+
+    private static final int HEADER_SIZE = 16;
+
+    private final int rowCount;
+    private final List<Column> columns = new ArrayList<>();
+
+    public ColumnarWriter(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public ColumnarWriter addDoubles(String name, double[] values) {
+        Column column = new Column(name, TYPE_FLOAT64);
+        column.doubles = checkLength(values.length, values);
+        columns.add(column);
+        return this;
+    }
+
+    public ColumnarWriter addInts(String name, int[] values) {
+        Column column = new Column(name, TYPE_INT32);
+        column.ints = checkLength(values.length, values);
+        columns.add(column);
+        return this;
+    }
+
+    /**
+     * Adds a string column, dictionary-encoding its values.
+     */
+    public ColumnarWriter addStrings(String name, String[] values) {
+        checkLength(values.length, values);
+
+        Column column = new Column(name, TYPE_STRING);
+        Map<String, Integer> codes = new HashMap<>();
+        column.ints = new int[values.length];
+        column.dictionary = new ArrayList<>();
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                column.ints[i] = -1;
+                continue;
+            }
+            Integer code = codes.get(values[i]);
+            if (code == null) {
+                code = column.dictionary.size();
+                codes.put(values[i], code);
+                column.dictionary.add(values[i].getBytes(StandardCharsets.UTF_8));
+            }
+            column.ints[i] = code;
+        }
+
+        columns.add(column);
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        int size = HEADER_SIZE;
+        for (Column column : columns) {
+            size += column.blockSize();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(rowCount);
+        buffer.putInt(columns.size());
+
+        for (Column column : columns) {
+            column.write(buffer);
+        }
+
+        return buffer.array();
+    }
+
+    private <T> T checkLength(int length, T values) {
+        if (length != rowCount) {
+            throw new IllegalArgumentException("Expected " + rowCount + " values but got " + length);
+        }
+        return values;
+    }
+
+    private static int align(int size, int alignment) {
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    private static void pad(ByteBuffer buffer, int alignment) {
+        while (buffer.position() % alignment != 0) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * A column waiting to be written.
+     */
+    private class Column {
+        final byte[] name;
+        final int type;
+        double[] doubles;
+        int[] ints;
+        List<byte[]> dictionary;
+
+        Column(String name, int type) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.type = type;
+        }
+
+        int blockSize() {
+            int size = 12 + align(name.length, 4);
+            if (dictionary != null) {
+                size += 4;
+                for (byte[] entry : dictionary) {
+                    size += 4 + align(entry.length, 4);
+                }
+            }
+            return align(size, 8) + align(rowCount * (type == TYPE_FLOAT64 ? 8 : 4), 8);
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putInt(blockSize() - 4);
+            buffer.putInt(type);
+            buffer.putInt(name.length);
+            buffer.put(name);
+            pad(buffer, 4);
+
+            if (dictionary != null) {
+                buffer.putInt(dictionary.size());
+                for (byte[] entry : dictionary) {
+                    buffer.putInt(entry.length);
+                    buffer.put(entry);
+                    pad(buffer, 4);
+                }
+            }
+            pad(buffer, 8);
+
+            if (doubles != null) {
+                buffer.asDoubleBuffer().put(doubles);
+                buffer.position(buffer.position() + doubles.length * 8);
+            } else {
+                buffer.asIntBuffer().put(ints);
+                buffer.position(buffer.position() + ints.length * 4);
+            }
+            pad(buffer, 8);
+        }
+    }
+}
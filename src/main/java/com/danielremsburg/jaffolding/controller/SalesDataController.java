@@ -2,26 +2,162 @@ package com.danielremsburg.jaffolding.controller;
 
 import com.danielremsburg.jaffolding.model.SalesData;
 import com.danielremsburg.jaffolding.repository.SalesDataRepository;
+import com.danielremsburg.jaffolding.repository.SalesDataSpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api")
 public class SalesDataController {
     
+    public static final String NDJSON = "application/x-ndjson";
+    
+    private static final int STREAM_BATCH_SIZE = 1000;
+    
     @Autowired
     private SalesDataRepository salesDataRepository;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @GetMapping("/sales")
     public List<SalesData> getAllSales() {
         return salesDataRepository.findAll();
     }
     
+    /**
+     * Streams all sales as newline-delimited JSON, one object per line.
+     * Rows are read in id order with keyset pagination and flushed after every batch,
+     * so clients can start rendering before the whole table has been read.
+     */
+    @GetMapping(value = "/sales", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllSales() {
+        StreamingResponseBody body = output -> {
+            long lastId = 0;
+            List<SalesData> batch;
+            
+            do {
+                batch = salesDataRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, STREAM_BATCH_SIZE));
+                for (SalesData sale : batch) {
+                    output.write(objectMapper.writeValueAsBytes(sale));
+                    output.write('\n');
+                    lastId = sale.getId();
+                }
+                output.flush();
+            } while (batch.size() == STREAM_BATCH_SIZE);
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+    
+    /**
+     * Returns all sales in the columnar binary format described in {@link ColumnarWriter}.
+     * String columns are dictionary-encoded and numeric columns are sent as raw little-endian arrays,
+     * which clients can map into typed arrays without parsing.
+     */
+    @GetMapping(value = "/sales", produces = ColumnarWriter.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getAllSalesColumnar() {
+        List<SalesData> sales = salesDataRepository.findAll();
+        int rowCount = sales.size();
+        
+        double[] ids = new double[rowCount];
+        String[] products = new String[rowCount];
+        String[] categories = new String[rowCount];
+        int[] quantities = new int[rowCount];
+        double[] revenues = new double[rowCount];
+        String[] months = new String[rowCount];
+        
+        for (int i = 0; i < rowCount; i++) {
+            SalesData sale = sales.get(i);
+            ids[i] = sale.getId();
+            products[i] = sale.getProduct();
+            categories[i] = sale.getCategory();
+            quantities[i] = sale.getSales();
+            revenues[i] = sale.getRevenue();
+            months[i] = sale.getMonth();
+        }
+        
+        byte[] body = new ColumnarWriter(rowCount)
+                .addDoubles("id", ids)
+                .addStrings("product", products)
+                .addStrings("category", categories)
+                .addInts("sales", quantities)
+                .addDoubles("revenue", revenues)
+                .addStrings("month", months)
+                .toByteArray();
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ColumnarWriter.MEDIA_TYPE))
+                .body(body);
+    }
+    
+    /**
+     * Returns one page of sales, sorted and filtered on the server.
+     * Accepts the standard {@code page}, {@code size} and {@code sort=field,direction} parameters
+     * plus the filter parameters described in {@link SalesDataSpecifications}.
+     */
+    @GetMapping("/sales/page")
+    public ResponseEntity<Page<SalesData>> getSalesPage(@RequestParam Map<String, String> params,
+                                                        @PageableDefault(size = 100, sort = "id") Pageable pageable) {
+        try {
+            SalesDataSpecifications.validateSort(pageable.getSort());
+            Specification<SalesData> spec = SalesDataSpecifications.fromParameters(params);
+            
+            // Keep the order deterministic across pages when sorting on non-unique columns
+            Sort sort = pageable.getSort();
+            if (sort.getOrderFor("id") == null) {
+                sort = sort.and(Sort.by("id"));
+            }
+            Pageable stable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+            
+            return ResponseEntity.ok(salesDataRepository.findAll(spec, stable));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Returns sales grouped and aggregated on the server, for charts that only need the totals.
+     * For example {@code groupBy=category,month&measure=sum(revenue)} returns one object per category
+     * and month with the keys {@code category}, {@code month} and {@code sum(revenue)}.
+     * Several measures may be given, separated by commas; the default is {@code count()}.
+     * Groups are returned in the order of their first sale, so months stay chronological.
+     * The filter parameters described in {@link SalesDataSpecifications} are also accepted.
+     */
+    @GetMapping("/sales/aggregate")
+    public ResponseEntity<List<Map<String, Object>>> getSalesAggregate(
+            @RequestParam(required = false) List<String> groupBy,
+            @RequestParam(defaultValue = "count()") List<String> measure,
+            @RequestParam Map<String, String> params) {
+        try {
+            Specification<SalesData> spec = SalesDataSpecifications.fromParameters(params);
+            List<String> groups = groupBy != null ? groupBy : Collections.emptyList();
+            return ResponseEntity.ok(salesDataRepository.aggregate(groups, measure, spec));
+        } catch (IllegalArgumentException | InvalidDataAccessApiUsageException e) {
+            // The repository proxy reports unknown columns and measures as InvalidDataAccessApiUsageException
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/sales/{id}")
     public ResponseEntity<SalesData> getSaleById(@PathVariable Long id) {
         Optional<SalesData> sale = salesDataRepository.findById(id);
@@ -8,6 +8,8 @@ import com.danielremsburg.jaffolding.ui.Button;
 import com.danielremsburg.jaffolding.ui.ComboBox;
 import com.danielremsburg.jaffolding.ui.Label;
 import com.danielremsburg.jaffolding.ui.Panel;
+import com.danielremsburg.jaffolding.ui.Timeline;
+import com.danielremsburg.jaffolding.ui.Tween;
 import com.danielremsburg.jaffolding.ui.layout.BorderLayout;
 import com.danielremsburg.jaffolding.ui.layout.GridLayout;
 
@@ -243,35 +245,22 @@ public class AnimationDemo {
         
         Button entranceBtn = new Button("Entrance");
         entranceBtn.addEventListener("click", e -> {
-            combinedTarget.setStyle("opacity", "0");
-            combinedTarget.setStyle("transform", "scale(0.5) translateY(20px)");
-            
-            Animation.setTimeout(() -> {
-                combinedTarget.setStyle("transition", "opacity 0.5s ease, transform 0.5s ease");
-                combinedTarget.setStyle("opacity", "1");
-                combinedTarget.setStyle("transform", "scale(1) translateY(0)");
-            }, 10);
+            Tween.of(combinedTarget)
+                .fromTo(Tween.Property.OPACITY, 0, 1)
+                .fromTo(Tween.Property.SCALE, 0.5, 1)
+                .fromTo(Tween.Property.Y, 20, 0)
+                .setDuration(0.5)
+                .play();
         });
         
         Button bounceBtn = new Button("Bounce");
         bounceBtn.addEventListener("click", e -> {
-            combinedTarget.setStyle("transition", "transform 0.2s ease");
-            combinedTarget.setStyle("transform", "scale(0.8) translateY(0)");
-            
-            Animation.setTimeout(() -> {
-                combinedTarget.setStyle("transition", "transform 0.2s ease");
-                combinedTarget.setStyle("transform", "scale(1.1) translateY(-10px)");
-                
-                Animation.setTimeout(() -> {
-                    combinedTarget.setStyle("transition", "transform 0.2s ease");
-                    combinedTarget.setStyle("transform", "scale(0.9) translateY(5px)");
-                    
-                    Animation.setTimeout(() -> {
-                        combinedTarget.setStyle("transition", "transform 0.2s ease");
-                        combinedTarget.setStyle("transform", "scale(1) translateY(0)");
-                    }, 200);
-                }, 200);
-            }, 200);
+            Timeline.sequence(
+                bounceStep(combinedTarget, 0.8, 0),
+                bounceStep(combinedTarget, 1.1, -10),
+                bounceStep(combinedTarget, 0.9, 5),
+                bounceStep(combinedTarget, 1, 0)
+            ).play();
         });
         
         combinedControls.addChild(entranceBtn);
@@ -280,11 +269,11 @@ public class AnimationDemo {
         combinedPanel.addChild(combinedTarget);
         combinedPanel.addChild(combinedControls);
         
-        // GSAP integration
-        Panel gsapPanel = createDemoPanel("GSAP Integration");
+        // Timelines
+        Panel timelinePanel = createDemoPanel("Timelines");
         
-        Panel gsapTarget = new Panel();
-        gsapTarget.setStyle("width", "100px")
+        Panel timelineTarget = new Panel();
+        timelineTarget.setStyle("width", "100px")
                   .setStyle("height", "100px")
                   .setStyle("background-color", "#e91e63")
                   .setStyle("border-radius", "4px")
@@ -295,62 +284,43 @@ public class AnimationDemo {
                   .setStyle("font-weight", "bold")
                   .setStyle("margin", "0 auto");
         
-        Label gsapLabel = new Label("GSAP Target");
-        gsapTarget.addChild(gsapLabel);
+        Label timelineLabel = new Label("Timeline Target");
+        timelineTarget.addChild(timelineLabel);
         
-        Panel gsapControls = new Panel();
-        gsapControls.setStyle("display", "flex")
+        Panel timelineControls = new Panel();
+        timelineControls.setStyle("display", "flex")
                     .setStyle("gap", "10px")
                     .setStyle("margin-top", "10px")
                     .setStyle("justify-content", "center");
         
         Button timelineBtn = new Button("Timeline");
         timelineBtn.addEventListener("click", e -> {
-            // This will use GSAP if available, otherwise fall back to CSS transitions
-            Animation.animate(gsapTarget, "x", 100, 0.5);
-            Animation.setTimeout(() -> {
-                Animation.animate(gsapTarget, "y", 50, 0.5);
-                Animation.setTimeout(() -> {
-                    Animation.animate(gsapTarget, "rotation", 360, 0.5);
-                    Animation.setTimeout(() -> {
-                        Animation.animate(gsapTarget, "x", 0, 0.5);
-                        Animation.animate(gsapTarget, "y", 0, 0.5);
-                        Animation.animate(gsapTarget, "rotation", 0, 0.5);
-                    }, 600);
-                }, 600);
-            }, 600);
+            Timeline.sequence(
+                Tween.of(timelineTarget).to(Tween.Property.X, 100).setDuration(0.5),
+                Tween.of(timelineTarget).to(Tween.Property.Y, 50).setDuration(0.5),
+                Tween.of(timelineTarget).to(Tween.Property.ROTATE, 360).setDuration(0.5),
+                Tween.of(timelineTarget)
+                    .to(Tween.Property.X, 0)
+                    .to(Tween.Property.Y, 0)
+                    .to(Tween.Property.ROTATE, 0)
+                    .setDuration(0.5)
+            ).play();
         });
         
         Button shakeBtn = new Button("Shake");
         shakeBtn.addEventListener("click", e -> {
-            gsapTarget.setStyle("transition", "transform 0.1s ease");
-            gsapTarget.setStyle("transform", "translateX(-10px)");
-            
-            Animation.setTimeout(() -> {
-                gsapTarget.setStyle("transform", "translateX(10px)");
-                Animation.setTimeout(() -> {
-                    gsapTarget.setStyle("transform", "translateX(-8px)");
-                    Animation.setTimeout(() -> {
-                        gsapTarget.setStyle("transform", "translateX(8px)");
-                        Animation.setTimeout(() -> {
-                            gsapTarget.setStyle("transform", "translateX(-5px)");
-                            Animation.setTimeout(() -> {
-                                gsapTarget.setStyle("transform", "translateX(5px)");
-                                Animation.setTimeout(() -> {
-                                    gsapTarget.setStyle("transform", "translateX(0)");
-                                }, 100);
-                            }, 100);
-                        }, 100);
-                    }, 100);
-                }, 100);
-            }, 100);
+            Timeline shake = Timeline.sequence();
+            for (double x : new double[] {-10, 10, -8, 8, -5, 5, 0}) {
+                shake.add(Tween.of(timelineTarget).to(Tween.Property.X, x).setDuration(0.1));
+            }
+            shake.play();
         });
         
-        gsapControls.addChild(timelineBtn);
-        gsapControls.addChild(shakeBtn);
+        timelineControls.addChild(timelineBtn);
+        timelineControls.addChild(shakeBtn);
         
-        gsapPanel.addChild(gsapTarget);
-        gsapPanel.addChild(gsapControls);
+        timelinePanel.addChild(timelineTarget);
+        timelinePanel.addChild(timelineControls);
         
         // Add all panels to the grid
         demoGrid.addChild(fadePanel);
@@ -358,7 +328,7 @@ public class AnimationDemo {
         demoGrid.addChild(scalePanel);
         demoGrid.addChild(rotatePanel);
         demoGrid.addChild(combinedPanel);
-        demoGrid.addChild(gsapPanel);
+        demoGrid.addChild(timelinePanel);
         
         content.addChild(intro);
         content.addChild(demoGrid);
@@ -377,6 +347,13 @@ public class AnimationDemo {
         return mainPanel;
     }
     
+    private Tween bounceStep(Component target, double scale, double y) {
+        return Tween.of(target)
+            .to(Tween.Property.SCALE, scale)
+            .to(Tween.Property.Y, y)
+            .setDuration(0.2);
+    }
+    
     private Panel createDemoPanel(String title) {
         Panel panel = new Panel();
         panel.setStyle("background-color", "white")
@@ -12,6 +12,7 @@ import org.teavm.jso.json.JSON;
 
 import com.danielremsburg.jaffolding.Component;
 import com.danielremsburg.jaffolding.State;
+import com.danielremsburg.jaffolding.bridge.ColumnarData;
 import com.danielremsburg.jaffolding.ui.Animation;
 import com.danielremsburg.jaffolding.ui.Button;
 import com.danielremsburg.jaffolding.ui.ChartComponent;
@@ -22,6 +23,7 @@ import com.danielremsburg.jaffolding.ui.Panel;
 import com.danielremsburg.jaffolding.ui.TextField;
 import com.danielremsburg.jaffolding.ui.layout.BorderLayout;
 import com.danielremsburg.jaffolding.ui.layout.GridLayout;
+import com.danielremsburg.jaffolding.ui.table.TableExporter;
 
 /**
  * Demo of the sales data visualization with reactive charts.
@@ -171,6 +173,7 @@ public class SalesDataDemo {
         DataTable dataTable = new DataTable(Arrays.asList("Product", "Category", "Sales", "Revenue", "Month"));
         dataTable.setColumnType("Sales", "number");
         dataTable.setColumnType("Revenue", "number");
+        dataTable.setSearchBoxVisible(true);
         
         // Bind to filtered data state
         filteredData.subscribe(data -> {
@@ -189,7 +192,7 @@ public class SalesDataDemo {
         
         // Add table controls
         Panel tableControls = new Panel();
-        tableControls.setLayout(new GridLayout(1, 2, 10, 0));
+        tableControls.setLayout(new GridLayout(1, 3, 10, 0));
         tableControls.setStyle("margin-top", "15px");
         
         Button refreshButton = new Button("Refresh Data");
@@ -204,8 +207,14 @@ public class SalesDataDemo {
             addRandomSale();
         });
         
+        Button exportButton = new Button("Export CSV");
+        exportButton.addEventListener("click", e -> {
+            dataTable.export(TableExporter.Format.CSV, "sales.csv", null);
+        });
+        
         tableControls.addChild(refreshButton);
         tableControls.addChild(addButton);
+        tableControls.addChild(exportButton);
         
         tablePanel.addChild(tableTitle, BorderLayout.NORTH);
         tablePanel.addChild(dataTable, BorderLayout.CENTER);
@@ -269,26 +278,12 @@ public class SalesDataDemo {
     }
     
     private void loadData() {
-        XMLHttpRequest xhr = XMLHttpRequest.create();
-        xhr.open("GET", "/api/sales");
-        xhr.setOnReadyStateChange(() -> {
-            if (xhr.getReadyState() == XMLHttpRequest.DONE) {
-                if (xhr.getStatus() == 200) {
-                    try {
-                        List<Map<String, Object>> data = parseJsonArray(xhr.getResponseText());
-                        salesData.set(data);
-                    } catch (Exception e) {
-                        System.err.println("Error parsing sales data: " + e.getMessage());
-                        // Fallback to mock data
-                        salesData.set(createMockData());
-                    }
-                } else {
-                    // Fallback to mock data
-                    salesData.set(createMockData());
-                }
-            }
+        // Columnar transfer avoids parsing one JavaScript object per row, and the rows read from the columns
+        ColumnarData.load("/api/sales", table -> salesData.set(table.getRows()), error -> {
+            System.err.println("Error loading sales data: " + error);
+            // Fallback to mock data
+            salesData.set(createMockData());
         });
-        xhr.send();
     }
     
     private void loadCategories() {
@@ -389,23 +384,6 @@ public class SalesDataDemo {
         xhr.send(JSON.stringify(newSale));
     }
     
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> parseJsonArray(String json) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        Object parsed = JSON.parse(json);
-        
-        if (parsed instanceof Object[]) {
-            Object[] array = (Object[]) parsed;
-            for (Object item : array) {
-                if (item instanceof Map) {
-                    result.add((Map<String, Object>) item);
-                }
-            }
-        }
-        
-        return result;
-    }
-    
     @SuppressWarnings("unchecked")
     private List<String> parseJsonStringArray(String json) {
         List<String> result = new ArrayList<>();
@@ -18,6 +18,7 @@ import com.danielremsburg.jaffolding.ui.Button;
 import com.danielremsburg.jaffolding.ui.ComboBox;
 import com.danielremsburg.jaffolding.ui.Label;
 import com.danielremsburg.jaffolding.ui.Panel;
+import com.danielremsburg.jaffolding.ui.RenderLoop;
 import com.danielremsburg.jaffolding.ui.layout.BorderLayout;
 import com.danielremsburg.jaffolding.ui.layout.GridLayout;
 
@@ -161,7 +162,7 @@ public class ThreeJsDemo {
         rendererContainer.addEventListener("DOMNodeInserted", e -> {
             if (rendererContainer.getElement() != null) {
                 initThreeJs(rendererContainer.getElement());
-                startAnimation();
+                startAnimation(rendererContainer);
             }
         });
         
@@ -227,18 +228,12 @@ public class ThreeJsDemo {
         createShape();
     }
     
-    private void startAnimation() {
-        Window.current().requestAnimationFrame(timestamp -> {
-            animate(timestamp);
-        });
+    private void startAnimation(Component container) {
+        // Paused while the scene cannot be seen, and stopped once it leaves the page
+        RenderLoop.start(container, this::animate);
     }
     
     private void animate(double timestamp) {
-        // Request next frame
-        Window.current().requestAnimationFrame(ts -> {
-            animate(ts);
-        });
-        
         // Rotate the mesh if animation is enabled
         if (isAnimating && currentMesh != null) {
             currentMesh.getRotation().setX(currentMesh.getRotation().getX() + rotationSpeed);
@@ -0,0 +1,496 @@
+package com.danielremsburg.jaffolding.perf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+
+/**
+ * Opt-in instrumentation that finds what makes frames late.
+ * While started, every animation frame's length is sampled, long tasks are collected through
+ * {@code PerformanceObserver}, and time between {@link #enter} and {@link #exit} markers is
+ * attributed to the marked work. Marked time is counted exclusive of nested markers, and time spent
+ * in frames that overran the budget is counted separately as jank. Component renders, {@code State}
+ * notifications and {@code JSBridge} calls are marked by the framework. When stopped, a marker costs
+ * one static field check.
+ */
+public final class FrameMonitor {
+    public static final String RENDER = "render";
+    public static final String STATE = "state";
+    public static final String BRIDGE = "bridge";
+    
+    private static final int MAX_DEPTH = 64;
+    private static final int FRAME_HISTORY = 600;
+    private static final int SPAN_HISTORY = 500;
+    private static final int LONG_TASK_HISTORY = 100;
+    private static final double SPAN_MIN_MS = 1;
+    private static final double OVERLAY_REFRESH_MS = 500;
+    
+    private static boolean enabled = false;
+    private static double frameBudget = 1000.0 / 60;
+    
+    // Markers entered and not yet exited
+    private static final String[] stackCategories = new String[MAX_DEPTH];
+    private static final String[] stackNames = new String[MAX_DEPTH];
+    private static final double[] stackStarts = new double[MAX_DEPTH];
+    private static final double[] stackChildTimes = new double[MAX_DEPTH];
+    private static int depth = 0;
+    
+    private static final Map<String, Hotspot> hotspots = new HashMap<>();
+    private static final Map<Hotspot, double[]> frameWork = new HashMap<>();
+    private static final double[] frameDurations = new double[FRAME_HISTORY];
+    private static int frameCount = 0;
+    private static int jankyFrames = 0;
+    private static int droppedFrames = 0;
+    private static double lastFrame = -1;
+    private static boolean frameRequested = false;
+    private static final Deque<Span> spans = new ArrayDeque<>();
+    private static final Deque<LongTask> longTasks = new ArrayDeque<>();
+    private static JSObject longTaskObserver;
+    private static FrameMonitorOverlay overlay;
+    private static double lastOverlayRefresh = 0;
+    
+    private FrameMonitor() {
+    }
+    
+    /**
+     * Starts monitoring, with an overlay if requested.
+     * @param showOverlay True to show the overlay
+     */
+    public static void start(boolean showOverlay) {
+        if (!enabled) {
+            enabled = true;
+            depth = 0;
+            lastFrame = -1;
+            longTaskObserver = observeLongTasks(FrameMonitor::onLongTask);
+            requestFrame();
+        }
+        if (showOverlay && overlay == null) {
+            overlay = new FrameMonitorOverlay();
+            overlay.show();
+        }
+    }
+    
+    /**
+     * Starts monitoring with the overlay if the page URL has a {@code jaffoldingPerf} parameter or the
+     * {@code jaffolding.perf} local storage entry is set, so production builds can be inspected.
+     */
+    public static void startIfRequested() {
+        if (isRequested()) {
+            start(true);
+        }
+    }
+    
+    public static void stop() {
+        enabled = false;
+        depth = 0;
+        if (longTaskObserver != null) {
+            disconnect(longTaskObserver);
+            longTaskObserver = null;
+        }
+        if (overlay != null) {
+            overlay.hide();
+            overlay = null;
+        }
+    }
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Sets the length a frame may take before it counts as janky, 1000/60 ms by default.
+     */
+    public static void setFrameBudget(double milliseconds) {
+        frameBudget = milliseconds;
+    }
+    
+    /**
+     * Discards everything measured so far.
+     */
+    public static void reset() {
+        hotspots.clear();
+        frameWork.clear();
+        frameCount = 0;
+        jankyFrames = 0;
+        droppedFrames = 0;
+        spans.clear();
+        longTasks.clear();
+    }
+    
+    /**
+     * Marks the start of work to attribute. Every enter must be followed by an {@link #exit}.
+     * @param category The kind of work, such as {@link #RENDER}
+     * @param name What is doing the work, such as a component class
+     */
+    public static void enter(String category, String name) {
+        if (!enabled) {
+            return;
+        }
+        if (depth < MAX_DEPTH) {
+            stackCategories[depth] = category;
+            stackNames[depth] = name;
+            stackStarts[depth] = now();
+            stackChildTimes[depth] = 0;
+        }
+        depth++;
+    }
+    
+    /**
+     * Marks the end of the work last entered.
+     */
+    public static void exit() {
+        if (!enabled || depth == 0) {
+            return;
+        }
+        depth--;
+        if (depth >= MAX_DEPTH) {
+            return;
+        }
+        
+        double end = now();
+        double inclusive = end - stackStarts[depth];
+        double self = inclusive - stackChildTimes[depth];
+        if (depth > 0 && depth - 1 < MAX_DEPTH) {
+            stackChildTimes[depth - 1] += inclusive;
+        }
+        
+        String key = stackCategories[depth] + ":" + stackNames[depth];
+        Hotspot hotspot = hotspots.get(key);
+        if (hotspot == null) {
+            hotspot = new Hotspot(stackCategories[depth], stackNames[depth]);
+            hotspots.put(key, hotspot);
+        }
+        hotspot.calls++;
+        hotspot.totalMs += self;
+        hotspot.maxMs = Math.max(hotspot.maxMs, self);
+        
+        double[] inFrame = frameWork.get(hotspot);
+        if (inFrame == null) {
+            frameWork.put(hotspot, new double[] {self});
+        } else {
+            inFrame[0] += self;
+        }
+        
+        if (inclusive >= SPAN_MIN_MS) {
+            if (spans.size() == SPAN_HISTORY) {
+                spans.removeFirst();
+            }
+            spans.addLast(new Span(hotspot, stackStarts[depth], inclusive, self));
+        }
+    }
+    
+    /**
+     * Runs work between markers.
+     */
+    public static void measure(String category, String name, Runnable work) {
+        enter(category, name);
+        try {
+            work.run();
+        } finally {
+            exit();
+        }
+    }
+    
+    /**
+     * @return The measurements as JSON: totals, hot spots ordered by jank, long tasks with the marked
+     *         work they overlapped, and the most recent frame lengths
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"frameBudgetMs\":").append(round(frameBudget))
+            .append(",\"frames\":").append(frameCount)
+            .append(",\"jankyFrames\":").append(jankyFrames)
+            .append(",\"droppedFrames\":").append(droppedFrames)
+            .append(",\"hotspots\":[");
+        List<Hotspot> sorted = getHotspots();
+        for (int i = 0; i < sorted.size(); i++) {
+            Hotspot hotspot = sorted.get(i);
+            json.append(i > 0 ? "," : "").append("{\"category\":");
+            appendString(json, hotspot.category);
+            json.append(",\"name\":");
+            appendString(json, hotspot.name);
+            json.append(",\"calls\":").append(hotspot.calls)
+                .append(",\"totalMs\":").append(round(hotspot.totalMs))
+                .append(",\"maxMs\":").append(round(hotspot.maxMs))
+                .append(",\"jankMs\":").append(round(hotspot.jankMs))
+                .append('}');
+        }
+        json.append("],\"longTasks\":[");
+        int index = 0;
+        for (LongTask task : longTasks) {
+            json.append(index++ > 0 ? "," : "").append("{\"startMs\":").append(round(task.start))
+                .append(",\"durationMs\":").append(round(task.duration))
+                .append(",\"attribution\":");
+            if (task.culprit != null) {
+                appendString(json, task.culprit.category + ":" + task.culprit.name);
+            } else {
+                json.append("null");
+            }
+            json.append('}');
+        }
+        json.append("],\"recentFramesMs\":[");
+        int count = Math.min(frameCount, FRAME_HISTORY);
+        for (int i = 0; i < count; i++) {
+            int frame = frameCount - count + i;
+            json.append(i > 0 ? "," : "").append(round(frameDurations[frame % FRAME_HISTORY]));
+        }
+        json.append("]}");
+        return json.toString();
+    }
+    
+    /**
+     * Downloads the measurements as a JSON file.
+     */
+    public static void exportJson(String fileName) {
+        download(toJson(), fileName);
+    }
+    
+    /**
+     * @return The marked work, most jank first, then most total time
+     */
+    public static List<Hotspot> getHotspots() {
+        List<Hotspot> sorted = new ArrayList<>(hotspots.values());
+        sorted.sort((a, b) -> a.jankMs != b.jankMs
+                ? Double.compare(b.jankMs, a.jankMs) : Double.compare(b.totalMs, a.totalMs));
+        return sorted;
+    }
+    
+    public static int getFrameCount() {
+        return frameCount;
+    }
+    
+    public static int getJankyFrames() {
+        return jankyFrames;
+    }
+    
+    public static int getDroppedFrames() {
+        return droppedFrames;
+    }
+    
+    public static int getLongTaskCount() {
+        return longTasks.size();
+    }
+    
+    /**
+     * @return The average frames per second over the last frames sampled
+     */
+    public static double getRecentFps() {
+        int count = Math.min(Math.min(frameCount, FRAME_HISTORY), 60);
+        double total = 0;
+        for (int i = 1; i <= count; i++) {
+            total += frameDurations[(frameCount - i) % FRAME_HISTORY];
+        }
+        return total > 0 ? count * 1000 / total : 0;
+    }
+    
+    private static void requestFrame() {
+        if (!frameRequested) {
+            frameRequested = true;
+            requestAnimationFrame(FrameMonitor::onFrame);
+        }
+    }
+    
+    private static void onFrame(double time) {
+        frameRequested = false;
+        if (!enabled) {
+            return;
+        }
+        
+        if (lastFrame >= 0) {
+            double duration = time - lastFrame;
+            frameDurations[frameCount % FRAME_HISTORY] = duration;
+            frameCount++;
+            
+            if (duration > frameBudget * 1.5) {
+                // Work done since the last frame made this one late
+                jankyFrames++;
+                droppedFrames += Math.max(1, (int) Math.round(duration / frameBudget) - 1);
+                for (Map.Entry<Hotspot, double[]> entry : frameWork.entrySet()) {
+                    entry.getKey().jankMs += entry.getValue()[0];
+                }
+            }
+        }
+        frameWork.clear();
+        lastFrame = time;
+        
+        if (overlay != null && time - lastOverlayRefresh >= OVERLAY_REFRESH_MS) {
+            lastOverlayRefresh = time;
+            overlay.refresh();
+        }
+        requestFrame();
+    }
+    
+    private static void onLongTask(double start, double duration) {
+        // Blame the marked work with the most own time inside the task
+        Span culprit = null;
+        double culpritTime = 0;
+        for (Span span : spans) {
+            double overlap = Math.min(span.start + span.duration, start + duration) - Math.max(span.start, start);
+            double own = Math.min(overlap, span.self);
+            if (own > culpritTime) {
+                culprit = span;
+                culpritTime = own;
+            }
+        }
+        
+        if (longTasks.size() == LONG_TASK_HISTORY) {
+            longTasks.removeFirst();
+        }
+        longTasks.addLast(new LongTask(start, duration, culprit != null ? culprit.hotspot : null));
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+    
+    private static void appendString(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(' ');
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+    
+    /**
+     * Time attributed to one kind of marked work.
+     */
+    public static class Hotspot {
+        private final String category;
+        private final String name;
+        private int calls;
+        private double totalMs;
+        private double maxMs;
+        private double jankMs;
+        
+        Hotspot(String category, String name) {
+            this.category = category;
+            this.name = name;
+        }
+        
+        public String getCategory() {
+            return category;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public int getCalls() {
+            return calls;
+        }
+        
+        /**
+         * @return The time spent, excluding nested marked work
+         */
+        public double getTotalMs() {
+            return totalMs;
+        }
+        
+        public double getMaxMs() {
+            return maxMs;
+        }
+        
+        /**
+         * @return The part of the total time spent before frames that overran the budget
+         */
+        public double getJankMs() {
+            return jankMs;
+        }
+    }
+    
+    private static class Span {
+        final Hotspot hotspot;
+        final double start;
+        final double duration;
+        final double self;
+        
+        Span(Hotspot hotspot, double start, double duration, double self) {
+            this.hotspot = hotspot;
+            this.start = start;
+            this.duration = duration;
+            this.self = self;
+        }
+    }
+    
+    private static class LongTask {
+        final double start;
+        final double duration;
+        final Hotspot culprit;
+        
+        LongTask(double start, double duration, Hotspot culprit) {
+            this.start = start;
+            this.duration = duration;
+            this.culprit = culprit;
+        }
+    }
+    
+    @JSFunctor
+    interface FrameCallback extends JSObject {
+        void onFrame(double time);
+    }
+    
+    @JSFunctor
+    interface LongTaskCallback extends JSObject {
+        void onLongTask(double start, double duration);
+    }
+    
+    // JavaScript interop methods
+    
+    @JSBody(script = "return performance.now();")
+    private static native double now();
+    
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(callback);")
+    private static native void requestAnimationFrame(FrameCallback callback);
+    
+    @JSBody(params = {"callback"}, script =
+        "if (typeof PerformanceObserver === 'undefined') return null;" +
+        "try {" +
+        "  var observer = new PerformanceObserver(function(list) {" +
+        "    list.getEntries().forEach(function(entry) { callback(entry.startTime, entry.duration); });" +
+        "  });" +
+        "  observer.observe({type: 'longtask', buffered: true});" +
+        "  return observer;" +
+        "} catch (e) {" +
+        "  console.warn('Long task timing not available:', e);" +
+        "  return null;" +
+        "}")
+    private static native JSObject observeLongTasks(LongTaskCallback callback);
+    
+    @JSBody(params = {"observer"}, script = "observer.disconnect();")
+    private static native void disconnect(JSObject observer);
+    
+    @JSBody(script =
+        "try {" +
+        "  return new URLSearchParams(window.location.search).has('jaffoldingPerf')" +
+        "      || window.localStorage.getItem('jaffolding.perf') === '1';" +
+        "} catch (e) {" +
+        "  return false;" +
+        "}")
+    private static native boolean isRequested();
+    
+    @JSBody(params = {"text", "fileName"}, script =
+        "var url = URL.createObjectURL(new Blob([text], {type: 'application/json'}));" +
+        "var link = document.createElement('a');" +
+        "link.href = url;" +
+        "link.download = fileName;" +
+        "link.style.display = 'none';" +
+        "document.body.appendChild(link);" +
+        "link.click();" +
+        "document.body.removeChild(link);" +
+        "setTimeout(function() { URL.revokeObjectURL(url); }, 1000);")
+    private static native void download(String text, String fileName);
+}
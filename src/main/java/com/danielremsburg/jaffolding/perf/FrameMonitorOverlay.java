@@ -0,0 +1,137 @@
+package com.danielremsburg.jaffolding.perf;
+
+import java.util.List;
+
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * A small panel in the corner of the page showing the {@link FrameMonitor}'s figures.
+ * The header shows frame rate, jank and long tasks; clicking it expands a table of the hottest
+ * marked work and buttons to export or reset the measurements. It is built directly on the DOM and
+ * is not itself measured.
+ */
+class FrameMonitorOverlay {
+    private static final int HOTSPOT_ROWS = 12;
+    
+    private HTMLElement panel;
+    private HTMLElement header;
+    private HTMLElement body;
+    private HTMLElement table;
+    private boolean expanded = false;
+    
+    void show() {
+        HTMLDocument document = HTMLDocument.current();
+        panel = document.createElement("div");
+        panel.getStyle().setProperty("position", "fixed");
+        panel.getStyle().setProperty("right", "8px");
+        panel.getStyle().setProperty("bottom", "8px");
+        panel.getStyle().setProperty("z-index", "2147483647");
+        panel.getStyle().setProperty("background-color", "rgba(20, 20, 20, 0.85)");
+        panel.getStyle().setProperty("color", "#eee");
+        panel.getStyle().setProperty("font", "11px monospace");
+        panel.getStyle().setProperty("border-radius", "4px");
+        panel.getStyle().setProperty("max-width", "420px");
+        
+        header = document.createElement("div");
+        header.getStyle().setProperty("padding", "4px 8px");
+        header.getStyle().setProperty("cursor", "pointer");
+        header.getStyle().setProperty("user-select", "none");
+        header.addEventListener("click", e -> {
+            expanded = !expanded;
+            body.getStyle().setProperty("display", expanded ? "block" : "none");
+            refresh();
+        });
+        panel.appendChild(header);
+        
+        body = document.createElement("div");
+        body.getStyle().setProperty("display", "none");
+        body.getStyle().setProperty("padding", "0 8px 6px");
+        
+        table = document.createElement("table");
+        table.getStyle().setProperty("border-collapse", "collapse");
+        table.getStyle().setProperty("width", "100%");
+        body.appendChild(table);
+        
+        HTMLElement buttons = document.createElement("div");
+        buttons.getStyle().setProperty("margin-top", "4px");
+        buttons.appendChild(createButton("Export JSON", () -> FrameMonitor.exportJson("frame-monitor.json")));
+        buttons.appendChild(createButton("Reset", () -> {
+            FrameMonitor.reset();
+            refresh();
+        }));
+        buttons.appendChild(createButton("Stop", FrameMonitor::stop));
+        body.appendChild(buttons);
+        
+        panel.appendChild(body);
+        document.getBody().appendChild(panel);
+        refresh();
+    }
+    
+    void hide() {
+        if (panel != null && panel.getParentNode() != null) {
+            panel.getParentNode().removeChild(panel);
+        }
+        panel = null;
+    }
+    
+    void refresh() {
+        if (panel == null) {
+            return;
+        }
+        
+        header.setTextContent((expanded ? "▾ " : "▸ ")
+                + Math.round(FrameMonitor.getRecentFps()) + " fps · "
+                + FrameMonitor.getJankyFrames() + " janky · "
+                + FrameMonitor.getDroppedFrames() + " dropped · "
+                + FrameMonitor.getLongTaskCount() + " long tasks");
+        if (!expanded) {
+            return;
+        }
+        
+        table.setInnerHTML("");
+        HTMLDocument document = HTMLDocument.current();
+        table.appendChild(createRow(document, "th", "work", "calls", "total ms", "max ms", "jank ms"));
+        List<FrameMonitor.Hotspot> hotspots = FrameMonitor.getHotspots();
+        for (int i = 0; i < Math.min(HOTSPOT_ROWS, hotspots.size()); i++) {
+            FrameMonitor.Hotspot hotspot = hotspots.get(i);
+            table.appendChild(createRow(document, "td",
+                    hotspot.getCategory() + ":" + hotspot.getName(),
+                    String.valueOf(hotspot.getCalls()),
+                    format(hotspot.getTotalMs()),
+                    format(hotspot.getMaxMs()),
+                    format(hotspot.getJankMs())));
+        }
+    }
+    
+    private static HTMLElement createRow(HTMLDocument document, String cellTag, String... values) {
+        HTMLElement row = document.createElement("tr");
+        for (int i = 0; i < values.length; i++) {
+            HTMLElement cell = document.createElement(cellTag);
+            cell.setTextContent(values[i]);
+            cell.getStyle().setProperty("padding", "1px 4px");
+            cell.getStyle().setProperty("text-align", i == 0 ? "left" : "right");
+            cell.getStyle().setProperty("white-space", "nowrap");
+            if (i == 0) {
+                cell.getStyle().setProperty("overflow", "hidden");
+                cell.getStyle().setProperty("text-overflow", "ellipsis");
+                cell.getStyle().setProperty("max-width", "180px");
+            }
+            row.appendChild(cell);
+        }
+        return row;
+    }
+    
+    private static HTMLElement createButton(String text, Runnable action) {
+        HTMLElement button = HTMLDocument.current().createElement("button");
+        button.setTextContent(text);
+        button.getStyle().setProperty("margin-right", "4px");
+        button.getStyle().setProperty("font", "inherit");
+        button.addEventListener("click", e -> action.run());
+        return button;
+    }
+    
+    private static String format(double milliseconds) {
+        return String.valueOf(Math.round(milliseconds * 10) / 10.0);
+    }
+}
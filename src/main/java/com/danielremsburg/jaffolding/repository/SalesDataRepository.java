@@ -1,14 +1,18 @@
 package com.danielremsburg.jaffolding.repository;
 
 import com.danielremsburg.jaffolding.model.SalesData;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
-public interface SalesDataRepository extends JpaRepository<SalesData, Long> {
+public interface SalesDataRepository extends JpaRepository<SalesData, Long>, JpaSpecificationExecutor<SalesData>,
+        SalesDataRepositoryCustom {
     List<SalesData> findByCategory(String category);
     List<SalesData> findByProduct(String product);
     List<SalesData> findByMonth(String month);
+    List<SalesData> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.danielremsburg.jaffolding.repository;
+
+import com.danielremsburg.jaffolding.model.SalesData;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries on sales data that Spring Data cannot derive, implemented in {@link SalesDataRepositoryImpl}.
+ */
+public interface SalesDataRepositoryCustom {
+
+    /**
+     * Groups filtered sales and aggregates them in a single GROUP BY query.
+     * @param groupBy The text columns to group by, in order; empty for one total row
+     * @param measures Aggregates of the form {@code sum(field)}, {@code avg(field)}, {@code min(field)},
+     *                 {@code max(field)} or {@code count()}
+     * @param filter Restricts the rows that are aggregated
+     * @return One map per group, keyed by the group columns and the measures as given,
+     *         in the order each group first appears by sale id
+     * @throws IllegalArgumentException if a column or measure is not recognized
+     */
+    List<Map<String, Object>> aggregate(List<String> groupBy, List<String> measures, Specification<SalesData> filter);
+}
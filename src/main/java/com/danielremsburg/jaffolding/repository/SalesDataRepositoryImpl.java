@@ -0,0 +1,108 @@
+package com.danielremsburg.jaffolding.repository;
+
+import com.danielremsburg.jaffolding.model.SalesData;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Criteria API implementation of {@link SalesDataRepositoryCustom}.
+ * Only the grouped rows are read from the database, never the individual sales.
+ */
+public class SalesDataRepositoryImpl implements SalesDataRepositoryCustom {
+
+    private static final Pattern MEASURE = Pattern.compile("(sum|avg|min|max|count)\\((\\w*|\\*)\\)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> aggregate(List<String> groupBy, List<String> measures,
+                                               Specification<SalesData> filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<SalesData> root = query.from(SalesData.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        List<Expression<?>> groups = new ArrayList<>();
+        List<Order> order = new ArrayList<>();
+
+        for (String column : groupBy) {
+            Expression<String> group = root.get(SalesDataSpecifications.textField(column));
+            selections.add(group);
+            groups.add(group);
+        }
+        if (!groups.isEmpty()) {
+            // Order groups by their first sale rather than by name, so months stay chronological
+            // and the groups line up with grouping the same rows on the client
+            Expression<Long> firstId = root.get("id");
+            order.add(cb.asc(cb.min(firstId)));
+        }
+        for (String measure : measures) {
+            selections.add(measure(cb, root, measure.trim()));
+        }
+
+        query.multiselect(selections).groupBy(groups).orderBy(order);
+        if (filter != null) {
+            Predicate predicate = filter.toPredicate(root, query, cb);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int index = 0;
+            for (String column : groupBy) {
+                row.put(column, tuple.get(index++));
+            }
+            for (String measure : measures) {
+                row.put(measure.trim(), tuple.get(index++));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private static Expression<? extends Number> measure(CriteriaBuilder cb, Root<SalesData> root, String measure) {
+        Matcher matcher = MEASURE.matcher(measure);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Unknown measure: " + measure);
+        }
+
+        String function = matcher.group(1);
+        String field = matcher.group(2);
+        if (function.equals("count")) {
+            return cb.count(root);
+        }
+
+        Expression<Number> value = root.get(SalesDataSpecifications.numericField(field));
+        switch (function) {
+            case "sum":
+                return cb.sum(value);
+            case "avg":
+                return cb.avg(value);
+            case "min":
+                return cb.min(value);
+            default:
+                return cb.max(value);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.danielremsburg.jaffolding.repository;
+
+import com.danielremsburg.jaffolding.model.SalesData;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Query specifications for filtering sales data by request parameters.
+ * Supported parameters are {@code filter.<field>} (case-insensitive substring),
+ * {@code eq.<field>} (comma-separated values, case-insensitive for text), and {@code min.<field>} / {@code max.<field>}
+ * (inclusive numeric bounds). Only known columns may be filtered or sorted on.
+ */
+public class SalesDataSpecifications {
+
+    private static final Set<String> TEXT_FIELDS = new HashSet<>(Arrays.asList("product", "category", "month"));
+    private static final Set<String> NUMERIC_FIELDS = new HashSet<>(Arrays.asList("id", "sales", "revenue"));
+
+    /**
+     * Builds a specification from request parameters, ignoring parameters without a filter prefix.
+     * @param params The request parameters
+     * @return The combined specification
+     * @throws IllegalArgumentException if a parameter names an unknown field or has an invalid value
+     */
+    public static Specification<SalesData> fromParameters(Map<String, String> params) {
+        Specification<SalesData> spec = Specification.where(null);
+
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String key = param.getKey();
+            String value = param.getValue();
+
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+
+            if (key.startsWith("filter.")) {
+                spec = spec.and(contains(textField(key.substring(7)), value));
+            } else if (key.startsWith("eq.")) {
+                spec = spec.and(in(field(key.substring(3)), Arrays.asList(value.split(","))));
+            } else if (key.startsWith("min.")) {
+                spec = spec.and(atLeast(numericField(key.substring(4)), Double.parseDouble(value)));
+            } else if (key.startsWith("max.")) {
+                spec = spec.and(atMost(numericField(key.substring(4)), Double.parseDouble(value)));
+            }
+        }
+
+        return spec;
+    }
+
+    /**
+     * Checks that a sort only references known columns.
+     * @param sort The requested sort
+     * @throws IllegalArgumentException if the sort references an unknown field
+     */
+    public static void validateSort(Sort sort) {
+        for (Sort.Order order : sort) {
+            field(order.getProperty());
+        }
+    }
+
+    public static Specification<SalesData> contains(String field, String text) {
+        String pattern = "%" + text.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get(field)), pattern, '\\');
+    }
+
+    public static Specification<SalesData> in(String field, Collection<String> values) {
+        if (NUMERIC_FIELDS.contains(field)) {
+            return (root, query, cb) -> {
+                CriteriaBuilder.In<Double> in = cb.in(root.get(field).as(Double.class));
+                for (String value : values) {
+                    in.value(Double.parseDouble(value.trim()));
+                }
+                return in;
+            };
+        }
+        List<String> lowered = new ArrayList<>();
+        for (String value : values) {
+            lowered.add(value.trim().toLowerCase());
+        }
+        return (root, query, cb) -> cb.lower(root.get(field)).in(lowered);
+    }
+
+    public static Specification<SalesData> atLeast(String field, double min) {
+        return (root, query, cb) -> cb.ge(root.get(field), min);
+    }
+
+    public static Specification<SalesData> atMost(String field, double max) {
+        return (root, query, cb) -> cb.le(root.get(field), max);
+    }
+
+    private static String field(String name) {
+        if (!TEXT_FIELDS.contains(name) && !NUMERIC_FIELDS.contains(name)) {
+            throw new IllegalArgumentException("Unknown field: " + name);
+        }
+        return name;
+    }
+
+    static String textField(String name) {
+        if (!TEXT_FIELDS.contains(name)) {
+            throw new IllegalArgumentException("Not a text field: " + name);
+        }
+        return name;
+    }
+
+    static String numericField(String name) {
+        if (!NUMERIC_FIELDS.contains(name)) {
+            throw new IllegalArgumentException("Not a numeric field: " + name);
+        }
+        return name;
+    }
+}
@@ -7,6 +7,8 @@ import org.teavm.jso.dom.html.HTMLElement;
 
 /**
  * Animation utility for UI components.
+ * Effects are {@link Tween}s played by the shared {@link Animator}, so any number of them
+ * cost one animation frame callback.
  */
 public class Animation {
     
@@ -15,14 +17,10 @@ public class Animation {
      */
     public static void fadeIn(UIComponent component, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            element.getStyle().setProperty("opacity", "0");
-            element.getStyle().setProperty("transition", "opacity " + duration + "s ease");
-            
-            // Use setTimeout to ensure the transition works
-            setTimeout(() -> {
-                element.getStyle().setProperty("opacity", "1");
-            }, 10);
+            new Tween(component.getElement())
+                .fromTo(Tween.Property.OPACITY, 0, 1)
+                .setDuration(duration)
+                .play();
         }
     }
     
@@ -31,13 +29,10 @@ public class Animation {
      */
     public static void fadeOut(UIComponent component, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            element.getStyle().setProperty("opacity", "1");
-            element.getStyle().setProperty("transition", "opacity " + duration + "s ease");
-            
-            setTimeout(() -> {
-                element.getStyle().setProperty("opacity", "0");
-            }, 10);
+            new Tween(component.getElement())
+                .fromTo(Tween.Property.OPACITY, 1, 0)
+                .setDuration(duration)
+                .play();
         }
     }
     
@@ -46,34 +41,7 @@ public class Animation {
      */
     public static void slideIn(UIComponent component, String direction, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            
-            String transform = "";
-            switch (direction.toLowerCase()) {
-                case "left":
-                    transform = "translateX(-100%)";
-                    break;
-                case "right":
-                    transform = "translateX(100%)";
-                    break;
-                case "top":
-                    transform = "translateY(-100%)";
-                    break;
-                case "bottom":
-                    transform = "translateY(100%)";
-                    break;
-                default:
-                    transform = "translateY(20px)";
-            }
-            
-            element.getStyle().setProperty("transform", transform);
-            element.getStyle().setProperty("opacity", "0");
-            element.getStyle().setProperty("transition", "transform " + duration + "s ease, opacity " + duration + "s ease");
-            
-            setTimeout(() -> {
-                element.getStyle().setProperty("transform", "translate(0, 0)");
-                element.getStyle().setProperty("opacity", "1");
-            }, 10);
+            slide(component.getElement(), direction, duration, true);
         }
     }
     
@@ -82,49 +50,49 @@ public class Animation {
      */
     public static void slideOut(UIComponent component, String direction, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            
-            String transform = "";
-            switch (direction.toLowerCase()) {
-                case "left":
-                    transform = "translateX(-100%)";
-                    break;
-                case "right":
-                    transform = "translateX(100%)";
-                    break;
-                case "top":
-                    transform = "translateY(-100%)";
-                    break;
-                case "bottom":
-                    transform = "translateY(100%)";
-                    break;
-                default:
-                    transform = "translateY(20px)";
-            }
-            
-            element.getStyle().setProperty("transform", "translate(0, 0)");
-            element.getStyle().setProperty("opacity", "1");
-            element.getStyle().setProperty("transition", "transform " + duration + "s ease, opacity " + duration + "s ease");
-            
-            setTimeout(() -> {
-                element.getStyle().setProperty("transform", transform);
-                element.getStyle().setProperty("opacity", "0");
-            }, 10);
+            slide(component.getElement(), direction, duration, false);
         }
     }
     
+    private static void slide(HTMLElement element, String direction, double duration, boolean in) {
+        // Slides cover the element's own size, read once before the animation starts
+        Tween.Property property = Tween.Property.Y;
+        double offset;
+        switch (direction.toLowerCase()) {
+            case "left":
+                property = Tween.Property.X;
+                offset = -element.getOffsetWidth();
+                break;
+            case "right":
+                property = Tween.Property.X;
+                offset = element.getOffsetWidth();
+                break;
+            case "top":
+                offset = -element.getOffsetHeight();
+                break;
+            case "bottom":
+                offset = element.getOffsetHeight();
+                break;
+            default:
+                offset = 20;
+        }
+        
+        new Tween(element)
+            .fromTo(property, in ? offset : 0, in ? 0 : offset)
+            .fromTo(Tween.Property.OPACITY, in ? 0 : 1, in ? 1 : 0)
+            .setDuration(duration)
+            .play();
+    }
+    
     /**
      * Animates a component with a scale effect.
      */
     public static void scale(UIComponent component, double fromScale, double toScale, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            element.getStyle().setProperty("transform", "scale(" + fromScale + ")");
-            element.getStyle().setProperty("transition", "transform " + duration + "s ease");
-            
-            setTimeout(() -> {
-                element.getStyle().setProperty("transform", "scale(" + toScale + ")");
-            }, 10);
+            new Tween(component.getElement())
+                .fromTo(Tween.Property.SCALE, fromScale, toScale)
+                .setDuration(duration)
+                .play();
         }
     }
     
@@ -133,29 +101,38 @@ public class Animation {
      */
     public static void rotate(UIComponent component, double fromDegrees, double toDegrees, double duration) {
         if (component.getElement() != null) {
-            HTMLElement element = component.getElement();
-            element.getStyle().setProperty("transform", "rotate(" + fromDegrees + "deg)");
-            element.getStyle().setProperty("transition", "transform " + duration + "s ease");
-            
-            setTimeout(() -> {
-                element.getStyle().setProperty("transform", "rotate(" + toDegrees + "deg)");
-            }, 10);
+            new Tween(component.getElement())
+                .fromTo(Tween.Property.ROTATE, fromDegrees, toDegrees)
+                .setDuration(duration)
+                .play();
         }
     }
     
     /**
-     * Animates a property of a component using GSAP (if available).
+     * Animates a property of a component. The GSAP-style names x, y, scale, rotation and opacity
+     * are tweened; other properties use GSAP if available.
      */
     public static void animate(UIComponent component, String property, Object value, double duration) {
-        if (component.getElement() != null) {
-            try {
-                gsapTo(component.getElement(), duration, property, value);
-            } catch (Exception e) {
-                // Fallback to CSS transitions if GSAP is not available
-                HTMLElement element = component.getElement();
-                element.getStyle().setProperty("transition", property + " " + duration + "s ease");
-                element.getStyle().setProperty(property, value.toString());
-            }
+        if (component.getElement() == null) {
+            return;
+        }
+        
+        Tween.Property tweened = null;
+        switch (property) {
+            case "x": tweened = Tween.Property.X; break;
+            case "y": tweened = Tween.Property.Y; break;
+            case "scale": tweened = Tween.Property.SCALE; break;
+            case "rotation": tweened = Tween.Property.ROTATE; break;
+            case "opacity": tweened = Tween.Property.OPACITY; break;
+        }
+        
+        if (tweened != null && value instanceof Number) {
+            new Tween(component.getElement())
+                .to(tweened, ((Number) value).doubleValue())
+                .setDuration(duration)
+                .play();
+        } else {
+            gsapTo(component.getElement(), duration, property, value);
         }
     }
     
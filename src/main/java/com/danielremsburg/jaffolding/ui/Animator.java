@@ -0,0 +1,161 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.JSProperty;
+import org.teavm.jso.dom.html.HTMLElement;
+
+/**
+ * Plays all {@link Tween}s and {@link Timeline}s of the page from a single animation frame callback.
+ * Each frame, every playing animation is moved to the frame's time, and then each element changed
+ * is written once, as a {@code transform} and {@code opacity}. No frame is requested while nothing
+ * is playing. Playing a tween stops any other tween played directly on the same element and property.
+ */
+public final class Animator {
+    private static final Animator SHARED = new Animator();
+    
+    private final List<Playable> playing = new ArrayList<>();
+    private final List<HTMLElement> dirty = new ArrayList<>();
+    private final FrameCallback frameCallback = this::frame;
+    private boolean frameScheduled = false;
+    
+    private Animator() {
+    }
+    
+    public static Animator shared() {
+        return SHARED;
+    }
+    
+    /**
+     * Starts an animation from the start on the next frame, restarting it if it is playing.
+     */
+    public void play(Playable animation) {
+        playing.remove(animation);
+        if (animation instanceof Tween) {
+            Tween tween = (Tween) animation;
+            for (int i = playing.size() - 1; i >= 0; i--) {
+                Playable other = playing.get(i);
+                if (other instanceof Tween && tween.overlaps((Tween) other)) {
+                    other.cancel();
+                }
+            }
+        }
+        
+        animation.reset();
+        animation.startTime = -1;
+        playing.add(animation);
+        scheduleFrame();
+    }
+    
+    void remove(Playable animation) {
+        playing.remove(animation);
+    }
+    
+    /**
+     * Cancels everything playing.
+     */
+    public void cancelAll() {
+        for (Playable animation : new ArrayList<>(playing)) {
+            animation.cancel();
+        }
+    }
+    
+    public int getPlayingCount() {
+        return playing.size();
+    }
+    
+    void markDirty(HTMLElement element, MotionState state) {
+        if (!state.isDirty()) {
+            state.setDirty(true);
+            dirty.add(element);
+        }
+    }
+    
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            requestAnimationFrame(frameCallback);
+        }
+    }
+    
+    private void frame(double time) {
+        frameScheduled = false;
+        
+        // Animations completing may start others, which begin on the next frame
+        for (Playable animation : new ArrayList<>(playing)) {
+            if (animation.startTime < 0) {
+                animation.startTime = time;
+            }
+            animation.advance((time - animation.startTime) / 1000);
+            if (animation.isFinished()) {
+                playing.remove(animation);
+            }
+        }
+        
+        for (HTMLElement element : dirty) {
+            MotionState state = stateOf(element);
+            state.setDirty(false);
+            applyMotion(element, state);
+        }
+        dirty.clear();
+        
+        if (!playing.isEmpty()) {
+            scheduleFrame();
+        }
+    }
+    
+    /**
+     * The animated values of an element, kept on the element between animations.
+     */
+    static MotionState stateOf(HTMLElement element) {
+        return getMotionState(element);
+    }
+    
+    interface MotionState extends JSObject {
+        @JSProperty double getX();
+        @JSProperty void setX(double x);
+        @JSProperty double getY();
+        @JSProperty void setY(double y);
+        @JSProperty double getScale();
+        @JSProperty void setScale(double scale);
+        @JSProperty double getRotate();
+        @JSProperty void setRotate(double rotate);
+        @JSProperty double getOpacity();
+        @JSProperty void setOpacity(double opacity);
+        @JSProperty boolean isTransformUsed();
+        @JSProperty void setTransformUsed(boolean used);
+        @JSProperty boolean isOpacityUsed();
+        @JSProperty void setOpacityUsed(boolean used);
+        @JSProperty boolean isDirty();
+        @JSProperty void setDirty(boolean dirty);
+    }
+    
+    @JSFunctor
+    interface FrameCallback extends JSObject {
+        void onFrame(double time);
+    }
+    
+    // JavaScript interop methods
+    
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(callback);")
+    private static native void requestAnimationFrame(FrameCallback callback);
+    
+    @JSBody(params = {"element"}, script =
+        "return element.__jaffoldingMotion || (element.__jaffoldingMotion = {" +
+        "  x: 0, y: 0, scale: 1, rotate: 0, opacity: 1," +
+        "  transformUsed: false, opacityUsed: false, dirty: false" +
+        "});")
+    private static native MotionState getMotionState(HTMLElement element);
+    
+    @JSBody(params = {"element", "state"}, script =
+        "if (state.transformUsed) {" +
+        "  element.style.transform = 'translate3d(' + state.x + 'px, ' + state.y + 'px, 0) scale(' +" +
+        "      state.scale + ') rotate(' + state.rotate + 'deg)';" +
+        "}" +
+        "if (state.opacityUsed) element.style.opacity = state.opacity;")
+    private static native void applyMotion(HTMLElement element, MotionState state);
+}
@@ -0,0 +1,665 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * A grid drawn on a canvas instead of with DOM elements, for very large or very wide tables.
+ * It offers the same basic API as {@link Table} and is also used by {@link DataTable#setCanvasMode}.
+ * Only visible cells are drawn. Scrolling shifts the pixels that are already painted and draws only
+ * the newly exposed strips, and cell or row changes repaint only their own rectangles.
+ * The header row, and optionally leading rows and columns, stay frozen while scrolling.
+ * Text is rendered at the device pixel ratio so it stays sharp on high-density displays.
+ */
+public class CanvasGrid extends Component {
+    public static final int DEFAULT_ROW_HEIGHT = 28;
+    public static final int DEFAULT_COLUMN_WIDTH = 120;
+    public static final int HEADER_HEIGHT = 32;
+
+    private static final int KIND_BODY = 0;
+    private static final int KIND_HEADER = 1;
+    private static final int KIND_SELECTED = 2;
+
+    /**
+     * Supplies the grid's cells.
+     */
+    public interface Model {
+        int getRowCount();
+
+        int getColumnCount();
+
+        String getColumnName(int column);
+
+        String getText(int row, int column);
+
+        /**
+         * @return True to right-align the column's text
+         */
+        default boolean isNumeric(int column) {
+            return false;
+        }
+    }
+
+    /**
+     * Receives clicks on body cells.
+     */
+    public interface CellListener {
+        void onCellClick(int row, int column);
+    }
+
+    private Model model = new ListModel(new ArrayList<>(), new ArrayList<>());
+    private int rowHeight = DEFAULT_ROW_HEIGHT;
+    private int defaultColumnWidth = DEFAULT_COLUMN_WIDTH;
+    private int[] columnWidths;
+    private double[] columnOffsets = new double[1];
+    private int frozenRows = 0;
+    private int frozenColumns = 0;
+    private boolean selectable = true;
+    private int selectedRow = -1;
+    private Consumer<Integer> selectionListener;
+    private Consumer<Integer> headerClickListener;
+    private CellListener cellListener;
+
+    private HTMLElement canvas;
+    private JSObject context;
+    private HTMLElement scroller;
+    private HTMLElement sizer;
+    private double viewWidth;
+    private double viewHeight;
+    private double pixelRatio = 1;
+    private double scrollX;
+    private double scrollY;
+    private double paintedScrollX;
+    private double paintedScrollY;
+    private boolean fullRedraw = true;
+    private final List<double[]> dirty = new ArrayList<>();
+    private boolean frameScheduled = false;
+
+    public CanvasGrid() {
+        super("div");
+        setStyle("position", "relative")
+            .setStyle("width", "100%")
+            .setStyle("height", "480px")
+            .setStyle("overflow", "hidden");
+    }
+
+    public CanvasGrid(List<String> columnNames) {
+        this();
+        setColumnNames(columnNames);
+    }
+
+    public CanvasGrid setColumnNames(List<String> columnNames) {
+        List<List<String>> rows = model instanceof ListModel ? ((ListModel) model).rows : new ArrayList<>();
+        return setModel(new ListModel(columnNames, rows));
+    }
+
+    public CanvasGrid setData(List<List<String>> data) {
+        List<String> columns = model instanceof ListModel ? ((ListModel) model).columns : new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        for (List<String> row : data) {
+            rows.add(new ArrayList<>(row));
+        }
+        return setModel(new ListModel(columns, rows));
+    }
+
+    /**
+     * Sets the source of cells, for data that is not held as lists of strings.
+     */
+    public CanvasGrid setModel(Model model) {
+        this.model = model;
+        if (selectedRow >= model.getRowCount()) {
+            selectedRow = -1;
+        }
+        refresh();
+        return this;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    public CanvasGrid setRowHeight(int rowHeight) {
+        this.rowHeight = rowHeight;
+        refresh();
+        return this;
+    }
+
+    public CanvasGrid setColumnWidth(int column, int width) {
+        int count = Math.max(model.getColumnCount(), column + 1);
+        if (columnWidths == null || columnWidths.length < count) {
+            int[] widths = new int[count];
+            for (int i = 0; i < count; i++) {
+                widths[i] = columnWidths != null && i < columnWidths.length ? columnWidths[i] : defaultColumnWidth;
+            }
+            columnWidths = widths;
+        }
+        columnWidths[column] = width;
+        refresh();
+        return this;
+    }
+
+    public CanvasGrid setDefaultColumnWidth(int width) {
+        this.defaultColumnWidth = width;
+        refresh();
+        return this;
+    }
+
+    /**
+     * Keeps the first rows below the header in place while scrolling vertically.
+     */
+    public CanvasGrid setFrozenRows(int rows) {
+        this.frozenRows = Math.max(0, rows);
+        refresh();
+        return this;
+    }
+
+    /**
+     * Keeps the first columns in place while scrolling horizontally.
+     */
+    public CanvasGrid setFrozenColumns(int columns) {
+        this.frozenColumns = Math.max(0, columns);
+        refresh();
+        return this;
+    }
+
+    public CanvasGrid setSelectable(boolean selectable) {
+        this.selectable = selectable;
+        if (!selectable) {
+            setSelectedRow(-1);
+        }
+        return this;
+    }
+
+    public int getSelectedRow() {
+        return selectedRow;
+    }
+
+    public CanvasGrid setSelectedRow(int row) {
+        if (row >= -1 && row < model.getRowCount() && row != selectedRow) {
+            invalidateRow(selectedRow);
+            selectedRow = row;
+            invalidateRow(selectedRow);
+        }
+        return this;
+    }
+
+    public CanvasGrid setOnRowSelect(Consumer<Integer> listener) {
+        this.selectionListener = listener;
+        return this;
+    }
+
+    public CanvasGrid setOnHeaderClick(Consumer<Integer> listener) {
+        this.headerClickListener = listener;
+        return this;
+    }
+
+    public CanvasGrid setOnCellClick(CellListener listener) {
+        this.cellListener = listener;
+        return this;
+    }
+
+    /**
+     * Redraws everything, after rows or columns were added, removed or resized.
+     */
+    public void refresh() {
+        int columnCount = model.getColumnCount();
+        columnOffsets = new double[columnCount + 1];
+        for (int i = 0; i < columnCount; i++) {
+            columnOffsets[i + 1] = columnOffsets[i] + columnWidth(i);
+        }
+
+        if (selectedRow >= model.getRowCount()) {
+            selectedRow = -1;
+        }
+
+        if (sizer != null) {
+            sizer.getStyle().setProperty("width", columnOffsets[columnCount] + "px");
+            sizer.getStyle().setProperty("height", (HEADER_HEIGHT + (double) model.getRowCount() * rowHeight) + "px");
+        }
+
+        fullRedraw = true;
+        scheduleFrame();
+    }
+
+    /**
+     * Repaints one row, after its values changed.
+     */
+    public void invalidateRow(int row) {
+        if (row < 0 || row >= model.getRowCount()) {
+            return;
+        }
+        double y = rowTop(row);
+        if (y + rowHeight > 0 && y < viewHeight) {
+            addDirty(0, y, viewWidth, rowHeight);
+        }
+    }
+
+    /**
+     * Repaints one cell, after its value changed.
+     */
+    public void invalidateCell(int row, int column) {
+        if (row < 0 || row >= model.getRowCount() || column < 0 || column >= model.getColumnCount()) {
+            return;
+        }
+        double x = column < frozenColumns ? columnOffsets[column] : columnOffsets[column] - scrollX;
+        double y = rowTop(row);
+        if (x + columnWidth(column) > 0 && x < viewWidth && y + rowHeight > 0 && y < viewHeight) {
+            addDirty(x, y, columnWidth(column), rowHeight);
+        }
+    }
+
+    private void addDirty(double x, double y, double width, double height) {
+        if (!fullRedraw) {
+            dirty.add(new double[] {x, y, width, height});
+        }
+        scheduleFrame();
+    }
+
+    private int columnWidth(int column) {
+        return columnWidths != null && column < columnWidths.length ? columnWidths[column] : defaultColumnWidth;
+    }
+
+    private double rowTop(int row) {
+        double y = HEADER_HEIGHT + (double) row * rowHeight;
+        return row < frozenRows ? y : y - scrollY;
+    }
+
+    private double frozenWidth() {
+        return columnOffsets[Math.min(frozenColumns, columnOffsets.length - 1)];
+    }
+
+    private double frozenHeight() {
+        return HEADER_HEIGHT + (double) Math.min(frozenRows, model.getRowCount()) * rowHeight;
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled && canvas != null) {
+            frameScheduled = true;
+            requestAnimationFrame(this::drawFrame);
+        }
+    }
+
+    private void drawFrame() {
+        frameScheduled = false;
+        if (canvas == null) {
+            return;
+        }
+
+        double width = getClientWidth(scroller);
+        double height = getClientHeight(scroller);
+        double ratio = getDevicePixelRatio();
+        if (width != viewWidth || height != viewHeight || ratio != pixelRatio) {
+            viewWidth = width;
+            viewHeight = height;
+            pixelRatio = ratio;
+            resizeCanvas(canvas, context, width, height, ratio);
+            fullRedraw = true;
+        }
+
+        if (!fullRedraw && (scrollX != paintedScrollX || scrollY != paintedScrollY)) {
+            if (dirty.isEmpty()) {
+                shiftPainted(scrollX - paintedScrollX, scrollY - paintedScrollY);
+            } else {
+                // Pending rectangles refer to the old scroll position
+                fullRedraw = true;
+            }
+        }
+        paintedScrollX = scrollX;
+        paintedScrollY = scrollY;
+
+        if (fullRedraw) {
+            paint(0, 0, viewWidth, viewHeight);
+        } else {
+            for (double[] rect : dirty) {
+                paint(rect[0], rect[1], rect[2], rect[3]);
+            }
+        }
+
+        dirty.clear();
+        fullRedraw = false;
+    }
+
+    /**
+     * Moves already painted pixels of the scrolling regions by the scroll delta and marks
+     * only the exposed strips as dirty. Falls back to repainting a region when the delta
+     * is not a whole number of device pixels, to avoid resampling blur.
+     */
+    private void shiftPainted(double dx, double dy) {
+        double left = frozenWidth();
+        double top = frozenHeight();
+
+        shiftRegion(left, top, viewWidth - left, viewHeight - top, dx, dy);
+        shiftRegion(left, 0, viewWidth - left, top, dx, 0);
+        shiftRegion(0, top, left, viewHeight - top, 0, dy);
+    }
+
+    private void shiftRegion(double x, double y, double width, double height, double dx, double dy) {
+        if (width <= 0 || height <= 0 || (dx == 0 && dy == 0)) {
+            return;
+        }
+
+        boolean wholePixels = dx * pixelRatio == Math.rint(dx * pixelRatio)
+                && dy * pixelRatio == Math.rint(dy * pixelRatio);
+        if (!wholePixels || Math.abs(dx) >= width || Math.abs(dy) >= height) {
+            dirty.add(new double[] {x, y, width, height});
+            return;
+        }
+
+        blit(context, canvas, x, y, width, height, dx, dy, pixelRatio);
+
+        if (dx > 0) {
+            dirty.add(new double[] {x + width - dx, y, dx, height});
+        } else if (dx < 0) {
+            dirty.add(new double[] {x, y, -dx, height});
+        }
+        if (dy > 0) {
+            dirty.add(new double[] {x, y + height - dy, width, dy});
+        } else if (dy < 0) {
+            dirty.add(new double[] {x, y, width, -dy});
+        }
+    }
+
+    /**
+     * Paints a rectangle of the view, split into the frozen corner, the frozen top band,
+     * the frozen left band and the scrolling body.
+     */
+    private void paint(double x, double y, double width, double height) {
+        double left = frozenWidth();
+        double top = frozenHeight();
+
+        paintRegion(x, y, width, height, 0, 0, left, top, false, false);
+        paintRegion(x, y, width, height, left, 0, viewWidth - left, top, true, false);
+        paintRegion(x, y, width, height, 0, top, left, viewHeight - top, false, true);
+        paintRegion(x, y, width, height, left, top, viewWidth - left, viewHeight - top, true, true);
+    }
+
+    private void paintRegion(double x, double y, double width, double height,
+                             double regionX, double regionY, double regionWidth, double regionHeight,
+                             boolean scrollsX, boolean scrollsY) {
+        double clipX = Math.max(x, regionX);
+        double clipY = Math.max(y, regionY);
+        double clipRight = Math.min(x + width, regionX + regionWidth);
+        double clipBottom = Math.min(y + height, regionY + regionHeight);
+        if (clipRight <= clipX || clipBottom <= clipY) {
+            return;
+        }
+
+        double shiftX = scrollsX ? scrollX : 0;
+        int columnCount = model.getColumnCount();
+        int firstColumn = scrollsX ? Math.min(frozenColumns, columnCount) : 0;
+        int endColumn = scrollsX ? columnCount : Math.min(frozenColumns, columnCount);
+        firstColumn = Math.max(firstColumn, findColumn(clipX + shiftX));
+
+        List<double[]> cells = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+
+        for (int column = firstColumn; column < endColumn; column++) {
+            double cellX = columnOffsets[column] - shiftX;
+            if (cellX >= clipRight) {
+                break;
+            }
+            double cellWidth = columnWidth(column);
+            int align = model.isNumeric(column) ? 1 : 0;
+
+            if (!scrollsY) {
+                cells.add(new double[] {cellX, 0, cellWidth, HEADER_HEIGHT, KIND_HEADER, align});
+                texts.add(model.getColumnName(column));
+            }
+
+            int firstRow;
+            int endRow;
+            if (scrollsY) {
+                firstRow = Math.max(frozenRows, (int) Math.floor((clipY + scrollY - HEADER_HEIGHT) / rowHeight));
+                endRow = Math.min(model.getRowCount(), (int) Math.ceil((clipBottom + scrollY - HEADER_HEIGHT) / rowHeight));
+            } else {
+                firstRow = 0;
+                endRow = Math.min(frozenRows, model.getRowCount());
+            }
+
+            for (int row = firstRow; row < endRow; row++) {
+                double cellY = rowTop(row);
+                if (cellY + rowHeight <= clipY || cellY >= clipBottom) {
+                    continue;
+                }
+                cells.add(new double[] {cellX, cellY, cellWidth, rowHeight,
+                        row == selectedRow ? KIND_SELECTED : KIND_BODY, align});
+                String text = model.getText(row, column);
+                texts.add(text != null ? text : "");
+            }
+        }
+
+        double[] flat = new double[cells.size() * 6];
+        for (int i = 0; i < cells.size(); i++) {
+            System.arraycopy(cells.get(i), 0, flat, i * 6, 6);
+        }
+        drawCells(context, clipX, clipY, clipRight - clipX, clipBottom - clipY,
+                flat, texts.toArray(new String[0]));
+    }
+
+    private int findColumn(double contentX) {
+        int low = 0;
+        int high = columnOffsets.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columnOffsets[mid + 1] <= contentX) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void onScroll() {
+        scrollX = getScrollLeft(scroller);
+        scrollY = getScrollTop(scroller);
+        scheduleFrame();
+    }
+
+    private void onClick(double viewX, double viewY) {
+        if (viewX >= viewWidth || viewY >= viewHeight) {
+            // On a scrollbar
+            return;
+        }
+
+        int column = viewX < frozenWidth() ? findColumn(viewX) : findColumn(viewX + scrollX);
+        if (column >= model.getColumnCount()) {
+            return;
+        }
+
+        if (viewY < HEADER_HEIGHT) {
+            if (headerClickListener != null) {
+                headerClickListener.accept(column);
+            }
+            return;
+        }
+
+        int row = viewY < frozenHeight()
+                ? (int) ((viewY - HEADER_HEIGHT) / rowHeight)
+                : (int) ((viewY + scrollY - HEADER_HEIGHT) / rowHeight);
+        if (row >= model.getRowCount()) {
+            return;
+        }
+
+        if (selectable) {
+            setSelectedRow(row);
+            if (selectionListener != null) {
+                selectionListener.accept(row);
+            }
+        }
+        if (cellListener != null) {
+            cellListener.onCellClick(row, column);
+        }
+    }
+
+    @Override
+    public HTMLElement render(HTMLElement parent) {
+        HTMLElement element = super.render(parent);
+
+        canvas = HTMLDocument.current().createElement("canvas");
+        canvas.getStyle().setProperty("position", "absolute");
+        canvas.getStyle().setProperty("left", "0");
+        canvas.getStyle().setProperty("top", "0");
+        context = getContext(canvas);
+
+        // A transparent scrolling layer provides native scrollbars and wheel handling over the canvas
+        scroller = HTMLDocument.current().createElement("div");
+        scroller.getStyle().setProperty("position", "absolute");
+        scroller.getStyle().setProperty("left", "0");
+        scroller.getStyle().setProperty("top", "0");
+        scroller.getStyle().setProperty("right", "0");
+        scroller.getStyle().setProperty("bottom", "0");
+        scroller.getStyle().setProperty("overflow", "auto");
+        scroller.getStyle().setProperty("cursor", "default");
+
+        sizer = HTMLDocument.current().createElement("div");
+        scroller.appendChild(sizer);
+
+        element.appendChild(canvas);
+        element.appendChild(scroller);
+
+        scroller.addEventListener("scroll", e -> onScroll());
+        listenClicks(scroller, this::onClick);
+        observeResize(scroller, this::scheduleFrame);
+
+        refresh();
+        return element;
+    }
+
+    /**
+     * Model over lists of strings, as used by {@link Table}.
+     */
+    private static class ListModel implements Model {
+        final List<String> columns;
+        final List<List<String>> rows;
+
+        ListModel(List<String> columns, List<List<String>> rows) {
+            this.columns = new ArrayList<>(columns);
+            this.rows = rows;
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        @Override
+        public String getText(int row, int column) {
+            List<String> cells = rows.get(row);
+            return column < cells.size() ? cells.get(column) : "";
+        }
+    }
+
+    @JSFunctor
+    interface ClickHandler extends JSObject {
+        void onClick(double x, double y);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(function() { callback(); });")
+    private static native void requestAnimationFrame(Runnable callback);
+
+    @JSBody(params = {}, script = "return window.devicePixelRatio || 1;")
+    private static native double getDevicePixelRatio();
+
+    @JSBody(params = {"canvas"}, script = "return canvas.getContext('2d');")
+    private static native JSObject getContext(JSObject canvas);
+
+    @JSBody(params = {"element"}, script = "return element.clientWidth;")
+    private static native double getClientWidth(HTMLElement element);
+
+    @JSBody(params = {"element"}, script = "return element.clientHeight;")
+    private static native double getClientHeight(HTMLElement element);
+
+    @JSBody(params = {"element"}, script = "return element.scrollLeft;")
+    private static native double getScrollLeft(HTMLElement element);
+
+    @JSBody(params = {"element"}, script = "return element.scrollTop;")
+    private static native double getScrollTop(HTMLElement element);
+
+    @JSBody(params = {"element", "handler"}, script =
+        "element.addEventListener('click', function(e) {" +
+        "  var rect = element.getBoundingClientRect();" +
+        "  handler(e.clientX - rect.left, e.clientY - rect.top);" +
+        "});")
+    private static native void listenClicks(HTMLElement element, ClickHandler handler);
+
+    @JSBody(params = {"element", "callback"}, script =
+        "if (typeof ResizeObserver !== 'undefined') {" +
+        "  new ResizeObserver(function() { callback(); }).observe(element);" +
+        "}")
+    private static native void observeResize(HTMLElement element, Runnable callback);
+
+    @JSBody(params = {"canvas", "ctx", "width", "height", "ratio"}, script =
+        "canvas.style.width = width + 'px';" +
+        "canvas.style.height = height + 'px';" +
+        "canvas.width = Math.round(width * ratio);" +
+        "canvas.height = Math.round(height * ratio);" +
+        "ctx.setTransform(ratio, 0, 0, ratio, 0, 0);")
+    private static native void resizeCanvas(JSObject canvas, JSObject ctx, double width, double height, double ratio);
+
+    @JSBody(params = {"ctx", "canvas", "x", "y", "w", "h", "dx", "dy", "ratio"}, script =
+        "ctx.save();" +
+        "ctx.beginPath();" +
+        "ctx.rect(x, y, w, h);" +
+        "ctx.clip();" +
+        "ctx.setTransform(1, 0, 0, 1, 0, 0);" +
+        "ctx.drawImage(canvas, x * ratio, y * ratio, w * ratio, h * ratio," +
+        "              (x - dx) * ratio, (y - dy) * ratio, w * ratio, h * ratio);" +
+        "ctx.restore();")
+    private static native void blit(JSObject ctx, JSObject canvas, double x, double y, double w, double h,
+                                    double dx, double dy, double ratio);
+
+    /**
+     * Draws a batch of cells in one call. Each cell is six numbers: x, y, width, height, kind and alignment.
+     */
+    @JSBody(params = {"ctx", "x", "y", "w", "h", "cells", "texts"}, script =
+        "var fills = ['#ffffff', '#f5f5f5', '#e8f0fe'];" +
+        "ctx.save();" +
+        "ctx.beginPath();" +
+        "ctx.rect(x, y, w, h);" +
+        "ctx.clip();" +
+        "ctx.fillStyle = '#ffffff';" +
+        "ctx.fillRect(x, y, w, h);" +
+        "ctx.textBaseline = 'middle';" +
+        "for (var i = 0, t = 0; i < cells.length; i += 6, t++) {" +
+        "  var cx = cells[i], cy = cells[i + 1], cw = cells[i + 2], ch = cells[i + 3], kind = cells[i + 4];" +
+        "  ctx.fillStyle = fills[kind];" +
+        "  ctx.fillRect(cx, cy, cw, ch);" +
+        "  ctx.fillStyle = '#dddddd';" +
+        "  ctx.fillRect(cx, cy + ch - (kind === 1 ? 2 : 1), cw, kind === 1 ? 2 : 1);" +
+        "  ctx.fillRect(cx + cw - 1, cy, 1, ch);" +
+        "  ctx.fillStyle = '#333333';" +
+        "  ctx.font = (kind === 1 ? '600 ' : '') + '13px sans-serif';" +
+        "  if (cells[i + 5] === 1) {" +
+        "    ctx.textAlign = 'right';" +
+        "    ctx.fillText(texts[t], cx + cw - 8, cy + ch / 2, Math.max(0, cw - 16));" +
+        "  } else {" +
+        "    ctx.textAlign = 'left';" +
+        "    ctx.fillText(texts[t], cx + 8, cy + ch / 2, Math.max(0, cw - 16));" +
+        "  }" +
+        "}" +
+        "ctx.restore();")
+    private static native void drawCells(JSObject ctx, double x, double y, double w, double h,
+                                         double[] cells, String[] texts);
+}
@@ -1,14 +1,19 @@
 package com.danielremsburg.jaffolding.ui;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSObject;
 import org.teavm.jso.JSProperty;
+import org.teavm.jso.ajax.XMLHttpRequest;
 import org.teavm.jso.dom.html.HTMLCanvasElement;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
@@ -16,11 +21,32 @@ import org.teavm.jso.json.JSON;
 
 import com.danielremsburg.jaffolding.Component;
 import com.danielremsburg.jaffolding.State;
+import com.danielremsburg.jaffolding.bridge.ColumnarData;
+import com.danielremsburg.jaffolding.bridge.JSRows;
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+import com.danielremsburg.jaffolding.ui.chart.Downsampler;
+import com.danielremsburg.jaffolding.ui.chart.RingBuffer;
+import com.danielremsburg.jaffolding.worker.DataJobs;
+import com.danielremsburg.jaffolding.worker.DataWorkerClient;
 
 /**
  * A chart component that integrates with Chart.js.
  */
 public class ChartComponent extends Component {
+    public static final int DEFAULT_WORKER_THRESHOLD = 20000;
+    
+    private static final String[] CATEGORY_COLORS = {
+        "#4285f4", "#ea4335", "#fbbc05", "#34a853", 
+        "#673ab7", "#3f51b5", "#2196f3", "#03a9f4", 
+        "#00bcd4", "#009688", "#4caf50", "#8bc34a"
+    };
+    
+    private static final double HIGH_FREQUENCY_MS = 500;
+    public static final String CHART_WORKER_SCRIPT = "/js/jaffolding/workers/ChartWorker.js";
+    public static final String CHART_SCRIPT = "/node_modules/chart.js/dist/chart.umd.js";
+    
+    private static int nextChartId = 0;
+    
     private String type = "bar";
     private List<String> labels = new ArrayList<>();
     private List<Dataset> datasets = new ArrayList<>();
@@ -32,7 +58,32 @@ public class ChartComponent extends Component {
     private String categoryField;
     private Function<Map<String, Object>, String> labelExtractor;
     private Function<Map<String, Object>, Number> valueExtractor;
+    private Function<Map<String, Object>, Number> fieldValueExtractor; // The extractor reading valueField
     private Function<Map<String, Object>, String> categoryExtractor;
+    private int workerThreshold = DEFAULT_WORKER_THRESHOLD;
+    private final String workerChannel = "chart-" + (nextChartId++);
+    private List<String> pushedLabels = new ArrayList<>();
+    private List<BoundDataset> boundDatasets = new ArrayList<>();
+    private final List<String> pointBackgrounds = new ArrayList<>();
+    private final List<String> pointBorders = new ArrayList<>();
+    private String updateMode;
+    private Downsampler downsampler;
+    private int downsampledWidth;
+    private Map<String, StreamSeries> streams;
+    private int streamCapacity;
+    private double streamWindow;
+    private boolean streamFrameScheduled = false;
+    private boolean offscreen = false;
+    private boolean inWorker = false;
+    private Pool pool;
+    private Chart recycled;
+    private JSObject resizeObserver;
+    
+    /**
+     * The worker chart whose edits are being journaled, or null. Set only while syncing a worker chart.
+     */
+    private static Chart journal;
+    private double lastUpdateTime = Double.NEGATIVE_INFINITY;
     
     public ChartComponent() {
         super("canvas");
@@ -45,8 +96,35 @@ public class ChartComponent extends Component {
             .setStyle("max-height", "100%");
     }
 
+    /**
+     * Sets the chart type. A rendered chart switches in place when the old and new types share their
+     * scales, as bar and line do; otherwise the chart is rebuilt on the same canvas.
+     */
     public ChartComponent setType(String type) {
+        String previous = this.type;
         this.type = type;
+        if (chart == null || type.equals(previous)) {
+            return this;
+        }
+        
+        if (!inWorker && typeFamily(type).equals(typeFamily(previous))) {
+            // Chart.js replaces the dataset controllers for the new type on update
+            setChartType(chart, type);
+            updateChartData(chart, updateMode);
+        } else {
+            rebuildChart();
+        }
+        return this;
+    }
+    
+    /**
+     * Reuses idle charts from a pool, and returns this chart to the pool rather than destroying it
+     * when the component is removed. Must be set before the chart is rendered; ignored for charts
+     * drawn offscreen.
+     * @param pool The pool, usually {@link Pool#shared()}, or null to create and destroy charts
+     */
+    public ChartComponent setPool(Pool pool) {
+        this.pool = pool;
         return this;
     }
 
@@ -67,6 +145,151 @@ public class ChartComponent extends Component {
         return this;
     }
 
+    /**
+     * Adds a dataset backed by a primitive array, which Chart.js reads as a {@code Float64Array}
+     * view of the same memory. Changing the array's values and calling {@link #refresh()} redraws
+     * the chart without copying anything.
+     */
+    public ChartComponent addDataset(String label, double[] data, String backgroundColor, String borderColor) {
+        Dataset dataset = new Dataset();
+        dataset.label = label;
+        dataset.doubleData = data;
+        dataset.backgroundColor = backgroundColor;
+        dataset.borderColor = borderColor;
+        dataset.borderWidth = 1;
+        
+        datasets.add(dataset);
+        return this;
+    }
+
+    /**
+     * Adds a dataset backed by a primitive array, which Chart.js reads as a {@code Float32Array} view.
+     * @see #addDataset(String, double[], String, String)
+     */
+    public ChartComponent addDataset(String label, float[] data, String backgroundColor, String borderColor) {
+        Dataset dataset = new Dataset();
+        dataset.label = label;
+        dataset.floatData = data;
+        dataset.backgroundColor = backgroundColor;
+        dataset.borderColor = borderColor;
+        dataset.borderWidth = 1;
+        
+        datasets.add(dataset);
+        return this;
+    }
+
+    /**
+     * Redraws the chart from the current labels and datasets, for example after
+     * changing the values of a dataset's primitive array.
+     */
+    public ChartComponent refresh() {
+        updateChart();
+        return this;
+    }
+
+    /**
+     * Sets the Chart.js update mode, such as {@code "none"} to skip animations.
+     * By default updates animate, except when they arrive less than {@value #HIGH_FREQUENCY_MS} ms apart.
+     * @param mode The mode, or null for the default
+     */
+    public ChartComponent setUpdateMode(String mode) {
+        this.updateMode = mode;
+        return this;
+    }
+
+    /**
+     * Reduces series with more points than the chart is wide before they are handed to Chart.js.
+     * Runs again on every update and whenever the chart is resized.
+     * @param downsampler The strategy, such as {@link Downsampler#lttb()}, or null to show every point
+     */
+    public ChartComponent setDownsampler(Downsampler downsampler) {
+        this.downsampler = downsampler;
+        updateChart();
+        return this;
+    }
+
+    /**
+     * Switches the chart to streaming mode, fed point by point through {@link #append}.
+     * Each series keeps its points in a ring buffer of fixed capacity, and the chart is redrawn at most
+     * once per animation frame however fast points arrive. The x axis is linear, so use a line or
+     * scatter chart. Bound data and datasets are not shown while streaming.
+     * @param capacity The maximum number of points kept per series
+     * @param window The span of x values shown, ending at the newest point, or 0 to show all kept points
+     */
+    public ChartComponent setStreaming(int capacity, double window) {
+        this.streams = new LinkedHashMap<>();
+        this.streamCapacity = capacity;
+        this.streamWindow = window;
+        
+        if (chart != null) {
+            rebuildChart();
+        }
+        return this;
+    }
+    
+    /**
+     * Adds a point to a series in streaming mode, creating the series on first use.
+     * @param series The series label
+     * @param x The x value, usually a timestamp; should not decrease within a series
+     * @param y The y value
+     */
+    public ChartComponent append(String series, double x, double y) {
+        if (streams == null) {
+            throw new IllegalStateException("Streaming mode is not enabled");
+        }
+        
+        StreamSeries stream = streams.get(series);
+        if (stream == null) {
+            String color = CATEGORY_COLORS[streams.size() % CATEGORY_COLORS.length];
+            stream = new StreamSeries(series, color, streamCapacity);
+            streams.put(series, stream);
+            if (chart != null) {
+                journal = inWorker ? chart : null;
+                try {
+                    pushObject(getProperty(getChartData(chart), "datasets"), stream.js);
+                } finally {
+                    journal = null;
+                }
+            }
+        }
+        
+        stream.buffer.add(x, y);
+        scheduleStreamFrame();
+        return this;
+    }
+    
+    /**
+     * Removes all streamed points, keeping the series.
+     */
+    public ChartComponent clearStream() {
+        if (streams != null) {
+            for (StreamSeries series : streams.values()) {
+                series.buffer.clear();
+            }
+            scheduleStreamFrame();
+        }
+        return this;
+    }
+
+    /**
+     * Draws the chart in a worker on an {@code OffscreenCanvas}, so heavy redraws do not block input
+     * on the page. Data changes are sent to the worker as edits rather than whole datasets, and
+     * resizes are forwarded. Tooltips and hover effects are not available in this mode, and options
+     * must be plain values. Must be set before the chart is rendered; falls back to drawing on the
+     * page where the browser lacks {@code transferControlToOffscreen}.
+     */
+    public ChartComponent setOffscreen(boolean offscreen) {
+        this.offscreen = offscreen;
+        return this;
+    }
+    
+    /**
+     * @return True if the chart is being drawn in a worker
+     */
+    public boolean isOffscreen() {
+        return inWorker;
+    }
+
     public ChartComponent setOptions(Map<String, Object> options) {
         this.options = new HashMap<>(options);
         return this;
@@ -82,6 +305,7 @@ public class ChartComponent extends Component {
         // Default extractors
         this.labelExtractor = data -> data.get(labelField).toString();
         this.valueExtractor = data -> (Number) data.get(valueField);
+        this.fieldValueExtractor = valueExtractor;
         
         // Subscribe to data changes
         dataState.subscribe(this::updateChartFromData);
@@ -100,6 +324,49 @@ public class ChartComponent extends Component {
         return this;
     }
 
+    /**
+     * Shows totals computed by the server instead of grouping rows here.
+     * Requests {@code groupBy} and {@code measure} from an aggregation endpoint such as
+     * {@code /api/sales/aggregate}, so only one row per group is downloaded.
+     * @param url The endpoint, optionally with filter parameters
+     * @param labelField The column whose groups become the labels
+     * @param measure The aggregate to plot, such as {@code sum(revenue)}
+     * @param categoryField The column whose groups become datasets, or null for a single dataset
+     */
+    public ChartComponent bindToAggregate(String url, String labelField, String measure, String categoryField) {
+        this.labelField = labelField;
+        this.valueField = measure;
+        this.categoryField = categoryField;
+        this.labelExtractor = data -> String.valueOf(data.get(labelField));
+        this.valueExtractor = data -> (Number) data.get(measure);
+        this.categoryExtractor = categoryField != null ? data -> String.valueOf(data.get(categoryField)) : null;
+        
+        String groupBy = categoryField != null ? labelField + "," + categoryField : labelField;
+        String query = (url.contains("?") ? "&" : "?") + "groupBy=" + encode(groupBy) + "&measure=" + encode(measure);
+        
+        XMLHttpRequest xhr = XMLHttpRequest.create();
+        xhr.open("GET", url + query);
+        xhr.setOnReadyStateChange(() -> {
+            if (xhr.getReadyState() == XMLHttpRequest.DONE) {
+                if (xhr.getStatus() == 200) {
+                    try {
+                        updateChartFromData(JSRows.toRows(JSON.parse(xhr.getResponseText())));
+                    } catch (Exception e) {
+                        System.err.println("Error parsing aggregates: " + e.getMessage());
+                    }
+                } else {
+                    System.err.println("Error loading aggregates: HTTP " + xhr.getStatus());
+                }
+            }
+        });
+        xhr.send();
+        return this;
+    }
+
+    public ChartComponent bindToAggregate(String url, String labelField, String measure) {
+        return bindToAggregate(url, labelField, measure, null);
+    }
+
     public ChartComponent setLabelExtractor(Function<Map<String, Object>, String> extractor) {
         this.labelExtractor = extractor;
         return this;
@@ -114,90 +381,69 @@ public class ChartComponent extends Component {
         this.categoryExtractor = extractor;
         return this;
     }
+    
+    /**
+     * Sets the number of rows from which grouped data is aggregated in the data worker
+     * instead of on the UI thread.
+     * @param rows The row threshold, or 0 to always aggregate on the UI thread
+     */
+    public ChartComponent setWorkerThreshold(int rows) {
+        this.workerThreshold = rows;
+        return this;
+    }
 
     private void updateChartFromData(List<Map<String, Object>> data) {
         if (data == null || data.isEmpty()) {
             return;
         }
         
-        // Extract labels and organize data
-        List<String> newLabels = new ArrayList<>();
-        Map<String, Map<String, Number>> categoryData = new HashMap<>();
-        
         if (categoryField != null) {
-            // For grouped data (multiple datasets)
-            for (Map<String, Object> item : data) {
-                String label = labelExtractor.apply(item);
-                String category = categoryExtractor.apply(item);
-                Number value = valueExtractor.apply(item);
-                
-                if (!newLabels.contains(label)) {
-                    newLabels.add(label);
-                }
-                
-                categoryData.computeIfAbsent(category, k -> new HashMap<>())
-                           .put(label, value);
+            // For grouped data (multiple datasets), laid out by the same kernel on either thread
+            String[] rowLabels = new String[data.size()];
+            String[] rowCategories = new String[data.size()];
+            double[] values = new double[data.size()];
+            for (int i = 0; i < values.length; i++) {
+                Map<String, Object> item = data.get(i);
+                rowLabels[i] = labelExtractor.apply(item);
+                rowCategories[i] = categoryExtractor.apply(item);
+                values[i] = valueOf(item);
             }
             
-            // Clear existing datasets
-            datasets.clear();
-            
-            // Create a dataset for each category
-            String[] colors = {
-                "#4285f4", "#ea4335", "#fbbc05", "#34a853", 
-                "#673ab7", "#3f51b5", "#2196f3", "#03a9f4", 
-                "#00bcd4", "#009688", "#4caf50", "#8bc34a"
-            };
-            
-            int colorIndex = 0;
-            for (Map.Entry<String, Map<String, Number>> entry : categoryData.entrySet()) {
-                String category = entry.getKey();
-                Map<String, Number> values = entry.getValue();
-                
-                List<Number> dataPoints = new ArrayList<>();
-                for (String label : newLabels) {
-                    dataPoints.add(values.getOrDefault(label, 0));
-                }
-                
-                String color = colors[colorIndex % colors.length];
-                addDataset(category, dataPoints, color + "33", color);
-                colorIndex++;
-            }
-        } else {
-            // For simple data (single dataset)
-            List<Number> values = new ArrayList<>();
-            
-            for (Map<String, Object> item : data) {
-                String label = labelExtractor.apply(item);
-                Number value = valueExtractor.apply(item);
-                
-                newLabels.add(label);
-                values.add(value);
-            }
-            
-            // Clear existing datasets
-            datasets.clear();
-            
-            // Add a single dataset
-            List<String> backgroundColors = new ArrayList<>();
-            List<String> borderColors = new ArrayList<>();
-            
-            for (int i = 0; i < values.size(); i++) {
-                int hue = (i * 30) % 360;
-                backgroundColors.add("hsla(" + hue + ", 70%, 60%, 0.2)");
-                borderColors.add("hsla(" + hue + ", 70%, 60%, 1)");
+            if (workerThreshold > 0 && values.length >= workerThreshold
+                    && DataWorkerClient.getShared().isOffloading()) {
+                DataWorkerClient.getShared().pivot(workerChannel, rowLabels, rowCategories, values,
+                        this::showGroupedData);
+            } else {
+                showGroupedData(DataJobs.pivot(rowLabels, rowCategories, values));
             }
+            return;
+        }
+        
+        // For simple data (single dataset)
+        List<String> newLabels = new ArrayList<>();
+        List<Number> values = new ArrayList<>();
+        
+        for (Map<String, Object> item : data) {
+            String label = labelExtractor.apply(item);
+            Number value = valueExtractor.apply(item);
             
-            Dataset dataset = new Dataset();
-            dataset.label = valueField;
-            dataset.data = values;
-            dataset.backgroundColor = backgroundColors;
-            dataset.borderColor = borderColors;
-            dataset.borderWidth = 1;
-            
-            datasets.add(dataset);
+            newLabels.add(label);
+            values.add(value);
         }
         
+        // Clear existing datasets
+        datasets.clear();
+        
+        // Add a single dataset
+        Dataset dataset = new Dataset();
+        dataset.label = valueField;
+        dataset.data = values;
+        dataset.backgroundColor = pointColors(pointBackgrounds, values.size(), "0.2");
+        dataset.borderColor = pointColors(pointBorders, values.size(), "1");
+        dataset.borderWidth = 1;
+        
+        datasets.add(dataset);
+        
         // Update labels
         this.labels = newLabels;
         
@@ -207,6 +453,44 @@ public class ChartComponent extends Component {
         }
     }
 
+    /**
+     * Reads the plotted value of a row, without boxing when the row is backed by columnar data
+     * and the value is the bound field itself.
+     */
+    private double valueOf(Map<String, Object> item) {
+        if (item instanceof ColumnarData.Row && valueExtractor == fieldValueExtractor) {
+            return ((ColumnarData.Row) item).getDouble(valueField);
+        }
+        Number value = valueExtractor.apply(item);
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Shows one dataset per category, in order of first appearance. A missing value is a gap,
+     * and a label without a row in a category is 0.
+     */
+    private void showGroupedData(DataJobs.PivotTable table) {
+        int labelCount = table.labels.length;
+        datasets.clear();
+        
+        for (int c = 0; c < table.categories.length; c++) {
+            List<Number> dataPoints = new ArrayList<>(labelCount);
+            for (int l = 0; l < labelCount; l++) {
+                double value = table.values[c * labelCount + l];
+                dataPoints.add(Double.isNaN(value) ? null : value);
+            }
+            
+            String color = CATEGORY_COLORS[c % CATEGORY_COLORS.length];
+            addDataset(table.categories[c], dataPoints, color + "33", color);
+        }
+        
+        this.labels = new ArrayList<>(Arrays.asList(table.labels));
+        
+        if (chart != null) {
+            updateChart();
+        }
+    }
+
     private void createChart() {
         if (getElement() == null) {
             return;
@@ -218,43 +502,29 @@ public class ChartComponent extends Component {
         JSObject config = createEmptyObject();
         setObjectProperty(config, "type", type);
         
-        // Prepare data
+        // Prepare data, filling empty arrays the same way later updates do
         JSObject data = createEmptyObject();
-        setObjectProperty(data, "labels", convertToJSArray(labels));
-        
-        // Prepare datasets
-        JSObject[] jsDatasets = new JSObject[datasets.size()];
-        for (int i = 0; i < datasets.size(); i++) {
-            Dataset dataset = datasets.get(i);
-            JSObject jsDataset = createEmptyObject();
-            
-            setObjectProperty(jsDataset, "label", dataset.label);
-            setObjectProperty(jsDataset, "data", convertToJSArray(dataset.data));
-            
-            if (dataset.backgroundColor instanceof List) {
-                setObjectProperty(jsDataset, "backgroundColor", convertToJSArray((List<?>) dataset.backgroundColor));
-            } else {
-                setObjectProperty(jsDataset, "backgroundColor", dataset.backgroundColor);
+        setObjectProperty(data, "labels", createArray());
+        setObjectProperty(data, "datasets", createArray());
+        pushedLabels = new ArrayList<>();
+        boundDatasets = new ArrayList<>();
+        if (streams != null) {
+            for (StreamSeries series : streams.values()) {
+                series.reset();
+                pushObject(getProperty(data, "datasets"), series.js);
             }
-            
-            if (dataset.borderColor instanceof List) {
-                setObjectProperty(jsDataset, "borderColor", convertToJSArray((List<?>) dataset.borderColor));
-            } else {
-                setObjectProperty(jsDataset, "borderColor", dataset.borderColor);
-            }
-            
-            setObjectProperty(jsDataset, "borderWidth", dataset.borderWidth);
-            
-            jsDatasets[i] = jsDataset;
+        } else {
+            syncData(data);
         }
-        
-        setObjectProperty(data, "datasets", convertToJSArray(jsDatasets));
         setObjectProperty(config, "data", data);
         
         // Prepare options
         JSObject jsOptions = createEmptyObject();
         setObjectProperty(jsOptions, "responsive", true);
         setObjectProperty(jsOptions, "maintainAspectRatio", false);
+        if (streams != null) {
+            configureStreaming(jsOptions);
+        }
         
         // Add custom options
         for (Map.Entry<String, Object> entry : options.entrySet()) {
@@ -263,60 +533,596 @@ public class ChartComponent extends Component {
         
         setObjectProperty(config, "options", jsOptions);
         
-        // Create the chart
-        chart = createChart(canvas, config);
+        // Create the chart, reusing a pooled one or in a worker if requested and possible
+        chart = null;
+        inWorker = false;
+        if (recycled != null) {
+            chart = recycled;
+            recycled = null;
+            reconfigureChart(chart, config);
+        } else if (offscreen && isOffscreenSupported()) {
+            chart = createWorkerChart(canvas, config, CHART_WORKER_SCRIPT, CHART_SCRIPT,
+                    canvas.getClientWidth(), canvas.getClientHeight());
+            inWorker = chart != null;
+        }
+        if (chart == null) {
+            chart = createChart(canvas, config);
+        }
+        
+        if (streams != null) {
+            scheduleStreamFrame();
+        }
+    }
+
+    private void rebuildChart() {
+        chart.destroy();
+        chart = null;
+        createChart();
     }
 
     private void updateChart() {
+        if (Visibility.isHidden(this)) {
+            // Redrawn once the chart can be seen again, with whatever data it has by then
+            Visibility.defer(this, this, this::updateChart);
+            return;
+        }
+        FrameMonitor.enter(FrameMonitor.RENDER, "ChartComponent.update");
+        try {
+            syncChart();
+        } finally {
+            FrameMonitor.exit();
+        }
+    }
+    
+    private void syncChart() {
         if (chart == null || getElement() == null) {
             return;
         }
         
-        // Update labels
-        JSObject data = getChartData(chart);
-        setObjectProperty(data, "labels", convertToJSArray(labels));
+        if (streams != null) {
+            scheduleStreamFrame();
+            return;
+        }
+        
+        journal = inWorker ? chart : null;
+        try {
+            syncData(getChartData(chart));
+        } finally {
+            journal = null;
+        }
+        
+        double now = now();
+        String mode = updateMode;
+        if (mode == null && now - lastUpdateTime < HIGH_FREQUENCY_MS) {
+            // Animations would never finish before the next update
+            mode = "none";
+        }
+        lastUpdateTime = now;
+        
+        updateChartData(chart, mode);
+    }
+    
+    /**
+     * Brings the labels and datasets held by Chart.js in line with this component's,
+     * editing the existing arrays and dataset objects rather than replacing them.
+     * Datasets are matched by label.
+     */
+    private void syncData(JSObject data) {
+        List<String> labels = this.labels;
+        List<Dataset> datasets = this.datasets;
+        
+        int targetPoints = getElement() != null ? getElement().getClientWidth() : 0;
+        downsampledWidth = targetPoints;
+        if (downsampler != null && targetPoints > 0 && labels.size() > targetPoints) {
+            Downsampler.Result result = downsample(targetPoints);
+            if (result != null) {
+                labels = new ArrayList<>(result.size());
+                for (int index : result.getIndices()) {
+                    labels.add(this.labels.get(index));
+                }
+                
+                datasets = new ArrayList<>(this.datasets.size());
+                for (int i = 0; i < this.datasets.size(); i++) {
+                    datasets.add(this.datasets.get(i).sample(result.getIndices(), result.getValues(i)));
+                }
+            }
+        }
         
-        // Update datasets
-        JSObject[] jsDatasets = new JSObject[datasets.size()];
+        syncStrings(getProperty(data, "labels"), pushedLabels, labels);
+        pushedLabels = labels;
+        
+        Map<String, BoundDataset> previous = new HashMap<>();
+        for (BoundDataset bound : boundDatasets) {
+            previous.putIfAbsent(String.valueOf(bound.label), bound);
+        }
+        
+        List<BoundDataset> next = new ArrayList<>(datasets.size());
+        boolean changed = datasets.size() != boundDatasets.size();
         for (int i = 0; i < datasets.size(); i++) {
             Dataset dataset = datasets.get(i);
-            JSObject jsDataset = createEmptyObject();
-            
-            setObjectProperty(jsDataset, "label", dataset.label);
-            setObjectProperty(jsDataset, "data", convertToJSArray(dataset.data));
-            
-            if (dataset.backgroundColor instanceof List) {
-                setObjectProperty(jsDataset, "backgroundColor", convertToJSArray((List<?>) dataset.backgroundColor));
-            } else {
-                setObjectProperty(jsDataset, "backgroundColor", dataset.backgroundColor);
+            BoundDataset bound = previous.remove(String.valueOf(dataset.label));
+            if (bound == null) {
+                bound = new BoundDataset();
             }
+            changed |= i >= boundDatasets.size() || boundDatasets.get(i) != bound;
             
-            if (dataset.borderColor instanceof List) {
-                setObjectProperty(jsDataset, "borderColor", convertToJSArray((List<?>) dataset.borderColor));
-            } else {
-                setObjectProperty(jsDataset, "borderColor", dataset.borderColor);
+            bound.sync(dataset);
+            next.add(bound);
+        }
+        
+        if (changed) {
+            JSObject array = createArray();
+            for (BoundDataset bound : next) {
+                pushObject(array, bound.js);
+            }
+            setObjectProperty(data, "datasets", array);
+        }
+        boundDatasets = next;
+    }
+    
+    /**
+     * Runs the downsampler over all datasets.
+     * @return The kept points, or null if the datasets do not all have one value per label
+     */
+    private Downsampler.Result downsample(int targetPoints) {
+        double[][] series = new double[datasets.size()][];
+        for (int i = 0; i < series.length; i++) {
+            Dataset dataset = datasets.get(i);
+            if (dataset.length() != labels.size()) {
+                return null;
             }
             
-            setObjectProperty(jsDataset, "borderWidth", dataset.borderWidth);
-            
-            jsDatasets[i] = jsDataset;
+            if (dataset.doubleData != null) {
+                series[i] = dataset.doubleData;
+                continue;
+            }
+            series[i] = new double[dataset.length()];
+            for (int j = 0; j < series[i].length; j++) {
+                series[i][j] = dataset.valueAt(j);
+            }
+        }
+        return downsampler.downsample(series, targetPoints);
+    }
+    
+    private void scheduleStreamFrame() {
+        if (!streamFrameScheduled && chart != null) {
+            streamFrameScheduled = true;
+            requestAnimationFrame(this::drawStreamFrame);
+        }
+    }
+    
+    /**
+     * Moves the points that arrived since the last frame into Chart.js, drops the points that left
+     * the window, and redraws once without animation.
+     */
+    private void drawStreamFrame() {
+        streamFrameScheduled = false;
+        if (chart == null || streams == null) {
+            return;
+        }
+        if (Visibility.isHidden(this)) {
+            // Points keep arriving in the ring buffers; they are drawn once the chart can be seen
+            Visibility.defer(this, this, this::scheduleStreamFrame);
+            return;
         }
         
-        setObjectProperty(data, "datasets", convertToJSArray(jsDatasets));
+        double newest = Double.NEGATIVE_INFINITY;
+        for (StreamSeries series : streams.values()) {
+            double last = series.buffer.getLastX();
+            if (!Double.isNaN(last)) {
+                newest = Math.max(newest, last);
+            }
+        }
         
-        // Update the chart
-        updateChartData(chart);
+        boolean windowed = streamWindow > 0 && newest != Double.NEGATIVE_INFINITY;
+        journal = inWorker ? chart : null;
+        try {
+            for (StreamSeries series : streams.values()) {
+                if (windowed) {
+                    series.buffer.dropBefore(newest - streamWindow);
+                }
+                series.flush();
+            }
+        } finally {
+            journal = null;
+        }
+        
+        if (windowed) {
+            setAxisRange(chart, newest - streamWindow, newest);
+        }
+        updateChartData(chart, "none");
+    }
+    
+    private void onResize() {
+        if (chart == null) {
+            return;
+        }
+        if (inWorker) {
+            // Chart.js cannot observe the canvas from inside the worker
+            resizeWorkerChart(chart, getElement().getClientWidth(), getElement().getClientHeight());
+        }
+        if (downsampler != null && getElement().getClientWidth() != downsampledWidth) {
+            updateChart();
+        }
+    }
+    
+    private static void syncStrings(JSObject array, List<String> pushed, List<String> values) {
+        ArrayEdit edit = ArrayEdit.between(pushed, values);
+        if (edit.shift > 0) {
+            shiftItems(array, edit.shift);
+        }
+        if (edit.deleteCount > 0 || !edit.inserted.isEmpty()) {
+            spliceStrings(array, edit.position, edit.deleteCount, edit.inserted.toArray(new String[0]));
+        }
+    }
+    
+    private static void syncNumbers(JSObject array, List<Number> pushed, List<Number> values) {
+        ArrayEdit edit = ArrayEdit.between(pushed, values);
+        if (edit.shift > 0) {
+            shiftItems(array, edit.shift);
+        }
+        if (edit.deleteCount > 0 || !edit.inserted.isEmpty()) {
+            double[] inserted = new double[edit.inserted.size()];
+            for (int i = 0; i < inserted.length; i++) {
+                Number value = (Number) edit.inserted.get(i);
+                inserted[i] = value != null ? value.doubleValue() : Double.NaN;
+            }
+            spliceNumbers(array, edit.position, edit.deleteCount, inserted);
+        }
+    }
+    
+    /**
+     * Returns the cached colors for a single-dataset chart, one hue per point.
+     */
+    private static List<String> pointColors(List<String> cache, int count, String alpha) {
+        for (int i = cache.size(); i < count; i++) {
+            cache.add("hsla(" + (i * 30) % 360 + ", 70%, 60%, " + alpha + ")");
+        }
+        return new ArrayList<>(cache.subList(0, count));
     }
 
     @Override
     public HTMLElement render(HTMLElement parent) {
+        if (chart != null) {
+            // Rendered again by a parent rebuilding its content: move the canvas and keep the chart
+            parent.appendChild(getElement());
+            return getElement();
+        }
+        
         HTMLElement element = super.render(parent);
         
         // Initialize the chart when the canvas is rendered
         createChart();
+        resizeObserver = observeResize(element, this::onResize);
         
         return element;
     }
+    
+    @Override
+    protected HTMLElement createElement(String tagName) {
+        if (pool != null && !offscreen) {
+            Pool.Entry entry = pool.acquire(type);
+            if (entry != null) {
+                recycled = entry.chart;
+                return entry.canvas;
+            }
+        }
+        return super.createElement(tagName);
+    }
+    
+    /**
+     * Destroys the chart, or returns it to the pool. The component can be rendered again afterwards.
+     */
+    @Override
+    protected void onUnmount() {
+        if (resizeObserver != null) {
+            disconnect(resizeObserver);
+            resizeObserver = null;
+        }
+        streamFrameScheduled = false;
+        if (chart == null) {
+            return;
+        }
+        
+        if (inWorker) {
+            terminateWorkerChart(chart);
+        } else if (pool != null) {
+            pool.release((HTMLCanvasElement) getElement(), chart, type);
+        } else {
+            chart.destroy();
+        }
+        chart = null;
+        inWorker = false;
+    }
+    
+    /**
+     * Groups chart types by the scales they use; a chart can switch type in place within a group.
+     */
+    private static String typeFamily(String type) {
+        switch (type) {
+            case "bar":
+            case "line":
+            case "scatter":
+            case "bubble":
+                return "cartesian";
+            case "pie":
+            case "doughnut":
+                return "arc";
+            case "radar":
+            case "polarArea":
+                return "radial";
+            default:
+                return type;
+        }
+    }
+    
+    /**
+     * Idle Chart.js charts with their canvases, kept for charts rendered later, so dashboards that swap
+     * many charts do not create a canvas and a chart each time. A chart is taken from the pool only
+     * for a type it can switch to in place. When full, the longest idle chart is destroyed.
+     */
+    public static class Pool {
+        private static final Pool SHARED = new Pool(8);
+        
+        private final int capacity;
+        private final List<Entry> idle = new ArrayList<>(); // Longest idle first
+        
+        /**
+         * @param capacity The maximum number of idle charts kept
+         */
+        public Pool(int capacity) {
+            this.capacity = capacity;
+        }
+        
+        /**
+         * @return A pool shared by the whole page
+         */
+        public static Pool shared() {
+            return SHARED;
+        }
+        
+        public int size() {
+            return idle.size();
+        }
+        
+        /**
+         * Destroys all idle charts.
+         */
+        public void clear() {
+            for (Entry entry : idle) {
+                entry.chart.destroy();
+            }
+            idle.clear();
+        }
+        
+        /**
+         * Takes the most recently released chart of the same type, or failing that of a type it can
+         * switch to in place.
+         */
+        private Entry acquire(String type) {
+            int match = -1;
+            for (int i = idle.size() - 1; i >= 0; i--) {
+                String idleType = idle.get(i).type;
+                if (idleType.equals(type)) {
+                    match = i;
+                    break;
+                }
+                if (match < 0 && typeFamily(idleType).equals(typeFamily(type))) {
+                    match = i;
+                }
+            }
+            return match >= 0 ? idle.remove(match) : null;
+        }
+        
+        private void release(HTMLCanvasElement canvas, Chart chart, String type) {
+            if (capacity <= 0) {
+                chart.destroy();
+                return;
+            }
+            if (idle.size() >= capacity) {
+                idle.remove(0).chart.destroy();
+            }
+            idle.add(new Entry(canvas, chart, type));
+        }
+        
+        private static class Entry {
+            final HTMLCanvasElement canvas;
+            final Chart chart;
+            final String type;
+            
+            Entry(HTMLCanvasElement canvas, Chart chart, String type) {
+                this.canvas = canvas;
+                this.chart = chart;
+                this.type = type;
+            }
+        }
+    }
+
+    /**
+     * The Chart.js dataset object for one dataset, with the values last written to it.
+     */
+    private static class BoundDataset {
+        final JSObject js = createEmptyObject();
+        String label;
+        List<Number> data = new ArrayList<>();
+        Object typedData;
+        Object backgroundColor;
+        Object borderColor;
+        int borderWidth = -1;
+        
+        BoundDataset() {
+            setObjectProperty(js, "data", createArray());
+        }
+        
+        void sync(Dataset dataset) {
+            if (!Objects.equals(label, dataset.label)) {
+                setStringProperty(js, "label", dataset.label);
+                label = dataset.label;
+            }
+            
+            Object typed = dataset.doubleData != null ? dataset.doubleData : dataset.floatData;
+            if (typed != null) {
+                // The view shares the array's memory, so only a different array needs passing,
+                // unless the chart lives in a worker and needs a copy of the current values
+                if (typed != typedData || journal != null) {
+                    setObjectProperty(js, "data", dataset.doubleData != null
+                            ? float64View(dataset.doubleData) : float32View(dataset.floatData));
+                    typedData = typed;
+                    data = new ArrayList<>();
+                }
+            } else {
+                if (typedData != null) {
+                    setObjectProperty(js, "data", createArray());
+                    typedData = null;
+                }
+                syncNumbers(getProperty(js, "data"), data, dataset.data);
+                data = dataset.data;
+            }
+            
+            backgroundColor = syncColor("backgroundColor", backgroundColor, dataset.backgroundColor);
+            borderColor = syncColor("borderColor", borderColor, dataset.borderColor);
+            
+            if (borderWidth != dataset.borderWidth) {
+                setNumberProperty(js, "borderWidth", dataset.borderWidth);
+                borderWidth = dataset.borderWidth;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private Object syncColor(String key, Object pushed, Object color) {
+            if (color instanceof List) {
+                if (!(pushed instanceof List)) {
+                    setObjectProperty(js, key, createArray());
+                    pushed = new ArrayList<String>();
+                }
+                syncStrings(getProperty(js, key), (List<String>) pushed, (List<String>) color);
+            } else if (!Objects.equals(pushed, color)) {
+                setStringProperty(js, key, (String) color);
+            }
+            return color;
+        }
+    }
+    
+    /**
+     * A streamed series: its ring buffer, and the Chart.js dataset holding the points already drawn.
+     * Points are identified by their buffer sequence numbers; the dataset holds {@code [drawnStart, drawnEnd)}.
+     */
+    private static class StreamSeries {
+        final RingBuffer buffer;
+        final JSObject js = createEmptyObject();
+        long drawnStart;
+        long drawnEnd;
+        
+        StreamSeries(String label, String color, int capacity) {
+            buffer = new RingBuffer(capacity);
+            setStringProperty(js, "label", label);
+            setStringProperty(js, "borderColor", color);
+            setStringProperty(js, "backgroundColor", color + "33");
+            setNumberProperty(js, "borderWidth", 1);
+            setNumberProperty(js, "pointRadius", 0);
+            setObjectProperty(js, "data", createArray());
+        }
+        
+        void reset() {
+            setObjectProperty(js, "data", createArray());
+            drawnStart = buffer.getFirstSequence();
+            drawnEnd = drawnStart;
+        }
+        
+        void flush() {
+            JSObject data = getProperty(js, "data");
+            long first = buffer.getFirstSequence();
+            long end = buffer.getEndSequence();
+            
+            if (drawnEnd < first) {
+                // Points were overwritten or cleared before they were drawn
+                shiftItems(data, (int) (drawnEnd - drawnStart));
+                drawnStart = first;
+                drawnEnd = first;
+            } else if (drawnStart < first) {
+                shiftItems(data, (int) (first - drawnStart));
+                drawnStart = first;
+            }
+            
+            int count = (int) (end - drawnEnd);
+            if (count > 0) {
+                double[] xs = new double[count];
+                double[] ys = new double[count];
+                int offset = (int) (drawnEnd - first);
+                for (int i = 0; i < count; i++) {
+                    xs[i] = buffer.getX(offset + i);
+                    ys[i] = buffer.getY(offset + i);
+                }
+                pushPoints(data, xs, ys);
+                drawnEnd = end;
+            }
+        }
+    }
+    
+    /**
+     * The edit that turns one list into another: drop items from the front, then replace one range.
+     * Covers the common updates cheaply: appends, sliding windows, and changes to a few neighbouring items.
+     */
+    static class ArrayEdit {
+        // Full comparisons tried when looking for a sliding window, so repetitive series stay linear
+        private static final int MAX_SHIFT_CANDIDATES = 4;
+        
+        int shift;
+        int position;
+        int deleteCount;
+        List<?> inserted;
+        
+        static ArrayEdit between(List<?> old, List<?> next) {
+            ArrayEdit edit = new ArrayEdit();
+            
+            if (!old.isEmpty() && !next.isEmpty() && !Objects.equals(old.get(0), next.get(0))) {
+                // A sliding window drops items at the front and appends at the end
+                int last = old.size() - 1;
+                int candidates = 0;
+                for (int k = 1; k < old.size() && candidates < MAX_SHIFT_CANDIDATES; k++) {
+                    if (last - k >= next.size()
+                            || !Objects.equals(old.get(k), next.get(0))
+                            || !Objects.equals(old.get(last), next.get(last - k))) {
+                        continue;
+                    }
+                    candidates++;
+                    if (startsWith(next, old, k)) {
+                        edit.shift = k;
+                        break;
+                    }
+                }
+            }
+            
+            int oldSize = old.size() - edit.shift;
+            int limit = Math.min(oldSize, next.size());
+            int prefix = 0;
+            while (prefix < limit && Objects.equals(old.get(edit.shift + prefix), next.get(prefix))) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < limit - prefix
+                    && Objects.equals(old.get(old.size() - 1 - suffix), next.get(next.size() - 1 - suffix))) {
+                suffix++;
+            }
+            
+            edit.position = prefix;
+            edit.deleteCount = oldSize - prefix - suffix;
+            edit.inserted = next.subList(prefix, next.size() - suffix);
+            return edit;
+        }
+        
+        private static boolean startsWith(List<?> list, List<?> old, int from) {
+            if (old.size() - from > list.size()) {
+                return false;
+            }
+            for (int i = from; i < old.size(); i++) {
+                if (!Objects.equals(old.get(i), list.get(i - from))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 
     /**
      * Dataset class for Chart.js.
@@ -324,9 +1130,108 @@ public class ChartComponent extends Component {
     public static class Dataset {
         public String label;
         public List<Number> data;
+        public double[] doubleData; // Used instead of data when set, passed without copying
+        public float[] floatData; // Used instead of data when set, passed without copying
         public Object backgroundColor; // Can be String or List<String>
         public Object borderColor; // Can be String or List<String>
         public int borderWidth;
+        
+        int length() {
+            if (doubleData != null) {
+                return doubleData.length;
+            }
+            if (floatData != null) {
+                return floatData.length;
+            }
+            return data != null ? data.size() : 0;
+        }
+        
+        double valueAt(int index) {
+            if (doubleData != null) {
+                return doubleData[index];
+            }
+            if (floatData != null) {
+                return floatData[index];
+            }
+            Number value = data.get(index);
+            return value != null ? value.doubleValue() : Double.NaN;
+        }
+        
+        /**
+         * Copies this dataset with only the given points, and the given values for them.
+         */
+        Dataset sample(int[] indices, double[] values) {
+            Dataset sampled = new Dataset();
+            sampled.label = label;
+            sampled.data = new ArrayList<>(values.length);
+            for (double value : values) {
+                sampled.data.add(value);
+            }
+            sampled.backgroundColor = sampleColors(backgroundColor, indices);
+            sampled.borderColor = sampleColors(borderColor, indices);
+            sampled.borderWidth = borderWidth;
+            return sampled;
+        }
+        
+        private static Object sampleColors(Object colors, int[] indices) {
+            if (!(colors instanceof List)) {
+                return colors;
+            }
+            List<?> list = (List<?>) colors;
+            List<Object> sampled = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                sampled.add(index < list.size() ? list.get(index) : null);
+            }
+            return sampled;
+        }
+    }
+
+    // Mutations of Chart.js data; while a journal is set they are also recorded for the chart worker
+    
+    private static void setObjectProperty(JSObject obj, String key, Object value) {
+        setObjectPropertyNative(obj, key, value);
+        record(obj, "set", key, 0, 0, 0);
+    }
+    
+    private static void setStringProperty(JSObject obj, String key, String value) {
+        setStringPropertyNative(obj, key, value);
+        record(obj, "set", key, 0, 0, 0);
+    }
+    
+    private static void setNumberProperty(JSObject obj, String key, double value) {
+        setNumberPropertyNative(obj, key, value);
+        record(obj, "set", key, 0, 0, 0);
+    }
+    
+    private static void pushObject(JSObject array, JSObject item) {
+        pushObjectNative(array, item);
+        record(array, "push", null, 1, 0, 0);
+    }
+    
+    private static void shiftItems(JSObject array, int count) {
+        shiftItemsNative(array, count);
+        record(array, "shift", null, count, 0, 0);
+    }
+    
+    private static void spliceStrings(JSObject array, int start, int deleteCount, String[] items) {
+        spliceStringsNative(array, start, deleteCount, items);
+        record(array, "splice", null, start, deleteCount, items.length);
+    }
+    
+    private static void spliceNumbers(JSObject array, int start, int deleteCount, double[] items) {
+        spliceNumbersNative(array, start, deleteCount, items);
+        record(array, "splice", null, start, deleteCount, items.length);
+    }
+    
+    private static void pushPoints(JSObject array, double[] xs, double[] ys) {
+        pushPointsNative(array, xs, ys);
+        record(array, "push", null, xs.length, 0, 0);
+    }
+    
+    private static void record(JSObject target, String op, String key, int a, int b, int c) {
+        if (journal != null) {
+            recordOperation(journal, target, op, key, a, b, c);
+        }
     }
 
     // JavaScript interop methods
@@ -335,22 +1240,193 @@ public class ChartComponent extends Component {
     private static native JSObject createEmptyObject();
     
     @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
-    private static native void setObjectProperty(JSObject obj, String key, Object value);
+    private static native void setObjectPropertyNative(JSObject obj, String key, Object value);
+    
+    @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
+    private static native void setStringPropertyNative(JSObject obj, String key, String value);
     
-    @JSBody(params = {"items"}, script = "return Array.from(items);")
-    private static native JSObject convertToJSArray(Object[] items);
+    @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
+    private static native void setNumberPropertyNative(JSObject obj, String key, double value);
+    
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native JSObject getProperty(JSObject obj, String key);
+    
+    @JSBody(params = {}, script = "return [];")
+    private static native JSObject createArray();
+    
+    @JSBody(params = {"array", "item"}, script = "array.push(item);")
+    private static native void pushObjectNative(JSObject array, JSObject item);
+    
+    @JSBody(params = {"array", "count"}, script = "array.splice(0, count);")
+    private static native void shiftItemsNative(JSObject array, int count);
+    
+    @JSBody(params = {"array", "start", "deleteCount", "items"}, script =
+        "var tail = array.splice(start + deleteCount);" +
+        "array.length = start;" +
+        "for (var i = 0; i < items.length; i++) array.push(items[i]);" +
+        "for (var j = 0; j < tail.length; j++) array.push(tail[j]);")
+    private static native void spliceStringsNative(JSObject array, int start, int deleteCount, String[] items);
+    
+    @JSBody(params = {"array", "start", "deleteCount", "items"}, script =
+        "var tail = array.splice(start + deleteCount);" +
+        "array.length = start;" +
+        "for (var i = 0; i < items.length; i++) array.push(items[i]);" +
+        "for (var j = 0; j < tail.length; j++) array.push(tail[j]);")
+    private static native void spliceNumbersNative(JSObject array, int start, int deleteCount, double[] items);
+    
+    @JSBody(params = {"element", "callback"}, script =
+        "if (typeof ResizeObserver === 'undefined') return null;" +
+        "var observer = new ResizeObserver(function() { callback(); });" +
+        "observer.observe(element);" +
+        "return observer;")
+    private static native JSObject observeResize(HTMLElement element, Runnable callback);
+    
+    @JSBody(params = {"observer"}, script = "observer.disconnect();")
+    private static native void disconnect(JSObject observer);
+    
+    @JSBody(params = {"data"}, script = "return data;")
+    private static native JSObject float64View(@JSByRef double[] data);
+    
+    @JSBody(params = {"data"}, script = "return data;")
+    private static native JSObject float32View(@JSByRef float[] data);
+    
+    @JSBody(params = {"array", "xs", "ys"}, script =
+        "for (var i = 0; i < xs.length; i++) array.push({x: xs[i], y: ys[i]});")
+    private static native void pushPointsNative(JSObject array, @JSByRef double[] xs, @JSByRef double[] ys);
+    
+    @JSBody(params = {"options"}, script =
+        "options.animation = false;" +
+        "options.parsing = false;" +
+        "options.normalized = true;" +
+        "options.scales = {x: {type: 'linear'}};")
+    private static native void configureStreaming(JSObject options);
+    
+    @JSBody(params = {"chart", "min", "max"}, script =
+        "chart.options.scales.x.min = min;" +
+        "chart.options.scales.x.max = max;")
+    private static native void setAxisRange(Chart chart, double min, double max);
     
-    @JSBody(params = {"items"}, script = "return Array.from(items);")
-    private static native JSObject convertToJSArray(List<?> items);
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(function() { callback(); });")
+    private static native void requestAnimationFrame(Runnable callback);
+    
+    @JSBody(params = {}, script =
+        "return typeof Worker !== 'undefined' && typeof structuredClone === 'function'" +
+        "    && typeof HTMLCanvasElement.prototype.transferControlToOffscreen === 'function';")
+    private static native boolean isOffscreenSupported();
+    
+    /**
+     * Creates a stand-in for a Chart.js instance living in a worker. It holds a local copy of the chart
+     * data, which the sync code edits as usual; the edits are journaled with the path of the array or
+     * object they touched and sent as one message on {@code update}. The worker and the transferred
+     * canvas are kept on the canvas element, since a canvas can only be transferred once.
+     */
+    @JSBody(params = {"canvas", "config", "workerUrl", "chartUrl", "width", "height"}, script =
+        "try { structuredClone(config); } catch (e) {" +
+        "  console.error('Chart configuration cannot be sent to a worker:', e);" +
+        "  return null;" +
+        "}" +
+        "config.options.responsive = false;" +
+        "config.options.devicePixelRatio = window.devicePixelRatio || 1;" +
+        "var message = {type: 'create', config: config, width: width, height: height};" +
+        "var state = canvas.__jaffoldingChartWorker;" +
+        "if (!state) {" +
+        "  var worker;" +
+        "  try { worker = new Worker(workerUrl); } catch (e) {" +
+        "    console.error('Error creating chart worker:', e);" +
+        "    return null;" +
+        "  }" +
+        "  var offscreen = canvas.transferControlToOffscreen();" +
+        "  worker.postMessage({type: 'canvas', canvas: offscreen, script: chartUrl}, [offscreen]);" +
+        "  state = {worker: worker};" +
+        "  canvas.__jaffoldingChartWorker = state;" +
+        "}" +
+        "state.worker.postMessage(message);" +
+        "var proxy = {" +
+        "  data: config.data," +
+        "  options: config.options," +
+        "  ops: []," +
+        "  update: function(mode) {" +
+        "    var x = proxy.options.scales && proxy.options.scales.x;" +
+        "    state.worker.postMessage({type: 'update', ops: proxy.ops, mode: mode || null," +
+        "        range: x && x.min !== undefined ? {min: x.min, max: x.max} : null});" +
+        "    proxy.ops = [];" +
+        "  }," +
+        "  resize: function(width, height) {" +
+        "    state.worker.postMessage({type: 'resize', width: width, height: height});" +
+        "  }," +
+        "  destroy: function() { state.worker.postMessage({type: 'destroy'}); }," +
+        "  terminate: function() {" +
+        "    state.worker.terminate();" +
+        "    delete canvas.__jaffoldingChartWorker;" +
+        "  }" +
+        "};" +
+        "return proxy;")
+    private static native Chart createWorkerChart(HTMLCanvasElement canvas, JSObject config,
+                                                  String workerUrl, String chartUrl, int width, int height);
+    
+    @JSBody(params = {"proxy", "target", "op", "key", "a", "b", "c"}, script =
+        "var root = proxy.data;" +
+        "var path = null;" +
+        "if (target === root) path = [];" +
+        "else if (target === root.labels) path = ['labels'];" +
+        "else if (target === root.datasets) path = ['datasets'];" +
+        "else {" +
+        "  for (var i = 0; i < root.datasets.length && !path; i++) {" +
+        "    var dataset = root.datasets[i];" +
+        "    if (target === dataset) { path = ['datasets', i]; break; }" +
+        "    for (var k in dataset) {" +
+        "      if (dataset[k] === target) { path = ['datasets', i, k]; break; }" +
+        "    }" +
+        "  }" +
+        "}" +
+        // Edits to objects not yet in the chart arrive with the object itself
+        "if (!path) return;" +
+        "function snapshot(v) {" +
+        "  if (v === null || typeof v !== 'object') return v;" +
+        "  return ArrayBuffer.isView(v) ? v.slice() : structuredClone(v);" +
+        "}" +
+        "var entry = {op: op, path: path};" +
+        "if (op === 'set') { entry.key = key; entry.value = snapshot(target[key]); }" +
+        "else if (op === 'shift') { entry.count = a; }" +
+        "else if (op === 'push') { entry.items = snapshot(target.slice(target.length - a)); }" +
+        "else { entry.start = a; entry.deleteCount = b; entry.items = snapshot(target.slice(a, a + c)); }" +
+        "proxy.ops.push(entry);")
+    private static native void recordOperation(JSObject proxy, JSObject target, String op, String key,
+                                               int a, int b, int c);
+    
+    @JSBody(params = {"proxy"}, script = "proxy.destroy(); proxy.terminate();")
+    private static native void terminateWorkerChart(Chart proxy);
+    
+    @JSBody(params = {"proxy", "width", "height"}, script = "proxy.resize(width, height);")
+    private static native void resizeWorkerChart(Chart proxy, int width, int height);
+    
+    @JSBody(params = {"text"}, script = "return encodeURIComponent(text);")
+    private static native String encode(String text);
+    
+    @JSBody(params = {}, script = "return performance.now();")
+    private static native double now();
     
     @JSBody(params = {"canvas", "config"}, script = "return new Chart(canvas, config);")
     private static native Chart createChart(HTMLCanvasElement canvas, JSObject config);
     
+    @JSBody(params = {"chart", "type"}, script = "chart.config.type = type;")
+    private static native void setChartType(Chart chart, String type);
+    
+    /**
+     * Points a pooled chart at a new configuration; Chart.js rebuilds its datasets and scales on update.
+     */
+    @JSBody(params = {"chart", "config"}, script =
+        "chart.config.type = config.type;" +
+        "chart.data = config.data;" +
+        "chart.options = config.options;" +
+        "chart.update('none');")
+    private static native void reconfigureChart(Chart chart, JSObject config);
+    
     @JSBody(params = {"chart"}, script = "return chart.data;")
     private static native JSObject getChartData(Chart chart);
     
-    @JSBody(params = {"chart"}, script = "chart.update();")
-    private static native void updateChartData(Chart chart);
+    @JSBody(params = {"chart", "mode"}, script = "chart.update(mode || undefined);")
+    private static native void updateChartData(Chart chart, String mode);
     
     /**
      * Chart.js Chart interface.
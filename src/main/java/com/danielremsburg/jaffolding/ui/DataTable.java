@@ -1,9 +1,13 @@
 package com.danielremsburg.jaffolding.ui;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Consumer;
 
 import org.teavm.jso.JSBody;
@@ -12,18 +16,38 @@ import org.teavm.jso.ajax.XMLHttpRequest;
 import org.teavm.jso.dom.events.Event;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.jso.dom.html.HTMLInputElement;
+import org.teavm.jso.dom.xml.Node;
 import org.teavm.jso.json.JSON;
 
 import com.danielremsburg.jaffolding.Component;
 import com.danielremsburg.jaffolding.State;
+import com.danielremsburg.jaffolding.bridge.ColumnarData;
 import com.danielremsburg.jaffolding.bridge.HTMLTableElements.HTMLTableElement;
 import com.danielremsburg.jaffolding.bridge.HTMLTableElements.HTMLTableRowElement;
+import com.danielremsburg.jaffolding.bridge.JSRows;
+import com.danielremsburg.jaffolding.bridge.NdjsonStream;
+import com.danielremsburg.jaffolding.perf.FrameMonitor;
+import com.danielremsburg.jaffolding.ui.table.ColumnFilter;
+import com.danielremsburg.jaffolding.ui.table.FilterEngine;
+import com.danielremsburg.jaffolding.ui.table.PivotModel;
+import com.danielremsburg.jaffolding.ui.table.RemoteDataSource;
+import com.danielremsburg.jaffolding.ui.table.SearchIndex;
+import com.danielremsburg.jaffolding.ui.table.TableExporter;
+import com.danielremsburg.jaffolding.worker.DataWorkerClient;
 
 /**
  * An enhanced data table component with sorting, filtering, and data binding.
  */
 public class DataTable extends Component {
+    public static final int DEFAULT_WORKER_THRESHOLD = 20000;
+    public static final int STREAM_BATCH_SIZE = 2000;
+    private static final int MAX_ANIMATED_ROWS = 1000;
+    
+    private static int nextTableId = 0;
+    
     private List<String> columnNames = new ArrayList<>();
+    private List<Map<String, Object>> sourceData = new ArrayList<>();
     private List<Map<String, Object>> data = new ArrayList<>();
     private State<List<Map<String, Object>>> dataState;
     private boolean selectable = true;
@@ -33,7 +57,36 @@ public class DataTable extends Component {
     private String sortColumn = null;
     private boolean sortAscending = true;
     private Map<String, String> columnTypes = new HashMap<>();
-    private Map<String, String> filters = new HashMap<>();
+    private FilterEngine filterEngine = new FilterEngine();
+    private int workerThreshold = DEFAULT_WORKER_THRESHOLD;
+    private boolean workerSortPending = false;
+    private final String workerChannel = "data-table-" + (nextTableId++);
+    private NdjsonStream activeStream;
+    private RemoteDataSource remoteSource;
+    private HTMLElement table;
+    private final List<HTMLElement> headerCells = new ArrayList<>();
+    private HTMLElement filterRow;
+    private final Map<String, HTMLInputElement> filterInputs = new HashMap<>();
+    private HTMLElement tbody;
+    private HTMLElement pager;
+    private HTMLElement emptyState;
+    private final List<HTMLElement> rowElements = new ArrayList<>();
+    private final List<RowBinding> rowBindings = new ArrayList<>(); // The row each element shows
+    private Map<Map<String, Object>, Integer> viewIndexes;
+    private List<Map<String, Object>> reusableRows;
+    private String renderedQuery;
+    private HTMLElement selectedElement;
+    private boolean patchingRows = false;
+    private PivotModel pivot;
+    private HTMLElement pivotBody;
+    private Map<PivotModel.Group, PivotRow> pivotRows = new IdentityHashMap<>();
+    private boolean canvasMode = false;
+    private CanvasGrid canvasGrid;
+    private SearchIndex searchIndex;
+    private String searchQuery;
+    private HTMLInputElement searchBox;
+    private boolean animateSort = true;
+    private boolean sortAnimationPending = false;
     
     public DataTable() {
         super("div");
@@ -57,13 +110,28 @@ public class DataTable extends Component {
         
         // Subscribe to data state changes
         dataState.subscribe(newData -> {
+            List<Map<String, Object>> previous = this.data;
             this.data = newData;
-            refreshTable();
+            if (!patchingRows) {
+                viewIndexes = null;
+                if (pivot != null) {
+                    pivot.setRows(newData);
+                }
+                Flip flip = captureSortAnimation(previous);
+                // The elements still show the previous rows, so rows that stay can keep theirs
+                reusableRows = previous;
+                refreshTable();
+                if (flip != null && tbody != null && rowElements.size() == data.size()) {
+                    flip.play(data, rowElements);
+                }
+            }
         });
     }
     
     public DataTable setColumnNames(List<String> columnNames) {
         this.columnNames = new ArrayList<>(columnNames);
+        searchIndex = null;
+        table = null;
         refreshTable();
         return this;
     }
@@ -73,51 +141,112 @@ public class DataTable extends Component {
         return this;
     }
     
+    /**
+     * Sets the number of rows from which sorting is done in the data worker instead of on the UI thread.
+     * @param rows The row threshold, or 0 to always sort on the UI thread
+     */
+    public DataTable setWorkerThreshold(int rows) {
+        this.workerThreshold = rows;
+        return this;
+    }
+    
     public DataTable setData(List<Map<String, Object>> data) {
         List<Map<String, Object>> newData = new ArrayList<>();
         for (Map<String, Object> row : data) {
             newData.add(new HashMap<>(row));
         }
-        dataState.set(newData);
+        stopLoading();
+        setSourceData(newData);
         return this;
     }
     
+    /**
+     * Adds a row to the unfiltered source data.
+     * Only the new row's element is inserted; the rest of the table is left untouched.
+     */
     public DataTable addRow(Map<String, Object> row) {
-        List<Map<String, Object>> newData = new ArrayList<>(data);
-        newData.add(new HashMap<>(row));
-        dataState.set(newData);
+        Map<String, Object> newRow = new HashMap<>(row);
+        sourceData.add(newRow);
+        patchRow(null, newRow);
         return this;
     }
     
+    /**
+     * Removes a row by its index in the unfiltered source data.
+     * Only the row's element is removed; the rest of the table is left untouched.
+     * Selection and row events report view indexes; convert them with {@link #getSourceIndex(int)}.
+     */
     public DataTable removeRow(int index) {
-        if (index >= 0 && index < data.size()) {
-            List<Map<String, Object>> newData = new ArrayList<>(data);
-            newData.remove(index);
-            dataState.set(newData);
+        if (index >= 0 && index < sourceData.size()) {
+            Map<String, Object> oldRow = sourceData.remove(index);
+            patchRow(oldRow, null);
         }
         return this;
     }
     
+    /**
+     * Removes a row the table holds, such as the one from {@link #getSelectedRowData()}.
+     */
+    public DataTable removeRow(Map<String, Object> row) {
+        return removeRow(filterEngine.getRowIndex(row));
+    }
+    
+    /**
+     * Replaces a row by its index in the unfiltered source data.
+     * Only the cells whose values changed are rewritten, unless the row moves or leaves the view.
+     * Selection and row events report view indexes; convert them with {@link #getSourceIndex(int)}.
+     */
     public DataTable updateRow(int index, Map<String, Object> row) {
-        if (index >= 0 && index < data.size()) {
-            List<Map<String, Object>> newData = new ArrayList<>(data);
-            newData.set(index, new HashMap<>(row));
-            dataState.set(newData);
+        if (index >= 0 && index < sourceData.size()) {
+            Map<String, Object> newRow = new HashMap<>(row);
+            Map<String, Object> oldRow = sourceData.set(index, newRow);
+            patchRow(oldRow, newRow);
         }
         return this;
     }
     
+    /**
+     * Replaces a row the table holds, such as the one from {@link #getSelectedRowData()}.
+     */
+    public DataTable updateRow(Map<String, Object> oldRow, Map<String, Object> row) {
+        return updateRow(filterEngine.getRowIndex(oldRow), row);
+    }
+    
+    /**
+     * Converts a view index, the position of a row among the displayed rows, to its source index.
+     * @return The index in the unfiltered source data, or -1 if no row is shown at that position
+     */
+    public int getSourceIndex(int viewIndex) {
+        if (viewIndex >= 0 && viewIndex < data.size()) {
+            return filterEngine.getRowIndex(data.get(viewIndex));
+        }
+        return -1;
+    }
+    
     public DataTable clearData() {
-        dataState.set(new ArrayList<>());
+        stopLoading();
+        setSourceData(new ArrayList<>());
         return this;
     }
     
+    private void setSourceData(List<Map<String, Object>> newData) {
+        sourceData = newData;
+        filterEngine.setRows(newData);
+        // Rebuilt from the new rows the next time a search runs
+        searchIndex = null;
+        updateView();
+    }
+    
     public DataTable setSelectable(boolean selectable) {
         this.selectable = selectable;
         refreshTable();
         return this;
     }
     
+    /**
+     * Gets the selected row's view index, its position among the displayed rows.
+     * @return The view index, or -1 if no row is selected
+     */
     public int getSelectedRow() {
         return selectedRow;
     }
@@ -129,6 +258,9 @@ public class DataTable extends Component {
         return null;
     }
     
+    /**
+     * Selects a row by its view index; -1 clears the selection.
+     */
     public DataTable setSelectedRow(int row) {
         if (row >= -1 && row < data.size()) {
             selectedRow = row;
@@ -137,6 +269,9 @@ public class DataTable extends Component {
         return this;
     }
     
+    /**
+     * Sets the listener told the view index of each newly selected row.
+     */
     public DataTable setOnRowSelect(Consumer<Integer> listener) {
         this.selectionListener = listener;
         return this;
@@ -147,101 +282,566 @@ public class DataTable extends Component {
         return this;
     }
     
-    public DataTable sortBy(String columnName, boolean ascending) {
-        this.sortColumn = columnName;
-        this.sortAscending = ascending;
+    /**
+     * Applies a change of one source row to the view and the DOM without rebuilding the table.
+     * Falls back to a full view update when the row's position cannot be found from the view alone.
+     * @param oldRow The row before the change, or null if it was added
+     * @param newRow The row after the change, or null if it was removed
+     */
+    private void patchRow(Map<String, Object> oldRow, Map<String, Object> newRow) {
+        // Found before the filter engine renumbers anything, since an unsorted view is searched by row number
+        int viewIndex = oldRow != null && remoteSource == null ? indexOfRow(oldRow) : -1;
+        
+        if (oldRow == null) {
+            filterEngine.addRow(newRow);
+        } else if (newRow == null) {
+            filterEngine.removeRow(oldRow);
+        } else {
+            filterEngine.replaceRow(oldRow, newRow);
+        }
+        
+        if (searchIndex != null) {
+            if (oldRow != null) {
+                searchIndex.remove(oldRow);
+            }
+            if (newRow != null) {
+                searchIndex.add(newRow);
+            }
+        }
         
-        if (data.size() > 0 && columnName != null) {
-            List<Map<String, Object>> newData = new ArrayList<>(data);
+        boolean visible = newRow != null && filterEngine.matches(newRow)
+                && (searchQuery == null || searchIndex().matches(newRow, searchQuery));
+        boolean keyChanged = sortColumn != null && oldRow != null && newRow != null
+                && !Objects.equals(oldRow.get(sortColumn), newRow.get(sortColumn));
+        
+        if (remoteSource != null || workerSortPending
+                || (visible && viewIndex < 0 && sortColumn == null && (oldRow != null || searchQuery != null))) {
+            // An unsorted row entering the view belongs between rows we cannot see,
+            // and a new search match belongs at its rank
+            updateView();
+            return;
+        }
+        
+        // The view is edited in place; positions cached after an insert or removal are found again on lookup
+        boolean inPlace = viewIndex >= 0 && visible && !keyChanged;
+        
+        if (inPlace) {
+            data.set(viewIndex, newRow);
+            if (viewIndexes != null) {
+                viewIndexes.remove(oldRow);
+                viewIndexes.put(newRow, viewIndex);
+            }
+            if (viewIndex < rowElements.size()) {
+                rowBindings.get(viewIndex).row = newRow;
+                patchCells(rowElements.get(viewIndex), oldRow, newRow);
+            }
+        } else {
+            boolean wasSelected = viewIndex >= 0 && viewIndex == selectedRow;
             
-            newData.sort((a, b) -> {
-                Object valA = a.get(columnName);
-                Object valB = b.get(columnName);
-                
-                if (valA == null && valB == null) return 0;
-                if (valA == null) return ascending ? -1 : 1;
-                if (valB == null) return ascending ? 1 : -1;
-                
-                String type = columnTypes.getOrDefault(columnName, "string");
-                int result = 0;
-                
-                switch (type) {
-                    case "number":
-                        double numA = valA instanceof Number ? ((Number) valA).doubleValue() : 
-                                      Double.parseDouble(valA.toString());
-                        double numB = valB instanceof Number ? ((Number) valB).doubleValue() : 
-                                      Double.parseDouble(valB.toString());
-                        result = Double.compare(numA, numB);
-                        break;
-                    case "date":
-                        // Simple string comparison for dates (assumes ISO format)
-                        result = valA.toString().compareTo(valB.toString());
-                        break;
-                    default:
-                        result = valA.toString().compareTo(valB.toString());
+            if (viewIndex >= 0) {
+                data.remove(viewIndex);
+                if (viewIndexes != null) {
+                    viewIndexes.remove(oldRow);
                 }
-                
-                return ascending ? result : -result;
-            });
+                removeRowElement(viewIndex);
+            }
             
-            dataState.set(newData);
+            if (visible) {
+                int position = sortColumn == null ? data.size() : insertionPoint(data, newRow);
+                data.add(position, newRow);
+                if (viewIndexes != null) {
+                    viewIndexes.put(newRow, position);
+                }
+                insertRowElement(position, newRow);
+                
+                if (wasSelected) {
+                    selectedRow = position;
+                    updateSelection();
+                }
+            }
+        }
+        
+        if (pivot != null) {
+            if (viewIndex >= 0) {
+                pivot.remove(oldRow);
+            }
+            if (visible) {
+                pivot.add(newRow);
+            }
+        }
+        
+        patchingRows = true;
+        try {
+            dataState.notifyChanged();
+        } finally {
+            patchingRows = false;
         }
         
+        if (pivot != null) {
+            renderPivotRows();
+        } else if (canvasGrid != null) {
+            if (inPlace) {
+                canvasGrid.invalidateRow(viewIndex);
+            } else {
+                canvasGrid.refresh();
+                canvasGrid.setSelectedRow(selectedRow);
+            }
+        } else {
+            updateEmptyState();
+        }
+    }
+    
+    /**
+     * Finds a row in the view from its cached position. A cached position that has moved because
+     * rows were inserted or removed before it is found again by binary search where the view is
+     * ordered by the sort column or by row number, and by re-reading all positions otherwise.
+     * @return The position, or -1 if the row is not shown
+     */
+    private int indexOfRow(Map<String, Object> row) {
+        if (viewIndexes == null) {
+            indexView();
+        }
+        
+        Integer cached = viewIndexes.get(row);
+        if (cached == null) {
+            return -1;
+        }
+        if (cached < data.size() && data.get(cached) == row) {
+            return cached;
+        }
+        
+        int index = searchView(row);
+        if (index < 0) {
+            indexView();
+            Integer reindexed = viewIndexes.get(row);
+            return reindexed != null ? reindexed : -1;
+        }
+        viewIndexes.put(row, index);
+        return index;
+    }
+    
+    /**
+     * Finds a row that is known to be shown, such as the row of a clicked element. Before the view
+     * has been indexed, a binary search usually finds it without reading every position.
+     */
+    private int indexOfShownRow(Map<String, Object> row) {
+        if (viewIndexes == null) {
+            int index = searchView(row);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return indexOfRow(row);
+    }
+    
+    private void indexView() {
+        viewIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < data.size(); i++) {
+            viewIndexes.put(data.get(i), i);
+        }
+    }
+    
+    private int searchView(Map<String, Object> row) {
+        int low = 0;
+        int high = data.size();
+        
+        if (sortColumn != null) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compareRows(data.get(mid), row) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < data.size() && compareRows(data.get(i), row) == 0; i++) {
+                if (data.get(i) == row) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        if (searchQuery != null) {
+            // Ordered by rank
+            return -1;
+        }
+        
+        int number = filterEngine.getRowNumber(row);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (filterEngine.getRowNumber(data.get(mid)) < number) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < data.size() && data.get(low) == row ? low : -1;
+    }
+    
+    /**
+     * Finds the position after all rows that sort before or equal to the given row.
+     */
+    private int insertionPoint(List<Map<String, Object>> view, Map<String, Object> row) {
+        int low = 0;
+        int high = view.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareRows(view.get(mid), row) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Shows the rows grouped by one or more columns, with one aggregate column per measure.
+     * Groups can be expanded and collapsed, and their aggregates are updated incrementally when rows
+     * are added, updated or removed. Filters still apply; the sort order does not affect the groups.
+     * @param groupColumns The columns to group by, outermost first
+     * @param measures The aggregates to show
+     */
+    public DataTable setPivot(List<String> groupColumns, PivotModel.Measure... measures) {
+        pivot = new PivotModel(groupColumns, Arrays.asList(measures));
+        pivot.setRows(data);
+        refreshTable();
+        return this;
+    }
+    
+    public DataTable clearPivot() {
+        pivot = null;
+        refreshTable();
+        return this;
+    }
+    
+    public PivotModel getPivot() {
+        return pivot;
+    }
+    
+    /**
+     * Draws the rows on a canvas instead of creating DOM elements, for tables too large or too wide
+     * for the DOM. Only visible cells are drawn, and sorting, selection and row clicks keep working.
+     * @see CanvasGrid
+     */
+    public DataTable setCanvasMode(boolean enabled) {
+        this.canvasMode = enabled;
+        refreshTable();
+        return this;
+    }
+    
+    /**
+     * Gets the canvas grid while canvas mode is active, for setting frozen rows and columns,
+     * column widths or the grid height.
+     * @return The grid, or null if the table is not rendered on a canvas
+     */
+    public CanvasGrid getCanvasGrid() {
+        return canvasGrid;
+    }
+    
+    public DataTable sortBy(String columnName, boolean ascending) {
+        this.sortColumn = columnName;
+        this.sortAscending = ascending;
+        sortAnimationPending = animateSort && remoteSource == null;
+        updateView();
         return this;
     }
     
+    /**
+     * Sets whether rows glide to their new positions when the table is re-sorted.
+     * Only tables of up to a thousand rows are animated.
+     */
+    public DataTable setAnimateSort(boolean animateSort) {
+        this.animateSort = animateSort;
+        return this;
+    }
+    
+    /**
+     * Filters a column to rows whose value contains the given text (case-insensitive).
+     * Passing null or blank text removes the column's filter.
+     */
     public DataTable filter(String columnName, String value) {
         if (value == null || value.trim().isEmpty()) {
-            filters.remove(columnName);
+            filterEngine.removeFilter(columnName);
         } else {
-            filters.put(columnName, value.toLowerCase());
+            filterEngine.setFilter(columnName, ColumnFilter.contains(value));
         }
         
-        applyFilters();
+        updateView();
+        return this;
+    }
+    
+    /**
+     * Filters a numeric column to an inclusive range.
+     */
+    public DataTable filterRange(String columnName, double min, double max) {
+        filterEngine.setFilter(columnName, ColumnFilter.range(min, max));
+        updateView();
+        return this;
+    }
+    
+    /**
+     * Filters a column to rows equal to any of the given values (case-insensitive).
+     */
+    public DataTable filterEquals(String columnName, String... values) {
+        filterEngine.setFilter(columnName, ColumnFilter.equalsAny(values));
+        updateView();
         return this;
     }
     
     public DataTable clearFilters() {
-        filters.clear();
-        dataState.set(data);
+        filterEngine.clearFilters();
+        updateView();
+        return this;
+    }
+    
+    /**
+     * Shows only rows in which every word of the query starts a word in one of the string columns,
+     * ignoring case. Matches are ranked best first unless a column is sorted, and highlighted in the cells.
+     * The search uses an index that is built on first use and then kept up to date as rows change.
+     * Passing null or blank text clears the search.
+     * @see SearchIndex
+     */
+    public DataTable search(String query) {
+        searchQuery = query == null || query.trim().isEmpty() ? null : query.trim();
+        if (searchBox != null && !searchBox.getValue().trim().equals(searchQuery != null ? searchQuery : "")) {
+            searchBox.setValue(searchQuery != null ? searchQuery : "");
+        }
+        updateView();
+        return this;
+    }
+    
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+    
+    /**
+     * Shows a quick-search box above the table that searches as you type.
+     */
+    public DataTable setSearchBoxVisible(boolean visible) {
+        if (visible && searchBox == null) {
+            searchBox = (HTMLInputElement) HTMLDocument.current().createElement("input");
+            searchBox.setAttribute("type", "search");
+            searchBox.setAttribute("placeholder", "Search...");
+            searchBox.setValue(searchQuery != null ? searchQuery : "");
+            searchBox.getStyle().setProperty("box-sizing", "border-box");
+            searchBox.getStyle().setProperty("width", "100%");
+            searchBox.getStyle().setProperty("padding", "8px 10px");
+            searchBox.getStyle().setProperty("border", "none");
+            searchBox.getStyle().setProperty("border-bottom", "1px solid #ddd");
+            searchBox.getStyle().setProperty("font-size", "14px");
+            searchBox.addEventListener("input", e -> search(searchBox.getValue()));
+            if (getElement() != null) {
+                getElement().insertBefore(searchBox, getElement().getFirstChild());
+            }
+        } else if (!visible && searchBox != null) {
+            if (searchBox.getParentNode() != null) {
+                searchBox.getParentNode().removeChild(searchBox);
+            }
+            searchBox = null;
+        }
         return this;
     }
     
-    private void applyFilters() {
-        if (filters.isEmpty()) {
+    /**
+     * Exports the rows currently shown, in their current order, to a downloaded file.
+     * The file is written in short time slices so the page stays responsive on large tables;
+     * the returned exporter can be cancelled. In paged mode only the current page is exported.
+     * @param format CSV or JSON
+     * @param fileName The name of the downloaded file
+     * @param progressBar A progress bar to update while writing, or null
+     * @return The running export
+     */
+    public TableExporter export(TableExporter.Format format, String fileName, ProgressBar progressBar) {
+        return new TableExporter(columnNames, data, format)
+            .setFileName(fileName)
+            .setProgressBar(progressBar)
+            .start();
+    }
+    
+    private SearchIndex searchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new SearchIndex(columnNames);
+            searchIndex.setRows(sourceData);
+        }
+        return searchIndex;
+    }
+    
+    /**
+     * Drops rows that do not match the search, and orders the rest by rank if no column is sorted.
+     */
+    private void applySearch(List<Map<String, Object>> view) {
+        List<Map<String, Object>> ranked = searchIndex().search(searchQuery);
+        Map<Map<String, Object>, Integer> ranks = new IdentityHashMap<>();
+        for (int i = 0; i < ranked.size(); i++) {
+            ranks.put(ranked.get(i), i);
+        }
+        
+        view.removeIf(row -> !ranks.containsKey(row));
+        if (sortColumn == null) {
+            view.sort(Comparator.comparingInt(ranks::get));
+        }
+    }
+    
+    /**
+     * Recomputes the displayed rows from the unfiltered source using the active filters and sort.
+     */
+    private void updateView() {
+        if (remoteSource != null) {
+            remoteSource.setQuery(filterEngine.getFilters(), sortColumn, sortAscending);
             return;
         }
         
-        List<Map<String, Object>> filteredData = new ArrayList<>();
+        int[] matches = filterEngine.apply();
+        List<Map<String, Object>> view = new ArrayList<>(matches.length);
+        for (int row : matches) {
+            view.add(filterEngine.getRow(row));
+        }
         
-        for (Map<String, Object> row : data) {
-            boolean matches = true;
-            
-            for (Map.Entry<String, String> filter : filters.entrySet()) {
-                String columnName = filter.getKey();
-                String filterValue = filter.getValue();
-                
-                if (!row.containsKey(columnName) || row.get(columnName) == null) {
-                    matches = false;
-                    break;
+        if (searchQuery != null) {
+            applySearch(view);
+        }
+        
+        if (workerSortPending) {
+            // A newer view supersedes the one being sorted
+            DataWorkerClient.getShared().cancel(workerChannel);
+            workerSortPending = false;
+        }
+        
+        if (sortColumn != null && workerThreshold > 0 && view.size() >= workerThreshold
+                && DataWorkerClient.getShared().isOffloading()) {
+            sortInWorker(view);
+            return;
+        }
+        
+        if (sortColumn != null && view.size() > 0) {
+            view.sort(this::compareRows);
+        }
+        
+        dataState.set(view);
+    }
+    
+    private int compareRows(Map<String, Object> a, Map<String, Object> b) {
+        if (a instanceof ColumnarData.Row && b instanceof ColumnarData.Row
+                && "number".equals(columnTypes.get(sortColumn))) {
+            return compareNumbers(((ColumnarData.Row) a).getDouble(sortColumn),
+                    ((ColumnarData.Row) b).getDouble(sortColumn));
+        }
+        
+        Object valA = a.get(sortColumn);
+        Object valB = b.get(sortColumn);
+        
+        if (valA == null && valB == null) return 0;
+        if (valA == null) return sortAscending ? -1 : 1;
+        if (valB == null) return sortAscending ? 1 : -1;
+        
+        String type = columnTypes.getOrDefault(sortColumn, "string");
+        int result = 0;
+        
+        switch (type) {
+            case "number":
+                double numA = valA instanceof Number ? ((Number) valA).doubleValue() : 
+                              Double.parseDouble(valA.toString());
+                double numB = valB instanceof Number ? ((Number) valB).doubleValue() : 
+                              Double.parseDouble(valB.toString());
+                result = Double.compare(numA, numB);
+                break;
+            case "date":
+                // Simple string comparison for dates (assumes ISO format)
+                result = valA.toString().compareTo(valB.toString());
+                break;
+            default:
+                result = valA.toString().compareTo(valB.toString());
+        }
+        
+        return sortAscending ? result : -result;
+    }
+    
+    /**
+     * Compares numbers read from columnar rows, where NaN is a missing value and sorts like null.
+     */
+    private int compareNumbers(double a, double b) {
+        boolean missingA = Double.isNaN(a);
+        boolean missingB = Double.isNaN(b);
+        if (missingA && missingB) return 0;
+        if (missingA) return sortAscending ? -1 : 1;
+        if (missingB) return sortAscending ? 1 : -1;
+        
+        int result = Double.compare(a, b);
+        return sortAscending ? result : -result;
+    }
+    
+    /**
+     * Sorts a view in the data worker and publishes it once the permutation comes back.
+     * Numeric columns are sent as a key column; all other columns are dictionary-encoded.
+     */
+    private void sortInWorker(List<Map<String, Object>> view) {
+        String columnName = sortColumn;
+        String type = columnTypes.getOrDefault(columnName, "string");
+        
+        Consumer<int[]> applyOrder = order -> {
+            workerSortPending = false;
+            List<Map<String, Object>> sorted = new ArrayList<>(order.length);
+            for (int index : order) {
+                sorted.add(view.get(index));
+            }
+            dataState.set(sorted);
+        };
+        
+        workerSortPending = true;
+        
+        if ("number".equals(type)) {
+            double[] keys = new double[view.size()];
+            for (int i = 0; i < keys.length; i++) {
+                Map<String, Object> row = view.get(i);
+                if (row instanceof ColumnarData.Row) {
+                    double key = ((ColumnarData.Row) row).getDouble(columnName);
+                    keys[i] = Double.isNaN(key) ? Double.NEGATIVE_INFINITY : key;
+                    continue;
                 }
-                
-                String cellValue = row.get(columnName).toString().toLowerCase();
-                if (!cellValue.contains(filterValue)) {
-                    matches = false;
-                    break;
+                Object value = row.get(columnName);
+                if (value == null) {
+                    // Nulls sort before all values, as in the UI-thread comparator
+                    keys[i] = Double.NEGATIVE_INFINITY;
+                } else if (value instanceof Number) {
+                    keys[i] = ((Number) value).doubleValue();
+                } else {
+                    try {
+                        keys[i] = Double.parseDouble(value.toString());
+                    } catch (NumberFormatException e) {
+                        keys[i] = Double.NaN;
+                    }
                 }
             }
-            
-            if (matches) {
-                filteredData.add(row);
+            DataWorkerClient.getShared().sortNumeric(workerChannel, keys, sortAscending, applyOrder);
+        } else {
+            Map<String, Integer> dictionary = new HashMap<>();
+            List<String> values = new ArrayList<>();
+            int[] codes = new int[view.size()];
+            for (int i = 0; i < codes.length; i++) {
+                Object value = view.get(i).get(columnName);
+                if (value == null) {
+                    codes[i] = -1;
+                    continue;
+                }
+                String key = value.toString();
+                Integer code = dictionary.get(key);
+                if (code == null) {
+                    code = values.size();
+                    dictionary.put(key, code);
+                    values.add(key);
+                }
+                codes[i] = code;
             }
+            DataWorkerClient.getShared().sortDictionary(workerChannel, codes,
+                    values.toArray(new String[0]), sortAscending, applyOrder);
         }
-        
-        dataState.set(filteredData);
     }
     
     public DataTable loadFromApi(String url) {
+        stopLoading();
+        
         XMLHttpRequest xhr = XMLHttpRequest.create();
         xhr.open("GET", url);
         xhr.setOnReadyStateChange(() -> {
@@ -249,8 +849,8 @@ public class DataTable extends Component {
                 if (xhr.getStatus() == 200) {
                     try {
                         JSObject jsonData = JSON.parse(xhr.getResponseText());
-                        List<Map<String, Object>> newData = convertJSArrayToList(jsonData);
-                        dataState.set(newData);
+                        List<Map<String, Object>> newData = JSRows.toRows(jsonData);
+                        setSourceData(newData);
                     } catch (Exception e) {
                         System.err.println("Error parsing JSON: " + e.getMessage());
                     }
@@ -261,59 +861,241 @@ public class DataTable extends Component {
         return this;
     }
     
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> convertJSArrayToList(JSObject jsArray) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        int length = getArrayLength(jsArray);
+    /**
+     * Loads rows in the columnar binary format, falling back to JSON if the server does not offer it.
+     * The rows read from the decoded columns, and numeric sorts compare the column values without boxing.
+     * @see ColumnarData
+     */
+    public DataTable loadFromApiColumnar(String url) {
+        stopLoading();
+        ColumnarData.load(url, table -> setSourceData(table.getRows()),
+                error -> System.err.println("Error loading columnar data: " + error));
+        return this;
+    }
+    
+    /**
+     * Loads rows from a newline-delimited JSON endpoint, rendering them while the download is in progress.
+     * The first batch is shown as soon as it arrives. While no sort, filter or search is active, later
+     * batches are appended below the rows already shown; otherwise the view is only recomputed once
+     * the stream ends, since every batch could reorder all rows received so far.
+     */
+    public DataTable loadFromApiStreaming(String url) {
+        stopLoading();
+        setSourceData(new ArrayList<>());
         
-        for (int i = 0; i < length; i++) {
-            JSObject jsObject = getArrayItem(jsArray, i);
-            Map<String, Object> row = new HashMap<>();
-            
-            for (String key : getObjectKeys(jsObject)) {
-                Object value = getObjectProperty(jsObject, key);
-                row.put(key, value);
+        activeStream = NdjsonStream.open(url, STREAM_BATCH_SIZE, rows -> {
+            boolean firstBatch = sourceData.isEmpty();
+            sourceData.addAll(rows);
+            for (Map<String, Object> row : rows) {
+                filterEngine.addRow(row);
+                if (searchIndex != null) {
+                    searchIndex.add(row);
+                }
             }
             
-            result.add(row);
+            if (sortColumn == null && !filterEngine.hasFilters() && searchQuery == null) {
+                appendRows(rows);
+            } else if (firstBatch) {
+                updateView();
+            }
+        }, () -> {
+            activeStream = null;
+            updateView();
+        }, error -> {
+            activeStream = null;
+            System.err.println("Error streaming data: " + error);
+            updateView();
+        });
+        return this;
+    }
+    
+    /**
+     * Appends rows to the end of an unsorted and unfiltered view, creating elements only for them.
+     */
+    private void appendRows(List<Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            insertRowElement(data.size(), row);
+            if (viewIndexes != null) {
+                viewIndexes.put(row, data.size());
+            }
+            data.add(row);
+            if (pivot != null) {
+                pivot.add(row);
+            }
+        }
+        
+        patchingRows = true;
+        try {
+            dataState.notifyChanged();
+        } finally {
+            patchingRows = false;
         }
         
-        return result;
+        if (pivot != null) {
+            renderPivotRows();
+        } else if (canvasGrid != null) {
+            canvasGrid.refresh();
+        } else {
+            updateEmptyState();
+        }
     }
     
-    @JSBody(params = {"array"}, script = "return array.length;")
-    private static native int getArrayLength(JSObject array);
+    private void cancelStream() {
+        if (activeStream != null) {
+            activeStream.cancel();
+            activeStream = null;
+        }
+    }
     
-    @JSBody(params = {"array", "index"}, script = "return array[index];")
-    private static native JSObject getArrayItem(JSObject array, int index);
+    /**
+     * Switches the table to server-side paging, sorting and filtering.
+     * Sorting and filter changes are sent to the server instead of being applied locally,
+     * and only the current page is held in the table. Passing null returns to local data.
+     */
+    public DataTable setRemoteSource(RemoteDataSource source) {
+        cancelStream();
+        if (remoteSource != null) {
+            remoteSource.cancel();
+        }
+        
+        remoteSource = source;
+        if (source != null) {
+            source.setOnPage(this::showRemotePage)
+                  .setOnError(error -> System.err.println("Error loading page: " + error));
+        }
+        
+        setSourceData(new ArrayList<>());
+        if (source != null) {
+            source.loadPage(source.getCurrentPage());
+        }
+        return this;
+    }
     
-    @JSBody(params = {"object"}, script = "return Object.keys(object);")
-    private static native String[] getObjectKeys(JSObject object);
+    /**
+     * Loads rows page by page from a server endpoint that sorts and filters them.
+     * @see RemoteDataSource
+     */
+    public DataTable loadFromApiPaged(String url, int pageSize) {
+        return setRemoteSource(new RemoteDataSource(url, pageSize));
+    }
+    
+    public RemoteDataSource getRemoteSource() {
+        return remoteSource;
+    }
     
-    @JSBody(params = {"object", "key"}, script = "return object[key];")
-    private static native Object getObjectProperty(JSObject object, String key);
+    private void showRemotePage(List<Map<String, Object>> rows) {
+        selectedRow = -1;
+        if (rows.equals(data)) {
+            // Same rows on another page or query; the pager still needs updating
+            refreshTable();
+        } else {
+            dataState.set(new ArrayList<>(rows));
+        }
+    }
+    
+    private void stopLoading() {
+        cancelStream();
+        if (remoteSource != null) {
+            remoteSource.cancel();
+            remoteSource = null;
+        }
+    }
+    
+    /**
+     * Records the row positions before the rows are re-rendered in a new order, if a sort is waiting
+     * to be shown and the table is small enough to animate.
+     */
+    private Flip captureSortAnimation(List<Map<String, Object>> previous) {
+        if (!sortAnimationPending) {
+            return null;
+        }
+        sortAnimationPending = false;
+        
+        if (tbody == null || pivot != null || canvasMode || previous.size() > MAX_ANIMATED_ROWS
+                || rowElements.size() != previous.size()) {
+            return null;
+        }
+        return Flip.capture(previous, rowElements);
+    }
     
     private void refreshTable() {
+        FrameMonitor.enter(FrameMonitor.RENDER, "DataTable.refresh");
+        try {
+            rebuildTable();
+        } finally {
+            FrameMonitor.exit();
+        }
+    }
+    
+    private void rebuildTable() {
+        List<Map<String, Object>> previousRows = reusableRows;
+        reusableRows = null;
+        
         if (getElement() == null) {
             return;
         }
         
-        getElement().setInnerHTML("");
+        if (canvasMode && pivot == null) {
+            table = null;
+            refreshCanvasGrid();
+            return;
+        }
+        
+        if (pivot != null) {
+            clearContent();
+            canvasGrid = null;
+            table = null;
+            tbody = null;
+            rowElements.clear();
+            rowBindings.clear();
+            selectedElement = null;
+            emptyState = null;
+            renderPivot();
+            return;
+        }
+        pivotBody = null;
         
-        // Create table element
-        HTMLElement table = HTMLDocument.current().createElement("table");
+        // The header and filter row are kept, so a filter input keeps its focus while typing
+        if (table == null || table.getParentNode() != getElement()) {
+            clearContent();
+            canvasGrid = null;
+            createTable();
+        }
+        
+        updateHeader();
+        updateFilterRow();
+        renderBody(previousRows);
+        
+        if (selectable) {
+            updateSelection();
+        }
+        
+        updatePager();
+        updateEmptyState();
+    }
+    
+    private void createTable() {
+        table = HTMLDocument.current().createElement("table");
         table.getStyle().setProperty("width", "100%");
         table.getStyle().setProperty("border-collapse", "collapse");
         table.getStyle().setProperty("font-size", "14px");
         
-        // Create header
+        headerCells.clear();
+        filterInputs.clear();
+        filterRow = null;
+        tbody = null;
+        rowElements.clear();
+        rowBindings.clear();
+        selectedElement = null;
+        pager = null;
+        
         if (!columnNames.isEmpty()) {
+            // Create header
             HTMLElement thead = HTMLDocument.current().createElement("thead");
             HTMLElement headerRow = HTMLDocument.current().createElement("tr");
             
             for (String columnName : columnNames) {
                 HTMLElement th = HTMLDocument.current().createElement("th");
-                th.setTextContent(columnName);
                 th.getStyle().setProperty("padding", "12px 10px");
                 th.getStyle().setProperty("text-align", "left");
                 th.getStyle().setProperty("border-bottom", "2px solid #ddd");
@@ -321,11 +1103,6 @@ public class DataTable extends Component {
                 th.getStyle().setProperty("background-color", "#f5f5f5");
                 th.getStyle().setProperty("cursor", "pointer");
                 
-                // Add sort indicator if this column is sorted
-                if (columnName.equals(sortColumn)) {
-                    th.setTextContent(columnName + (sortAscending ? " ▲" : " ▼"));
-                }
-                
                 // Add sort functionality
                 final String colName = columnName;
                 th.addEventListener("click", e -> {
@@ -333,139 +1110,598 @@ public class DataTable extends Component {
                     sortBy(colName, asc);
                 });
                 
+                headerCells.add(th);
                 headerRow.appendChild(th);
             }
             
             thead.appendChild(headerRow);
             table.appendChild(thead);
-        }
-        
-        // Create filter row
-        if (!columnNames.isEmpty() && !filters.isEmpty()) {
-            HTMLElement filterRow = HTMLDocument.current().createElement("tr");
+            
+            // Create filter row, shown while a column is filtered
+            filterRow = HTMLDocument.current().createElement("tr");
             filterRow.getStyle().setProperty("background-color", "#f9f9f9");
+            filterRow.getStyle().setProperty("display", "none");
             
-            for (String columnName : columnNames) {
+            for (int i = 0; i < columnNames.size(); i++) {
                 HTMLElement td = HTMLDocument.current().createElement("td");
                 td.getStyle().setProperty("padding", "8px 10px");
-                
-                if (filters.containsKey(columnName)) {
-                    HTMLElement input = HTMLDocument.current().createElement("input");
-                    input.setAttribute("type", "text");
-                    input.setAttribute("placeholder", "Filter...");
-                    input.setAttribute("value", filters.get(columnName));
-                    input.getStyle().setProperty("width", "100%");
-                    input.getStyle().setProperty("padding", "4px");
-                    input.getStyle().setProperty("border", "1px solid #ddd");
-                    input.getStyle().setProperty("border-radius", "3px");
-                    
-                    final String colName = columnName;
-                    input.addEventListener("input", e -> {
-                        String value = input.getAttribute("value");
-                        filter(colName, value);
-                    });
-                    
-                    td.appendChild(input);
-                }
-                
                 filterRow.appendChild(td);
             }
             
             table.appendChild(filterRow);
         }
         
-        // Create body
-        HTMLElement tbody = HTMLDocument.current().createElement("tbody");
+        getElement().appendChild(table);
         
-        for (int i = 0; i < data.size(); i++) {
-            final int rowIndex = i;
-            Map<String, Object> rowData = data.get(i);
-            HTMLElement row = HTMLDocument.current().createElement("tr");
+        // Add empty state message, shown while there is no data
+        emptyState = HTMLDocument.current().createElement("div");
+        emptyState.setTextContent("No data available");
+        emptyState.getStyle().setProperty("padding", "20px");
+        emptyState.getStyle().setProperty("text-align", "center");
+        emptyState.getStyle().setProperty("color", "#888");
+        getElement().appendChild(emptyState);
+    }
+    
+    private void updateHeader() {
+        for (int i = 0; i < headerCells.size(); i++) {
+            String columnName = columnNames.get(i);
             
-            if (selectable) {
-                row.getStyle().setProperty("cursor", "pointer");
-                
-                row.addEventListener("click", e -> {
-                    selectedRow = rowIndex;
-                    updateSelection();
-                    
-                    if (selectionListener != null) {
-                        selectionListener.accept(rowIndex);
-                    }
-                    
-                    if (rowClickListener != null) {
-                        rowClickListener.accept(rowData);
-                    }
-                });
+            // Add sort indicator if this column is sorted
+            if (columnName.equals(sortColumn)) {
+                headerCells.get(i).setTextContent(columnName + (sortAscending ? " ▲" : " ▼"));
+            } else {
+                headerCells.get(i).setTextContent(columnName);
+            }
+        }
+    }
+    
+    /**
+     * Adds an input for each column with a text filter and removes the inputs of cleared filters.
+     * Inputs that stay are left untouched, and the input being typed in is kept even once emptied.
+     */
+    private void updateFilterRow() {
+        if (filterRow == null) {
+            return;
+        }
+        
+        HTMLElement focused = HTMLDocument.current().getActiveElement();
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = columnNames.get(i);
+            ColumnFilter columnFilter = filterEngine.getFilter(columnName);
+            HTMLInputElement input = filterInputs.get(columnName);
+            
+            if (columnFilter != null && columnFilter.getKind() == ColumnFilter.Kind.CONTAINS) {
+                if (input == null) {
+                    input = createFilterInput(columnName);
+                    filterInputs.put(columnName, input);
+                    ((HTMLElement) filterRow.getChildNodes().item(i)).appendChild(input);
+                }
                 
-                if (rowIndex == selectedRow) {
-                    row.getStyle().setProperty("background-color", "#e8f0fe");
+                // Only a filter set from code changes the text; typed text is left as typed
+                if (!ColumnFilter.contains(input.getValue()).getText().equals(columnFilter.getText())) {
+                    input.setValue(columnFilter.getText());
                 }
+            } else if (input != null && input != focused) {
+                input.getParentNode().removeChild(input);
+                filterInputs.remove(columnName);
             }
+        }
+        
+        boolean visible = filterEngine.hasFilters() || !filterInputs.isEmpty();
+        filterRow.getStyle().setProperty("display", visible ? "" : "none");
+    }
+    
+    private HTMLInputElement createFilterInput(String columnName) {
+        HTMLInputElement input = (HTMLInputElement) HTMLDocument.current().createElement("input");
+        input.setAttribute("type", "text");
+        input.setAttribute("placeholder", "Filter...");
+        input.getStyle().setProperty("width", "100%");
+        input.getStyle().setProperty("padding", "4px");
+        input.getStyle().setProperty("border", "1px solid #ddd");
+        input.getStyle().setProperty("border-radius", "3px");
+        
+        input.addEventListener("input", e -> {
+            filter(columnName, input.getValue());
+        });
+        return input;
+    }
+    
+    /**
+     * Replaces the body with the current rows. Rows that were shown before keep their elements, which
+     * are moved instead of recreated, so narrowing a filter mostly removes rows.
+     * @param previousRows The rows the current elements show, or null if they cannot be reused
+     */
+    private void renderBody(List<Map<String, Object>> previousRows) {
+        Map<Map<String, Object>, Integer> reusable = new IdentityHashMap<>();
+        List<HTMLElement> previousElements = new ArrayList<>(rowElements);
+        List<RowBinding> previousBindings = new ArrayList<>(rowBindings);
+        if (previousRows != null && previousRows.size() == rowElements.size()
+                && Objects.equals(renderedQuery, searchQuery)) {
+            for (int i = 0; i < previousRows.size(); i++) {
+                reusable.put(previousRows.get(i), i);
+            }
+        }
+        renderedQuery = searchQuery;
+        
+        if (selectedElement != null) {
+            selectedElement.getStyle().setProperty("background-color", "");
+            selectedElement = null;
+        }
+        
+        HTMLElement body = HTMLDocument.current().createElement("tbody");
+        rowElements.clear();
+        rowBindings.clear();
+        
+        for (Map<String, Object> rowData : data) {
+            Integer previous = reusable.remove(rowData);
+            RowBinding binding;
+            HTMLElement row;
+            if (previous != null) {
+                binding = previousBindings.get(previous);
+                row = previousElements.get(previous);
+            } else {
+                binding = new RowBinding(rowData);
+                row = createRowElement(binding);
+            }
+            rowElements.add(row);
+            rowBindings.add(binding);
+            body.appendChild(row);
+        }
+        
+        if (tbody != null) {
+            table.replaceChild(body, tbody);
+        } else {
+            table.appendChild(body);
+        }
+        tbody = body;
+    }
+    
+    private void updatePager() {
+        HTMLElement newPager = remoteSource != null ? createPager() : null;
+        if (pager != null) {
+            if (newPager != null) {
+                getElement().replaceChild(newPager, pager);
+            } else {
+                getElement().removeChild(pager);
+            }
+        } else if (newPager != null) {
+            getElement().insertBefore(newPager, emptyState);
+        }
+        pager = newPager;
+    }
+    
+    private HTMLElement createRowElement(RowBinding binding) {
+        Map<String, Object> rowData = binding.row;
+        HTMLElement row = HTMLDocument.current().createElement("tr");
+        
+        if (selectable) {
+            row.getStyle().setProperty("cursor", "pointer");
             
-            // Add hover effect
-            row.addEventListener("mouseover", e -> {
-                if (rowIndex != selectedRow) {
-                    row.getStyle().setProperty("background-color", "#f5f5f5");
+            row.addEventListener("click", e -> {
+                // Look the row up on click, since inserts and removals shift positions
+                int rowIndex = indexOfShownRow(binding.row);
+                if (rowIndex < 0) {
+                    return;
                 }
-            });
-            
-            row.addEventListener("mouseout", e -> {
-                if (rowIndex != selectedRow) {
-                    row.getStyle().setProperty("background-color", "");
+                
+                selectedRow = rowIndex;
+                updateSelection();
+                
+                if (selectionListener != null) {
+                    selectionListener.accept(rowIndex);
+                }
+                
+                if (rowClickListener != null) {
+                    rowClickListener.accept(data.get(rowIndex));
                 }
             });
+        }
+        
+        // Add hover effect
+        row.addEventListener("mouseover", e -> {
+            if (row != selectedElement) {
+                row.getStyle().setProperty("background-color", "#f5f5f5");
+            }
+        });
+        
+        row.addEventListener("mouseout", e -> {
+            if (row != selectedElement) {
+                row.getStyle().setProperty("background-color", "");
+            }
+        });
+        
+        // Add cells
+        for (String columnName : columnNames) {
+            HTMLElement td = HTMLDocument.current().createElement("td");
+            td.getStyle().setProperty("padding", "10px");
+            td.getStyle().setProperty("border-bottom", "1px solid #ddd");
             
-            // Add cells
-            for (String columnName : columnNames) {
-                HTMLElement td = HTMLDocument.current().createElement("td");
-                td.getStyle().setProperty("padding", "10px");
-                td.getStyle().setProperty("border-bottom", "1px solid #ddd");
+            setCellContent(td, rowData.get(columnName));
+            
+            row.appendChild(td);
+        }
+        
+        return row;
+    }
+    
+    /**
+     * Rewrites only the cells whose values differ between two versions of a row.
+     */
+    private void patchCells(HTMLElement row, Map<String, Object> oldRow, Map<String, Object> newRow) {
+        for (int i = 0; i < columnNames.size(); i++) {
+            String columnName = columnNames.get(i);
+            Object cellValue = newRow.get(columnName);
+            
+            if (!Objects.equals(oldRow.get(columnName), cellValue)) {
+                setCellContent((HTMLElement) row.getChildNodes().item(i), cellValue);
+            }
+        }
+    }
+    
+    /**
+     * Sets a cell's text, marking the parts that match the search.
+     */
+    private void setCellContent(HTMLElement td, Object value) {
+        String text = value != null ? value.toString() : "";
+        int[] ranges = searchQuery != null && value instanceof String
+                ? SearchIndex.highlight(text, searchQuery) : new int[0];
+        
+        if (ranges.length == 0) {
+            td.setTextContent(text);
+            return;
+        }
+        
+        td.setTextContent("");
+        int position = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            td.appendChild(HTMLDocument.current().createTextNode(text.substring(position, ranges[i])));
+            HTMLElement mark = HTMLDocument.current().createElement("mark");
+            mark.setTextContent(text.substring(ranges[i], ranges[i + 1]));
+            td.appendChild(mark);
+            position = ranges[i + 1];
+        }
+        td.appendChild(HTMLDocument.current().createTextNode(text.substring(position)));
+    }
+    
+    private void insertRowElement(int index, Map<String, Object> rowData) {
+        if (selectedRow >= index) {
+            selectedRow++;
+        }
+        
+        if (tbody == null || pivot != null) {
+            return;
+        }
+        
+        RowBinding binding = new RowBinding(rowData);
+        HTMLElement row = createRowElement(binding);
+        tbody.insertBefore(row, index < rowElements.size() ? rowElements.get(index) : null);
+        rowElements.add(index, row);
+        rowBindings.add(index, binding);
+    }
+    
+    private void removeRowElement(int index) {
+        if (selectedRow == index) {
+            selectedRow = -1;
+        } else if (selectedRow > index) {
+            selectedRow--;
+        }
+        
+        if (tbody == null || index >= rowElements.size()) {
+            return;
+        }
+        
+        HTMLElement row = rowElements.remove(index);
+        rowBindings.remove(index);
+        if (row == selectedElement) {
+            selectedElement = null;
+        }
+        tbody.removeChild(row);
+    }
+    
+    private void refreshCanvasGrid() {
+        tbody = null;
+        rowElements.clear();
+        rowBindings.clear();
+        selectedElement = null;
+        emptyState = null;
+        pivotBody = null;
+        
+        if (canvasGrid != null) {
+            // Keep the grid and its scroll position; only repaint
+            canvasGrid.setSelectable(selectable);
+            canvasGrid.refresh();
+            canvasGrid.setSelectedRow(selectedRow);
+            return;
+        }
+        
+        clearContent();
+        canvasGrid = new CanvasGrid();
+        canvasGrid.setSelectable(selectable)
+            .setOnHeaderClick(column -> {
+                String colName = columnNames.get(column);
+                boolean asc = !colName.equals(sortColumn) || !sortAscending;
+                sortBy(colName, asc);
+            })
+            .setOnRowSelect(row -> {
+                selectedRow = row;
                 
-                Object cellValue = rowData.get(columnName);
-                td.setTextContent(cellValue != null ? cellValue.toString() : "");
+                if (selectionListener != null) {
+                    selectionListener.accept(row);
+                }
                 
-                row.appendChild(td);
-            }
-            
-            tbody.appendChild(row);
+                if (rowClickListener != null) {
+                    rowClickListener.accept(data.get(row));
+                }
+            })
+            .setModel(new CanvasGrid.Model() {
+                @Override
+                public int getRowCount() {
+                    return data.size();
+                }
+                
+                @Override
+                public int getColumnCount() {
+                    return columnNames.size();
+                }
+                
+                @Override
+                public String getColumnName(int column) {
+                    String columnName = columnNames.get(column);
+                    if (columnName.equals(sortColumn)) {
+                        return columnName + (sortAscending ? " ▲" : " ▼");
+                    }
+                    return columnName;
+                }
+                
+                @Override
+                public String getText(int row, int column) {
+                    Object cellValue = data.get(row).get(columnNames.get(column));
+                    return cellValue != null ? cellValue.toString() : "";
+                }
+                
+                @Override
+                public boolean isNumeric(int column) {
+                    return "number".equals(columnTypes.get(columnNames.get(column)));
+                }
+            });
+        canvasGrid.render(getElement());
+        canvasGrid.setSelectedRow(selectedRow);
+    }
+    
+    private void renderPivot() {
+        HTMLElement table = HTMLDocument.current().createElement("table");
+        table.getStyle().setProperty("width", "100%");
+        table.getStyle().setProperty("border-collapse", "collapse");
+        table.getStyle().setProperty("font-size", "14px");
+        
+        HTMLElement thead = HTMLDocument.current().createElement("thead");
+        HTMLElement headerRow = HTMLDocument.current().createElement("tr");
+        
+        List<String> headers = new ArrayList<>();
+        headers.add(String.join(" / ", pivot.getGroupColumns()));
+        for (PivotModel.Measure measure : pivot.getMeasures()) {
+            headers.add(measure.getLabel());
         }
         
-        table.appendChild(tbody);
+        for (int i = 0; i < headers.size(); i++) {
+            HTMLElement th = HTMLDocument.current().createElement("th");
+            th.setTextContent(headers.get(i));
+            th.getStyle().setProperty("padding", "12px 10px");
+            th.getStyle().setProperty("text-align", i == 0 ? "left" : "right");
+            th.getStyle().setProperty("border-bottom", "2px solid #ddd");
+            th.getStyle().setProperty("font-weight", "600");
+            th.getStyle().setProperty("background-color", "#f5f5f5");
+            headerRow.appendChild(th);
+        }
+        
+        thead.appendChild(headerRow);
+        table.appendChild(thead);
+        
+        pivotBody = HTMLDocument.current().createElement("tbody");
+        pivotRows = new IdentityHashMap<>();
+        table.appendChild(pivotBody);
         getElement().appendChild(table);
         
-        // Add empty state message if no data
-        if (data.isEmpty()) {
-            HTMLElement emptyState = HTMLDocument.current().createElement("div");
-            emptyState.setTextContent("No data available");
-            emptyState.getStyle().setProperty("padding", "20px");
-            emptyState.getStyle().setProperty("text-align", "center");
-            emptyState.getStyle().setProperty("color", "#888");
-            
-            getElement().appendChild(emptyState);
-        }
+        renderPivotRows();
     }
     
-    private void updateSelection() {
-        if (getElement() == null) {
+    /**
+     * Renders the visible groups followed by a total row. Only expanded groups contribute rows,
+     * so the DOM stays small however many rows are aggregated. Rows already shown are kept: only
+     * groups whose rows changed are rewritten, and rows are only added or removed for groups
+     * that appear or disappear.
+     */
+    private void renderPivotRows() {
+        if (pivotBody == null) {
             return;
         }
         
-        HTMLElement table = (HTMLElement) getElement().querySelector("table");
-        if (table == null) return;
+        List<PivotModel.Group> groups = pivot.getVisibleGroups();
+        groups.add(pivot.getRoot());
         
-        HTMLElement tbody = (HTMLElement) table.querySelector("tbody");
-        if (tbody == null) return;
+        // Rows of groups that disappeared go first, so the rows that stay are not moved around them
+        Map<PivotModel.Group, PivotRow> previous = pivotRows;
+        pivotRows = new IdentityHashMap<>();
+        for (PivotModel.Group group : groups) {
+            PivotRow row = previous.remove(group);
+            if (row != null) {
+                pivotRows.put(group, row);
+            }
+        }
+        for (PivotRow row : previous.values()) {
+            pivotBody.removeChild(row.element);
+        }
         
-        for (int i = 0; i < tbody.getChildNodes().getLength(); i++) {
-            HTMLElement row = (HTMLElement) tbody.getChildNodes().item(i);
+        Node next = pivotBody.getFirstChild();
+        for (PivotModel.Group group : groups) {
+            PivotRow row = pivotRows.get(group);
+            if (row == null) {
+                row = createGroupRow(group);
+                pivotRows.put(group, row);
+            } else if (row.version != group.getVersion() || row.expanded != group.isExpanded()) {
+                updateGroupRow(row, group);
+            }
             
-            if (i == selectedRow) {
-                row.getStyle().setProperty("background-color", "#e8f0fe");
+            if (row.element == next) {
+                next = next.getNextSibling();
             } else {
-                row.getStyle().setProperty("background-color", "");
+                pivotBody.insertBefore(row.element, next);
+            }
+        }
+    }
+    
+    private PivotRow createGroupRow(PivotModel.Group group) {
+        HTMLElement row = HTMLDocument.current().createElement("tr");
+        boolean total = group.getDepth() == 0;
+        
+        HTMLElement label = HTMLDocument.current().createElement("td");
+        label.getStyle().setProperty("padding", "10px");
+        label.getStyle().setProperty("padding-left", (10 + Math.max(0, group.getDepth() - 1) * 20) + "px");
+        label.getStyle().setProperty("border-bottom", "1px solid #ddd");
+        
+        if (total) {
+            row.getStyle().setProperty("font-weight", "600");
+            row.getStyle().setProperty("background-color", "#f9f9f9");
+        } else if (!group.isLeaf()) {
+            row.getStyle().setProperty("cursor", "pointer");
+            row.addEventListener("click", e -> {
+                group.setExpanded(!group.isExpanded());
+                renderPivotRows();
+            });
+        }
+        row.appendChild(label);
+        
+        PivotRow pivotRow = new PivotRow(row, label, pivot.getMeasures().size());
+        for (int i = 0; i < pivotRow.cells.length; i++) {
+            HTMLElement td = HTMLDocument.current().createElement("td");
+            td.getStyle().setProperty("padding", "10px");
+            td.getStyle().setProperty("text-align", "right");
+            td.getStyle().setProperty("border-bottom", "1px solid #ddd");
+            row.appendChild(td);
+            pivotRow.cells[i] = td;
+        }
+        
+        updateGroupRow(pivotRow, group);
+        return pivotRow;
+    }
+    
+    /**
+     * Rewrites the label and the aggregates of a group row, touching only the text that changed.
+     */
+    private void updateGroupRow(PivotRow row, PivotModel.Group group) {
+        String labelText;
+        if (group.getDepth() == 0) {
+            labelText = "Total (" + group.getRowCount() + ")";
+        } else {
+            String toggle = group.isLeaf() ? "" : (group.isExpanded() ? "▾ " : "▸ ");
+            String key = group.getKey().isEmpty() ? "(empty)" : group.getKey();
+            labelText = toggle + key + " (" + group.getRowCount() + ")";
+        }
+        if (!labelText.equals(row.labelText)) {
+            row.label.setTextContent(labelText);
+            row.labelText = labelText;
+        }
+        
+        for (int i = 0; i < row.cells.length; i++) {
+            String text = formatAggregate(group.getValue(i));
+            if (!text.equals(row.cellTexts[i])) {
+                row.cells[i].setTextContent(text);
+                row.cellTexts[i] = text;
             }
         }
+        
+        row.version = group.getVersion();
+        row.expanded = group.isExpanded();
+    }
+    
+    private static String formatAggregate(double value) {
+        if (Double.isNaN(value)) {
+            return "";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(Math.round(value * 100) / 100.0);
+    }
+    
+    /**
+     * Removes the table's content but keeps the search box, so it does not lose focus while typing.
+     */
+    private void clearContent() {
+        HTMLElement element = getElement();
+        while (element.getLastChild() != null && element.getLastChild() != searchBox) {
+            element.removeChild(element.getLastChild());
+        }
+        
+        if (searchBox != null && searchBox.getParentNode() == null) {
+            element.appendChild(searchBox);
+        }
+    }
+    
+    private void updateEmptyState() {
+        if (emptyState != null) {
+            emptyState.getStyle().setProperty("display", data.isEmpty() ? "block" : "none");
+        }
+    }
+    
+    private HTMLElement createPager() {
+        HTMLElement pager = HTMLDocument.current().createElement("div");
+        pager.getStyle().setProperty("display", "flex");
+        pager.getStyle().setProperty("align-items", "center");
+        pager.getStyle().setProperty("justify-content", "flex-end");
+        pager.getStyle().setProperty("gap", "10px");
+        pager.getStyle().setProperty("padding", "8px 10px");
+        pager.getStyle().setProperty("font-size", "13px");
+        pager.getStyle().setProperty("color", "#555");
+        
+        int page = remoteSource.getCurrentPage();
+        int pageCount = remoteSource.getPageCount();
+        
+        HTMLElement label = HTMLDocument.current().createElement("span");
+        label.setTextContent(remoteSource.getTotalRows() < 0 ? "Loading..." :
+                "Page " + (pageCount == 0 ? 0 : page + 1) + " of " + pageCount
+                + " (" + remoteSource.getTotalRows() + " rows)");
+        
+        pager.appendChild(createPagerButton("‹ Prev", page > 0, remoteSource::previousPage));
+        pager.appendChild(label);
+        pager.appendChild(createPagerButton("Next ›", page + 1 < pageCount, remoteSource::nextPage));
+        return pager;
+    }
+    
+    private HTMLElement createPagerButton(String text, boolean enabled, Runnable action) {
+        HTMLElement button = HTMLDocument.current().createElement("button");
+        button.setTextContent(text);
+        button.getStyle().setProperty("padding", "4px 10px");
+        button.getStyle().setProperty("border", "1px solid #ddd");
+        button.getStyle().setProperty("border-radius", "3px");
+        button.getStyle().setProperty("background-color", "white");
+        
+        if (enabled) {
+            button.getStyle().setProperty("cursor", "pointer");
+            button.addEventListener("click", e -> action.run());
+        } else {
+            button.setAttribute("disabled", "disabled");
+        }
+        return button;
+    }
+    
+    /**
+     * Moves the selection highlight from the previously selected row to the current one.
+     */
+    private void updateSelection() {
+        if (canvasGrid != null) {
+            canvasGrid.setSelectedRow(selectedRow);
+        }
+        
+        if (selectedElement != null) {
+            selectedElement.getStyle().setProperty("background-color", "");
+            selectedElement = null;
+        }
+        
+        if (selectedRow >= 0 && selectedRow < rowElements.size()) {
+            selectedElement = rowElements.get(selectedRow);
+            selectedElement.getStyle().setProperty("background-color", "#e8f0fe");
+        }
     }
     
     @Override
@@ -482,4 +1718,36 @@ public class DataTable extends Component {
     public State<List<Map<String, Object>>> getDataState() {
         return dataState;
     }
+    
+    /**
+     * The row a table row element shows. An in-place patch points it at the new row, so a click
+     * finds the element's position from its row instead of searching the elements.
+     */
+    private static class RowBinding {
+        Map<String, Object> row;
+        
+        RowBinding(Map<String, Object> row) {
+            this.row = row;
+        }
+    }
+    
+    /**
+     * The element of a pivot group row and the text it shows, so a re-render only writes what changed.
+     */
+    private static class PivotRow {
+        final HTMLElement element;
+        final HTMLElement label;
+        final HTMLElement[] cells;
+        final String[] cellTexts;
+        String labelText;
+        int version;
+        boolean expanded;
+        
+        PivotRow(HTMLElement element, HTMLElement label, int measureCount) {
+            this.element = element;
+            this.label = label;
+            this.cells = new HTMLElement[measureCount];
+            this.cellTexts = new String[measureCount];
+        }
+    }
 }
\ No newline at end of file
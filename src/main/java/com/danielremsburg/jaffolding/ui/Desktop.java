@@ -3,17 +3,16 @@ package com.danielremsburg.jaffolding.ui;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.teavm.jso.dom.html.HTMLElement;
-
 import com.danielremsburg.jaffolding.Component;
 
 /**
- * A desktop environment component with a taskbar.
+ * A desktop environment component with a taskbar. Its windows are stacked by a {@link WindowManager}.
  */
 public class Desktop extends UIComponent {
     private Panel desktopArea;
     private Panel taskbar;
     private List<TaskbarItem> taskbarItems = new ArrayList<>();
+    private WindowManager windowManager;
     
     public Desktop() {
         super("div");
@@ -35,6 +34,8 @@ public class Desktop extends UIComponent {
                    .setStyle("right", "0")
                    .setStyle("bottom", "60px") // Leave space for taskbar
                    .setStyle("overflow", "hidden");
+        windowManager = new WindowManager(desktopArea);
+        windowManager.setOnClose(this::removeTaskbarItem);
         
         // Create taskbar
         taskbar = new Panel();
@@ -57,6 +58,7 @@ public class Desktop extends UIComponent {
     }
     
     public Desktop addWindow(Window window) {
+        windowManager.register(window);
         desktopArea.addChild(window);
         
         // Create taskbar item for the window
@@ -64,11 +66,33 @@ public class Desktop extends UIComponent {
         taskbarItems.add(taskbarItem);
         taskbar.addChild(taskbarItem);
         
+        updateTaskbarWidth();
+        
+        return this;
+    }
+    
+    /**
+     * @return The manager stacking and focusing this desktop's windows
+     */
+    public WindowManager getWindowManager() {
+        return windowManager;
+    }
+    
+    private void removeTaskbarItem(Window window) {
+        for (TaskbarItem item : taskbarItems) {
+            if (item.window == window) {
+                taskbarItems.remove(item);
+                taskbar.removeChild(item);
+                updateTaskbarWidth();
+                return;
+            }
+        }
+    }
+    
+    private void updateTaskbarWidth() {
         // Adjust taskbar width based on number of items
         int taskbarWidth = Math.min(800, 60 + taskbarItems.size() * 50);
         taskbar.setStyle("width", taskbarWidth + "px");
-        
-        return this;
     }
     
     /**
@@ -95,30 +119,11 @@ public class Desktop extends UIComponent {
                     setStyle("transform", "scale(1)");
                 })
                 .addEventListener("click", e -> {
-                    // Bring the window to front when clicking its taskbar item
-                    HTMLElement windowElement = window.getElement();
-                    if (windowElement != null) {
-                        // Find the highest z-index
-                        HTMLElement parent = (HTMLElement) windowElement.getParentNode();
-                        int highestZIndex = 0;
-                        
-                        for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
-                            if (parent.getChildNodes().item(i) instanceof HTMLElement) {
-                                HTMLElement sibling = (HTMLElement) parent.getChildNodes().item(i);
-                                String zIndexStr = sibling.getStyle().getPropertyValue("z-index");
-                                if (zIndexStr != null && !zIndexStr.isEmpty()) {
-                                    try {
-                                        int zIndex = Integer.parseInt(zIndexStr);
-                                        highestZIndex = Math.max(highestZIndex, zIndex);
-                                    } catch (NumberFormatException ex) {
-                                        // Ignore parsing errors
-                                    }
-                                }
-                            }
-                        }
-                        
-                        // Set this window's z-index to be higher
-                        windowElement.getStyle().setProperty("z-index", String.valueOf(highestZIndex + 1));
+                    // Bring the window to front, restoring it if minimized
+                    if (window.isMinimized()) {
+                        windowManager.restore(window);
+                    } else {
+                        windowManager.focus(window);
                     }
                 });
         }
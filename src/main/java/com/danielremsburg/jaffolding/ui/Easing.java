@@ -0,0 +1,78 @@
+package com.danielremsburg.jaffolding.ui;
+
+/**
+ * Easing functions for {@link Tween}s, mapping progress from 0 to 1 onto eased progress.
+ */
+@FunctionalInterface
+public interface Easing {
+    
+    /**
+     * @param t Progress from 0 to 1
+     * @return Eased progress, 0 at the start and 1 at the end
+     */
+    double apply(double t);
+    
+    Easing LINEAR = t -> t;
+    
+    Easing EASE_IN = t -> t * t * t;
+    
+    Easing EASE_OUT = t -> 1 - (1 - t) * (1 - t) * (1 - t);
+    
+    Easing EASE_IN_OUT = t -> t < 0.5 ? 4 * t * t * t : 1 - Math.pow(-2 * t + 2, 3) / 2;
+    
+    /**
+     * Overshoots the end slightly before settling.
+     */
+    Easing BACK_OUT = t -> 1 + 2.70158 * Math.pow(t - 1, 3) + 1.70158 * Math.pow(t - 1, 2);
+    
+    /**
+     * The CSS {@code ease} timing function.
+     */
+    Easing EASE = cubicBezier(0.25, 0.1, 0.25, 1.0);
+    
+    /**
+     * Creates an easing from a cubic Bézier curve, as CSS {@code cubic-bezier()} does.
+     */
+    static Easing cubicBezier(double x1, double y1, double x2, double y2) {
+        return t -> {
+            if (t <= 0 || t >= 1) {
+                return t <= 0 ? 0 : 1;
+            }
+            
+            // Solve x(s) = t for the curve parameter s, then evaluate y(s)
+            double s = t;
+            for (int i = 0; i < 8; i++) {
+                double x = bezier(s, x1, x2) - t;
+                double slope = 3 * (1 - s) * (1 - s) * x1 + 6 * (1 - s) * s * (x2 - x1) + 3 * s * s * (1 - x2);
+                if (Math.abs(x) < 1e-6) {
+                    break;
+                }
+                if (Math.abs(slope) < 1e-6) {
+                    // Flat spot: fall back to bisection
+                    double low = 0;
+                    double high = 1;
+                    s = t;
+                    for (int j = 0; j < 30; j++) {
+                        if (bezier(s, x1, x2) < t) {
+                            low = s;
+                        } else {
+                            high = s;
+                        }
+                        s = (low + high) / 2;
+                    }
+                    break;
+                }
+                s -= x / slope;
+            }
+            return bezier(s, y1, y2);
+        };
+    }
+    
+    /**
+     * One coordinate of a cubic Bézier curve from 0 to 1 with the given control points.
+     */
+    static double bezier(double s, double p1, double p2) {
+        double inverse = 1 - s;
+        return 3 * inverse * inverse * s * p1 + 3 * inverse * s * s * p2 + s * s * s;
+    }
+}
@@ -0,0 +1,167 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.core.JSArray;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * Animates elements from where they were to where a DOM change put them (First, Last, Invert, Play).
+ * Positions are recorded by key before the change, so an element may be moved or even replaced by a
+ * new element with the same key. After the change, all new positions are read in one pass before
+ * anything is written, and each moved element is translated back to its old position and tweened
+ * to none by the {@link Animator}, which only touches {@code transform}. Elements outside the
+ * viewport both before and after are not animated, and elements with new keys fade in.
+ */
+public class Flip {
+    private final Map<Object, double[]> first = new IdentityHashMap<>();
+    private double duration = 0.3;
+    private Easing easing = Easing.EASE_OUT;
+    
+    private Flip() {
+    }
+    
+    /**
+     * Records the positions of keyed elements before a change.
+     * @param keys The key of each element, compared by identity
+     * @param elements The elements, in the same order as their keys
+     */
+    public static Flip capture(List<?> keys, List<HTMLElement> elements) {
+        Flip flip = new Flip();
+        double[] rects = readPositions(elements);
+        for (int i = 0; i < keys.size(); i++) {
+            flip.first.put(keys.get(i), new double[] {rects[2 * i], rects[2 * i + 1]});
+        }
+        return flip;
+    }
+    
+    /**
+     * Animates the children of a rendered component from their positions before a change, keyed by
+     * child component.
+     * @param container The component whose children move
+     * @param change The change, run immediately
+     */
+    public static void animate(Component container, Runnable change) {
+        if (container.getElement() == null) {
+            change.run();
+            return;
+        }
+        
+        List<Component> before = renderedChildren(container);
+        Flip flip = capture(before, elementsOf(before));
+        change.run();
+        List<Component> after = renderedChildren(container);
+        flip.play(after, elementsOf(after));
+    }
+    
+    /**
+     * @param seconds The length of the animation
+     */
+    public Flip setDuration(double seconds) {
+        this.duration = seconds;
+        return this;
+    }
+    
+    public Flip setEasing(Easing easing) {
+        this.easing = easing;
+        return this;
+    }
+    
+    /**
+     * Animates keyed elements after the change from their recorded positions.
+     * @param keys The key of each element
+     * @param elements The elements, in the same order as their keys
+     */
+    public void play(List<?> keys, List<HTMLElement> elements) {
+        // Read every new position before writing anything
+        double[] rects = readPositions(elements);
+        double viewportHeight = viewportHeight();
+        double viewportWidth = viewportWidth();
+        
+        for (int i = 0; i < keys.size(); i++) {
+            HTMLElement element = elements.get(i);
+            double left = rects[2 * i];
+            double top = rects[2 * i + 1];
+            double[] old = first.get(keys.get(i));
+            
+            if (old == null) {
+                if (inViewport(left, top, viewportWidth, viewportHeight)) {
+                    new Tween(element).fromTo(Tween.Property.OPACITY, 0, 1).setDuration(duration).play();
+                }
+                continue;
+            }
+            
+            double dx = old[0] - left;
+            double dy = old[1] - top;
+            if ((Math.abs(dx) < 0.5 && Math.abs(dy) < 0.5)
+                    || (!inViewport(left, top, viewportWidth, viewportHeight)
+                        && !inViewport(old[0], old[1], viewportWidth, viewportHeight))) {
+                continue;
+            }
+            
+            // The measured positions include any translation still applied from an earlier animation
+            Animator.MotionState state = Animator.stateOf(element);
+            new Tween(element)
+                .fromTo(Tween.Property.X, state.getX() + dx, 0)
+                .fromTo(Tween.Property.Y, state.getY() + dy, 0)
+                .setDuration(duration)
+                .setEasing(easing)
+                .play();
+        }
+    }
+    
+    private static boolean inViewport(double left, double top, double width, double height) {
+        // Positions are top-left corners; allow a margin for the element's own size
+        return top > -height / 2 && top < height && left > -width / 2 && left < width;
+    }
+    
+    private static List<Component> renderedChildren(Component container) {
+        List<Component> rendered = new ArrayList<>();
+        for (Component child : container.getChildren()) {
+            if (child.getElement() != null && child.getElement().getParentNode() == container.getElement()) {
+                rendered.add(child);
+            }
+        }
+        return rendered;
+    }
+    
+    private static List<HTMLElement> elementsOf(List<Component> components) {
+        List<HTMLElement> elements = new ArrayList<>(components.size());
+        for (Component component : components) {
+            elements.add(component.getElement());
+        }
+        return elements;
+    }
+    
+    private static double[] readPositions(List<HTMLElement> elements) {
+        JSArray<HTMLElement> array = JSArray.create();
+        for (HTMLElement element : elements) {
+            array.push(element);
+        }
+        return readRects(array);
+    }
+    
+    // JavaScript interop methods
+    
+    @JSBody(params = {"elements"}, script =
+        "var result = new Array(elements.length * 2);" +
+        "for (var i = 0; i < elements.length; i++) {" +
+        "  var rect = elements[i].getBoundingClientRect();" +
+        "  result[2 * i] = rect.left;" +
+        "  result[2 * i + 1] = rect.top;" +
+        "}" +
+        "return result;")
+    private static native double[] readRects(JSArray<HTMLElement> elements);
+    
+    @JSBody(script = "return window.innerHeight;")
+    private static native double viewportHeight();
+    
+    @JSBody(script = "return window.innerWidth;")
+    private static native double viewportWidth();
+}
@@ -0,0 +1,73 @@
+package com.danielremsburg.jaffolding.ui;
+
+/**
+ * Something the {@link Animator} can play: a {@link Tween}, or a {@link Timeline} of them.
+ * Playing is done by seeking to the time elapsed since the start, so a timeline only has to map its
+ * time onto its children's.
+ */
+public abstract class Playable {
+    protected Runnable completeListener;
+    private boolean finished = false;
+    private boolean cancelled = false;
+    double startTime = -1; // Frame time the animator started this at, or -1 before the first frame
+    
+    /**
+     * @return The length in seconds, including any delay
+     */
+    public abstract double getDuration();
+    
+    /**
+     * Shows the state at a time.
+     * @param time Seconds since the start, from 0 to the duration
+     */
+    protected abstract void seek(double time);
+    
+    /**
+     * Prepares to play again from the start.
+     */
+    protected void reset() {
+        finished = false;
+        cancelled = false;
+    }
+    
+    /**
+     * Starts playing on the shared {@link Animator}, from the start.
+     */
+    public void play() {
+        Animator.shared().play(this);
+    }
+    
+    /**
+     * Stops where it is. The completion listener is not called.
+     */
+    public void cancel() {
+        cancelled = true;
+        Animator.shared().remove(this);
+    }
+    
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    /**
+     * Moves to a time, completing once the end is reached. Times before the start are ignored.
+     */
+    final void advance(double time) {
+        if (finished || cancelled || time < 0) {
+            return;
+        }
+        
+        double duration = getDuration();
+        seek(Math.min(time, duration));
+        if (time >= duration) {
+            finished = true;
+            if (completeListener != null) {
+                completeListener.run();
+            }
+        }
+    }
+}
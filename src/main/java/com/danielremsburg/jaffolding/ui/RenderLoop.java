@@ -0,0 +1,187 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * A per-frame callback, such as a WebGL render loop, that only runs while its component can be seen.
+ * All loops of the page share one animation frame callback. A loop pauses while {@link Visibility}
+ * reports its component hidden or while the component is scrolled out of the viewport, and no frame
+ * is requested while every loop is paused. A loop stops by itself once its component has been removed
+ * from the page, unless it is in a suspended window, which may be added back.
+ */
+public final class RenderLoop {
+    private static final List<RenderLoop> loops = new ArrayList<>();
+    private static final FrameCallback frameCallback = RenderLoop::frame;
+    private static final Runnable visibilityListener = RenderLoop::updatePaused;
+    private static boolean frameScheduled = false;
+    private static JSObject intersectionObserver;
+
+    private final Component owner;
+    private final DoubleConsumer callback;
+    private HTMLElement observed;
+    private boolean wasConnected = false;
+    private boolean paused = false;
+
+    private RenderLoop(Component owner, DoubleConsumer callback) {
+        this.owner = owner;
+        this.callback = callback;
+    }
+
+    /**
+     * Starts calling a callback every frame while a component can be seen.
+     * @param owner The component the callback draws into
+     * @param callback Called with the frame's timestamp in milliseconds
+     */
+    public static RenderLoop start(Component owner, DoubleConsumer callback) {
+        if (loops.isEmpty()) {
+            Visibility.addListener(visibilityListener);
+        }
+        RenderLoop loop = new RenderLoop(owner, callback);
+        loops.add(loop);
+        loop.paused = loop.isHidden();
+        scheduleFrame();
+        return loop;
+    }
+
+    public void stop() {
+        if (loops.remove(this) && observed != null) {
+            unobserve(intersectionObserver, observed);
+            observed = null;
+        }
+        if (loops.isEmpty()) {
+            Visibility.removeListener(visibilityListener);
+        }
+    }
+
+    public boolean isRunning() {
+        return loops.contains(this);
+    }
+
+    /**
+     * @return True if the loop is running but its component cannot be seen
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * @return The number of loops running, paused or not
+     */
+    public static int getLoopCount() {
+        return loops.size();
+    }
+
+    private boolean isHidden() {
+        HTMLElement element = owner.getElement();
+        return Visibility.isHidden(owner) || (element != null && isOffscreen(element));
+    }
+
+    private boolean isRemoved(HTMLElement element) {
+        return wasConnected && element != null && !isConnected(element) && !Visibility.isHidden(owner);
+    }
+
+    private static void updatePaused() {
+        for (RenderLoop loop : new ArrayList<>(loops)) {
+            HTMLElement element = loop.owner.getElement();
+            if (loop.isRemoved(element)) {
+                // Paused loops get no frames, so removal is also noticed here
+                loop.stop();
+            } else {
+                loop.paused = loop.isHidden();
+            }
+        }
+        scheduleFrame();
+    }
+
+    private static void scheduleFrame() {
+        if (frameScheduled) {
+            return;
+        }
+        for (RenderLoop loop : loops) {
+            if (!loop.paused) {
+                frameScheduled = true;
+                requestAnimationFrame(frameCallback);
+                return;
+            }
+        }
+    }
+
+    private static void frame(double time) {
+        frameScheduled = false;
+
+        for (RenderLoop loop : new ArrayList<>(loops)) {
+            HTMLElement element = loop.owner.getElement();
+            if (element == null) {
+                // Not rendered yet; the loop keeps waiting
+                continue;
+            }
+
+            if (!isConnected(element)) {
+                if (loop.isRemoved(element)) {
+                    loop.stop();
+                }
+                continue;
+            }
+            loop.wasConnected = true;
+
+            if (loop.observed != element) {
+                if (intersectionObserver == null) {
+                    intersectionObserver = createIntersectionObserver(visibilityListener);
+                }
+                if (loop.observed != null) {
+                    unobserve(intersectionObserver, loop.observed);
+                }
+                loop.observed = element;
+                observe(intersectionObserver, element);
+            }
+
+            if (!loop.paused) {
+                loop.callback.accept(time);
+            }
+        }
+
+        scheduleFrame();
+    }
+
+    @JSFunctor
+    interface FrameCallback extends JSObject {
+        void onFrame(double time);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(callback);")
+    private static native void requestAnimationFrame(FrameCallback callback);
+
+    @JSBody(params = {"element"}, script = "return element.isConnected !== false;")
+    private static native boolean isConnected(HTMLElement element);
+
+    @JSBody(params = {"element"}, script = "return element.__jaffoldingOffscreen === true;")
+    private static native boolean isOffscreen(HTMLElement element);
+
+    @JSBody(params = {"callback"}, script =
+        "if (typeof IntersectionObserver === 'undefined') return null;" +
+        "return new IntersectionObserver(function(entries) {" +
+        "  for (var i = 0; i < entries.length; i++) {" +
+        "    entries[i].target.__jaffoldingOffscreen = !entries[i].isIntersecting;" +
+        "  }" +
+        "  callback();" +
+        "});")
+    private static native JSObject createIntersectionObserver(Runnable callback);
+
+    @JSBody(params = {"observer", "element"}, script = "if (observer) observer.observe(element);")
+    private static native void observe(JSObject observer, HTMLElement element);
+
+    @JSBody(params = {"observer", "element"}, script =
+        "if (observer) { observer.unobserve(element); delete element.__jaffoldingOffscreen; }")
+    private static native void unobserve(JSObject observer, HTMLElement element);
+}
@@ -0,0 +1,71 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Plays {@link Tween}s and other timelines one after another or all at once.
+ * A timeline is driven by the shared animation frame like a single tween, whatever it contains.
+ */
+public class Timeline extends Playable {
+    private final boolean parallel;
+    private final List<Playable> children = new ArrayList<>();
+    
+    private Timeline(boolean parallel, List<Playable> children) {
+        this.parallel = parallel;
+        this.children.addAll(children);
+    }
+    
+    /**
+     * Creates a timeline that plays each item after the previous one ends.
+     */
+    public static Timeline sequence(Playable... items) {
+        return new Timeline(false, Arrays.asList(items));
+    }
+    
+    /**
+     * Creates a timeline that plays all items at once, ending with the longest.
+     */
+    public static Timeline parallel(Playable... items) {
+        return new Timeline(true, Arrays.asList(items));
+    }
+    
+    public Timeline add(Playable item) {
+        children.add(item);
+        return this;
+    }
+    
+    public Timeline setOnComplete(Runnable listener) {
+        this.completeListener = listener;
+        return this;
+    }
+    
+    @Override
+    public double getDuration() {
+        double duration = 0;
+        for (Playable child : children) {
+            duration = parallel ? Math.max(duration, child.getDuration()) : duration + child.getDuration();
+        }
+        return duration;
+    }
+    
+    @Override
+    protected void reset() {
+        super.reset();
+        for (Playable child : children) {
+            child.reset();
+        }
+    }
+    
+    @Override
+    protected void seek(double time) {
+        double offset = 0;
+        for (Playable child : children) {
+            child.advance(time - offset);
+            if (!parallel) {
+                offset += child.getDuration();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * Animates an element's translation, scale, rotation and opacity, the properties the browser can
+ * animate without layout or paint. Values without an explicit start continue from where the last
+ * animation of the element left them.
+ */
+public class Tween extends Playable {
+    
+    /**
+     * Animatable properties: translation in pixels, scale factor, rotation in degrees, and opacity.
+     */
+    public enum Property {
+        X, Y, SCALE, ROTATE, OPACITY
+    }
+    
+    private final HTMLElement element;
+    private final List<Target> targets = new ArrayList<>();
+    private double duration = 0.3;
+    private double delay = 0;
+    private Easing easing = Easing.EASE;
+    private boolean started = false;
+    
+    public Tween(HTMLElement element) {
+        this.element = element;
+    }
+    
+    /**
+     * Creates a tween for a rendered component.
+     */
+    public static Tween of(Component component) {
+        if (component.getElement() == null) {
+            throw new IllegalStateException("Component is not rendered");
+        }
+        return new Tween(component.getElement());
+    }
+    
+    /**
+     * Animates a property from its current value.
+     */
+    public Tween to(Property property, double value) {
+        targets.add(new Target(property, Double.NaN, value));
+        return this;
+    }
+    
+    public Tween fromTo(Property property, double from, double to) {
+        targets.add(new Target(property, from, to));
+        return this;
+    }
+    
+    /**
+     * @param seconds The time from start to end, excluding the delay
+     */
+    public Tween setDuration(double seconds) {
+        this.duration = seconds;
+        return this;
+    }
+    
+    public Tween setDelay(double seconds) {
+        this.delay = seconds;
+        return this;
+    }
+    
+    public Tween setEasing(Easing easing) {
+        this.easing = easing;
+        return this;
+    }
+    
+    public Tween setOnComplete(Runnable listener) {
+        this.completeListener = listener;
+        return this;
+    }
+    
+    public HTMLElement getElement() {
+        return element;
+    }
+    
+    @Override
+    public double getDuration() {
+        return delay + duration;
+    }
+    
+    /**
+     * @return True if both tweens animate a property of the same element
+     */
+    boolean overlaps(Tween other) {
+        if (other.element != element) {
+            return false;
+        }
+        for (Target target : targets) {
+            for (Target otherTarget : other.targets) {
+                if (target.property == otherTarget.property) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    protected void reset() {
+        super.reset();
+        started = false;
+    }
+    
+    @Override
+    protected void seek(double time) {
+        if (time < delay) {
+            return;
+        }
+        
+        Animator.MotionState state = Animator.stateOf(element);
+        if (!started) {
+            // Start values are read when the tween starts, so sequences continue from each other
+            started = true;
+            for (Target target : targets) {
+                target.start = Double.isNaN(target.from) ? get(state, target.property) : target.from;
+            }
+        }
+        
+        double progress = duration > 0 ? Math.min(1, (time - delay) / duration) : 1;
+        double eased = easing.apply(progress);
+        for (Target target : targets) {
+            set(state, target.property, target.start + (target.end - target.start) * eased);
+        }
+        Animator.shared().markDirty(element, state);
+    }
+    
+    private static double get(Animator.MotionState state, Property property) {
+        switch (property) {
+            case X: return state.getX();
+            case Y: return state.getY();
+            case SCALE: return state.getScale();
+            case ROTATE: return state.getRotate();
+            default: return state.getOpacity();
+        }
+    }
+    
+    private static void set(Animator.MotionState state, Property property, double value) {
+        switch (property) {
+            case X: state.setX(value); break;
+            case Y: state.setY(value); break;
+            case SCALE: state.setScale(value); break;
+            case ROTATE: state.setRotate(value); break;
+            default:
+                state.setOpacity(value);
+                state.setOpacityUsed(true);
+                return;
+        }
+        state.setTransformUsed(true);
+    }
+    
+    private static class Target {
+        final Property property;
+        final double from;
+        final double end;
+        double start;
+        
+        Target(Property property, double from, double end) {
+            this.property = property;
+            this.from = from;
+            this.end = end;
+        }
+    }
+}
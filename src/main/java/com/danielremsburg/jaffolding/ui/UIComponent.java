@@ -11,6 +11,7 @@ public class UIComponent extends Component {
     private Layout layout;
     private boolean enabled = true;
     private boolean visible = true;
+    private boolean animateLayout = false;
     
     public UIComponent(String tagName) {
         super(tagName);
@@ -30,29 +31,58 @@ public class UIComponent extends Component {
         return layout;
     }
     
+    /**
+     * Animates children to their new positions when children are added or removed after rendering.
+     */
+    public UIComponent setAnimateLayout(boolean animateLayout) {
+        this.animateLayout = animateLayout;
+        return this;
+    }
+    
     @Override
     public UIComponent addChild(Component child) {
-        super.addChild(child);
-        
-        // If we have a layout, let it handle the child positioning
-        if (layout != null && getElement() != null) {
-            layout.addLayoutComponent(child);
-        }
-        
+        changeChildren(() -> {
+            super.addChild(child);
+            
+            // If we have a layout, let it handle the child positioning
+            if (layout != null && getElement() != null) {
+                layout.addLayoutComponent(child);
+            }
+        });
         return this;
     }
     
     public UIComponent addChild(Component child, Object constraints) {
-        super.addChild(child);
-        
-        // If we have a layout, let it handle the child positioning with constraints
-        if (layout != null && getElement() != null) {
-            layout.addLayoutComponent(child, constraints);
-        }
-        
+        changeChildren(() -> {
+            super.addChild(child);
+            
+            // If we have a layout, let it handle the child positioning with constraints
+            if (layout != null && getElement() != null) {
+                layout.addLayoutComponent(child, constraints);
+            }
+        });
         return this;
     }
     
+    @Override
+    public UIComponent removeChild(Component child) {
+        changeChildren(() -> {
+            super.removeChild(child);
+            if (layout != null) {
+                layout.removeLayoutComponent(child);
+            }
+        });
+        return this;
+    }
+    
+    private void changeChildren(Runnable change) {
+        if (animateLayout && getElement() != null) {
+            Flip.animate(this, change);
+        } else {
+            change.run();
+        }
+    }
+    
     public boolean isEnabled() {
         return enabled;
     }
@@ -0,0 +1,145 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * Tells whether a component can be seen, and holds back updates to components that cannot.
+ * A component is hidden while the browser tab is hidden or while it is inside a suspended
+ * {@link Window}, which its {@link WindowManager} does for windows that are minimized, covered by
+ * another window or outside their container. Deferred updates are kept by key, so only the latest
+ * update for a key runs, once its component can be seen again.
+ */
+public final class Visibility {
+    static final String SUSPENDED_ATTRIBUTE = "data-jaffolding-suspended";
+
+    private static final Map<Object, Deferred> deferred = new LinkedHashMap<>();
+    private static final List<Runnable> listeners = new ArrayList<>();
+    private static boolean installed = false;
+
+    private Visibility() {
+    }
+
+    /**
+     * @return True if the tab is hidden or the component is in a suspended window; components not
+     * rendered yet count as visible
+     */
+    public static boolean isHidden(Component owner) {
+        install();
+        if (isDocumentHidden()) {
+            return true;
+        }
+        HTMLElement element = owner.getElement();
+        return element != null && isInSuspendedWindow(element, SUSPENDED_ATTRIBUTE);
+    }
+
+    /**
+     * Runs an update now if its component can be seen, or else when it can, replacing any update
+     * deferred under the same key.
+     * @param owner The component the update changes
+     * @param key Identifies the update, compared with equals
+     * @param update The update
+     */
+    public static void defer(Component owner, Object key, Runnable update) {
+        if (isHidden(owner)) {
+            deferred.put(key, new Deferred(owner, update));
+        } else {
+            deferred.remove(key);
+            update.run();
+        }
+    }
+
+    /**
+     * @return The number of updates waiting for their component to be seen
+     */
+    public static int getDeferredCount() {
+        return deferred.size();
+    }
+
+    /**
+     * Adds a listener called whenever what can be seen may have changed.
+     */
+    public static void addListener(Runnable listener) {
+        install();
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs the deferred updates of components that can be seen again and tells the listeners.
+     * Updates of components that were removed from the page are dropped.
+     */
+    public static void refresh() {
+        if (!deferred.isEmpty()) {
+            List<Object> due = new ArrayList<>();
+            for (Map.Entry<Object, Deferred> entry : deferred.entrySet()) {
+                Component owner = entry.getValue().owner;
+                HTMLElement element = owner.getElement();
+                if (element != null && !isConnected(element)) {
+                    // Dropped, unless it is in a window kept out of the page to be added again
+                    if (!isInSuspendedWindow(element, SUSPENDED_ATTRIBUTE)) {
+                        due.add(entry.getKey());
+                    }
+                } else if (!isHidden(owner)) {
+                    due.add(entry.getKey());
+                }
+            }
+
+            // Updates may defer again, so each is taken out before it runs
+            for (Object key : due) {
+                Deferred update = deferred.remove(key);
+                HTMLElement element = update.owner.getElement();
+                if (element == null || isConnected(element)) {
+                    update.update.run();
+                }
+            }
+        }
+
+        for (Runnable listener : new ArrayList<>(listeners)) {
+            listener.run();
+        }
+    }
+
+    private static void install() {
+        if (!installed) {
+            installed = true;
+            addVisibilityChangeListener(Visibility::refresh);
+        }
+    }
+
+    private static class Deferred {
+        final Component owner;
+        final Runnable update;
+
+        Deferred(Component owner, Runnable update) {
+            this.owner = owner;
+            this.update = update;
+        }
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(script = "return document.hidden === true;")
+    private static native boolean isDocumentHidden();
+
+    @JSBody(params = {"element", "attribute"}, script =
+        "return !!(element.closest && element.closest('[' + attribute + ']'));")
+    private static native boolean isInSuspendedWindow(HTMLElement element, String attribute);
+
+    @JSBody(params = {"element"}, script = "return element.isConnected !== false;")
+    private static native boolean isConnected(HTMLElement element);
+
+    @JSBody(params = {"callback"}, script =
+        "document.addEventListener('visibilitychange', function() { callback(); });")
+    private static native void addVisibilityChangeListener(Runnable callback);
+}
@@ -1,16 +1,18 @@
 package com.danielremsburg.jaffolding.ui;
 
-import org.teavm.jso.browser.Window;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
 import org.teavm.jso.dom.html.HTMLDocument;
 import org.teavm.jso.dom.html.HTMLElement;
 import org.teavm.jso.dom.events.Event;
-import org.teavm.jso.dom.events.EventListener;
 import org.teavm.jso.dom.events.MouseEvent;
 
 import com.danielremsburg.jaffolding.Component;
 
 /**
  * A draggable, resizable, closeable, minimizable, maximizable window component.
+ * Stacking, focus and pointer gestures are handled by the {@link WindowManager} of its container.
  */
 public class Window extends Component {
     private String title;
@@ -23,15 +25,20 @@ public class Window extends Component {
     
     private boolean isDragging = false;
     private boolean isResizing = false;
-    private double dragOffsetX = 0;
-    private double dragOffsetY = 0;
-    private double resizeStartX = 0;
-    private double resizeStartY = 0;
+    private double gestureStartX = 0;
+    private double gestureStartY = 0;
+    private double pointerX = 0;
+    private double pointerY = 0;
+    private double initialLeft = 0;
+    private double initialTop = 0;
     private double initialWidth = 0;
     private double initialHeight = 0;
+    private double maxLeft = 0;
+    private double maxTop = 0;
     
     private boolean isMinimized = false;
     private boolean isMaximized = false;
+    private boolean suspended = false;
     private double savedX = 0;
     private double savedY = 0;
     private double savedWidth = 0;
@@ -40,6 +47,9 @@ public class Window extends Component {
     private Component titleBar;
     private Component contentArea;
     private Component resizeHandle;
+    private WindowManager manager;
+    private Consumer<Window> closeHandler;
+    private Consumer<Window> focusListener;
     
     public Window(String title, Component content) {
         super("div");
@@ -96,7 +106,11 @@ public class Window extends Component {
                    .setStyle("font-size", "14px")
                    .setStyle("cursor", "pointer")
                    .addEventListener("click", e -> {
-                       toggleMinimize();
+                       if (isMinimized) {
+                           restore();
+                       } else {
+                           minimize();
+                       }
                        e.stopPropagation();
                    });
             
@@ -118,7 +132,11 @@ public class Window extends Component {
                    .setStyle("font-size", "10px")
                    .setStyle("cursor", "pointer")
                    .addEventListener("click", e -> {
-                       toggleMaximize();
+                       if (manager != null) {
+                           manager.toggleMaximize(this);
+                       } else {
+                           applyMaximized(!isMaximized);
+                       }
                        e.stopPropagation();
                    });
             
@@ -176,149 +194,336 @@ public class Window extends Component {
         addChild(titleBar);
         addChild(contentArea);
         
-        // Set up drag functionality
+        // Press, drag and resize events are handled by the window manager of the container
         if (draggable) {
-            titleBar.addEventListener("mousedown", e -> {
-                startDrag((MouseEvent)e);
-                e.stopPropagation();
-            });
+            titleBar.setStyle("touch-action", "none");
         }
-        
-        // Set up resize functionality
         if (resizable) {
-            resizeHandle.addEventListener("mousedown", e -> {
-                startResize((MouseEvent)e);
-                e.stopPropagation();
-            });
+            resizeHandle.setStyle("touch-action", "none");
         }
-        
-        // Global mouse events for drag and resize
-        HTMLDocument.current().addEventListener("mousemove", new EventListener<MouseEvent>() {
-            @Override
-            public void handleEvent(MouseEvent e) {
-                if (isDragging) {
-                    drag(e);
-                } else if (isResizing) {
-                    resize(e);
-                }
-            }
-        });
-        
-        HTMLDocument.current().addEventListener("mouseup", new EventListener<Event>() {
-            @Override
-            public void handleEvent(Event e) {
-                isDragging = false;
-                isResizing = false;
-                if (getElement() != null) {
-                    getElement().getStyle().setProperty("transition", "box-shadow 0.2s ease");
-                }
-            }
-        });
-        
-        // Focus handling
-        addEventListener("mousedown", e -> {
-            bringToFront();
-        });
     }
     
-    private void startDrag(MouseEvent e) {
-        if (isMaximized) return;
-        
-        isDragging = true;
-        
+    @Override
+    public HTMLElement render(HTMLElement parent) {
+        HTMLElement element = super.render(parent);
+        if (manager == null) {
+            WindowManager.forContainer(parent).register(this);
+        }
+        return element;
+    }
+    
+    @Override
+    protected void onUnmount() {
+        if (manager != null) {
+            manager.unregister(this);
+        }
+    }
+    
+    WindowManager getManager() {
+        return manager;
+    }
+    
+    void setManager(WindowManager manager) {
+        this.manager = manager;
+    }
+    
+    /**
+     * Marks the window as the focused one of its manager.
+     */
+    void setActive(boolean active) {
+        setStyle("box-shadow", active ? "0 8px 30px rgba(0, 0, 0, 0.25)" : "0 4px 20px rgba(0, 0, 0, 0.15)");
+        if (active && focusListener != null) {
+            focusListener.accept(this);
+        }
+    }
+    
+    /**
+     * Sets a listener called when the window becomes the active window of its manager.
+     */
+    public Window setOnFocus(Consumer<Window> listener) {
+        this.focusListener = listener;
+        return this;
+    }
+    
+    public Component getContent() {
+        return content;
+    }
+    
+    /**
+     * Replaces the content, unmounting the old content.
+     */
+    public Window setContent(Component content) {
+        contentArea.removeChild(this.content);
+        this.content = content;
+        contentArea.addChild(content);
+        return this;
+    }
+    
+    /**
+     * @return The left, top, width and height the window has when neither minimized nor maximized
+     */
+    public double[] getRestoredBounds() {
         HTMLElement element = getElement();
-        if (element != null) {
-            element.getStyle().setProperty("transition", "none");
-            
-            // Calculate the offset from the mouse position to the window's top-left corner
-            dragOffsetX = e.getClientX() - element.getBoundingClientRect().getLeft();
-            dragOffsetY = e.getClientY() - element.getBoundingClientRect().getTop();
+        if (element == null) {
+            return null;
+        }
+        if (isMaximized) {
+            return new double[] {savedX, savedY, savedWidth, savedHeight};
         }
+        return new double[] {
+            element.getOffsetLeft(),
+            element.getOffsetTop(),
+            element.getOffsetWidth(),
+            isMinimized ? savedHeight : element.getOffsetHeight()
+        };
     }
     
-    private void drag(MouseEvent e) {
-        if (!isDragging) return;
+    /**
+     * Stops or resumes rendering the content, which the window manager does while the window cannot
+     * be seen. Suspended content is skipped by layout and paint, and {@link Visibility} holds back
+     * updates and {@link RenderLoop}s inside it.
+     */
+    void setSuspended(boolean suspended) {
+        if (this.suspended == suspended) return;
+        this.suspended = suspended;
         
         HTMLElement element = getElement();
         if (element != null) {
-            double newX = e.getClientX() - dragOffsetX;
-            double newY = e.getClientY() - dragOffsetY;
-            
-            // Ensure the window stays within the viewport
-            Window browserWindow = org.teavm.jso.browser.Window.current();
-            newX = Math.max(0, Math.min(newX, browserWindow.getInnerWidth() - element.getBoundingClientRect().getWidth()));
-            newY = Math.max(0, Math.min(newY, browserWindow.getInnerHeight() - element.getBoundingClientRect().getHeight()));
-            
-            element.getStyle().setProperty("left", newX + "px");
-            element.getStyle().setProperty("top", newY + "px");
+            if (suspended) {
+                element.setAttribute(Visibility.SUSPENDED_ATTRIBUTE, "");
+            } else {
+                element.removeAttribute(Visibility.SUSPENDED_ATTRIBUTE);
+            }
         }
+        contentArea.setStyle("content-visibility", suspended ? "hidden" : "visible");
+    }
+    
+    /**
+     * @return True if the window's content is not being rendered because it cannot be seen
+     */
+    public boolean isSuspended() {
+        return suspended;
+    }
+    
+    boolean isDragHandle(Event e) {
+        return draggable && titleBar.getElement() != null && containsTarget(titleBar.getElement(), e);
+    }
+    
+    boolean isResizeHandle(Event e) {
+        return resizable && resizeHandle != null && resizeHandle.getElement() != null
+                && containsTarget(resizeHandle.getElement(), e);
+    }
+    
+    /**
+     * Starts moving the window. The committed position is read once; during the gesture the window is
+     * only translated, which the compositor can do without layout.
+     * @return False if the window cannot be moved now
+     */
+    boolean startDrag(MouseEvent e) {
+        if (isMaximized || getElement() == null) return false;
+        
+        HTMLElement element = getElement();
+        beginGesture(e);
+        isDragging = true;
+        
+        // Keep the window within the viewport, using sizes read now rather than on every move
+        org.teavm.jso.browser.Window browserWindow = org.teavm.jso.browser.Window.current();
+        maxLeft = Math.max(initialLeft, browserWindow.getInnerWidth() - element.getOffsetWidth());
+        maxTop = Math.max(initialTop, browserWindow.getInnerHeight() - element.getOffsetHeight());
+        element.getStyle().setProperty("will-change", "transform");
+        return true;
     }
     
-    private void startResize(MouseEvent e) {
-        if (isMaximized) return;
+    /**
+     * Starts resizing the window. Size changes need layout, so they are applied at most once per frame.
+     * @return False if the window cannot be resized now
+     */
+    boolean startResize(MouseEvent e) {
+        if (isMaximized || isMinimized || getElement() == null) return false;
         
+        beginGesture(e);
         isResizing = true;
+        return true;
+    }
+    
+    private void beginGesture(MouseEvent e) {
+        HTMLElement element = getElement();
+        element.getStyle().setProperty("transition", "none");
         
+        gestureStartX = e.getClientX();
+        gestureStartY = e.getClientY();
+        pointerX = gestureStartX;
+        pointerY = gestureStartY;
+        initialLeft = element.getOffsetLeft();
+        initialTop = element.getOffsetTop();
+        initialWidth = element.getOffsetWidth();
+        initialHeight = element.getOffsetHeight();
+    }
+    
+    void movePointer(double x, double y) {
+        pointerX = x;
+        pointerY = y;
+    }
+    
+    /**
+     * Applies the latest pointer position of the gesture.
+     */
+    void applyGesture() {
         HTMLElement element = getElement();
-        if (element != null) {
-            element.getStyle().setProperty("transition", "none");
-            
-            resizeStartX = e.getClientX();
-            resizeStartY = e.getClientY();
-            initialWidth = element.getBoundingClientRect().getWidth();
-            initialHeight = element.getBoundingClientRect().getHeight();
+        if (element == null) return;
+        
+        if (isDragging) {
+            double[] offset = dragOffset();
+            element.getStyle().setProperty("transform",
+                    "translate3d(" + offset[0] + "px, " + offset[1] + "px, 0)");
+        } else if (isResizing) {
+            element.getStyle().setProperty("width", resizedWidth() + "px");
+            element.getStyle().setProperty("height", resizedHeight() + "px");
         }
     }
     
-    private void resize(MouseEvent e) {
-        if (!isResizing) return;
+    /**
+     * Ends the gesture, moving the translation into the window's position.
+     */
+    void endGesture() {
+        if (!(isDragging || isResizing)) return;
         
         HTMLElement element = getElement();
         if (element != null) {
-            double deltaX = e.getClientX() - resizeStartX;
-            double deltaY = e.getClientY() - resizeStartY;
-            
-            double newWidth = Math.max(200, initialWidth + deltaX);
-            double newHeight = Math.max(150, initialHeight + deltaY);
-            
-            element.getStyle().setProperty("width", newWidth + "px");
-            element.getStyle().setProperty("height", newHeight + "px");
+            if (isDragging) {
+                double[] offset = dragOffset();
+                element.getStyle().setProperty("left", (initialLeft + offset[0]) + "px");
+                element.getStyle().setProperty("top", (initialTop + offset[1]) + "px");
+                element.getStyle().removeProperty("transform");
+                element.getStyle().removeProperty("will-change");
+            } else {
+                element.getStyle().setProperty("width", resizedWidth() + "px");
+                element.getStyle().setProperty("height", resizedHeight() + "px");
+            }
+            element.getStyle().setProperty("transition", "box-shadow 0.2s ease");
+        }
+        
+        isDragging = false;
+        isResizing = false;
+    }
+    
+    private double[] dragOffset() {
+        double left = Math.max(0, Math.min(initialLeft + pointerX - gestureStartX, maxLeft));
+        double top = Math.max(0, Math.min(initialTop + pointerY - gestureStartY, maxTop));
+        return new double[] {left - initialLeft, top - initialTop};
+    }
+    
+    private double resizedWidth() {
+        return Math.max(200, initialWidth + pointerX - gestureStartX);
+    }
+    
+    private double resizedHeight() {
+        return Math.max(150, initialHeight + pointerY - gestureStartY);
+    }
+    
+    /**
+     * Raises the window and makes it the active one.
+     */
+    public Window focus() {
+        if (manager != null) {
+            manager.focus(this);
+        }
+        return this;
+    }
+    
+    public Window minimize() {
+        if (manager != null) {
+            manager.minimize(this);
+        } else {
+            applyMinimized(true);
+        }
+        return this;
+    }
+    
+    public Window maximize() {
+        if (manager != null) {
+            manager.maximize(this);
+        } else {
+            applyMaximized(true);
+        }
+        return this;
+    }
+    
+    /**
+     * Restores the window from being minimized, or else from being maximized.
+     */
+    public Window restore() {
+        if (manager != null) {
+            manager.restore(this);
+        } else if (isMinimized) {
+            applyMinimized(false);
+        } else {
+            applyMaximized(false);
+        }
+        return this;
+    }
+    
+    /**
+     * Replaces what closing the window does; the handler decides whether to remove the window.
+     */
+    public Window setCloseHandler(Consumer<Window> handler) {
+        this.closeHandler = handler;
+        return this;
+    }
+    
+    public void close() {
+        if (closeHandler != null) {
+            closeHandler.accept(this);
+        } else if (manager != null) {
+            manager.close(this);
+        } else {
+            removeFromParent();
         }
     }
     
-    private void toggleMinimize() {
-        isMinimized = !isMinimized;
+    public boolean isMinimized() {
+        return isMinimized;
+    }
+    
+    public boolean isMaximized() {
+        return isMaximized;
+    }
+    
+    void applyMinimized(boolean minimized) {
+        if (isMinimized == minimized) return;
+        isMinimized = minimized;
         
         HTMLElement element = getElement();
         if (element != null) {
             if (isMinimized) {
-                savedHeight = element.getBoundingClientRect().getHeight();
-                contentArea.getElement().style.setProperty("display", "none");
+                savedHeight = element.getOffsetHeight();
+                contentArea.getElement().getStyle().setProperty("display", "none");
                 if (resizeHandle != null) {
-                    resizeHandle.getElement().style.setProperty("display", "none");
+                    resizeHandle.getElement().getStyle().setProperty("display", "none");
                 }
                 element.getStyle().setProperty("height", "auto");
             } else {
-                contentArea.getElement().style.setProperty("display", "block");
+                contentArea.getElement().getStyle().setProperty("display", "block");
                 if (resizeHandle != null) {
-                    resizeHandle.getElement().style.setProperty("display", "block");
+                    resizeHandle.getElement().getStyle().setProperty("display", "block");
                 }
                 element.getStyle().setProperty("height", savedHeight + "px");
             }
         }
     }
     
-    private void toggleMaximize() {
-        isMaximized = !isMaximized;
+    void applyMaximized(boolean maximized) {
+        if (isMaximized == maximized) return;
+        isMaximized = maximized;
         
         HTMLElement element = getElement();
         if (element != null) {
             if (isMaximized) {
-                // Save current position and size
-                savedX = element.getBoundingClientRect().getLeft();
-                savedY = element.getBoundingClientRect().getTop();
-                savedWidth = element.getBoundingClientRect().getWidth();
-                savedHeight = element.getBoundingClientRect().getHeight();
+                // Save current position and size, relative to the container like left and top
+                savedX = element.getOffsetLeft();
+                savedY = element.getOffsetTop();
+                savedWidth = element.getOffsetWidth();
+                savedHeight = element.getOffsetHeight();
                 
                 // Maximize
                 element.getStyle().setProperty("top", "0");
@@ -337,38 +542,6 @@ public class Window extends Component {
         }
     }
     
-    private void close() {
-        if (getElement() != null && getElement().getParentNode() != null) {
-            getElement().getParentNode().removeChild(getElement());
-        }
-    }
-    
-    private void bringToFront() {
-        if (getElement() != null) {
-            // Find the highest z-index among siblings
-            HTMLElement parent = (HTMLElement) getElement().getParentNode();
-            int highestZIndex = 0;
-            
-            for (int i = 0; i < parent.getChildNodes().getLength(); i++) {
-                if (parent.getChildNodes().item(i) instanceof HTMLElement) {
-                    HTMLElement sibling = (HTMLElement) parent.getChildNodes().item(i);
-                    String zIndexStr = sibling.getStyle().getPropertyValue("z-index");
-                    if (zIndexStr != null && !zIndexStr.isEmpty()) {
-                        try {
-                            int zIndex = Integer.parseInt(zIndexStr);
-                            highestZIndex = Math.max(highestZIndex, zIndex);
-                        } catch (NumberFormatException ex) {
-                            // Ignore parsing errors
-                        }
-                    }
-                }
-            }
-            
-            // Set this window's z-index to be higher
-            getElement().getStyle().setProperty("z-index", String.valueOf(highestZIndex + 1));
-        }
-    }
-    
     public Window setPosition(int x, int y) {
         setStyle("left", x + "px");
         setStyle("top", y + "px");
@@ -396,4 +569,9 @@ public class Window extends Component {
         }
         return this;
     }
-}
\ No newline at end of file
+    
+    // JavaScript interop methods
+    
+    @JSBody(params = {"element", "event"}, script = "return element.contains(event.target);")
+    private static native boolean containsTarget(HTMLElement element, Event event);
+}
@@ -0,0 +1,553 @@
+package com.danielremsburg.jaffolding.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.dom.events.Event;
+import org.teavm.jso.dom.events.EventListener;
+import org.teavm.jso.dom.events.MouseEvent;
+import org.teavm.jso.dom.html.HTMLElement;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * Stacks, focuses and moves the windows of one container.
+ * The container carries the only pointer listeners: a press inside a window focuses it and, on its title
+ * bar or resize handle, starts a gesture whose pointer is captured by the container, so moves are routed
+ * to that window however many windows are open. Windows are kept in a stack, bottom first, and each
+ * window's z-index is its place in the stack, so z-indexes stay between {@code baseZIndex} and
+ * {@code baseZIndex} plus the number of windows.
+ * <p>
+ * After anything that may change what can be seen, the manager suspends the windows that are
+ * minimized, entirely covered by a window above them or outside the container, once per frame.
+ * While a window is being moved or resized, covered windows are resumed, since they may come into view.
+ */
+public class WindowManager {
+    private static final String[] POINTER_EVENTS = {
+        "pointerdown", "pointermove", "pointerup", "pointercancel", "lostpointercapture"
+    };
+    private static final List<WindowManager> containerManagers = new ArrayList<>();
+
+    private final List<Window> stack = new ArrayList<>();
+    private Component containerComponent;
+    private HTMLElement containerElement;
+    private int baseZIndex = 1;
+    private Window activeWindow;
+    private Consumer<Window> closeListener;
+    private Consumer<Window> changeListener;
+    private EventListener<Event> pointerListener;
+    private JSObject resizeListener;
+    private boolean shared = false;
+
+    private Window gestureWindow;
+    private int gesturePointer = -1;
+    private boolean frameScheduled = false;
+    private boolean visibilityScheduled = false;
+
+    /**
+     * Manages windows added to a component, listening on its element once it is rendered.
+     */
+    public WindowManager(Component container) {
+        this.containerComponent = container;
+        for (String type : POINTER_EVENTS) {
+            container.addEventListener(type, this::handlePointerEvent);
+        }
+    }
+
+    /**
+     * Manages windows added to an element.
+     */
+    public WindowManager(HTMLElement container) {
+        this.containerElement = container;
+        this.pointerListener = new EventListener<Event>() {
+            @Override
+            public void handleEvent(Event event) {
+                handlePointerEvent(event);
+            }
+        };
+        for (String type : POINTER_EVENTS) {
+            container.addEventListener(type, pointerListener);
+        }
+    }
+
+    /**
+     * Finds the manager of an element, creating one the first time windows are rendered into it.
+     * Windows rendered without being registered use this, so their container still has a single set
+     * of listeners. The manager lets go of the element, and its listeners, when its last window is removed,
+     * and takes it back if windows are registered with it again.
+     */
+    public static WindowManager forContainer(HTMLElement container) {
+        for (WindowManager manager : containerManagers) {
+            if (isSame(manager.getContainer(), container)) {
+                return manager;
+            }
+        }
+        WindowManager manager = new WindowManager(container);
+        manager.shared = true;
+        containerManagers.add(manager);
+        return manager;
+    }
+
+    /**
+     * Sets the z-index of the bottom window; the others follow one apart.
+     */
+    public WindowManager setBaseZIndex(int baseZIndex) {
+        this.baseZIndex = baseZIndex;
+        restack(0);
+        return this;
+    }
+
+    /**
+     * Sets a listener called after a window is closed.
+     */
+    public WindowManager setOnClose(Consumer<Window> listener) {
+        this.closeListener = listener;
+        return this;
+    }
+
+    /**
+     * Sets a listener called with a window after it is added, removed, raised, moved, resized,
+     * minimized, maximized or restored.
+     */
+    public WindowManager setOnChange(Consumer<Window> listener) {
+        this.changeListener = listener;
+        return this;
+    }
+
+    /**
+     * Puts a window on top of the stack, taking it from any manager it belonged to.
+     * The window is not rendered; add it to the container as usual.
+     */
+    public WindowManager register(Window window) {
+        if (window.getManager() != null && window.getManager() != this) {
+            window.getManager().unregister(window);
+        }
+        window.setManager(this);
+        if (!stack.contains(window)) {
+            if (stack.isEmpty()) {
+                listen();
+            }
+            stack.add(window);
+        }
+        focus(window);
+        scheduleVisibilityUpdate();
+        notifyChange(window);
+        return this;
+    }
+
+    /**
+     * Takes a window out of the stack without closing it.
+     */
+    public void unregister(Window window) {
+        int index = stack.indexOf(window);
+        if (index < 0) {
+            return;
+        }
+
+        if (window == gestureWindow) {
+            window.endGesture();
+            gestureWindow = null;
+            gesturePointer = -1;
+        }
+        stack.remove(index);
+        window.setManager(null);
+        window.setSuspended(false);
+        restack(index);
+        scheduleVisibilityUpdate();
+        if (stack.isEmpty()) {
+            stopListening();
+        }
+
+        if (window == activeWindow) {
+            window.setActive(false);
+            activeWindow = null;
+            focusTopmost();
+        }
+        notifyChange(window);
+    }
+
+    /**
+     * Takes a window out of the stack and the page without unmounting it, so it keeps its content and
+     * state and can be added to a container again. Its content stays suspended until then.
+     */
+    public void detach(Window window) {
+        if (!stack.contains(window)) {
+            return;
+        }
+
+        unregister(window);
+        window.setSuspended(true);
+        HTMLElement element = window.getElement();
+        if (element != null && element.getParentNode() != null) {
+            element.getParentNode().removeChild(element);
+        }
+    }
+
+    /**
+     * Raises a window to the top and makes it the active window. Minimized windows are raised but
+     * stay minimized.
+     */
+    public void focus(Window window) {
+        int index = stack.indexOf(window);
+        if (index < 0) {
+            return;
+        }
+
+        boolean raised = index < stack.size() - 1;
+        if (raised) {
+            stack.remove(index);
+            stack.add(window);
+            scheduleVisibilityUpdate();
+        }
+        // Only the windows from the old position up change place
+        restack(index);
+
+        if (activeWindow != window) {
+            if (activeWindow != null) {
+                activeWindow.setActive(false);
+            }
+            activeWindow = window;
+            window.setActive(true);
+        } else if (!raised) {
+            return;
+        }
+        notifyChange(window);
+    }
+
+    /**
+     * Minimizes a window and focuses the topmost window still showing.
+     */
+    public void minimize(Window window) {
+        if (!stack.contains(window) || window.isMinimized()) {
+            return;
+        }
+
+        window.applyMinimized(true);
+        scheduleVisibilityUpdate();
+        notifyChange(window);
+        if (window == activeWindow) {
+            window.setActive(false);
+            activeWindow = null;
+            focusTopmost();
+        }
+    }
+
+    /**
+     * Restores a minimized or maximized window and focuses it.
+     */
+    public void restore(Window window) {
+        if (!stack.contains(window)) {
+            return;
+        }
+
+        if (window.isMinimized()) {
+            window.applyMinimized(false);
+        } else if (window.isMaximized()) {
+            window.applyMaximized(false);
+        }
+        focus(window);
+        scheduleVisibilityUpdate();
+        notifyChange(window);
+    }
+
+    public void maximize(Window window) {
+        if (!stack.contains(window)) {
+            return;
+        }
+
+        if (window.isMinimized()) {
+            window.applyMinimized(false);
+        }
+        window.applyMaximized(true);
+        focus(window);
+        scheduleVisibilityUpdate();
+        notifyChange(window);
+    }
+
+    public void toggleMaximize(Window window) {
+        if (window.isMaximized()) {
+            restore(window);
+        } else {
+            maximize(window);
+        }
+    }
+
+    /**
+     * Removes a window from the stack and the page, then focuses the topmost window still showing.
+     */
+    public void close(Window window) {
+        if (!stack.contains(window)) {
+            return;
+        }
+
+        unregister(window);
+        window.removeFromParent();
+        if (closeListener != null) {
+            closeListener.accept(window);
+        }
+    }
+
+    /**
+     * @return The focused window, or null if every window is minimized or closed
+     */
+    public Window getActiveWindow() {
+        return activeWindow;
+    }
+
+    /**
+     * @return The windows, bottom first; not modifiable
+     */
+    public List<Window> getWindows() {
+        return Collections.unmodifiableList(stack);
+    }
+
+    private void notifyChange(Window window) {
+        if (changeListener != null) {
+            changeListener.accept(window);
+        }
+    }
+
+    private HTMLElement getContainer() {
+        return containerElement != null ? containerElement : containerComponent.getElement();
+    }
+
+    private void focusTopmost() {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            if (!stack.get(i).isMinimized()) {
+                focus(stack.get(i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gives the windows from a position up the z-index of their place in the stack.
+     */
+    private void restack(int from) {
+        for (int i = from; i < stack.size(); i++) {
+            stack.get(i).setStyle("z-index", String.valueOf(baseZIndex + i));
+        }
+    }
+
+    private void handlePointerEvent(Event e) {
+        switch (e.getType()) {
+            case "pointerdown":
+                pointerDown((MouseEvent) e);
+                break;
+            case "pointermove":
+                if (gestureWindow != null && getPointerId(e) == gesturePointer) {
+                    MouseEvent mouseEvent = (MouseEvent) e;
+                    gestureWindow.movePointer(mouseEvent.getClientX(), mouseEvent.getClientY());
+                    scheduleFrame();
+                }
+                break;
+            default:
+                // pointerup, pointercancel and lostpointercapture all end the gesture
+                if (gestureWindow != null && getPointerId(e) == gesturePointer) {
+                    Window window = gestureWindow;
+                    window.endGesture();
+                    gestureWindow = null;
+                    gesturePointer = -1;
+                    scheduleVisibilityUpdate();
+                    notifyChange(window);
+                }
+        }
+    }
+
+    private void pointerDown(MouseEvent e) {
+        Window window = windowAt(e);
+        if (window == null) {
+            return;
+        }
+
+        focus(window);
+        if (gestureWindow != null || !isPrimaryPointer(e)) {
+            return;
+        }
+
+        // Capturing would take the click away from the title bar buttons
+        boolean started = false;
+        if (window.isDragHandle(e) && !isOnButton(e)) {
+            started = window.startDrag(e);
+        } else if (window.isResizeHandle(e)) {
+            started = window.startResize(e);
+        }
+
+        if (started) {
+            gestureWindow = window;
+            gesturePointer = getPointerId(e);
+            setPointerCapture(getContainer(), gesturePointer);
+            e.preventDefault();
+            updateVisibility();
+        }
+    }
+
+    /**
+     * @return The topmost window containing the event target, or null
+     */
+    private Window windowAt(Event e) {
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            HTMLElement element = stack.get(i).getElement();
+            if (element != null && containsTarget(element, e)) {
+                return stack.get(i);
+            }
+        }
+        return null;
+    }
+
+    private void scheduleVisibilityUpdate() {
+        if (!visibilityScheduled) {
+            visibilityScheduled = true;
+            requestAnimationFrame(() -> {
+                visibilityScheduled = false;
+                updateVisibility();
+            });
+        }
+    }
+
+    /**
+     * Suspends the windows that cannot be seen and resumes the others. All positions are read before
+     * any window changes.
+     */
+    private void updateVisibility() {
+        HTMLElement container = getContainer();
+        if (container == null) {
+            return;
+        }
+
+        int count = stack.size();
+        double[] rects = new double[4 * count];
+        for (int i = 0; i < count; i++) {
+            HTMLElement element = stack.get(i).getElement();
+            if (element != null) {
+                rects[4 * i] = element.getOffsetLeft();
+                rects[4 * i + 1] = element.getOffsetTop();
+                rects[4 * i + 2] = element.getOffsetLeft() + element.getOffsetWidth();
+                rects[4 * i + 3] = element.getOffsetTop() + element.getOffsetHeight();
+            }
+        }
+        double width = container.getClientWidth();
+        double height = container.getClientHeight();
+
+        boolean changed = false;
+        for (int i = 0; i < count; i++) {
+            Window window = stack.get(i);
+            if (window.getElement() == null) {
+                continue;
+            }
+
+            boolean hidden = window.isMinimized()
+                    || rects[4 * i] >= width || rects[4 * i + 1] >= height
+                    || rects[4 * i + 2] <= 0 || rects[4 * i + 3] <= 0
+                    || (gestureWindow == null && isCovered(window, i, rects));
+            if (hidden != window.isSuspended()) {
+                window.setSuspended(hidden);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            Visibility.refresh();
+        }
+    }
+
+    /**
+     * @return True if one window above the window at a position in the stack covers it entirely
+     */
+    private boolean isCovered(Window window, int index, double[] rects) {
+        for (int j = index + 1; j < stack.size(); j++) {
+            if (stack.get(j).isMinimized() || stack.get(j).getElement() == null) {
+                continue;
+            }
+            if (rects[4 * j] <= rects[4 * index] && rects[4 * j + 1] <= rects[4 * index + 1]
+                    && rects[4 * j + 2] >= rects[4 * index + 2] && rects[4 * j + 3] >= rects[4 * index + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled) {
+            frameScheduled = true;
+            requestAnimationFrame(this::applyGesture);
+        }
+    }
+
+    /**
+     * Starts following window resizes when the first window is added. A manager from
+     * {@link #forContainer(HTMLElement)} that let go of its element takes it back.
+     */
+    private void listen() {
+        resizeListener = addResizeListener(this::scheduleVisibilityUpdate);
+        if (shared && !containerManagers.contains(this)) {
+            containerManagers.add(this);
+            for (String type : POINTER_EVENTS) {
+                containerElement.addEventListener(type, pointerListener);
+            }
+        }
+    }
+
+    /**
+     * Stops following window resizes once the last window is removed, so managers without windows
+     * are not kept alive by the page. A manager from {@link #forContainer(HTMLElement)} also lets go
+     * of its element.
+     */
+    private void stopListening() {
+        removeResizeListener(resizeListener);
+        resizeListener = null;
+        if (shared) {
+            containerManagers.remove(this);
+            for (String type : POINTER_EVENTS) {
+                containerElement.removeEventListener(type, pointerListener);
+            }
+        }
+    }
+
+    /**
+     * Applies the latest pointer position of the gesture, once per frame however many moves arrived.
+     */
+    private void applyGesture() {
+        frameScheduled = false;
+        if (gestureWindow != null) {
+            gestureWindow.applyGesture();
+        }
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"a", "b"}, script = "return a === b;")
+    private static native boolean isSame(HTMLElement a, HTMLElement b);
+
+    @JSBody(params = {"element", "event"}, script = "return element.contains(event.target);")
+    private static native boolean containsTarget(HTMLElement element, Event event);
+
+    @JSBody(params = {"event"}, script = "return event.isPrimary !== false && event.button === 0;")
+    private static native boolean isPrimaryPointer(Event event);
+
+    @JSBody(params = {"event"}, script = "return !!(event.target.closest && event.target.closest('button'));")
+    private static native boolean isOnButton(Event event);
+
+    @JSBody(params = {"event"}, script = "return event.pointerId;")
+    private static native int getPointerId(Event event);
+
+    @JSBody(params = {"element", "pointerId"}, script =
+        "try { element.setPointerCapture(pointerId); } catch (e) { }")
+    private static native void setPointerCapture(HTMLElement element, int pointerId);
+
+    @JSBody(params = {"callback"}, script = "requestAnimationFrame(function() { callback(); });")
+    private static native void requestAnimationFrame(Runnable callback);
+
+    @JSBody(params = {"callback"}, script =
+        "var listener = function() { callback(); };" +
+        "window.addEventListener('resize', listener);" +
+        "return listener;")
+    private static native JSObject addResizeListener(Runnable callback);
+
+    @JSBody(params = {"listener"}, script = "window.removeEventListener('resize', listener);")
+    private static native void removeResizeListener(JSObject listener);
+}
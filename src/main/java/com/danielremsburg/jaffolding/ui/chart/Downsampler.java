@@ -0,0 +1,235 @@
+package com.danielremsburg.jaffolding.ui.chart;
+
+/**
+ * Reduces long chart series to about as many points as the chart has pixels.
+ * Series are indexed by point, so all series of a chart share their labels; strategies that select
+ * points keep the union of the points selected for each series, so labels stay aligned, and split the
+ * target between the series. Missing values are NaN.
+ */
+public interface Downsampler {
+
+    /**
+     * Downsamples series of equal length.
+     * @param series The values of each series
+     * @param targetPoints The approximate number of points to keep
+     * @return The kept points
+     */
+    Result downsample(double[][] series, int targetPoints);
+
+    /**
+     * Largest-Triangle-Three-Buckets: keeps the point of each bucket that forms the largest triangle
+     * with its neighbours, which preserves the visual shape of a line.
+     */
+    static Downsampler lttb() {
+        return (series, targetPoints) -> {
+            int length = length(series);
+            if (length <= targetPoints || targetPoints < 3) {
+                return Result.all(series);
+            }
+
+            // Each series gets its share, since the union of their points is kept
+            int perSeries = Math.max(3, targetPoints / series.length);
+            boolean[] keep = new boolean[length];
+            for (double[] values : series) {
+                selectLttb(values, perSeries, keep);
+            }
+            return Result.select(series, keep);
+        };
+    }
+
+    /**
+     * Keeps the minimum and maximum of each bucket, so no peak is lost.
+     * Each bucket produces two points, so half as many buckets as target points are used.
+     */
+    static Downsampler minMax() {
+        return (series, targetPoints) -> {
+            int length = length(series);
+            if (length <= targetPoints || targetPoints < 2) {
+                return Result.all(series);
+            }
+
+            int buckets = Math.max(1, targetPoints / (2 * series.length));
+            boolean[] keep = new boolean[length];
+            keep[0] = true;
+            keep[length - 1] = true;
+            for (double[] values : series) {
+                for (int bucket = 0; bucket < buckets; bucket++) {
+                    int start = (int) ((long) bucket * length / buckets);
+                    int end = (int) ((long) (bucket + 1) * length / buckets);
+                    int min = -1;
+                    int max = -1;
+                    for (int i = start; i < end; i++) {
+                        if (Double.isNaN(values[i])) {
+                            continue;
+                        }
+                        if (min < 0 || values[i] < values[min]) {
+                            min = i;
+                        }
+                        if (max < 0 || values[i] > values[max]) {
+                            max = i;
+                        }
+                    }
+                    if (min >= 0) {
+                        keep[min] = true;
+                        keep[max] = true;
+                    }
+                }
+            }
+            return Result.select(series, keep);
+        };
+    }
+
+    /**
+     * Replaces each bucket by the average of its values, labelled by its first point.
+     * Smooths noise but flattens peaks.
+     */
+    static Downsampler average() {
+        return (series, targetPoints) -> {
+            int length = length(series);
+            if (length <= targetPoints || targetPoints < 1) {
+                return Result.all(series);
+            }
+
+            int[] indices = new int[targetPoints];
+            double[][] values = new double[series.length][targetPoints];
+            for (int bucket = 0; bucket < targetPoints; bucket++) {
+                int start = (int) ((long) bucket * length / targetPoints);
+                int end = (int) ((long) (bucket + 1) * length / targetPoints);
+                indices[bucket] = start;
+
+                for (int s = 0; s < series.length; s++) {
+                    double sum = 0;
+                    int count = 0;
+                    for (int i = start; i < end; i++) {
+                        if (!Double.isNaN(series[s][i])) {
+                            sum += series[s][i];
+                            count++;
+                        }
+                    }
+                    values[s][bucket] = count > 0 ? sum / count : Double.NaN;
+                }
+            }
+            return new Result(indices, values);
+        };
+    }
+
+    /**
+     * Marks the points LTTB keeps for one series.
+     */
+    private static void selectLttb(double[] values, int targetPoints, boolean[] keep) {
+        int length = values.length;
+        double every = (double) (length - 2) / (targetPoints - 2);
+        int previous = 0;
+        keep[0] = true;
+        keep[length - 1] = true;
+
+        for (int bucket = 0; bucket < targetPoints - 2; bucket++) {
+            int start = (int) (bucket * every) + 1;
+            int end = Math.min((int) ((bucket + 1) * every) + 1, length - 1);
+
+            // Average of the next bucket, the third corner of the triangle
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, length);
+            double avgX = 0;
+            double avgY = 0;
+            int count = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                if (!Double.isNaN(values[i])) {
+                    avgX += i;
+                    avgY += values[i];
+                    count++;
+                }
+            }
+            if (count > 0) {
+                avgX /= count;
+                avgY /= count;
+            } else {
+                avgX = nextStart;
+                avgY = values[previous];
+            }
+
+            double previousY = Double.isNaN(values[previous]) ? avgY : values[previous];
+            int chosen = start;
+            double maxArea = -1;
+            for (int i = start; i < end; i++) {
+                if (Double.isNaN(values[i])) {
+                    continue;
+                }
+                double area = Math.abs((previous - avgX) * (values[i] - previousY)
+                        - (previous - i) * (avgY - previousY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+
+            if (start < end) {
+                keep[chosen] = true;
+                previous = chosen;
+            }
+        }
+    }
+
+    private static int length(double[][] series) {
+        return series.length == 0 ? 0 : series[0].length;
+    }
+
+    /**
+     * The kept points: for each, the index of the original point whose label it takes,
+     * and the value of each series.
+     */
+    final class Result {
+        private final int[] indices;
+        private final double[][] values;
+
+        public Result(int[] indices, double[][] values) {
+            this.indices = indices;
+            this.values = values;
+        }
+
+        static Result all(double[][] series) {
+            int[] indices = new int[length(series)];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+            return new Result(indices, series);
+        }
+
+        static Result select(double[][] series, boolean[] keep) {
+            int count = 0;
+            for (boolean kept : keep) {
+                if (kept) {
+                    count++;
+                }
+            }
+
+            int[] indices = new int[count];
+            int next = 0;
+            for (int i = 0; i < keep.length; i++) {
+                if (keep[i]) {
+                    indices[next++] = i;
+                }
+            }
+
+            double[][] values = new double[series.length][count];
+            for (int s = 0; s < series.length; s++) {
+                for (int i = 0; i < count; i++) {
+                    values[s][i] = series[s][indices[i]];
+                }
+            }
+            return new Result(indices, values);
+        }
+
+        public int[] getIndices() {
+            return indices;
+        }
+
+        public int size() {
+            return indices.length;
+        }
+
+        public double[] getValues(int series) {
+            return values[series];
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.danielremsburg.jaffolding.ui.chart;
+
+/**
+ * Fixed-capacity buffer of (x, y) points in primitive arrays, overwriting the oldest point when full.
+ * Every point added gets a sequence number, so a consumer can tell which points it has already seen
+ * and which have been dropped since.
+ */
+public class RingBuffer {
+    private final double[] xs;
+    private final double[] ys;
+    private int head = 0;
+    private int size = 0;
+    private long added = 0;
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+    }
+
+    /**
+     * Adds a point, dropping the oldest if the buffer is full.
+     */
+    public void add(double x, double y) {
+        int index = (head + size) % xs.length;
+        if (size == xs.length) {
+            head = (head + 1) % xs.length;
+        } else {
+            size++;
+        }
+        xs[index] = x;
+        ys[index] = y;
+        added++;
+    }
+
+    /**
+     * Drops points from the oldest end while their x is below a limit.
+     */
+    public void dropBefore(double minX) {
+        while (size > 0 && xs[head] < minX) {
+            head = (head + 1) % xs.length;
+            size--;
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return xs.length;
+    }
+
+    /**
+     * @param i The position, 0 being the oldest point
+     */
+    public double getX(int i) {
+        return xs[(head + i) % xs.length];
+    }
+
+    public double getY(int i) {
+        return ys[(head + i) % xs.length];
+    }
+
+    /**
+     * @return The x of the newest point, or NaN if the buffer is empty
+     */
+    public double getLastX() {
+        return size > 0 ? getX(size - 1) : Double.NaN;
+    }
+
+    /**
+     * @return The sequence number of the oldest point held
+     */
+    public long getFirstSequence() {
+        return added - size;
+    }
+
+    /**
+     * @return The sequence number the next point will get
+     */
+    public long getEndSequence() {
+        return added;
+    }
+}
@@ -0,0 +1,109 @@
+package com.danielremsburg.jaffolding.ui.kde;
+
+import java.util.function.Supplier;
+
+import com.danielremsburg.jaffolding.Component;
+
+/**
+ * Describes an application to the {@link AppManager}: how it is shown on the desktop and how to create
+ * its content. Registering a descriptor creates nothing; the content is only created on first launch.
+ */
+public class AppDescriptor {
+    private final String id;
+    private final String name;
+    private String icon;
+    private String color = "#5294e2";
+    private Supplier<Component> factory;
+    private int width = 800;
+    private int height = 600;
+    private int x = 100;
+    private int y = 50;
+    private boolean poolable = true;
+
+    /**
+     * @param id The application ID
+     * @param name The name shown under the icon and in the window title
+     */
+    public AppDescriptor(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public AppDescriptor setIcon(String icon) {
+        this.icon = icon;
+        return this;
+    }
+
+    public AppDescriptor setColor(String color) {
+        this.color = color;
+        return this;
+    }
+
+    /**
+     * Sets what creates the content of a new window of the application.
+     */
+    public AppDescriptor setFactory(Supplier<Component> factory) {
+        this.factory = factory;
+        return this;
+    }
+
+    /**
+     * Sets the size and position of new windows.
+     */
+    public AppDescriptor setWindowBounds(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Sets whether a closed window of the application may be kept for a fast relaunch. Applications
+     * holding large resources, or whose state should not survive closing, should not be.
+     */
+    public AppDescriptor setPoolable(boolean poolable) {
+        this.poolable = poolable;
+        return this;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getIcon() {
+        return icon;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public Supplier<Component> getFactory() {
+        return factory;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public boolean isPoolable() {
+        return poolable;
+    }
+}
@@ -1,21 +1,51 @@
 package com.danielremsburg.jaffolding.ui.kde;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
 import org.teavm.jso.JSObject;
-import org.teavm.jso.dom.html.HTMLElement;
 
 import com.danielremsburg.jaffolding.Component;
+import com.danielremsburg.jaffolding.bridge.ComponentFactory;
 import com.danielremsburg.jaffolding.bridge.JSBridge;
 import com.danielremsburg.jaffolding.bridge.JSComponentWrapper;
+import com.danielremsburg.jaffolding.ui.BrowserWindow;
+import com.danielremsburg.jaffolding.ui.Window;
 
 /**
  * Application manager for the Jaffolding framework.
  * Manages application windows and their lifecycle.
- * This class can use either the Java implementation or delegate to the JavaScript implementation.
+ * <p>
+ * Applications are registered as {@link AppDescriptor}s, and an application's content is only created
+ * when it is first launched. Closing a window of a poolable application detaches it from the desktop
+ * without unmounting it, into a pool of warm windows; launching the application again puts the window
+ * back as it was instead of creating new content. The pool holds a few windows, least recently closed
+ * evicted first, and is emptied when the page uses most of the memory the browser allows it.
+ * <p>
+ * When the desktop uses the JavaScript implementation, it is given an object that launches and focuses
+ * applications through this class.
  */
 public class AppManager extends JSComponentWrapper {
+    private static final int DEFAULT_POOL_SIZE = 3;
+    private static final double DEFAULT_MEMORY_THRESHOLD = 0.7;
+
     private KDEDesktop desktop;
-    private boolean usingJSImplementation;
-    
+    private final Map<String, AppDescriptor> apps = new LinkedHashMap<>();
+    private final Map<String, List<Window>> runningApps = new HashMap<>();
+    private final Map<Window, String> windowApps = new HashMap<>();
+    // States of placeholder windows, given to their content when it is created
+    private final Map<Window, String> pendingStates = new HashMap<>();
+    // Least recently closed first
+    private final LinkedHashMap<Window, String> pool = new LinkedHashMap<>();
+    private int maxPoolSize = DEFAULT_POOL_SIZE;
+    private double memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+
     /**
      * Creates a new AppManager instance.
      * @param desktop The desktop instance
@@ -23,142 +53,437 @@ public class AppManager extends JSComponentWrapper {
     public AppManager(KDEDesktop desktop) {
         super("jaffolding.AppManager");
         this.desktop = desktop;
-        
-        // Try to use the JavaScript implementation first
+
+        // The JavaScript desktop looks for its app manager among the tracked instances
         if (desktop.getJSComponent() != null) {
-            JSObject[] args = { desktop.getJSComponent() };
-            jsComponent = JSBridge.callMethod(JSBridge.createComponent("jaffolding.AppManager", null), "constructor", args);
-            usingJSImplementation = jsComponent != null;
-        }
-        
-        // If JavaScript implementation is not available, use Java implementation
-        if (!usingJSImplementation) {
-            initJavaImplementation();
+            jsComponent = createDesktopFacade(this::launchFromDesktop, this::isAppRunning, this::focusApp);
         }
     }
-    
+
+    /**
+     * Sets how many closed windows are kept for a fast relaunch; 0 disables the pool.
+     */
+    public AppManager setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = Math.max(0, maxPoolSize);
+        trimPool();
+        return this;
+    }
+
     /**
-     * Initializes the Java implementation of the app manager.
+     * Sets the share of the page's memory limit above which the pool is emptied. Only browsers that
+     * report memory use apply it.
      */
-    private void initJavaImplementation() {
-        // TODO: Implement Java version of AppManager
-        System.out.println("Using Java implementation of AppManager");
+    public AppManager setMemoryThreshold(double memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+        return this;
     }
-    
+
     /**
      * Registers an application.
-     * @param app The application definition as a JSON string
+     * @param app The application descriptor
+     */
+    public void registerApp(AppDescriptor app) {
+        apps.put(app.getId(), app);
+    }
+
+    /**
+     * Registers an application that has no content factory, so it can be shown but not launched.
+     * @param appJson The application definition as a JSON string, with id, name, icon and color
      */
     public void registerApp(String appJson) {
-        if (usingJSImplementation) {
-            JSObject app = JSBridge.parseJSON(appJson);
-            callMethod("registerApp", app);
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
+        JSObject app = JSBridge.parseJSON(appJson);
+        AppDescriptor descriptor = new AppDescriptor(getString(app, "id"), getString(app, "name"))
+                .setIcon(getString(app, "icon"));
+        String color = getString(app, "color");
+        if (color != null) {
+            descriptor.setColor(color);
         }
+        registerApp(descriptor);
     }
-    
+
     /**
      * Gets an application by ID.
      * @param id The application ID
-     * @return The application definition as a JSObject
+     * @return The application descriptor, or null if none is registered under the ID
      */
-    public JSObject getApp(String id) {
-        if (usingJSImplementation) {
-            JSObject jsId = JSBridge.parseJSON("\"" + id + "\"");
-            return callMethod("getApp", jsId);
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
-            return null;
-        }
+    public AppDescriptor getApp(String id) {
+        return apps.get(id);
     }
-    
+
     /**
-     * Gets all registered applications.
+     * @return The registered applications, in registration order; not modifiable
+     */
+    public List<AppDescriptor> getAppDescriptors() {
+        return Collections.unmodifiableList(new ArrayList<>(apps.values()));
+    }
+
+    /**
+     * Gets all registered applications, for the desktop icons.
      * @return The application definitions as a JSObject array
      */
     public JSObject getApps() {
-        if (usingJSImplementation) {
-            return callMethod("getApps");
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
-            return JSBridge.createArray();
+        return toJSArray(apps.values());
+    }
+
+    /**
+     * Gets some registered applications, for the dock.
+     * @param ids The application IDs, in the order to show them
+     * @return The application definitions as a JSObject array
+     */
+    public JSObject getApps(String... ids) {
+        List<AppDescriptor> selected = new ArrayList<>();
+        for (String id : ids) {
+            if (apps.containsKey(id)) {
+                selected.add(apps.get(id));
+            }
         }
+        return toJSArray(selected);
     }
-    
+
     /**
-     * Launches an application.
+     * Launches an application, reusing a warm window of it if one is pooled.
      * @param id The application ID
-     * @return The application window
+     * @return The application window, or null if the application cannot be launched
      */
-    public JSObject launchApp(String id) {
-        if (usingJSImplementation) {
-            JSObject jsId = JSBridge.parseJSON("\"" + id + "\"");
-            return callMethod("launchApp", jsId);
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
+    public Window launchApp(String id) {
+        AppDescriptor app = apps.get(id);
+        if (app == null) {
+            System.err.println("App not found: " + id);
             return null;
         }
+
+        Window window = takePooled(id);
+        if (window == null) {
+            if (app.getFactory() == null) {
+                System.err.println("App has no content factory: " + id);
+                return null;
+            }
+            window = new Window(app.getName(), app.getFactory().get());
+            window.setPosition(app.getX(), app.getY())
+                  .setSize(app.getWidth(), app.getHeight());
+            window.setCloseHandler(this::handleWindowClose);
+            windowApps.put(window, id);
+        }
+
+        runningApps.computeIfAbsent(id, k -> new ArrayList<>()).add(window);
+        desktop.addWindow(window);
+        desktop.updateDock(id, true);
+        trimPool();
+        return window;
     }
-    
+
+    /**
+     * Opens a window of an application as it was saved in a session, without creating its content.
+     * The window shows a placeholder until it is first focused or {@link #hydrate}d.
+     * @param id The application ID
+     * @param state The saved state of the content, or null
+     * @param bounds The left, top, width and height of the window
+     * @param minimized Whether the window was minimized
+     * @param maximized Whether the window was maximized
+     * @return The window, or null if the application is not registered
+     */
+    public Window restoreApp(String id, String state, double[] bounds, boolean minimized, boolean maximized) {
+        AppDescriptor app = apps.get(id);
+        if (app == null || app.getFactory() == null) {
+            System.err.println("Cannot restore app: " + id);
+            return null;
+        }
+
+        Window window = new Window(app.getName(), createPlaceholder(app));
+        window.setPosition((int) bounds[0], (int) bounds[1])
+              .setSize((int) bounds[2], (int) bounds[3]);
+        window.setCloseHandler(this::handleWindowClose);
+        windowApps.put(window, id);
+        pendingStates.put(window, state);
+
+        runningApps.computeIfAbsent(id, k -> new ArrayList<>()).add(window);
+        desktop.addWindow(window);
+        desktop.updateDock(id, true);
+        if (maximized) {
+            window.maximize();
+        }
+        if (minimized) {
+            window.minimize();
+        }
+
+        // Set last, so restoring a stack of windows does not create the content of each
+        window.setOnFocus(this::hydrate);
+        return window;
+    }
+
+    /**
+     * Creates the content of a placeholder window and gives it its saved state. Does nothing for other
+     * windows.
+     */
+    public void hydrate(Window window) {
+        if (!pendingStates.containsKey(window)) {
+            return;
+        }
+
+        String state = pendingStates.remove(window);
+        window.setOnFocus(null);
+        Component content = apps.get(windowApps.get(window)).getFactory().get();
+        if (state != null && content instanceof AppState) {
+            ((AppState) content).restoreState(state);
+        }
+        window.setContent(content);
+    }
+
+    /**
+     * @return The ID of the application of a window, or null if the window is not an application window
+     */
+    public String getAppId(Window window) {
+        return windowApps.get(window);
+    }
+
+    /**
+     * @return The state of an application window's content, or null if it has none
+     */
+    public String saveState(Window window) {
+        if (pendingStates.containsKey(window)) {
+            // Not created yet, so the state is still the one it was restored with
+            return pendingStates.get(window);
+        }
+        Component content = window.getContent();
+        return content instanceof AppState ? ((AppState) content).saveState() : null;
+    }
+
     /**
      * Creates an application window.
      * @param title The window title
      * @param content The window content
-     * @param options The window options as a JSON string
-     * @return The window instance as a JSObject
-     */
-    public JSObject createAppWindow(String title, Component content, String optionsJson) {
-        if (usingJSImplementation) {
-            JSObject jsTitle = JSBridge.parseJSON("\"" + title + "\"");
-            JSObject jsContent = content.getElement();
-            JSObject jsOptions = JSBridge.parseJSON(optionsJson);
-            return callMethod("createAppWindow", jsTitle, jsContent, jsOptions);
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
-            return null;
-        }
+     * @param optionsJson The window options as a JSON string
+     * @return The window
+     */
+    public Window createAppWindow(String title, Component content, String optionsJson) {
+        return ComponentFactory.createAppWindow(title, content, optionsJson);
     }
-    
+
     /**
      * Creates a browser window.
      * @param title The window title
      * @param url The initial URL
-     * @param options The window options as a JSON string
-     * @return The browser window instance as a JSObject
-     */
-    public JSObject createBrowserWindow(String title, String url, String optionsJson) {
-        if (usingJSImplementation) {
-            JSObject jsTitle = JSBridge.parseJSON("\"" + title + "\"");
-            JSObject jsUrl = JSBridge.parseJSON("\"" + url + "\"");
-            JSObject jsOptions = JSBridge.parseJSON(optionsJson);
-            return callMethod("createBrowserWindow", jsTitle, jsUrl, jsOptions);
-        } else {
-            // Java implementation
-            // TODO: Implement Java version
-            return null;
+     * @param optionsJson The window options as a JSON string
+     * @return The browser window
+     */
+    public BrowserWindow createBrowserWindow(String title, String url, String optionsJson) {
+        BrowserWindow window = new BrowserWindow(title, url);
+        JSObject options = JSBridge.parseJSON(optionsJson);
+        String width = getString(options, "width");
+        String height = getString(options, "height");
+        String x = getString(options, "x");
+        String y = getString(options, "y");
+        if (width != null && height != null) {
+            window.setSize((int) Double.parseDouble(width), (int) Double.parseDouble(height));
+        }
+        if (x != null && y != null) {
+            window.setPosition((int) Double.parseDouble(x), (int) Double.parseDouble(y));
+        }
+        return window;
+    }
+
+    /**
+     * Brings every window of an application to the front, restoring minimized ones.
+     * @param appId The application ID
+     */
+    public void focusApp(String appId) {
+        List<Window> windows = runningApps.get(appId);
+        if (windows == null) {
+            return;
+        }
+        for (Window window : new ArrayList<>(windows)) {
+            if (window.isMinimized()) {
+                window.restore();
+            } else {
+                window.focus();
+            }
         }
     }
-    
+
     /**
      * Checks if an application is running.
      * @param appId The application ID
      * @return Whether the application is running
      */
     public boolean isAppRunning(String appId) {
-        if (usingJSImplementation) {
-            JSObject jsAppId = JSBridge.parseJSON("\"" + appId + "\"");
-            JSObject result = callMethod("isAppRunning", jsAppId);
-            return Boolean.parseBoolean(JSBridge.stringifyJSON(result));
+        List<Window> windows = runningApps.get(appId);
+        return windows != null && !windows.isEmpty();
+    }
+
+    /**
+     * @return The number of closed windows kept for a fast relaunch
+     */
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    /**
+     * Discards every pooled window.
+     */
+    public void clearPool() {
+        for (Window window : new ArrayList<>(pool.keySet())) {
+            pool.remove(window);
+            discard(window);
+        }
+    }
+
+    private void launchFromDesktop(String id) {
+        if (isAppRunning(id)) {
+            focusApp(id);
+        } else {
+            launchApp(id);
+        }
+    }
+
+    /**
+     * Closes an application window, keeping it warm if the application allows it and memory permits.
+     */
+    private void handleWindowClose(Window window) {
+        String appId = windowApps.get(window);
+        List<Window> windows = runningApps.get(appId);
+        if (windows != null) {
+            windows.remove(window);
+
+            // Update the dock if no more windows for this app
+            if (windows.isEmpty()) {
+                runningApps.remove(appId);
+                desktop.updateDock(appId, false);
+            }
+        }
+
+        AppDescriptor app = apps.get(appId);
+        if (app != null && app.isPoolable() && maxPoolSize > 0 && !isUnderMemoryPressure()) {
+            desktop.getWindowManager().detach(window);
+            pool.put(window, appId);
+            trimPool();
         } else {
-            // Java implementation
-            // TODO: Implement Java version
-            return false;
+            discard(window);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return The most recently closed pooled window of an application, taken out of the pool, or null
+     */
+    private Window takePooled(String appId) {
+        Window found = null;
+        for (Map.Entry<Window, String> entry : pool.entrySet()) {
+            if (entry.getValue().equals(appId)) {
+                found = entry.getKey();
+            }
+        }
+        if (found != null) {
+            pool.remove(found);
+        }
+        return found;
+    }
+
+    /**
+     * Evicts the least recently closed windows beyond the pool size, or all of them under memory pressure.
+     */
+    private void trimPool() {
+        int limit = isUnderMemoryPressure() ? 0 : maxPoolSize;
+        while (pool.size() > limit) {
+            Window oldest = pool.keySet().iterator().next();
+            pool.remove(oldest);
+            discard(oldest);
+        }
+    }
+
+    /**
+     * Closes a window for good, unmounting its content.
+     */
+    private void discard(Window window) {
+        windowApps.remove(window);
+        pendingStates.remove(window);
+        window.setCloseHandler(null);
+        window.close();
+    }
+
+    private boolean isUnderMemoryPressure() {
+        double usage = getMemoryUsage();
+        return usage >= 0 && usage > memoryThreshold;
+    }
+
+    /**
+     * Shows the application's icon and name in place of content not created yet.
+     */
+    private static Component createPlaceholder(AppDescriptor app) {
+        Component placeholder = new Component("div");
+        placeholder.setStyle("height", "100%")
+                   .setStyle("display", "flex")
+                   .setStyle("flex-direction", "column")
+                   .setStyle("align-items", "center")
+                   .setStyle("justify-content", "center")
+                   .setStyle("gap", "12px")
+                   .setStyle("color", "#888");
+
+        Component icon = new Component("div");
+        icon.setText(app.getIcon() != null ? app.getIcon() : app.getName().substring(0, 1))
+            .setStyle("width", "64px")
+            .setStyle("height", "64px")
+            .setStyle("border-radius", "16px")
+            .setStyle("display", "flex")
+            .setStyle("align-items", "center")
+            .setStyle("justify-content", "center")
+            .setStyle("font-size", "32px")
+            .setStyle("background-color", app.getColor());
+
+        Component label = new Component("div");
+        label.setText("Click to open " + app.getName());
+
+        placeholder.addChild(icon);
+        placeholder.addChild(label);
+        return placeholder;
+    }
+
+    private static JSObject toJSArray(Iterable<AppDescriptor> descriptors) {
+        JSObject array = JSBridge.createArray();
+        for (AppDescriptor app : descriptors) {
+            pushApp(array, app.getId(), app.getName(), app.getIcon(), app.getColor());
+        }
+        return array;
+    }
+
+    @JSFunctor
+    interface AppCallback extends JSObject {
+        void call(String id);
+    }
+
+    @JSFunctor
+    interface AppQuery extends JSObject {
+        boolean test(String id);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"object", "key"}, script =
+        "var value = object ? object[key] : undefined;" +
+        "return value === undefined || value === null ? null : String(value);")
+    private static native String getString(JSObject object, String key);
+
+    @JSBody(params = {"array", "id", "name", "icon", "color"}, script =
+        "array.push({id: id, name: name, icon: icon, color: color});")
+    private static native void pushApp(JSObject array, String id, String name, String icon, String color);
+
+    /**
+     * @return The share of the page's memory limit in use, or -1 if the browser does not report it
+     */
+    @JSBody(script =
+        "var memory = typeof performance !== 'undefined' ? performance.memory : null;" +
+        "return memory && memory.jsHeapSizeLimit ? memory.usedJSHeapSize / memory.jsHeapSizeLimit : -1;")
+    private static native double getMemoryUsage();
+
+    /**
+     * Creates an app manager for the JavaScript desktop, tracked first among the instances, since the
+     * desktop uses the first app manager it finds.
+     */
+    @JSBody(params = {"launch", "running", "focus"}, script =
+        "var Type = window.jaffolding && window.jaffolding.AppManager;" +
+        "var facade = Type ? Object.create(Type.prototype) : {};" +
+        "facade.launchApp = function(id) { launch(id); };" +
+        "facade.isAppRunning = function(id) { return running(id); };" +
+        "facade.focusApp = function(id) { focus(id); };" +
+        "window.__jaffolding_instances = Object.assign({app_manager_java: facade}, window.__jaffolding_instances || {});" +
+        "return facade;")
+    private static native JSObject createDesktopFacade(AppCallback launch, AppQuery running, AppCallback focus);
+}
@@ -0,0 +1,19 @@
+package com.danielremsburg.jaffolding.ui.kde;
+
+/**
+ * Implemented by application content whose state should survive a reload. The state is saved with the
+ * desktop session and given back to new content of the same application when the session is restored.
+ */
+public interface AppState {
+
+    /**
+     * @return The state as a string, such as JSON, or null to save none
+     */
+    String saveState();
+
+    /**
+     * Restores state saved by {@link #saveState}, before the content is rendered.
+     * @param state The saved state
+     */
+    void restoreState(String state);
+}
@@ -0,0 +1,380 @@
+package com.danielremsburg.jaffolding.ui.kde;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+
+import com.danielremsburg.jaffolding.ui.Window;
+import com.danielremsburg.jaffolding.ui.WindowManager;
+
+/**
+ * Saves the application windows of a desktop to IndexedDB and reopens them on the next load.
+ * Each window is one record, holding its application, geometry, minimized and maximized flags and the
+ * state of its content (see {@link AppState}); the stacking order is a record of its own. Changes are
+ * saved incrementally: a change marks only the windows it touched, and marked records are written in
+ * one transaction shortly after, or at once when the page is hidden. Restored windows are placeholders
+ * whose content is only created when they are focused, apart from the topmost.
+ */
+public class DesktopSession {
+    private static final String DATABASE = "jaffolding";
+    private static final String STORE = "desktop-session";
+    private static final String ORDER_KEY = "order";
+    private static final String WINDOW_KEY_PREFIX = "window-";
+    private static final int SAVE_DELAY_MS = 500;
+
+    private final AppManager appManager;
+    private final WindowManager windowManager;
+    private final Map<Window, String> keys = new HashMap<>();
+    private final Set<Window> dirty = new LinkedHashSet<>();
+    private final Set<String> deleted = new HashSet<>();
+    private boolean orderDirty = false;
+    private int nextKey = 0;
+    private boolean tracking = false;
+    private int saveTimer = -1;
+    private JSObject database;
+    private boolean databaseFailed = false;
+    private List<Runnable> waitingForDatabase;
+
+    /**
+     * @param appManager The manager of the applications whose windows are saved
+     * @param desktop The desktop the windows are on
+     */
+    public DesktopSession(AppManager appManager, KDEDesktop desktop) {
+        this.appManager = appManager;
+        this.windowManager = desktop.getWindowManager();
+    }
+
+    /**
+     * Reopens the windows of the saved session, bottom first, then starts saving changes.
+     * @param callback Called with the number of windows reopened, 0 if there was no session or
+     * IndexedDB is not available
+     */
+    public void restore(IntConsumer callback) {
+        withDatabase(() -> {
+            if (database == null) {
+                start();
+                callback.accept(0);
+                return;
+            }
+            readRecords(database, STORE, records -> {
+                int restored = restoreRecords(records);
+                start();
+                callback.accept(restored);
+            });
+        });
+    }
+
+    /**
+     * Starts saving changes to the application windows, without restoring anything.
+     */
+    public void start() {
+        if (tracking) {
+            return;
+        }
+        tracking = true;
+        windowManager.setOnChange(this::onWindowChange);
+        addPageHideListener(this::saveNow);
+
+        // Windows opened before tracking started; restored windows are saved already
+        for (Window window : windowManager.getWindows()) {
+            if (!keys.containsKey(window)) {
+                onWindowChange(window);
+            }
+        }
+    }
+
+    /**
+     * Forgets the saved session; windows open now are saved again as they change.
+     */
+    public void clear() {
+        keys.clear();
+        dirty.clear();
+        deleted.clear();
+        orderDirty = false;
+        withDatabase(() -> {
+            if (database != null) {
+                clearRecords(database, STORE);
+            }
+        });
+    }
+
+    private int restoreRecords(JSObject records) {
+        Map<String, JSObject> byKey = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < recordCount(records); i++) {
+            String key = recordKey(records, i);
+            JSObject value = recordValue(records, i);
+            if (ORDER_KEY.equals(key)) {
+                for (int j = 0; j < recordCount(value); j++) {
+                    order.add(getString(value, String.valueOf(j)));
+                }
+            } else {
+                byKey.put(key, value);
+                if (key.startsWith(WINDOW_KEY_PREFIX)) {
+                    try {
+                        nextKey = Math.max(nextKey, Integer.parseInt(key.substring(WINDOW_KEY_PREFIX.length())) + 1);
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            }
+        }
+
+        // Records missing from the order, if saving was interrupted, go at the bottom
+        List<String> stackOrder = new ArrayList<>();
+        for (String key : byKey.keySet()) {
+            if (!order.contains(key)) {
+                stackOrder.add(key);
+            }
+        }
+        for (String key : order) {
+            if (byKey.containsKey(key)) {
+                stackOrder.add(key);
+            }
+        }
+
+        Window top = null;
+        for (String key : stackOrder) {
+            JSObject record = byKey.get(key);
+            double[] bounds = {
+                getNumber(record, "x"), getNumber(record, "y"),
+                getNumber(record, "width"), getNumber(record, "height")
+            };
+            Window window = appManager.restoreApp(getString(record, "appId"), getString(record, "state"),
+                    bounds, getBoolean(record, "minimized"), getBoolean(record, "maximized"));
+            if (window == null) {
+                deleted.add(key);
+                continue;
+            }
+            keys.put(window, key);
+            if (!window.isMinimized()) {
+                top = window;
+            }
+        }
+
+        // The window in front is the one the user sees first
+        if (top != null) {
+            appManager.hydrate(top);
+        }
+        return keys.size();
+    }
+
+    private void onWindowChange(Window window) {
+        if (appManager.getAppId(window) == null) {
+            return;
+        }
+
+        if (windowManager.getWindows().contains(window)) {
+            if (!keys.containsKey(window)) {
+                keys.put(window, WINDOW_KEY_PREFIX + nextKey++);
+            }
+            dirty.add(window);
+        } else {
+            // Closed, or detached into the app pool
+            String key = keys.remove(window);
+            if (key == null) {
+                return;
+            }
+            dirty.remove(window);
+            deleted.add(key);
+        }
+        orderDirty = true;
+        scheduleSave();
+    }
+
+    private void scheduleSave() {
+        if (saveTimer < 0) {
+            saveTimer = setTimeout(this::save, SAVE_DELAY_MS);
+        }
+    }
+
+    /**
+     * Saves every open window now, since content state can change without any window changing.
+     */
+    private void saveNow() {
+        dirty.addAll(keys.keySet());
+        orderDirty = true;
+        if (saveTimer >= 0) {
+            clearTimeout(saveTimer);
+        }
+        save();
+    }
+
+    private void save() {
+        saveTimer = -1;
+        if (database == null) {
+            if (!databaseFailed) {
+                withDatabase(this::save);
+            }
+            return;
+        }
+        if (dirty.isEmpty() && deleted.isEmpty() && !orderDirty) {
+            return;
+        }
+
+        JSObject puts = createObject();
+        for (Window window : dirty) {
+            String key = keys.get(window);
+            double[] bounds = window.getRestoredBounds();
+            if (key == null || bounds == null) {
+                continue;
+            }
+            setRecord(puts, key, createRecord(appManager.getAppId(window), bounds[0], bounds[1], bounds[2],
+                    bounds[3], window.isMinimized(), window.isMaximized(), appManager.saveState(window)));
+        }
+        if (orderDirty) {
+            JSObject order = createArray();
+            for (Window window : windowManager.getWindows()) {
+                String key = keys.get(window);
+                if (key != null) {
+                    push(order, key);
+                }
+            }
+            setRecord(puts, ORDER_KEY, order);
+        }
+
+        JSObject deletes = createArray();
+        for (String key : deleted) {
+            push(deletes, key);
+        }
+
+        writeRecords(database, STORE, puts, deletes);
+        dirty.clear();
+        deleted.clear();
+        orderDirty = false;
+    }
+
+    private void withDatabase(Runnable then) {
+        if (database != null || databaseFailed) {
+            then.run();
+            return;
+        }
+        if (waitingForDatabase != null) {
+            waitingForDatabase.add(then);
+            return;
+        }
+
+        waitingForDatabase = new ArrayList<>();
+        waitingForDatabase.add(then);
+        openDatabase(DATABASE, STORE, db -> {
+            database = db;
+            databaseFailed = db == null;
+            List<Runnable> waiting = waitingForDatabase;
+            waitingForDatabase = null;
+            for (Runnable runnable : waiting) {
+                runnable.run();
+            }
+        });
+    }
+
+    @JSFunctor
+    interface DatabaseCallback extends JSObject {
+        void opened(JSObject database);
+    }
+
+    @JSFunctor
+    interface RecordsCallback extends JSObject {
+        void read(JSObject records);
+    }
+
+    @JSFunctor
+    interface TimerCallback extends JSObject {
+        void run();
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"name", "store", "callback"}, script =
+        "if (typeof indexedDB === 'undefined') { callback(null); return; }" +
+        "try {" +
+        "  var request = indexedDB.open(name, 1);" +
+        "  request.onupgradeneeded = function() {" +
+        "    if (!request.result.objectStoreNames.contains(store)) request.result.createObjectStore(store);" +
+        "  };" +
+        "  request.onsuccess = function() { callback(request.result); };" +
+        "  request.onerror = function() { console.error('Cannot open session database', request.error); callback(null); };" +
+        "} catch (e) { console.error('Cannot open session database', e); callback(null); }")
+    private static native void openDatabase(String name, String store, DatabaseCallback callback);
+
+    @JSBody(params = {"db", "store", "callback"}, script =
+        "var records = [];" +
+        "var tx = db.transaction(store, 'readonly');" +
+        "var request = tx.objectStore(store).openCursor();" +
+        "request.onsuccess = function() {" +
+        "  var cursor = request.result;" +
+        "  if (cursor) { records.push([String(cursor.key), cursor.value]); cursor.continue(); }" +
+        "};" +
+        "tx.oncomplete = function() { callback(records); };" +
+        "tx.onerror = function() { console.error('Cannot read desktop session', tx.error); callback([]); };")
+    private static native void readRecords(JSObject db, String store, RecordsCallback callback);
+
+    @JSBody(params = {"db", "store", "puts", "deletes"}, script =
+        "var tx = db.transaction(store, 'readwrite');" +
+        "var objects = tx.objectStore(store);" +
+        "for (var key in puts) objects.put(puts[key], key);" +
+        "for (var i = 0; i < deletes.length; i++) objects.delete(deletes[i]);" +
+        "tx.onerror = function() { console.error('Cannot save desktop session', tx.error); };")
+    private static native void writeRecords(JSObject db, String store, JSObject puts, JSObject deletes);
+
+    @JSBody(params = {"db", "store"}, script = "db.transaction(store, 'readwrite').objectStore(store).clear();")
+    private static native void clearRecords(JSObject db, String store);
+
+    @JSBody(params = {"records"}, script = "return records.length;")
+    private static native int recordCount(JSObject records);
+
+    @JSBody(params = {"records", "index"}, script = "return records[index][0];")
+    private static native String recordKey(JSObject records, int index);
+
+    @JSBody(params = {"records", "index"}, script = "return records[index][1];")
+    private static native JSObject recordValue(JSObject records, int index);
+
+    @JSBody(params = {"appId", "x", "y", "width", "height", "minimized", "maximized", "state"}, script =
+        "return {appId: appId, x: x, y: y, width: width, height: height," +
+        " minimized: minimized, maximized: maximized, state: state};")
+    private static native JSObject createRecord(String appId, double x, double y, double width, double height,
+            boolean minimized, boolean maximized, String state);
+
+    @JSBody(params = {"object", "key"}, script =
+        "var value = object[key];" +
+        "return value === undefined || value === null ? null : String(value);")
+    private static native String getString(JSObject object, String key);
+
+    @JSBody(params = {"object", "key"}, script = "return Number(object[key]) || 0;")
+    private static native double getNumber(JSObject object, String key);
+
+    @JSBody(params = {"object", "key"}, script = "return object[key] === true;")
+    private static native boolean getBoolean(JSObject object, String key);
+
+    @JSBody(script = "return {};")
+    private static native JSObject createObject();
+
+    @JSBody(script = "return [];")
+    private static native JSObject createArray();
+
+    @JSBody(params = {"object", "key", "value"}, script = "object[key] = value;")
+    private static native void setRecord(JSObject object, String key, JSObject value);
+
+    @JSBody(params = {"array", "value"}, script = "array.push(value);")
+    private static native void push(JSObject array, String value);
+
+    @JSBody(params = {"callback"}, script =
+        "document.addEventListener('visibilitychange', function() {" +
+        "  if (document.hidden) callback();" +
+        "});")
+    private static native void addPageHideListener(Runnable callback);
+
+    @JSBody(params = {"callback", "delay"}, script = "return setTimeout(callback, delay);")
+    private static native int setTimeout(TimerCallback callback, int delay);
+
+    @JSBody(params = {"id"}, script = "clearTimeout(id);")
+    private static native void clearTimeout(int id);
+}
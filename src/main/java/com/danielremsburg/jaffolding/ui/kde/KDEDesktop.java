@@ -6,6 +6,8 @@ import org.teavm.jso.dom.html.HTMLElement;
 import com.danielremsburg.jaffolding.Component;
 import com.danielremsburg.jaffolding.bridge.JSBridge;
 import com.danielremsburg.jaffolding.bridge.JSComponentWrapper;
+import com.danielremsburg.jaffolding.ui.Window;
+import com.danielremsburg.jaffolding.ui.WindowManager;
 
 /**
  * KDE Plasma-inspired desktop environment for the Jaffolding framework.
@@ -14,6 +16,7 @@ import com.danielremsburg.jaffolding.bridge.JSComponentWrapper;
 public class KDEDesktop extends JSComponentWrapper {
     private HTMLElement container;
     private boolean usingJSImplementation;
+    private WindowManager windowManager;
     
     /**
      * Creates a new KDEDesktop instance.
@@ -41,12 +44,21 @@ public class KDEDesktop extends JSComponentWrapper {
     }
     
     /**
-     * Adds a window to the desktop.
+     * Adds a window to the desktop. Jaffolding windows are rendered into the container and stacked by
+     * its {@link WindowManager}; other components are handed to the JavaScript implementation.
      * @param window The window to add
      * @return This desktop instance for chaining
      */
     public KDEDesktop addWindow(Component window) {
-        if (usingJSImplementation && window.getElement() != null) {
+        if (window instanceof Window) {
+            getWindowManager().register((Window) window);
+            if (window.getElement() == null) {
+                window.render(container);
+            } else if (window.getElement().getParentNode() == null) {
+                // A window detached to be kept warm is put back as it was
+                container.appendChild(window.getElement());
+            }
+        } else if (usingJSImplementation && window.getElement() != null) {
             callMethod("addWindow", window.getElement());
         } else {
             // Java implementation
@@ -55,6 +67,16 @@ public class KDEDesktop extends JSComponentWrapper {
         return this;
     }
     
+    /**
+     * @return The manager stacking and focusing the windows of this desktop
+     */
+    public WindowManager getWindowManager() {
+        if (windowManager == null) {
+            windowManager = WindowManager.forContainer(container);
+        }
+        return windowManager;
+    }
+    
     /**
      * Creates desktop icons for applications.
      * @param apps The applications to create icons for
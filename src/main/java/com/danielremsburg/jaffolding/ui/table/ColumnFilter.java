@@ -0,0 +1,135 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A typed predicate applied to a single table column.
+ * Substring filters are answered from a trigram index, ranges from a sorted
+ * numeric index and equality from per-value bitmaps.
+ */
+public final class ColumnFilter {
+
+    /**
+     * The kind of predicate a filter represents.
+     */
+    public enum Kind {
+        CONTAINS,
+        RANGE,
+        EQUALS
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final double min;
+    private final double max;
+    private final Set<String> values;
+
+    private ColumnFilter(Kind kind, String text, double min, double max, Set<String> values) {
+        this.kind = kind;
+        this.text = text;
+        this.min = min;
+        this.max = max;
+        this.values = values;
+    }
+
+    /**
+     * Creates a case-insensitive substring filter.
+     * @param text The text the cell must contain
+     * @return The filter
+     */
+    public static ColumnFilter contains(String text) {
+        return new ColumnFilter(Kind.CONTAINS, ColumnIndex.normalize(text), 0, 0, null);
+    }
+
+    /**
+     * Creates an inclusive numeric range filter.
+     * Use {@code Double.NEGATIVE_INFINITY} or {@code Double.POSITIVE_INFINITY} for open bounds.
+     * @param min The lower bound
+     * @param max The upper bound
+     * @return The filter
+     */
+    public static ColumnFilter range(double min, double max) {
+        return new ColumnFilter(Kind.RANGE, null, min, max, null);
+    }
+
+    /**
+     * Creates a case-insensitive equality filter matching any of the given values.
+     * @param values The accepted values
+     * @return The filter
+     */
+    public static ColumnFilter equalsAny(String... values) {
+        Set<String> normalized = new HashSet<>();
+        for (String value : Arrays.asList(values)) {
+            normalized.add(ColumnIndex.normalize(value));
+        }
+        return new ColumnFilter(Kind.EQUALS, null, 0, 0, normalized);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public Set<String> getValues() {
+        return values;
+    }
+
+    /**
+     * Checks a single cell value against this filter without using an index.
+     * @param value The cell value
+     * @return True if the value matches
+     */
+    boolean accepts(Object value) {
+        if (value == null) {
+            return false;
+        }
+
+        switch (kind) {
+            case CONTAINS:
+                return ColumnIndex.normalize(value.toString()).contains(text);
+            case RANGE:
+                double number = ColumnIndex.toNumber(value);
+                return number >= min && number <= max;
+            case EQUALS:
+                return values.contains(ColumnIndex.normalize(value.toString()));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks whether every row matched by this filter is also matched by the previous one,
+     * so evaluation can start from the previous result instead of the whole column.
+     * @param previous The filter previously applied to the same column
+     * @return True if this filter only narrows the previous one
+     */
+    boolean refines(ColumnFilter previous) {
+        if (previous == null || previous.kind != kind) {
+            return false;
+        }
+
+        switch (kind) {
+            case CONTAINS:
+                return text.contains(previous.text);
+            case RANGE:
+                return min >= previous.min && max <= previous.max;
+            case EQUALS:
+                return previous.values.containsAll(values);
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,508 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Cached, normalized view of a single column with the secondary indexes used by {@link FilterEngine}.
+ * Every structure except the normalized strings is built lazily on the first query that needs it,
+ * and every structure built so far is updated in place when a single row changes.
+ */
+class ColumnIndex {
+    private static final int MAX_ENUM_CARDINALITY = 256;
+
+    private int rowCount;
+    private Object[] raw;
+    private String[] normalized;
+
+    private double[] numbers;
+    private int[] sortedRows;
+    private double[] sortedValues;
+    private int sortedCount;
+
+    private Map<String, BitSet> bitmaps;
+    private boolean bitmapsUnavailable;
+
+    private Map<String, IntList> trigrams;
+
+    /**
+     * @param rows The rows, with null for a removed row
+     * @param columnName The column to index
+     */
+    ColumnIndex(List<Map<String, Object>> rows, String columnName) {
+        this.rowCount = rows.size();
+        this.raw = new Object[Math.max(rowCount, 16)];
+        this.normalized = new String[raw.length];
+
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> row = rows.get(i);
+            Object value = row != null ? row.get(columnName) : null;
+            raw[i] = value;
+            normalized[i] = value != null ? normalize(value.toString()) : null;
+        }
+    }
+
+    /**
+     * Changes the value of one row, or appends a row, updating only that row's entries.
+     * @param row The row, at most the current row count
+     * @param value The new value, or null for a removed row
+     */
+    void set(int row, Object value) {
+        if (row == rowCount) {
+            append();
+        }
+
+        String oldNormalized = normalized[row];
+        String newNormalized = value != null ? normalize(value.toString()) : null;
+
+        if (numbers != null) {
+            double oldNumber = numbers[row];
+            double newNumber = toNumber(value);
+            if (sortedRows != null && Double.compare(oldNumber, newNumber) != 0) {
+                if (!Double.isNaN(oldNumber)) {
+                    removeSorted(row, oldNumber);
+                }
+                if (!Double.isNaN(newNumber)) {
+                    insertSorted(row, newNumber);
+                }
+            }
+            numbers[row] = newNumber;
+        }
+
+        if (!Objects.equals(oldNormalized, newNormalized)) {
+            if (bitmaps != null) {
+                updateBitmaps(row, oldNormalized, newNormalized);
+            }
+            if (trigrams != null) {
+                updateTrigrams(row, oldNormalized, newNormalized);
+            }
+        }
+
+        raw[row] = value;
+        normalized[row] = newNormalized;
+    }
+
+    private void append() {
+        if (rowCount == raw.length) {
+            int capacity = raw.length * 2;
+            raw = Arrays.copyOf(raw, capacity);
+            normalized = Arrays.copyOf(normalized, capacity);
+            if (numbers != null) {
+                numbers = Arrays.copyOf(numbers, capacity);
+            }
+        }
+        if (numbers != null) {
+            numbers[rowCount] = Double.NaN;
+        }
+        rowCount++;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+
+    /**
+     * Evaluates a filter against this column.
+     * @param filter The filter to evaluate
+     * @param candidates Rows still eligible, or null for all rows
+     * @return The matching rows
+     */
+    BitSet match(ColumnFilter filter, BitSet candidates) {
+        switch (filter.getKind()) {
+            case CONTAINS:
+                return matchContains(filter.getText(), candidates);
+            case RANGE:
+                return matchRange(filter.getMin(), filter.getMax(), candidates);
+            case EQUALS:
+                return matchEquals(filter, candidates);
+            default:
+                return new BitSet(rowCount);
+        }
+    }
+
+    private BitSet matchContains(String text, BitSet candidates) {
+        BitSet scope = candidates;
+
+        if (text.length() >= 3) {
+            BitSet trigramHits = lookupTrigrams(text);
+            if (scope == null) {
+                scope = trigramHits;
+            } else {
+                scope = (BitSet) scope.clone();
+                scope.and(trigramHits);
+            }
+        }
+
+        BitSet result = new BitSet(rowCount);
+        if (scope == null) {
+            for (int row = 0; row < rowCount; row++) {
+                if (normalized[row] != null && normalized[row].contains(text)) {
+                    result.set(row);
+                }
+            }
+        } else {
+            for (int row = scope.nextSetBit(0); row >= 0; row = scope.nextSetBit(row + 1)) {
+                if (normalized[row] != null && normalized[row].contains(text)) {
+                    result.set(row);
+                }
+            }
+        }
+        return result;
+    }
+
+    private BitSet matchRange(double min, double max, BitSet candidates) {
+        ensureSortedIndex();
+
+        BitSet result = new BitSet(rowCount);
+        int from = lowerBound(sortedValues, sortedCount, min);
+        for (int i = from; i < sortedCount && sortedValues[i] <= max; i++) {
+            result.set(sortedRows[i]);
+        }
+
+        if (candidates != null) {
+            result.and(candidates);
+        }
+        return result;
+    }
+
+    private BitSet matchEquals(ColumnFilter filter, BitSet candidates) {
+        ensureBitmaps();
+
+        BitSet result = new BitSet(rowCount);
+        if (bitmaps != null) {
+            for (String value : filter.getValues()) {
+                BitSet bitmap = bitmaps.get(value);
+                if (bitmap != null) {
+                    result.or(bitmap);
+                }
+            }
+        } else {
+            for (int row = 0; row < rowCount; row++) {
+                if (normalized[row] != null && filter.getValues().contains(normalized[row])) {
+                    result.set(row);
+                }
+            }
+        }
+
+        if (candidates != null) {
+            result.and(candidates);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the numeric value of a cell, or NaN if it is missing or not a number.
+     */
+    double numberAt(int row) {
+        ensureNumbers();
+        return numbers[row];
+    }
+
+    String normalizedAt(int row) {
+        return normalized[row];
+    }
+
+    private void ensureNumbers() {
+        if (numbers != null) {
+            return;
+        }
+
+        numbers = new double[raw.length];
+        for (int i = 0; i < rowCount; i++) {
+            numbers[i] = toNumber(raw[i]);
+        }
+    }
+
+    private void ensureSortedIndex() {
+        if (sortedRows != null) {
+            return;
+        }
+
+        ensureNumbers();
+
+        int count = 0;
+        Integer[] order = new Integer[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            if (!Double.isNaN(numbers[i])) {
+                order[count++] = i;
+            }
+        }
+
+        // Ties are ordered by row, so a single row's entry can be found by binary search
+        Arrays.sort(order, 0, count, (a, b) -> {
+            int result = Double.compare(numbers[a], numbers[b]);
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+
+        sortedRows = new int[Math.max(count, 16)];
+        sortedValues = new double[sortedRows.length];
+        sortedCount = count;
+        for (int i = 0; i < count; i++) {
+            sortedRows[i] = order[i];
+            sortedValues[i] = numbers[order[i]];
+        }
+    }
+
+    private int sortedPosition(int row, double value) {
+        int low = 0;
+        int high = sortedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int result = Double.compare(sortedValues[mid], value);
+            if (result < 0 || (result == 0 && sortedRows[mid] < row)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void insertSorted(int row, double value) {
+        if (sortedCount == sortedRows.length) {
+            sortedRows = Arrays.copyOf(sortedRows, sortedCount * 2);
+            sortedValues = Arrays.copyOf(sortedValues, sortedCount * 2);
+        }
+
+        int position = sortedPosition(row, value);
+        System.arraycopy(sortedRows, position, sortedRows, position + 1, sortedCount - position);
+        System.arraycopy(sortedValues, position, sortedValues, position + 1, sortedCount - position);
+        sortedRows[position] = row;
+        sortedValues[position] = value;
+        sortedCount++;
+    }
+
+    private void removeSorted(int row, double value) {
+        int position = sortedPosition(row, value);
+        if (position == sortedCount || sortedRows[position] != row) {
+            return;
+        }
+
+        System.arraycopy(sortedRows, position + 1, sortedRows, position, sortedCount - position - 1);
+        System.arraycopy(sortedValues, position + 1, sortedValues, position, sortedCount - position - 1);
+        sortedCount--;
+    }
+
+    private void ensureBitmaps() {
+        if (bitmaps != null || bitmapsUnavailable) {
+            return;
+        }
+
+        Map<String, BitSet> built = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            if (normalized[row] == null) {
+                continue;
+            }
+
+            BitSet bitmap = built.get(normalized[row]);
+            if (bitmap == null) {
+                if (built.size() >= MAX_ENUM_CARDINALITY) {
+                    // Too many distinct values for bitmaps to pay off; fall back to scanning
+                    bitmapsUnavailable = true;
+                    return;
+                }
+                bitmap = new BitSet(rowCount);
+                built.put(normalized[row], bitmap);
+            }
+            bitmap.set(row);
+        }
+
+        bitmaps = built;
+    }
+
+    private void updateBitmaps(int row, String oldValue, String newValue) {
+        if (oldValue != null) {
+            BitSet bitmap = bitmaps.get(oldValue);
+            bitmap.clear(row);
+            if (bitmap.isEmpty()) {
+                bitmaps.remove(oldValue);
+            }
+        }
+
+        if (newValue != null) {
+            BitSet bitmap = bitmaps.get(newValue);
+            if (bitmap == null) {
+                if (bitmaps.size() >= MAX_ENUM_CARDINALITY) {
+                    bitmaps = null;
+                    bitmapsUnavailable = true;
+                    return;
+                }
+                bitmap = new BitSet(rowCount);
+                bitmaps.put(newValue, bitmap);
+            }
+            bitmap.set(row);
+        }
+    }
+
+    private BitSet lookupTrigrams(String text) {
+        ensureTrigrams();
+
+        List<IntList> postings = new ArrayList<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            IntList posting = trigrams.get(text.substring(i, i + 3));
+            if (posting == null) {
+                return new BitSet(rowCount);
+            }
+            postings.add(posting);
+        }
+
+        // Intersect starting from the most selective trigram
+        postings.sort((a, b) -> Integer.compare(a.size, b.size));
+        int[] current = postings.get(0).items;
+        int length = postings.get(0).size;
+        for (int p = 1; p < postings.size() && length > 0; p++) {
+            int[] next = new int[length];
+            length = intersect(current, length, postings.get(p).items, postings.get(p).size, next);
+            current = next;
+        }
+
+        BitSet result = new BitSet(rowCount);
+        for (int i = 0; i < length; i++) {
+            result.set(current[i]);
+        }
+        return result;
+    }
+
+    private static int intersect(int[] a, int aLength, int[] b, int bLength, int[] out) {
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < aLength && j < bLength) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k;
+    }
+
+    private void ensureTrigrams() {
+        if (trigrams != null) {
+            return;
+        }
+
+        trigrams = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            String value = normalized[row];
+            if (value == null) {
+                continue;
+            }
+
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                String trigram = value.substring(i, i + 3);
+                IntList posting = trigrams.get(trigram);
+                if (posting == null) {
+                    posting = new IntList();
+                    trigrams.put(trigram, posting);
+                }
+                // Postings are appended in row order, so a repeated trigram only needs a tail check
+                if (posting.size == 0 || posting.items[posting.size - 1] != row) {
+                    posting.add(row);
+                }
+            }
+        }
+    }
+
+    private void updateTrigrams(int row, String oldValue, String newValue) {
+        if (oldValue != null) {
+            for (int i = 0; i + 3 <= oldValue.length(); i++) {
+                String trigram = oldValue.substring(i, i + 3);
+                IntList posting = trigrams.get(trigram);
+                if (posting != null) {
+                    posting.removeSorted(row);
+                    if (posting.size == 0) {
+                        trigrams.remove(trigram);
+                    }
+                }
+            }
+        }
+
+        if (newValue != null) {
+            for (int i = 0; i + 3 <= newValue.length(); i++) {
+                String trigram = newValue.substring(i, i + 3);
+                IntList posting = trigrams.get(trigram);
+                if (posting == null) {
+                    posting = new IntList();
+                    trigrams.put(trigram, posting);
+                }
+                posting.insertSorted(row);
+            }
+        }
+    }
+
+    static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static int lowerBound(double[] values, int count, double key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Growable sorted list of primitive ints, used for posting lists.
+     */
+    private static class IntList {
+        int[] items = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        void insertSorted(int value) {
+            int position = Arrays.binarySearch(items, 0, size, value);
+            if (position >= 0) {
+                return;
+            }
+
+            position = -position - 1;
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            System.arraycopy(items, position, items, position + 1, size - position);
+            items[position] = value;
+            size++;
+        }
+
+        void removeSorted(int value) {
+            int position = Arrays.binarySearch(items, 0, size, value);
+            if (position >= 0) {
+                System.arraycopy(items, position + 1, items, position, size - position - 1);
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexed filtering over a set of source rows.
+ * Rows are numbered in the order they are added, and filtering produces the numbers of the matching
+ * rows. A removed row keeps its number until enough rows are removed to renumber them, so adding,
+ * replacing or removing one row only updates that row's entries in the indexes and cached results.
+ * Per-column indexes are built on first use, and the result of each column filter is cached so that
+ * narrowing a filter (for example typing another character) only re-checks the rows that matched before.
+ */
+public class FilterEngine {
+    private static final int MIN_RENUMBER_ROWS = 1024;
+
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final Map<Map<String, Object>, Integer> rowNumbers = new IdentityHashMap<>();
+    private final BitSet liveRows = new BitSet();
+    private int removedCount = 0;
+    private final Map<String, ColumnIndex> indexes = new HashMap<>();
+    private final Map<String, ColumnFilter> filters = new LinkedHashMap<>();
+    private final Map<String, BitSet> columnResults = new HashMap<>();
+
+    /**
+     * Replaces the source rows and drops all cached indexes.
+     * @param rows The unfiltered source rows
+     */
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows.clear();
+        rowNumbers.clear();
+        liveRows.clear();
+        removedCount = 0;
+        indexes.clear();
+        columnResults.clear();
+
+        for (Map<String, Object> row : rows) {
+            rowNumbers.put(row, this.rows.size());
+            liveRows.set(this.rows.size());
+            this.rows.add(row);
+        }
+    }
+
+    /**
+     * Adds a row after all others.
+     */
+    public void addRow(Map<String, Object> row) {
+        int number = rows.size();
+        rows.add(row);
+        rowNumbers.put(row, number);
+        liveRows.set(number);
+        updateRow(number, row);
+    }
+
+    /**
+     * Replaces a row, which keeps its number and so its place in the source order.
+     */
+    public void replaceRow(Map<String, Object> oldRow, Map<String, Object> newRow) {
+        Integer number = rowNumbers.remove(oldRow);
+        if (number == null) {
+            addRow(newRow);
+            return;
+        }
+
+        rows.set(number, newRow);
+        rowNumbers.put(newRow, number);
+        updateRow(number, newRow);
+    }
+
+    public void removeRow(Map<String, Object> row) {
+        Integer number = rowNumbers.remove(row);
+        if (number == null) {
+            return;
+        }
+
+        rows.set(number, null);
+        liveRows.clear(number);
+        updateRow(number, null);
+
+        // Renumbering costs as much as the removals it reclaims
+        if (++removedCount >= MIN_RENUMBER_ROWS && removedCount * 2 > rows.size()) {
+            List<Map<String, Object>> remaining = new ArrayList<>(rows.size() - removedCount);
+            for (Map<String, Object> remainingRow : rows) {
+                if (remainingRow != null) {
+                    remaining.add(remainingRow);
+                }
+            }
+            setRows(remaining);
+        }
+    }
+
+    /**
+     * Gets a row by the number {@link #apply()} returned for it.
+     */
+    public Map<String, Object> getRow(int number) {
+        return rows.get(number);
+    }
+
+    /**
+     * Gets a row's number, which orders rows as they were added.
+     * @return The number, or -1 if the row is not one of the source rows
+     */
+    public int getRowNumber(Map<String, Object> row) {
+        Integer number = rowNumbers.get(row);
+        return number != null ? number : -1;
+    }
+
+    /**
+     * Gets a row's index among the rows still present, which is its index in the source list.
+     * @return The index, or -1 if the row is not one of the source rows
+     */
+    public int getRowIndex(Map<String, Object> row) {
+        Integer number = rowNumbers.get(row);
+        return number != null ? liveRows.get(0, number).cardinality() : -1;
+    }
+
+    private void updateRow(int number, Map<String, Object> row) {
+        for (Map.Entry<String, ColumnIndex> entry : indexes.entrySet()) {
+            entry.getValue().set(number, row != null ? row.get(entry.getKey()) : null);
+        }
+
+        // Cached results belong to the current filters, so they stay exact for the changed row
+        for (Map.Entry<String, BitSet> entry : columnResults.entrySet()) {
+            String columnName = entry.getKey();
+            entry.getValue().set(number, row != null && filters.get(columnName).accepts(row.get(columnName)));
+        }
+    }
+
+    /**
+     * Sets or replaces the filter for a column.
+     * @param columnName The column name
+     * @param filter The filter, or null to remove it
+     */
+    public void setFilter(String columnName, ColumnFilter filter) {
+        if (filter == null) {
+            removeFilter(columnName);
+            return;
+        }
+
+        ColumnFilter previous = filters.put(columnName, filter);
+        if (!filter.refines(previous)) {
+            columnResults.remove(columnName);
+        }
+    }
+
+    public void removeFilter(String columnName) {
+        filters.remove(columnName);
+        columnResults.remove(columnName);
+    }
+
+    public void clearFilters() {
+        filters.clear();
+        columnResults.clear();
+    }
+
+    public boolean hasFilters() {
+        return !filters.isEmpty();
+    }
+
+    public ColumnFilter getFilter(String columnName) {
+        return filters.get(columnName);
+    }
+
+    public Map<String, ColumnFilter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Checks a single row against all active filters, for example one that is about to be added.
+     * @param row The row
+     * @return True if the row passes every filter
+     */
+    public boolean matches(Map<String, Object> row) {
+        for (Map.Entry<String, ColumnFilter> entry : filters.entrySet()) {
+            if (!entry.getValue().accepts(row.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates all active filters.
+     * @return The numbers of the matching source rows in ascending order
+     */
+    public int[] apply() {
+        BitSet matches = null;
+
+        for (Map.Entry<String, ColumnFilter> entry : filters.entrySet()) {
+            String columnName = entry.getKey();
+
+            // A cached result from a broader filter on this column is a valid candidate set
+            BitSet candidates = columnResults.get(columnName);
+            BitSet columnMatches = index(columnName).match(entry.getValue(), candidates);
+            columnResults.put(columnName, columnMatches);
+
+            if (matches == null) {
+                matches = (BitSet) columnMatches.clone();
+            } else {
+                matches.and(columnMatches);
+            }
+        }
+
+        if (matches == null) {
+            // Removed rows never match a filter, but without one they have to be skipped
+            matches = liveRows;
+        }
+
+        int[] result = new int[matches.cardinality()];
+        int k = 0;
+        for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+            result[k++] = row;
+        }
+        return result;
+    }
+
+    private ColumnIndex index(String columnName) {
+        ColumnIndex index = indexes.get(columnName);
+        if (index == null) {
+            index = new ColumnIndex(rows, columnName);
+            indexes.put(columnName, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,388 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Group-by aggregation over table rows, maintained incrementally.
+ * Rows are grouped by one or more columns into a tree of groups, and each group keeps running
+ * aggregates for the configured measures. Adding, removing or updating a row only touches the
+ * groups on that row's path; minimum and maximum are recomputed lazily, and only for groups
+ * whose current extreme was removed.
+ */
+public class PivotModel {
+
+    /**
+     * The aggregate function of a measure.
+     */
+    public enum Function {
+        SUM,
+        COUNT,
+        AVG,
+        MIN,
+        MAX
+    }
+
+    /**
+     * An aggregate function applied to a column.
+     */
+    public static final class Measure {
+        private final String column;
+        private final Function function;
+
+        private Measure(String column, Function function) {
+            this.column = column;
+            this.function = function;
+        }
+
+        public static Measure sum(String column) {
+            return new Measure(column, Function.SUM);
+        }
+
+        public static Measure avg(String column) {
+            return new Measure(column, Function.AVG);
+        }
+
+        public static Measure min(String column) {
+            return new Measure(column, Function.MIN);
+        }
+
+        public static Measure max(String column) {
+            return new Measure(column, Function.MAX);
+        }
+
+        /**
+         * Creates a measure counting the rows of each group.
+         */
+        public static Measure count() {
+            return new Measure(null, Function.COUNT);
+        }
+
+        public String getColumn() {
+            return column;
+        }
+
+        public Function getFunction() {
+            return function;
+        }
+
+        /**
+         * @return A label such as {@code sum(Revenue)} or {@code count}
+         */
+        public String getLabel() {
+            String name = function.name().toLowerCase();
+            return column == null ? name : name + "(" + column + ")";
+        }
+    }
+
+    /**
+     * A node in the group tree. The root group spans all rows.
+     */
+    public final class Group {
+        private final Group parent;
+        private final String key;
+        private final int depth;
+        private final Map<String, Group> children = new LinkedHashMap<>();
+        private final List<Map<String, Object>> rows;
+        private final double[] sums = new double[measures.size()];
+        private final int[] counts = new int[measures.size()];
+        private final double[] mins = new double[measures.size()];
+        private final double[] maxs = new double[measures.size()];
+        private int rowCount;
+        private int version;
+        private boolean extremesStale;
+        private boolean expanded;
+
+        private Group(Group parent, String key, int depth) {
+            this.parent = parent;
+            this.key = key;
+            this.depth = depth;
+            this.rows = depth == groupColumns.size() ? new ArrayList<>() : null;
+            resetExtremes();
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return 0 for the root, 1 for groups of the first group column, and so on
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return A number that changes whenever a row is added to or removed from this group,
+         *         so views can skip groups whose aggregates are unchanged
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        public Collection<Group> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        public boolean isLeaf() {
+            return rows != null;
+        }
+
+        public boolean isExpanded() {
+            return expanded;
+        }
+
+        public void setExpanded(boolean expanded) {
+            this.expanded = expanded;
+        }
+
+        /**
+         * Gets the aggregate of a measure for this group.
+         * @param measure The index of the measure
+         * @return The aggregate, or NaN if the group has no numeric values for it
+         */
+        public double getValue(int measure) {
+            switch (measures.get(measure).getFunction()) {
+                case COUNT:
+                    return rowCount;
+                case SUM:
+                    return counts[measure] == 0 ? Double.NaN : sums[measure];
+                case AVG:
+                    return counts[measure] == 0 ? Double.NaN : sums[measure] / counts[measure];
+                case MIN:
+                    ensureExtremes();
+                    return counts[measure] == 0 ? Double.NaN : mins[measure];
+                case MAX:
+                    ensureExtremes();
+                    return counts[measure] == 0 ? Double.NaN : maxs[measure];
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        private void add(double[] values) {
+            rowCount++;
+            version++;
+            for (int i = 0; i < values.length; i++) {
+                double value = values[i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                sums[i] += value;
+                counts[i]++;
+                mins[i] = Math.min(mins[i], value);
+                maxs[i] = Math.max(maxs[i], value);
+            }
+        }
+
+        private void remove(double[] values) {
+            rowCount--;
+            version++;
+            for (int i = 0; i < values.length; i++) {
+                double value = values[i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                sums[i] -= value;
+                counts[i]--;
+                if (value <= mins[i] || value >= maxs[i]) {
+                    extremesStale = true;
+                }
+            }
+        }
+
+        private void ensureExtremes() {
+            if (!extremesStale) {
+                return;
+            }
+
+            resetExtremes();
+            if (rows != null) {
+                for (Map<String, Object> row : rows) {
+                    double[] values = valuesOf(row);
+                    for (int i = 0; i < values.length; i++) {
+                        if (!Double.isNaN(values[i])) {
+                            mins[i] = Math.min(mins[i], values[i]);
+                            maxs[i] = Math.max(maxs[i], values[i]);
+                        }
+                    }
+                }
+            } else {
+                for (Group child : children.values()) {
+                    child.ensureExtremes();
+                    for (int i = 0; i < mins.length; i++) {
+                        mins[i] = Math.min(mins[i], child.mins[i]);
+                        maxs[i] = Math.max(maxs[i], child.maxs[i]);
+                    }
+                }
+            }
+            extremesStale = false;
+        }
+
+        private void resetExtremes() {
+            for (int i = 0; i < mins.length; i++) {
+                mins[i] = Double.POSITIVE_INFINITY;
+                maxs[i] = Double.NEGATIVE_INFINITY;
+            }
+        }
+    }
+
+    private final List<String> groupColumns;
+    private final List<Measure> measures;
+    private Group root;
+
+    /**
+     * @param groupColumns The columns to group by, outermost first
+     * @param measures The aggregates to compute for each group
+     */
+    public PivotModel(List<String> groupColumns, List<Measure> measures) {
+        this.groupColumns = new ArrayList<>(groupColumns);
+        this.measures = new ArrayList<>(measures);
+        this.root = new Group(null, null, 0);
+        this.root.expanded = true;
+    }
+
+    public List<String> getGroupColumns() {
+        return groupColumns;
+    }
+
+    public List<Measure> getMeasures() {
+        return measures;
+    }
+
+    public Group getRoot() {
+        return root;
+    }
+
+    /**
+     * Rebuilds all groups from scratch. Groups that still exist keep their expanded state.
+     * @param rows The rows to aggregate
+     */
+    public void setRows(List<Map<String, Object>> rows) {
+        Group previous = root;
+        root = new Group(null, null, 0);
+        root.expanded = true;
+
+        for (Map<String, Object> row : rows) {
+            add(row);
+        }
+        copyExpanded(previous, root);
+    }
+
+    /**
+     * Adds a row to the groups on its path.
+     * @param row The row
+     */
+    public void add(Map<String, Object> row) {
+        double[] values = valuesOf(row);
+        Group group = root;
+        group.add(values);
+
+        for (int depth = 0; depth < groupColumns.size(); depth++) {
+            String key = keyOf(row, depth);
+            Group child = group.children.get(key);
+            if (child == null) {
+                child = new Group(group, key, depth + 1);
+                group.children.put(key, child);
+            }
+            child.add(values);
+            group = child;
+        }
+
+        group.rows.add(row);
+    }
+
+    /**
+     * Removes a row from the groups on its path. Groups left without rows are dropped.
+     * @param row The row, which must be the same instance that was added
+     */
+    public void remove(Map<String, Object> row) {
+        Group leaf = root;
+        for (int depth = 0; depth < groupColumns.size() && leaf != null; depth++) {
+            leaf = leaf.children.get(keyOf(row, depth));
+        }
+        if (leaf == null || !removeIdentity(leaf.rows, row)) {
+            return;
+        }
+
+        double[] values = valuesOf(row);
+        for (Group group = leaf; group != null; group = group.parent) {
+            group.remove(values);
+            if (group.rowCount == 0 && group.parent != null) {
+                group.parent.children.remove(group.key);
+            }
+        }
+    }
+
+    /**
+     * Replaces a row, moving it between groups if its group columns changed.
+     * @param oldRow The row instance that was added
+     * @param newRow The replacement row
+     */
+    public void update(Map<String, Object> oldRow, Map<String, Object> newRow) {
+        remove(oldRow);
+        add(newRow);
+    }
+
+    /**
+     * Lists the groups to display: the children of every expanded group, depth first.
+     * @return The visible groups, excluding the root
+     */
+    public List<Group> getVisibleGroups() {
+        List<Group> visible = new ArrayList<>();
+        collectVisible(root, visible);
+        return visible;
+    }
+
+    private void collectVisible(Group group, List<Group> visible) {
+        if (!group.expanded) {
+            return;
+        }
+        for (Group child : group.children.values()) {
+            visible.add(child);
+            collectVisible(child, visible);
+        }
+    }
+
+    private void copyExpanded(Group from, Group to) {
+        to.expanded = from.expanded;
+        for (Group child : to.children.values()) {
+            Group previous = from.children.get(child.key);
+            if (previous != null) {
+                copyExpanded(previous, child);
+            }
+        }
+    }
+
+    private String keyOf(Map<String, Object> row, int depth) {
+        Object value = row.get(groupColumns.get(depth));
+        return value != null ? value.toString() : "";
+    }
+
+    private double[] valuesOf(Map<String, Object> row) {
+        double[] values = new double[measures.size()];
+        for (int i = 0; i < values.length; i++) {
+            String column = measures.get(i).getColumn();
+            values[i] = column == null ? Double.NaN : ColumnIndex.toNumber(row.get(column));
+        }
+        return values;
+    }
+
+    private static boolean removeIdentity(List<Map<String, Object>> rows, Map<String, Object> row) {
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            if (rows.get(i) == row) {
+                rows.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,300 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.ajax.XMLHttpRequest;
+import org.teavm.jso.json.JSON;
+
+import com.danielremsburg.jaffolding.bridge.JSRows;
+
+/**
+ * Server-side paging, sorting and filtering for a data table.
+ * Pages are requested as {@code url?page=&size=&sort=field,dir} plus one parameter per filter
+ * ({@code filter.<field>}, {@code eq.<field>}, {@code min.<field>}, {@code max.<field>}), and the
+ * endpoint answers with a Spring Data page ({@code content}, {@code totalElements}).
+ * Loaded pages are cached per query, the neighbours of the current page are prefetched,
+ * and requests that can no longer be shown are aborted.
+ */
+public class RemoteDataSource {
+    public static final int DEFAULT_CACHED_PAGES = 8;
+
+    private final String url;
+    private final int pageSize;
+    private final Map<String, String> fields = new HashMap<>();
+    private final Map<String, String> columns = new HashMap<>();
+    private final Map<Integer, List<Map<String, Object>>> cache;
+    private final Map<Integer, XMLHttpRequest> inFlight = new HashMap<>();
+    private String query;
+    private int currentPage = 0;
+    private long totalRows = -1;
+    private Consumer<List<Map<String, Object>>> pageListener;
+    private Consumer<String> errorListener;
+
+    public RemoteDataSource(String url, int pageSize) {
+        this(url, pageSize, DEFAULT_CACHED_PAGES);
+    }
+
+    /**
+     * @param url The page endpoint
+     * @param pageSize The number of rows per page
+     * @param cachedPages The number of pages kept for the current query
+     */
+    public RemoteDataSource(String url, int pageSize, int cachedPages) {
+        this.url = url;
+        this.pageSize = pageSize;
+        this.cache = new LinkedHashMap<Integer, List<Map<String, Object>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Map<String, Object>>> eldest) {
+                return size() > cachedPages;
+            }
+        };
+    }
+
+    /**
+     * Maps a table column to the server field it is sorted and filtered by.
+     * Columns without a mapping use their own name.
+     */
+    public RemoteDataSource mapField(String column, String field) {
+        fields.put(column, field);
+        columns.put(field, column);
+        return this;
+    }
+
+    /**
+     * Sets the listener receiving the rows of the current page, keyed by column name.
+     */
+    public RemoteDataSource setOnPage(Consumer<List<Map<String, Object>>> listener) {
+        this.pageListener = listener;
+        return this;
+    }
+
+    public RemoteDataSource setOnError(Consumer<String> listener) {
+        this.errorListener = listener;
+        return this;
+    }
+
+    /**
+     * Applies filters and a sort. If they differ from the current ones, the cache is discarded,
+     * outstanding requests are aborted and the first page is loaded.
+     * @param filters The column filters
+     * @param sortColumn The sort column, or null for the server's default order
+     * @param ascending The sort direction
+     */
+    public void setQuery(Map<String, ColumnFilter> filters, String sortColumn, boolean ascending) {
+        String next = buildQuery(filters, sortColumn, ascending);
+        if (next.equals(query)) {
+            return;
+        }
+
+        query = next;
+        cache.clear();
+        abortAll();
+        totalRows = -1;
+        loadPage(0);
+    }
+
+    /**
+     * Shows a page, from the cache if possible, and prefetches its neighbours.
+     * @param page The zero-based page number
+     */
+    public void loadPage(int page) {
+        if (query == null || page < 0 || (totalRows >= 0 && page >= Math.max(1, getPageCount()))) {
+            return;
+        }
+
+        currentPage = page;
+
+        // Only the current page and its neighbours are still worth downloading
+        for (Integer loading : new ArrayList<>(inFlight.keySet())) {
+            if (Math.abs(loading - page) > 1) {
+                abort(loading);
+            }
+        }
+
+        List<Map<String, Object>> rows = cache.get(page);
+        if (rows != null) {
+            deliver(rows);
+            prefetchNeighbours();
+        } else {
+            fetch(page);
+        }
+    }
+
+    public void nextPage() {
+        loadPage(currentPage + 1);
+    }
+
+    public void previousPage() {
+        loadPage(currentPage - 1);
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return The number of matching rows on the server, or -1 before the first page has loaded
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public int getPageCount() {
+        return totalRows < 0 ? 0 : (int) ((totalRows + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Aborts all outstanding requests.
+     */
+    public void cancel() {
+        abortAll();
+    }
+
+    private void prefetchNeighbours() {
+        if (currentPage > 0) {
+            fetch(currentPage - 1);
+        }
+        if (currentPage + 1 < getPageCount()) {
+            fetch(currentPage + 1);
+        }
+    }
+
+    private void fetch(int page) {
+        if (cache.containsKey(page) || inFlight.containsKey(page)) {
+            return;
+        }
+
+        XMLHttpRequest xhr = XMLHttpRequest.create();
+        inFlight.put(page, xhr);
+        xhr.open("GET", url + (url.contains("?") ? "&" : "?") + "page=" + page + "&size=" + pageSize + query);
+        xhr.setRequestHeader("Accept", "application/json");
+        xhr.setOnReadyStateChange(() -> {
+            if (xhr.getReadyState() != XMLHttpRequest.DONE || inFlight.get(page) != xhr) {
+                // Not finished, or aborted because it was superseded
+                return;
+            }
+            inFlight.remove(page);
+
+            if (xhr.getStatus() != 200) {
+                if (page == currentPage && errorListener != null) {
+                    errorListener.accept("HTTP " + xhr.getStatus());
+                }
+                return;
+            }
+
+            try {
+                JSObject response = JSON.parse(xhr.getResponseText());
+                totalRows = (long) getTotalElements(response);
+                cache.put(page, toColumns(JSRows.toRows(getContent(response))));
+            } catch (Exception e) {
+                if (page == currentPage && errorListener != null) {
+                    errorListener.accept("Error parsing page: " + e.getMessage());
+                }
+                return;
+            }
+
+            if (page == currentPage) {
+                deliver(cache.get(page));
+                prefetchNeighbours();
+            }
+        });
+        xhr.send();
+    }
+
+    private void deliver(List<Map<String, Object>> rows) {
+        if (pageListener != null) {
+            pageListener.accept(rows);
+        }
+    }
+
+    private void abort(int page) {
+        XMLHttpRequest xhr = inFlight.remove(page);
+        if (xhr != null) {
+            xhr.abort();
+        }
+    }
+
+    private void abortAll() {
+        for (Integer page : new ArrayList<>(inFlight.keySet())) {
+            abort(page);
+        }
+    }
+
+    private List<Map<String, Object>> toColumns(List<Map<String, Object>> rows) {
+        if (columns.isEmpty()) {
+            return rows;
+        }
+
+        List<Map<String, Object>> renamed = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> mapped = new HashMap<>();
+            for (Map.Entry<String, Object> cell : row.entrySet()) {
+                mapped.put(columns.getOrDefault(cell.getKey(), cell.getKey()), cell.getValue());
+            }
+            renamed.add(mapped);
+        }
+        return renamed;
+    }
+
+    private String buildQuery(Map<String, ColumnFilter> filters, String sortColumn, boolean ascending) {
+        StringBuilder sb = new StringBuilder();
+
+        if (sortColumn != null) {
+            sb.append("&sort=").append(encode(fieldOf(sortColumn))).append(ascending ? ",asc" : ",desc");
+        }
+
+        // Sorted so that equal filter sets produce equal queries
+        for (Map.Entry<String, ColumnFilter> entry : new TreeMap<>(filters).entrySet()) {
+            String field = encode(fieldOf(entry.getKey()));
+            ColumnFilter filter = entry.getValue();
+
+            switch (filter.getKind()) {
+                case CONTAINS:
+                    sb.append("&filter.").append(field).append('=').append(encode(filter.getText()));
+                    break;
+                case RANGE:
+                    if (!Double.isInfinite(filter.getMin())) {
+                        sb.append("&min.").append(field).append('=').append(filter.getMin());
+                    }
+                    if (!Double.isInfinite(filter.getMax())) {
+                        sb.append("&max.").append(field).append('=').append(filter.getMax());
+                    }
+                    break;
+                case EQUALS:
+                    sb.append("&eq.").append(field).append('=')
+                        .append(encode(String.join(",", new TreeSet<>(filter.getValues()))));
+                    break;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private String fieldOf(String column) {
+        return fields.getOrDefault(column, column);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"value"}, script = "return encodeURIComponent(value);")
+    private static native String encode(String value);
+
+    @JSBody(params = {"page"}, script = "return page.content || [];")
+    private static native JSObject getContent(JSObject page);
+
+    @JSBody(params = {"page"}, script = "return +page.totalElements || 0;")
+    private static native double getTotalElements(JSObject page);
+}
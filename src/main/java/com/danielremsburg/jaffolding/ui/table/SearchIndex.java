@@ -0,0 +1,290 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Inverted index for quick search across the string columns of table rows.
+ * Values are split into case-folded tokens of letters and digits, and a query matches the rows in
+ * which every query token is a prefix of some token. Terms are kept in a sorted dictionary, so a
+ * prefix maps to one contiguous range of terms. Results are ranked by how rare the matched terms
+ * are, with exact term matches counting double. The index is updated row by row as rows are
+ * added, updated or removed.
+ */
+public class SearchIndex {
+    private final List<String> columns;
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Map<String, Object>, Integer> docIds = new IdentityHashMap<>();
+    private final List<Map<String, Object>> docs = new ArrayList<>();
+
+    /**
+     * @param columns The columns to index, or an empty list to index every string value
+     */
+    public SearchIndex(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+    }
+
+    /**
+     * Replaces the indexed rows.
+     * @param rows The rows to index
+     */
+    public void setRows(List<Map<String, Object>> rows) {
+        terms.clear();
+        docIds.clear();
+        docs.clear();
+        for (Map<String, Object> row : rows) {
+            add(row);
+        }
+    }
+
+    /**
+     * Indexes a row. Adding the same row instance twice has no effect.
+     * @param row The row
+     */
+    public void add(Map<String, Object> row) {
+        if (docIds.containsKey(row)) {
+            return;
+        }
+
+        int id = docs.size();
+        docs.add(row);
+        docIds.put(row, id);
+
+        for (String token : tokensOf(row)) {
+            Postings postings = terms.get(token);
+            if (postings == null) {
+                postings = new Postings();
+                terms.put(token, postings);
+            }
+            postings.append(id);
+        }
+    }
+
+    /**
+     * Removes a row from the index.
+     * @param row The row instance that was added
+     */
+    public void remove(Map<String, Object> row) {
+        Integer id = docIds.remove(row);
+        if (id == null) {
+            return;
+        }
+
+        docs.set(id, null);
+        for (String token : tokensOf(row)) {
+            Postings postings = terms.get(token);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(token);
+            }
+        }
+
+        // Renumber once most ids belong to removed rows
+        if (docs.size() > 1024 && docIds.size() < docs.size() / 2) {
+            List<Map<String, Object>> live = new ArrayList<>(docIds.size());
+            for (Map<String, Object> doc : docs) {
+                if (doc != null) {
+                    live.add(doc);
+                }
+            }
+            setRows(live);
+        }
+    }
+
+    /**
+     * Replaces a row in the index.
+     * @param oldRow The row instance that was added
+     * @param newRow The replacement row
+     */
+    public void update(Map<String, Object> oldRow, Map<String, Object> newRow) {
+        remove(oldRow);
+        add(newRow);
+    }
+
+    /**
+     * Finds the rows matching every token of a query.
+     * @param query The query text
+     * @return The matching rows, best match first, ties in insertion order
+     */
+    public List<Map<String, Object>> search(String query) {
+        String[] tokens = tokenize(query);
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (tokens.length == 0) {
+            return result;
+        }
+
+        int docCount = docs.size();
+        int[] matched = new int[docCount];
+        double[] scores = new double[docCount];
+
+        for (int t = 0; t < tokens.length; t++) {
+            String token = tokens[t];
+            for (Map.Entry<String, Postings> entry
+                    : terms.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+                Postings postings = entry.getValue();
+                double weight = Math.log(1 + (double) docIds.size() / postings.size)
+                        * (entry.getKey().length() == token.length() ? 2 : 1);
+
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.ids[i];
+                    // Only rows that matched every previous token stay candidates
+                    if (matched[doc] == t) {
+                        matched[doc] = t + 1;
+                        scores[doc] += weight;
+                    } else if (matched[doc] == t + 1) {
+                        scores[doc] += weight;
+                    }
+                }
+            }
+        }
+
+        List<Integer> hits = new ArrayList<>();
+        for (int doc = 0; doc < docCount; doc++) {
+            if (matched[doc] == tokens.length) {
+                hits.add(doc);
+            }
+        }
+        hits.sort((a, b) -> scores[a] != scores[b] ? Double.compare(scores[b], scores[a]) : Integer.compare(a, b));
+
+        for (int doc : hits) {
+            result.add(docs.get(doc));
+        }
+        return result;
+    }
+
+    /**
+     * Checks a single row against a query without using the index.
+     * @param row The row
+     * @param query The query text
+     * @return True if every query token is a prefix of a token in the row
+     */
+    public boolean matches(Map<String, Object> row, String query) {
+        Set<String> rowTokens = tokensOf(row);
+        for (String token : tokenize(query)) {
+            boolean found = false;
+            for (String rowToken : rowTokens) {
+                if (rowToken.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the parts of a text that match a query, for highlighting.
+     * @param text The displayed text
+     * @param query The query text
+     * @return Start and end offsets of each match, flattened
+     */
+    public static int[] highlight(String text, String query) {
+        String[] tokens = tokenize(query);
+        int[] ranges = new int[0];
+        int count = 0;
+
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            String word = text.substring(start, i).toLowerCase();
+
+            int longest = 0;
+            for (String token : tokens) {
+                if (token.length() > longest && word.startsWith(token)) {
+                    longest = token.length();
+                }
+            }
+            if (longest > 0) {
+                if (count + 2 > ranges.length) {
+                    ranges = Arrays.copyOf(ranges, Math.max(8, ranges.length * 2));
+                }
+                ranges[count++] = start;
+                ranges[count++] = start + longest;
+            }
+        }
+
+        return Arrays.copyOf(ranges, count);
+    }
+
+    /**
+     * Splits text into lowercase tokens of letters and digits.
+     */
+    static String[] tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return new String[0];
+        }
+
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private Set<String> tokensOf(Map<String, Object> row) {
+        Set<String> tokens = new HashSet<>();
+        if (columns.isEmpty()) {
+            for (Object value : row.values()) {
+                addTokens(tokens, value);
+            }
+        } else {
+            for (String column : columns) {
+                addTokens(tokens, row.get(column));
+            }
+        }
+        return tokens;
+    }
+
+    private static void addTokens(Set<String> tokens, Object value) {
+        if (value instanceof String) {
+            tokens.addAll(Arrays.asList(tokenize((String) value)));
+        }
+    }
+
+    /**
+     * Ascending ids of the rows containing a term. Ids only grow, so adding appends.
+     */
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void append(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.danielremsburg.jaffolding.ui.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+
+import com.danielremsburg.jaffolding.ui.ProgressBar;
+
+/**
+ * Serializes table rows to CSV or JSON without blocking the page.
+ * Rows are written in time slices of a few milliseconds, yielding to the event loop between slices,
+ * and each slice's text is appended to a {@code Blob} as it is produced, so no single string holds the
+ * whole export. Progress can be shown on a {@link ProgressBar}, and an export can be cancelled at any time.
+ */
+public class TableExporter {
+    private static final double SLICE_MS = 8;
+    private static final int ROWS_PER_CLOCK_CHECK = 128;
+    private static final int PARTS_PER_BLOB = 64;
+
+    /**
+     * Output formats with their MIME types.
+     */
+    public enum Format {
+        CSV("text/csv;charset=utf-8"),
+        JSON("application/json");
+
+        private final String mimeType;
+
+        Format(String mimeType) {
+            this.mimeType = mimeType;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+    }
+
+    private final List<String> columns;
+    private final List<Map<String, Object>> rows;
+    private final Format format;
+    private String fileName;
+    private ProgressBar progressBar;
+    private Consumer<Integer> progressListener;
+    private Consumer<JSObject> completeListener;
+    private Runnable cancelListener;
+
+    private int position = 0;
+    private boolean running = false;
+    private int timer = -1;
+    private JSObject blob;
+    private JSObject parts;
+
+    /**
+     * @param columns The columns to write, in order
+     * @param rows The rows to write; copied, so later changes to the list do not affect the export
+     * @param format The output format
+     */
+    public TableExporter(List<String> columns, List<Map<String, Object>> rows, Format format) {
+        this.columns = new ArrayList<>(columns);
+        this.rows = new ArrayList<>(rows);
+        this.format = format;
+    }
+
+    /**
+     * Downloads the finished export under the given file name.
+     */
+    public TableExporter setFileName(String fileName) {
+        this.fileName = fileName;
+        return this;
+    }
+
+    /**
+     * Shows progress on a progress bar, whose maximum is set to the number of rows.
+     */
+    public TableExporter setProgressBar(ProgressBar progressBar) {
+        this.progressBar = progressBar;
+        return this;
+    }
+
+    /**
+     * Sets a listener called with the number of rows written after each slice.
+     */
+    public TableExporter setOnProgress(Consumer<Integer> listener) {
+        this.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * Sets a listener called with the finished {@code Blob}.
+     */
+    public TableExporter setOnComplete(Consumer<JSObject> listener) {
+        this.completeListener = listener;
+        return this;
+    }
+
+    public TableExporter setOnCancel(Runnable listener) {
+        this.cancelListener = listener;
+        return this;
+    }
+
+    /**
+     * Starts writing. The first slice runs immediately.
+     */
+    public TableExporter start() {
+        if (running) {
+            return this;
+        }
+
+        running = true;
+        position = 0;
+        blob = null;
+        parts = createArray();
+
+        if (progressBar != null) {
+            progressBar.setMinimum(0).setMaximum(Math.max(1, rows.size())).setValue(0);
+        }
+
+        StringBuilder head = new StringBuilder();
+        if (format == Format.CSV) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    head.append(',');
+                }
+                appendCsv(head, columns.get(i));
+            }
+            head.append("\r\n");
+        } else {
+            head.append('[');
+        }
+        push(parts, head.toString());
+
+        writeSlice();
+        return this;
+    }
+
+    /**
+     * Stops the export. The partial output is discarded and no completion is reported.
+     */
+    public void cancel() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        if (timer >= 0) {
+            clearTimeout(timer);
+            timer = -1;
+        }
+        blob = null;
+        parts = null;
+
+        if (progressBar != null) {
+            progressBar.setValue(0);
+        }
+        if (cancelListener != null) {
+            cancelListener.run();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * @return The number of rows written so far
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    private void writeSlice() {
+        timer = -1;
+        if (!running) {
+            return;
+        }
+
+        double start = now();
+        StringBuilder chunk = new StringBuilder();
+
+        while (position < rows.size()) {
+            if (format == Format.CSV) {
+                appendCsvRow(chunk, rows.get(position));
+            } else {
+                appendJsonRow(chunk, rows.get(position), position == 0);
+            }
+            position++;
+
+            if (position % ROWS_PER_CLOCK_CHECK == 0 && now() - start >= SLICE_MS) {
+                break;
+            }
+        }
+
+        push(parts, chunk.toString());
+        if (partCount(parts) >= PARTS_PER_BLOB) {
+            // Fold the pending strings into the blob so they can be collected
+            blob = appendToBlob(blob, parts, format.getMimeType());
+            parts = createArray();
+        }
+
+        if (progressBar != null) {
+            progressBar.setValue(position);
+        }
+        if (progressListener != null) {
+            progressListener.accept(position);
+        }
+
+        if (position < rows.size()) {
+            timer = setTimeout(this::writeSlice, 0);
+        } else {
+            finish();
+        }
+    }
+
+    private void finish() {
+        if (format == Format.JSON) {
+            push(parts, rows.isEmpty() ? "]" : "\n]");
+        }
+        JSObject result = appendToBlob(blob, parts, format.getMimeType());
+        running = false;
+        blob = null;
+        parts = null;
+
+        if (fileName != null) {
+            download(result, fileName);
+        }
+        if (completeListener != null) {
+            completeListener.accept(result);
+        }
+    }
+
+    private void appendCsvRow(StringBuilder out, Map<String, Object> row) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            Object value = row.get(columns.get(i));
+            if (value != null) {
+                appendCsv(out, value.toString());
+            }
+        }
+        out.append("\r\n");
+    }
+
+    private static void appendCsv(StringBuilder out, String text) {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private void appendJsonRow(StringBuilder out, Map<String, Object> row, boolean first) {
+        out.append(first ? "\n{" : ",\n{");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendJsonString(out, columns.get(i));
+            out.append(':');
+
+            Object value = row.get(columns.get(i));
+            if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                out.append(Double.isNaN(number) || Double.isInfinite(number) ? "null" : value.toString());
+            } else if (value instanceof Boolean) {
+                out.append(value.toString());
+            } else if (value == null) {
+                out.append("null");
+            } else {
+                appendJsonString(out, value.toString());
+            }
+        }
+        out.append('}');
+    }
+
+    private static void appendJsonString(StringBuilder out, String text) {
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        String hex = Integer.toHexString(c);
+                        out.append("\\u");
+                        for (int pad = hex.length(); pad < 4; pad++) {
+                            out.append('0');
+                        }
+                        out.append(hex);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    @JSFunctor
+    interface TimerCallback extends JSObject {
+        void run();
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(script = "return performance.now();")
+    private static native double now();
+
+    @JSBody(params = {"callback", "delay"}, script = "return setTimeout(callback, delay);")
+    private static native int setTimeout(TimerCallback callback, int delay);
+
+    @JSBody(params = {"id"}, script = "clearTimeout(id);")
+    private static native void clearTimeout(int id);
+
+    @JSBody(script = "return [];")
+    private static native JSObject createArray();
+
+    @JSBody(params = {"array", "text"}, script = "array.push(text);")
+    private static native void push(JSObject array, String text);
+
+    @JSBody(params = {"array"}, script = "return array.length;")
+    private static native int partCount(JSObject array);
+
+    @JSBody(params = {"blob", "parts", "type"}, script =
+        "return new Blob(blob ? [blob].concat(parts) : parts, {type: type});")
+    private static native JSObject appendToBlob(JSObject blob, JSObject parts, String type);
+
+    @JSBody(params = {"blob", "fileName"}, script =
+        "var url = URL.createObjectURL(blob);" +
+        "var link = document.createElement('a');" +
+        "link.href = url;" +
+        "link.download = fileName;" +
+        "link.style.display = 'none';" +
+        "document.body.appendChild(link);" +
+        "link.click();" +
+        "document.body.removeChild(link);" +
+        "setTimeout(function() { URL.revokeObjectURL(url); }, 1000);")
+    private static native void download(JSObject blob, String fileName);
+}
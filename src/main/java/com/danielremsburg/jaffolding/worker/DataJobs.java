@@ -0,0 +1,150 @@
+package com.danielremsburg.jaffolding.worker;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sort and pivot kernels executed by {@link DataWorker}.
+ * All jobs work on primitive columns and return row indices or a table of values, so results
+ * can be posted back as typed arrays without any per-row object conversion.
+ */
+public class DataJobs {
+    /**
+     * Computes a stable sort permutation for a numeric column. NaN keys sort last.
+     * @param keys The column values
+     * @param ascending The sort direction
+     * @return Row indices in sorted order
+     */
+    public static int[] sortNumeric(double[] keys, boolean ascending) {
+        int[] order = identity(keys.length);
+        int[] buffer = new int[keys.length];
+        mergeSort(order, buffer, 0, keys.length, keys, ascending);
+        return order;
+    }
+
+    /**
+     * Computes a stable sort permutation for a dictionary-encoded string column.
+     * Negative codes denote missing values; they sort first when ascending and last when descending,
+     * matching the table's null ordering.
+     * @param codes The per-row dictionary codes
+     * @param dictionary The distinct values referenced by the codes
+     * @param ascending The sort direction
+     * @return Row indices in sorted order
+     */
+    public static int[] sortDictionary(int[] codes, String[] dictionary, boolean ascending) {
+        // Sort the dictionary once, then sort rows by the rank of their code
+        Integer[] byValue = new Integer[dictionary.length];
+        for (int i = 0; i < byValue.length; i++) {
+            byValue[i] = i;
+        }
+        Arrays.sort(byValue, (a, b) -> dictionary[a].compareTo(dictionary[b]));
+
+        double[] rank = new double[dictionary.length];
+        for (int i = 0; i < byValue.length; i++) {
+            rank[byValue[i]] = i;
+        }
+
+        double[] keys = new double[codes.length];
+        for (int i = 0; i < codes.length; i++) {
+            keys[i] = codes[i] < 0 ? -1 : rank[codes[i]];
+        }
+        return sortNumeric(keys, ascending);
+    }
+
+    /**
+     * Lays rows out as a label by category table, the way a grouped chart shows them.
+     * Labels and categories are numbered in order of first appearance. A cell holds the value of the
+     * last row with its label and category, NaN if that value is missing, or 0 if there is no such row.
+     * @param labels The label of each row
+     * @param categories The category of each row
+     * @param values The value of each row, NaN if missing
+     * @return The table
+     */
+    public static PivotTable pivot(String[] labels, String[] categories, double[] values) {
+        Map<String, Integer> labelCodes = new LinkedHashMap<>();
+        Map<String, Integer> categoryCodes = new LinkedHashMap<>();
+        int[] rowLabels = new int[labels.length];
+        int[] rowCategories = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            rowLabels[i] = code(labelCodes, labels[i]);
+            rowCategories[i] = code(categoryCodes, categories[i]);
+        }
+
+        int labelCount = labelCodes.size();
+        double[] cells = new double[categoryCodes.size() * labelCount];
+        for (int i = 0; i < labels.length; i++) {
+            cells[rowCategories[i] * labelCount + rowLabels[i]] = values[i];
+        }
+        return new PivotTable(labelCodes.keySet().toArray(new String[0]),
+                categoryCodes.keySet().toArray(new String[0]), cells);
+    }
+
+    private static int code(Map<String, Integer> codes, String key) {
+        Integer code = codes.get(key);
+        if (code == null) {
+            code = codes.size();
+            codes.put(key, code);
+        }
+        return code;
+    }
+
+    private static int[] identity(int length) {
+        int[] order = new int[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private static void mergeSort(int[] order, int[] buffer, int from, int to, double[] keys, boolean ascending) {
+        if (to - from < 2) {
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        mergeSort(order, buffer, from, mid, keys, ascending);
+        mergeSort(order, buffer, mid, to, keys, ascending);
+
+        if (compare(keys[order[mid - 1]], keys[order[mid]], ascending) <= 0) {
+            return;
+        }
+
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && compare(keys[buffer[i]], keys[buffer[j]], ascending) <= 0)) {
+                order[k] = buffer[i++];
+            } else {
+                order[k] = buffer[j++];
+            }
+        }
+    }
+
+    private static int compare(double a, double b, boolean ascending) {
+        boolean nanA = Double.isNaN(a);
+        boolean nanB = Double.isNaN(b);
+        if (nanA || nanB) {
+            return nanA == nanB ? 0 : (nanA ? 1 : -1);
+        }
+        int result = Double.compare(a, b);
+        return ascending ? result : -result;
+    }
+
+    /**
+     * A label by category table computed by {@link #pivot}, with the cell of a category and label at
+     * {@code values[category * labels.length + label]}.
+     */
+    public static class PivotTable {
+        public final String[] labels;
+        public final String[] categories;
+        public final double[] values;
+
+        public PivotTable(String[] labels, String[] categories, double[] values) {
+            this.labels = labels;
+            this.categories = categories;
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.danielremsburg.jaffolding.worker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.typedarrays.Float64Array;
+import org.teavm.jso.typedarrays.Int32Array;
+
+/**
+ * Entry point of the data processing Web Worker.
+ * This class is compiled by a separate TeaVM execution and loaded through
+ * {@code js/jaffolding/workers/DataWorker.js}. It receives columns as transferred typed arrays,
+ * runs the requested {@link DataJobs} kernel and posts the result back, again transferring the buffer.
+ * Jobs are processed one per task so that cancel messages sent by {@link DataWorkerClient}
+ * are seen before a superseded job starts.
+ */
+public class DataWorker {
+    private static final List<JSObject> queue = new ArrayList<>();
+    private static boolean drainScheduled;
+
+    public static void main(String[] args) {
+        listen(DataWorker::onMessage);
+    }
+
+    private static void onMessage(JSObject message) {
+        int id = getInt(message, "id");
+
+        if ("cancel".equals(getString(message, "op"))) {
+            // A job that already ran or was never queued has nothing to cancel
+            for (int i = 0; i < queue.size(); i++) {
+                if (getInt(queue.get(i), "id") == id) {
+                    queue.remove(i);
+                    postCancelled(id);
+                    break;
+                }
+            }
+            return;
+        }
+
+        queue.add(message);
+        scheduleDrain();
+    }
+
+    private static void scheduleDrain() {
+        if (!drainScheduled && !queue.isEmpty()) {
+            drainScheduled = true;
+            setTimeout(DataWorker::drainOne, 0);
+        }
+    }
+
+    private static void drainOne() {
+        drainScheduled = false;
+
+        if (!queue.isEmpty()) {
+            JSObject job = queue.remove(0);
+            run(job, getInt(job, "id"));
+        }
+
+        scheduleDrain();
+    }
+
+    private static void run(JSObject job, int id) {
+        String op = getString(job, "op");
+
+        try {
+            switch (op) {
+                case "sortNumeric":
+                    postIndices(id, DataJobs.sortNumeric(
+                            toDoubleArray(getFloat64(job, "keys")), getBoolean(job, "ascending")));
+                    break;
+                case "sortDictionary":
+                    postIndices(id, DataJobs.sortDictionary(
+                            toIntArray(getInt32(job, "codes")), getStrings(job, "dictionary"),
+                            getBoolean(job, "ascending")));
+                    break;
+                case "pivot":
+                    postPivot(id, DataJobs.pivot(getStrings(job, "labels"), getStrings(job, "categories"),
+                            toDoubleArray(getFloat64(job, "values"))));
+                    break;
+                default:
+                    postError(id, "Unknown job: " + op);
+            }
+        } catch (RuntimeException e) {
+            postError(id, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static double[] toDoubleArray(Float64Array array) {
+        double[] result = new double[array.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.get(i);
+        }
+        return result;
+    }
+
+    private static int[] toIntArray(Int32Array array) {
+        int[] result = new int[array.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.get(i);
+        }
+        return result;
+    }
+
+    private static void postIndices(int id, int[] indices) {
+        Int32Array array = Int32Array.create(indices.length);
+        for (int i = 0; i < indices.length; i++) {
+            array.set(i, indices[i]);
+        }
+        postResult(id, "indices", array);
+    }
+
+    private static void postPivot(int id, DataJobs.PivotTable table) {
+        Float64Array values = Float64Array.create(table.values.length);
+        for (int i = 0; i < table.values.length; i++) {
+            values.set(i, table.values[i]);
+        }
+        postTable(id, table.labels, table.categories, values);
+    }
+
+    /**
+     * Callback for messages posted to the worker.
+     */
+    @JSFunctor
+    interface MessageHandler extends JSObject {
+        void onMessage(JSObject data);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {"handler"}, script = "self.onmessage = function(e) { handler(e.data); };")
+    private static native void listen(MessageHandler handler);
+
+    @JSBody(params = {"callback", "delay"}, script = "setTimeout(callback, delay);")
+    private static native void setTimeout(Runnable callback, int delay);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native String getString(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key] | 0;")
+    private static native int getInt(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return !!obj[key];")
+    private static native boolean getBoolean(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native Float64Array getFloat64(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native Int32Array getInt32(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native String[] getStrings(JSObject obj, String key);
+
+    @JSBody(params = {"id", "key", "array"}, script =
+        "var message = {id: id};" +
+        "message[key] = array;" +
+        "self.postMessage(message, [array.buffer]);")
+    private static native void postResult(int id, String key, JSObject array);
+
+    @JSBody(params = {"id", "labels", "categories", "values"}, script =
+        "self.postMessage({id: id, labels: labels, categories: categories, values: values}, [values.buffer]);")
+    private static native void postTable(int id, String[] labels, String[] categories, Float64Array values);
+
+    @JSBody(params = {"id"}, script = "self.postMessage({id: id, cancelled: true});")
+    private static native void postCancelled(int id);
+
+    @JSBody(params = {"id", "error"}, script = "self.postMessage({id: id, error: error});")
+    private static native void postError(int id, String error);
+}
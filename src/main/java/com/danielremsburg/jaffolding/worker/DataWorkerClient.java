@@ -0,0 +1,283 @@
+package com.danielremsburg.jaffolding.worker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
+import org.teavm.jso.JSFunctor;
+import org.teavm.jso.JSObject;
+import org.teavm.jso.typedarrays.Float64Array;
+import org.teavm.jso.typedarrays.Int32Array;
+
+/**
+ * Main-thread side of the data processing worker.
+ * Jobs are submitted on a named channel; submitting a new job on a channel cancels the
+ * previous one, and results of superseded jobs are never delivered. Column data is copied
+ * into fresh typed arrays whose buffers are transferred, not cloned, to the worker.
+ * If workers are unavailable or the worker script fails to load, jobs run synchronously.
+ */
+public class DataWorkerClient {
+    public static final String DEFAULT_SCRIPT = "/js/jaffolding/workers/DataWorker.js";
+
+    private static DataWorkerClient shared;
+
+    private final JSObject worker;
+    private final Map<Integer, Job> pending = new HashMap<>();
+    private final Map<String, Integer> channels = new HashMap<>();
+    private int nextId = 1;
+    private boolean failed;
+
+    public DataWorkerClient(String scriptUrl) {
+        JSObject created = isWorkerSupported() ? createWorker(scriptUrl) : null;
+        this.worker = created;
+        this.failed = created == null;
+
+        if (created != null) {
+            listen(created, this::onMessage, this::onError);
+        }
+    }
+
+    /**
+     * Gets the shared client, creating the worker on first use.
+     * @return The shared client
+     */
+    public static DataWorkerClient getShared() {
+        if (shared == null) {
+            shared = new DataWorkerClient(DEFAULT_SCRIPT);
+        }
+        return shared;
+    }
+
+    /**
+     * Checks whether jobs are actually executed off the main thread.
+     * @return True if the worker is running
+     */
+    public boolean isOffloading() {
+        return !failed;
+    }
+
+    /**
+     * Sorts rows by a numeric key.
+     * @param channel The channel; a pending job on the same channel is cancelled
+     * @param keys The key of each row
+     * @param ascending The sort direction
+     * @param callback Receives the row indices in sorted order
+     */
+    public void sortNumeric(String channel, double[] keys, boolean ascending, Consumer<int[]> callback) {
+        submit(channel, () -> callback.accept(DataJobs.sortNumeric(keys, ascending)), id -> {
+            JSObject job = createJob(id, "sortNumeric");
+            setProperty(job, "keys", toFloat64(keys));
+            setBoolean(job, "ascending", ascending);
+            return job;
+        }, result -> callback.accept(toIntArray(getInt32(result, "indices"))));
+    }
+
+    /**
+     * Sorts rows by a dictionary-encoded string key.
+     * @param channel The channel; a pending job on the same channel is cancelled
+     * @param codes The dictionary code of each row, negative for missing values
+     * @param dictionary The distinct values
+     * @param ascending The sort direction
+     * @param callback Receives the row indices in sorted order
+     */
+    public void sortDictionary(String channel, int[] codes, String[] dictionary, boolean ascending,
+                               Consumer<int[]> callback) {
+        submit(channel, () -> callback.accept(DataJobs.sortDictionary(codes, dictionary, ascending)), id -> {
+            JSObject job = createJob(id, "sortDictionary");
+            setProperty(job, "codes", toInt32(codes));
+            setStrings(job, "dictionary", dictionary);
+            setBoolean(job, "ascending", ascending);
+            return job;
+        }, result -> callback.accept(toIntArray(getInt32(result, "indices"))));
+    }
+
+    /**
+     * Lays rows out as a label by category table. See {@link DataJobs#pivot} for the rules.
+     * @param channel The channel; a pending job on the same channel is cancelled
+     * @param labels The label of each row
+     * @param categories The category of each row
+     * @param values The value of each row, NaN if missing
+     * @param callback Receives the table
+     */
+    public void pivot(String channel, String[] labels, String[] categories, double[] values,
+                      Consumer<DataJobs.PivotTable> callback) {
+        submit(channel, () -> callback.accept(DataJobs.pivot(labels, categories, values)), id -> {
+            JSObject job = createJob(id, "pivot");
+            setStrings(job, "labels", labels);
+            setStrings(job, "categories", categories);
+            setProperty(job, "values", toFloat64(values));
+            return job;
+        }, result -> callback.accept(new DataJobs.PivotTable(getStrings(result, "labels"),
+                getStrings(result, "categories"), toDoubleArray(getFloat64(result, "values")))));
+    }
+
+    /**
+     * Cancels the pending job on a channel, if any.
+     * @param channel The channel
+     */
+    public void cancel(String channel) {
+        Integer previous = channels.remove(channel);
+        if (previous != null && pending.remove(previous) != null && !failed) {
+            postMessage(worker, createJob(previous, "cancel"));
+        }
+    }
+
+    private void submit(String channel, Runnable fallback, JobFactory factory, Consumer<JSObject> onResult) {
+        cancel(channel);
+
+        if (failed) {
+            fallback.run();
+            return;
+        }
+
+        int id = nextId++;
+        JSObject job = factory.create(id);
+        pending.put(id, new Job(channel, fallback, onResult));
+        channels.put(channel, id);
+        postTransfer(worker, job);
+    }
+
+    private void onMessage(JSObject message) {
+        int id = getInt(message, "id");
+        Job job = pending.remove(id);
+        if (job == null) {
+            // Superseded or cancelled
+            return;
+        }
+        channels.remove(job.channel);
+
+        if (getProperty(message, "error") != null) {
+            System.err.println("Data worker job failed: " + getString(message, "error"));
+            job.fallback.run();
+        } else if (getProperty(message, "cancelled") == null) {
+            job.onResult.accept(message);
+        }
+    }
+
+    private void onError(JSObject event) {
+        if (failed) {
+            return;
+        }
+
+        System.err.println("Data worker unavailable, processing on the main thread");
+        failed = true;
+
+        Map<Integer, Job> stranded = new HashMap<>(pending);
+        pending.clear();
+        channels.clear();
+        for (Job job : stranded.values()) {
+            job.fallback.run();
+        }
+    }
+
+    private static int[] toIntArray(Int32Array array) {
+        int[] result = new int[array.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.get(i);
+        }
+        return result;
+    }
+
+    private static double[] toDoubleArray(Float64Array array) {
+        double[] result = new double[array.getLength()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * A job waiting for its result.
+     */
+    private static class Job {
+        final String channel;
+        final Runnable fallback;
+        final Consumer<JSObject> onResult;
+
+        Job(String channel, Runnable fallback, Consumer<JSObject> onResult) {
+            this.channel = channel;
+            this.fallback = fallback;
+            this.onResult = onResult;
+        }
+    }
+
+    private interface JobFactory {
+        JSObject create(int id);
+    }
+
+    /**
+     * Callback for worker events.
+     */
+    @JSFunctor
+    interface EventHandler extends JSObject {
+        void handle(JSObject data);
+    }
+
+    // JavaScript interop methods
+
+    @JSBody(params = {}, script = "return typeof Worker !== 'undefined';")
+    private static native boolean isWorkerSupported();
+
+    @JSBody(params = {"url"}, script =
+        "try {" +
+        "  return new Worker(url);" +
+        "} catch (e) {" +
+        "  console.error('Error creating data worker:', e);" +
+        "  return null;" +
+        "}")
+    private static native JSObject createWorker(String url);
+
+    @JSBody(params = {"worker", "onMessage", "onError"}, script =
+        "worker.onmessage = function(e) { onMessage(e.data); };" +
+        "worker.onerror = function(e) { onError(e); };")
+    private static native void listen(JSObject worker, EventHandler onMessage, EventHandler onError);
+
+    @JSBody(params = {"id", "op"}, script = "return {id: id, op: op};")
+    private static native JSObject createJob(int id, String op);
+
+    @JSBody(params = {"worker", "message"}, script = "worker.postMessage(message);")
+    private static native void postMessage(JSObject worker, JSObject message);
+
+    @JSBody(params = {"worker", "message"}, script =
+        "var transfer = [];" +
+        "for (var key in message) {" +
+        "  if (ArrayBuffer.isView(message[key])) transfer.push(message[key].buffer);" +
+        "}" +
+        "worker.postMessage(message, transfer);")
+    private static native void postTransfer(JSObject worker, JSObject message);
+
+    @JSBody(params = {"data"}, script = "return data.slice();")
+    private static native Float64Array toFloat64(@JSByRef double[] data);
+
+    @JSBody(params = {"data"}, script = "return data.slice();")
+    private static native Int32Array toInt32(@JSByRef int[] data);
+
+    @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
+    private static native void setProperty(JSObject obj, String key, JSObject value);
+
+    @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
+    private static native void setStrings(JSObject obj, String key, String[] value);
+
+    @JSBody(params = {"obj", "key", "value"}, script = "obj[key] = value;")
+    private static native void setBoolean(JSObject obj, String key, boolean value);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key] === undefined ? null : obj[key];")
+    private static native JSObject getProperty(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return String(obj[key]);")
+    private static native String getString(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key] | 0;")
+    private static native int getInt(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native String[] getStrings(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native Int32Array getInt32(JSObject obj, String key);
+
+    @JSBody(params = {"obj", "key"}, script = "return obj[key];")
+    private static native Float64Array getFloat64(JSObject obj, String key);
+}
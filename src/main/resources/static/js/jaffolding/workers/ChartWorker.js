@@ -0,0 +1,89 @@
+/**
+ * Web Worker that draws a Chart.js chart on an OffscreenCanvas for
+ * com.danielremsburg.jaffolding.ui.ChartComponent.
+ * The page sends the canvas once, then the chart configuration, and afterwards
+ * only the edits made to the chart data, each addressed by its path from
+ * chart.data.
+ */
+var canvas = null;
+var chart = null;
+
+function resolve(path) {
+    var target = chart.data;
+    for (var i = 0; i < path.length; i++) {
+        target = target[path[i]];
+    }
+    return target;
+}
+
+function insert(array, start, deleteCount, items) {
+    // Avoids spreading large arrays into arguments
+    var tail = Array.prototype.slice.call(array, start + deleteCount);
+    array.length = start;
+    for (var i = 0; i < items.length; i++) array.push(items[i]);
+    for (var j = 0; j < tail.length; j++) array.push(tail[j]);
+}
+
+function apply(op) {
+    var target = resolve(op.path);
+    if (target === undefined || target === null) {
+        return;
+    }
+    switch (op.op) {
+        case 'set':
+            target[op.key] = op.value;
+            break;
+        case 'shift':
+            target.splice(0, op.count);
+            break;
+        case 'push':
+            insert(target, target.length, 0, op.items);
+            break;
+        case 'splice':
+            insert(target, op.start, op.deleteCount, op.items);
+            break;
+    }
+}
+
+self.onmessage = function(event) {
+    var message = event.data;
+    switch (message.type) {
+        case 'canvas':
+            canvas = message.canvas;
+            importScripts(message.script);
+            break;
+        case 'create':
+            if (chart) {
+                chart.destroy();
+            }
+            chart = new Chart(canvas, message.config);
+            if (message.width > 0 && message.height > 0) {
+                chart.resize(message.width, message.height);
+            }
+            break;
+        case 'update':
+            if (!chart) {
+                return;
+            }
+            for (var i = 0; i < message.ops.length; i++) {
+                apply(message.ops[i]);
+            }
+            if (message.range) {
+                chart.options.scales.x.min = message.range.min;
+                chart.options.scales.x.max = message.range.max;
+            }
+            chart.update(message.mode || undefined);
+            break;
+        case 'resize':
+            if (chart && message.width > 0 && message.height > 0) {
+                chart.resize(message.width, message.height);
+            }
+            break;
+        case 'destroy':
+            if (chart) {
+                chart.destroy();
+                chart = null;
+            }
+            break;
+    }
+};
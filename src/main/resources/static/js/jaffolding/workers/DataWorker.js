@@ -0,0 +1,7 @@
+/**
+ * Bootstrap for the data processing Web Worker.
+ * Loads the TeaVM-compiled worker bundle and starts
+ * com.danielremsburg.jaffolding.worker.DataWorker.
+ */
+importScripts('/teavm/worker/classes.js');
+main([]);
@@ -0,0 +1,182 @@
+package com.danielremsburg.jaffolding.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round-trips payloads through {@link ColumnarWriter} and a decoder that follows the same steps
+ * as the JavaScript decoder in {@code ColumnarData}.
+ */
+class ColumnarWriterTest {
+
+    @Test
+    void roundTripsEveryColumnType() {
+        double[] revenues = {120000.5, Double.NaN, -0.25};
+        int[] quantities = {120, 0, Integer.MIN_VALUE};
+        String[] products = {"Laptop", null, "Laptop"};
+        String[] months = {"J\u00e4nner", "", "February"};
+
+        byte[] payload = new ColumnarWriter(3)
+                .addDoubles("revenue", revenues)
+                .addInts("sales", quantities)
+                .addStrings("product", products)
+                .addStrings("m\u00f6nth", months)
+                .toByteArray();
+        Table table = decode(payload);
+
+        assertEquals(3, table.rowCount);
+        assertEquals(4, table.columns.size());
+
+        Column revenue = table.columns.get(0);
+        assertEquals("revenue", revenue.name);
+        assertEquals(ColumnarWriter.TYPE_FLOAT64, revenue.type);
+        assertArrayEquals(revenues, revenue.doubles);
+
+        Column sales = table.columns.get(1);
+        assertEquals("sales", sales.name);
+        assertEquals(ColumnarWriter.TYPE_INT32, sales.type);
+        assertArrayEquals(quantities, sales.ints);
+
+        Column product = table.columns.get(2);
+        assertEquals(ColumnarWriter.TYPE_STRING, product.type);
+        assertArrayEquals(new String[] {"Laptop"}, product.dictionary);
+        assertArrayEquals(new int[] {0, -1, 0}, product.ints);
+        assertArrayEquals(products, product.strings());
+
+        Column month = table.columns.get(3);
+        assertEquals("m\u00f6nth", month.name);
+        assertArrayEquals(new String[] {"J\u00e4nner", "", "February"}, month.dictionary);
+        assertArrayEquals(months, month.strings());
+    }
+
+    @Test
+    void alignsValuesForTypedArrays() {
+        // Odd name and entry lengths force padding before every value section
+        byte[] payload = new ColumnarWriter(1)
+                .addStrings("a", new String[] {"xyz"})
+                .addDoubles("bc", new double[] {1.5})
+                .addInts("def", new int[] {7})
+                .addDoubles("ghij", new double[] {2.5})
+                .toByteArray();
+        Table table = decode(payload);
+
+        for (Column column : table.columns) {
+            assertEquals(0, column.valueOffset % 8, column.name);
+        }
+        assertEquals(payload.length, table.end);
+        assertEquals(0, payload.length % 8);
+    }
+
+    @Test
+    void writesEmptyTables() {
+        Table empty = decode(new ColumnarWriter(0).toByteArray());
+        assertEquals(0, empty.rowCount);
+        assertTrue(empty.columns.isEmpty());
+
+        Table noRows = decode(new ColumnarWriter(0)
+                .addStrings("product", new String[0])
+                .addDoubles("revenue", new double[0])
+                .toByteArray());
+        assertEquals(2, noRows.columns.size());
+        assertEquals(0, noRows.columns.get(0).dictionary.length);
+        assertEquals(0, noRows.columns.get(1).doubles.length);
+    }
+
+    @Test
+    void rejectsColumnsOfTheWrongLength() {
+        ColumnarWriter writer = new ColumnarWriter(2);
+        assertThrows(IllegalArgumentException.class, () -> writer.addDoubles("revenue", new double[3]));
+        assertThrows(IllegalArgumentException.class, () -> writer.addInts("sales", new int[1]));
+        assertThrows(IllegalArgumentException.class, () -> writer.addStrings("product", new String[0]));
+    }
+
+    private static Table decode(byte[] payload) {
+        ByteBuffer view = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(ColumnarWriter.MAGIC, view.getInt(0));
+        assertEquals(ColumnarWriter.VERSION, view.getInt(4));
+
+        Table table = new Table();
+        table.rowCount = view.getInt(8);
+        int count = view.getInt(12);
+        int offset = 16;
+
+        for (int c = 0; c < count; c++) {
+            Column column = new Column();
+            int length = view.getInt(offset);
+            column.type = view.getInt(offset + 4);
+            int nameLength = view.getInt(offset + 8);
+            int p = offset + 12;
+            column.name = new String(payload, p, nameLength, StandardCharsets.UTF_8);
+            p = align(p + nameLength, 4);
+
+            if (column.type == ColumnarWriter.TYPE_STRING) {
+                int size = view.getInt(p);
+                p += 4;
+                column.dictionary = new String[size];
+                for (int d = 0; d < size; d++) {
+                    int entryLength = view.getInt(p);
+                    column.dictionary[d] = new String(payload, p + 4, entryLength, StandardCharsets.UTF_8);
+                    p = align(p + 4 + entryLength, 4);
+                }
+            }
+
+            p = align(p, 8);
+            column.valueOffset = p;
+            if (column.type == ColumnarWriter.TYPE_FLOAT64) {
+                column.doubles = new double[table.rowCount];
+                for (int i = 0; i < table.rowCount; i++) {
+                    column.doubles[i] = view.getDouble(p + i * 8);
+                }
+            } else {
+                column.ints = new int[table.rowCount];
+                for (int i = 0; i < table.rowCount; i++) {
+                    column.ints[i] = view.getInt(p + i * 4);
+                }
+            }
+
+            table.columns.add(column);
+            offset += 4 + length;
+        }
+
+        table.end = offset;
+        return table;
+    }
+
+    private static int align(int size, int alignment) {
+        return (size + alignment - 1) / alignment * alignment;
+    }
+
+    private static class Table {
+        int rowCount;
+        int end;
+        final List<Column> columns = new ArrayList<>();
+    }
+
+    private static class Column {
+        String name;
+        int type;
+        int valueOffset;
+        double[] doubles;
+        int[] ints;
+        String[] dictionary;
+
+        String[] strings() {
+            String[] values = new String[ints.length];
+            for (int i = 0; i < ints.length; i++) {
+                values[i] = ints[i] < 0 ? null : dictionary[ints[i]];
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.danielremsburg.jaffolding.controller;
+
+import com.danielremsburg.jaffolding.JaffoldingSpringBootApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests {@code /api/sales/aggregate} against the sample data loaded by the data initializer:
+ * five sales in January followed by the same five products in February.
+ */
+@SpringBootTest(classes = JaffoldingSpringBootApplication.class)
+@AutoConfigureMockMvc
+class SalesDataAggregateTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void groupsInOrderOfFirstSale() throws Exception {
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "month").param("measure", "sum(revenue)"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].month").value("January"))
+                .andExpect(jsonPath("$[0]['sum(revenue)']").value(264000.0))
+                .andExpect(jsonPath("$[1].month").value("February"))
+                .andExpect(jsonPath("$[1]['sum(revenue)']").value(268000.0));
+
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].category").value("Electronics"))
+                .andExpect(jsonPath("$[0]['count()']").value(6))
+                .andExpect(jsonPath("$[1].category").value("Accessories"))
+                .andExpect(jsonPath("$[1]['count()']").value(4));
+    }
+
+    @Test
+    void groupsBySeveralColumns() throws Exception {
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "category,month").param("measure", "max(sales)"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(4)))
+                .andExpect(jsonPath("$[0].category").value("Electronics"))
+                .andExpect(jsonPath("$[0].month").value("January"))
+                .andExpect(jsonPath("$[0]['max(sales)']").value(200))
+                .andExpect(jsonPath("$[1].category").value("Accessories"))
+                .andExpect(jsonPath("$[1].month").value("January"))
+                .andExpect(jsonPath("$[1]['max(sales)']").value(150));
+    }
+
+    @Test
+    void returnsOneTotalRowWithoutGroups() throws Exception {
+        mockMvc.perform(get("/api/sales/aggregate").param("measure", "sum(sales),count()"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0]['sum(sales)']").value(1325))
+                .andExpect(jsonPath("$[0]['count()']").value(10));
+    }
+
+    @Test
+    void aggregatesFilteredRowsOnly() throws Exception {
+        mockMvc.perform(get("/api/sales/aggregate")
+                        .param("groupBy", "month")
+                        .param("measure", "sum(revenue)")
+                        .param("eq.category", "Accessories"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]['sum(revenue)']").value(20000.0))
+                .andExpect(jsonPath("$[1]['sum(revenue)']").value(22500.0));
+
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "product").param("min.revenue", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].product").value("Laptop"))
+                .andExpect(jsonPath("$[0]['count()']").value(2))
+                .andExpect(jsonPath("$[1].product").value("Smartphone"))
+                .andExpect(jsonPath("$[1]['count()']").value(1));
+    }
+
+    @Test
+    void rejectsUnknownColumnsAndMeasures() throws Exception {
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "unknown"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/sales/aggregate").param("groupBy", "revenue"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/sales/aggregate").param("measure", "bogus(revenue)"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/sales/aggregate").param("measure", "sum(product)"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/sales/aggregate").param("eq.unknown", "x"))
+                .andExpect(status().isBadRequest());
+    }
+}